@@ -21,8 +21,8 @@ if not exist "%~dp0sources.txt" (
     exit /b 1
 )
 
-:: Compile using the sources list file with UTF-8 encoding
-%JAVAC_CMD% --release 8 -encoding UTF-8 -cp "lib/*;src" -d . @"%~dp0sources.txt"
+:: Compile using the sources list file with UTF-8 encoding (the API server needs Java 11)
+%JAVAC_CMD% --release 11 -encoding UTF-8 -cp "lib/*;src" -d . @"%~dp0sources.txt"
 if %errorlevel% neq 0 (
     echo Compilation failed!
     pause
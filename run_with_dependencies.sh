@@ -2,19 +2,21 @@
 echo "Starting CarSeek with dependencies..."
 
 # Set classpath to include all JAR files in lib directory
-export CLASSPATH="src:lib/*"
+export CLASSPATH="lib/*:."
 
-# Compile the Java files with UTF-8 encoding
+# Compile all Java files under src (recursively) with UTF-8 encoding; the API server needs Java 11
 echo "Compiling Java files..."
-javac -encoding UTF-8 -cp "$CLASSPATH" -source 8 -target 8 src/*.java
+find src -name "*.java" > sources.txt
+javac --release 11 -encoding UTF-8 -cp "lib/*" -d . @sources.txt
 
 if [ $? -ne 0 ]; then
     echo "Compilation failed!"
     exit 1
 fi
 
+rm -f sources.txt
 echo "Compilation successful!"
 echo "Starting application..."
 
 # Run the main application
-java -cp "$CLASSPATH" Main 
\ No newline at end of file
+java -cp "$CLASSPATH" main.Main 
\ No newline at end of file
@@ -0,0 +1,12 @@
+package enums;
+/**
+ * Change event type enumeration
+ * Identifies which kind of state transition a change-log event records
+ */
+public enum ChangeType {
+    RENTAL_STATUS,    // Rental created or moved between RentalStatus values
+    RENTAL_ARCHIVED,  // Closed rental moved from the hot file to monthly history
+    VEHICLE_STATUS,   // Vehicle moved between VehicleStatus values
+    TICKET_USED,      // Ticket validated and marked as used
+    PAYMENT           // Payment settled for a returned rental
+}
@@ -1,7 +1,36 @@
 package enums;
+/**
+ * Fuel type enumeration
+ * Anything not listed is OTHER with a custom label kept on the vehicle
+ */
 public enum FuelType {
-    PETROL,
-    DIESEL,
-    ELECTRIC,
-    HYBRID
-} 
\ No newline at end of file
+    PETROL("Petrol"),
+    DIESEL("Diesel"),
+    ELECTRIC("Electric"),
+    HYBRID("Hybrid"),
+    OTHER("Other");      // Custom fuel, label kept on the vehicle
+
+    private final String label;
+
+    FuelType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Map free-form text ("petrol", "Hybrid") to a fuel type, or OTHER if unknown
+     */
+    public static FuelType fromLabel(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return OTHER;
+        }
+        try {
+            return valueOf(text.trim().toUpperCase().replaceAll("[\\s-]+", "_"));
+        } catch (IllegalArgumentException e) {
+            return OTHER;
+        }
+    }
+}
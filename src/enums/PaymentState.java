@@ -0,0 +1,28 @@
+package enums;
+/**
+ * Payment state enumeration
+ * Lifecycle of one payment attempt for a rental:
+ * INVOICED -> AUTHORIZING -> AUTHORIZED -> CAPTURED, or FAILED before capture
+ */
+public enum PaymentState {
+    INVOICED,    // Amount worked out and shown to the customer
+    AUTHORIZING, // Charge sent to the payment method under the attempt's key; outcome not yet known
+    AUTHORIZED,  // Payment method accepted the charge
+    CAPTURED,    // Recorded in the payment ledger; final
+    FAILED;      // Declined, cancelled or abandoned; a new attempt may be invoiced
+
+    public boolean canMoveTo(PaymentState next) {
+        switch (this) {
+            case INVOICED:
+                return next == AUTHORIZING || next == FAILED;
+            case AUTHORIZING:
+                return next == AUTHORIZED || next == FAILED;
+            case AUTHORIZED:
+                return next == CAPTURED || next == FAILED;
+            case FAILED:
+                return next == INVOICED;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package enums;
+/**
+ * Reminder type enumeration
+ * Identifies which reminder was delivered for a rental
+ */
+public enum ReminderType {
+    DUE_SOON,   // Sent the day before the rental is due
+    OVERDUE     // Sent once the rental is past its end date
+}
@@ -0,0 +1,12 @@
+package enums;
+/**
+ * Search field enumeration
+ * Vehicle text fields covered by the search index
+ */
+public enum SearchField {
+    BRAND,
+    MODEL,
+    PLATE,
+    TYPE,
+    FUEL
+}
@@ -0,0 +1,11 @@
+package enums;
+/**
+ * Vehicle facet enumeration
+ * Attributes kept as per-value bitsets for filtering and facet counts
+ */
+public enum VehicleFacet {
+    TYPE,
+    FUEL,
+    STATUS,
+    BRAND
+}
@@ -1,7 +1,41 @@
 package enums;
+/**
+ * Vehicle type enumeration
+ * Covers the body types used in the fleet; anything else is OTHER with a custom label
+ */
 public enum VehicleType {
-    CAR,
-    MOTORCYCLE,
-    VAN,
-    TRUCK
-} 
\ No newline at end of file
+    CAR("Car"),
+    MOTORCYCLE("Motorcycle"),
+    VAN("Van"),
+    TRUCK("Truck"),
+    SEDAN("Sedan"),
+    HATCHBACK("Hatchback"),
+    SUV("SUV"),
+    MPV("MPV"),
+    PICKUP_TRUCK("Pickup truck"),
+    OTHER("Other");      // Custom type, label kept on the vehicle
+
+    private final String label;
+
+    VehicleType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Map free-form text ("Suv", "pickup truck") to a type, or OTHER if unknown
+     */
+    public static VehicleType fromLabel(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return OTHER;
+        }
+        try {
+            return valueOf(text.trim().toUpperCase().replaceAll("[\\s-]+", "_"));
+        } catch (IllegalArgumentException e) {
+            return OTHER;
+        }
+    }
+}
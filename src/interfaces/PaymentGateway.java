@@ -0,0 +1,14 @@
+package interfaces;
+
+/**
+ * Payment method that charges a customer. The idempotency key identifies the
+ * charge: sending the same key again (e.g. to finish a payment interrupted by
+ * a crash) must not charge the customer a second time.
+ */
+public interface PaymentGateway {
+
+    /**
+     * @return true if the charge was accepted, false if it was declined and nothing was charged
+     */
+    boolean charge(String idempotencyKey, String method, double amount);
+}
@@ -0,0 +1,12 @@
+package interfaces;
+
+import models.Vehicle;
+
+/**
+ * Listener notified when a vehicle's status or archived flag changes,
+ * so derived indexes can stay in step without rescanning the fleet
+ */
+public interface VehicleChangeListener {
+
+    void vehicleChanged(Vehicle vehicle);
+}
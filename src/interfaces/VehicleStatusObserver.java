@@ -0,0 +1,13 @@
+package interfaces;
+
+import enums.VehicleStatus;
+import models.Vehicle;
+
+/**
+ * Fleet-wide observer of vehicle status transitions, told the previous status
+ * so downstream feeds can record what changed
+ */
+public interface VehicleStatusObserver {
+
+    void vehicleStatusChanged(Vehicle vehicle, VehicleStatus previous);
+}
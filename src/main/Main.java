@@ -1,5 +1,6 @@
 package main;
 import enums.*;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
@@ -13,11 +14,100 @@ import static services.UtilityService.*;
 public class Main {
     
     public static void main(String[] args) {
+        // Load generator against a running API server: --load-test <url> [concurrency] [requests]
+        if (args.length > 1 && args[0].equals("--load-test")) {
+            try {
+                int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+                int requests = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+                ApiLoadGenerator.run(args[1], concurrency, requests);
+            } catch (NumberFormatException | java.io.IOException | InterruptedException e) {
+                System.out.println("Failed to run load test: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Ticket scan code verification benchmark: --ticket-scan-bench [tickets] [desks] [scans]
+        if (args.length > 0 && args[0].equals("--ticket-scan-bench")) {
+            try {
+                int tickets = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+                int desks = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+                int scans = args.length > 3 ? Integer.parseInt(args[3]) : 1000000;
+                TicketScanBenchmark.run(tickets, desks, scans);
+            } catch (NumberFormatException | java.io.IOException | InterruptedException e) {
+                System.out.println("Failed to run ticket scan benchmark: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Pricing engine throughput against the 1M quotes/s target: --pricing-bench [vehicles] [threads] [quotes]
+        if (args.length > 0 && args[0].equals("--pricing-bench")) {
+            try {
+                int vehicles = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+                int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+                int quotes = args.length > 3 ? Integer.parseInt(args[3]) : 10000000;
+                PricingBenchmark.run(vehicles, threads, quotes);
+            } catch (NumberFormatException | java.io.IOException | InterruptedException e) {
+                System.out.println("Failed to run pricing benchmark: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Optimistic booking contention: --booking-bench [vehicles] [operators] [bookings] [think micros]
+        if (args.length > 0 && args[0].equals("--booking-bench")) {
+            try {
+                int vehicles = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+                int operators = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+                int bookings = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+                int thinkMicros = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+                BookingContentionBenchmark.run(vehicles, operators, bookings, thinkMicros);
+            } catch (NumberFormatException | java.io.IOException | InterruptedException e) {
+                System.out.println("Failed to run booking benchmark: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Concurrent extension stress test on a scratch rental system: --extend-stress [customers] [threads] [ops]
+        if (args.length > 0 && args[0].equals("--extend-stress")) {
+            try {
+                int customers = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+                int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+                int ops = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+                ExtensionStressTest.run(customers, threads, ops);
+            } catch (NumberFormatException | java.io.IOException | InterruptedException e) {
+                System.out.println("Failed to run extension stress test: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Payment ledger maintenance: --ledger <verify|compact> [file]
+        if (args.length > 1 && args[0].equals("--ledger")) {
+            PaymentLedger ledger = new PaymentLedger(args.length > 2 ? args[2] : PaymentLedger.DEFAULT_FILE,
+                    PaymentLedger.LEGACY_FILE);
+            try {
+                if (args[1].equals("compact")) {
+                    ledger.compact();
+                } else if (args[1].equals("verify")) {
+                    ledger.verify();
+                } else {
+                    System.out.println("Unknown ledger command " + args[1] + " (expected verify or compact)");
+                }
+            } catch (java.io.IOException e) {
+                System.out.println("Failed to " + args[1] + " payment ledger: " + e.getMessage());
+            } finally {
+                ledger.close();
+            }
+            return;
+        }
+
         clearScreen();
         RentalSystem system = new RentalSystem();
         AccountService.loadAccounts("accounts.json");
         vehicleService.loadVehicles("vehicles.json");
         system.loadRentals("rentals.json");
+        // Finish payments a crash interrupted before anything else can touch them
+        system.reconcilePayments("rentals.json");
+        // Keep rentals.json to the hot window; older closed rentals move to rental_history/
+        system.archiveColdRentals("rentals.json");
 
         
         // Load user emails for notification service
@@ -30,6 +120,71 @@ public class Main {
         // The status from saved files should be respected initially
         // system.syncVehicleStatusWithRentals();
         // vehicleService.saveVehicles("vehicles.json");
+
+        // Nightly export: --export <rentals|vehicles|messages> <file[.gz]> [--from date] [--to date] [--status S]
+        if (args.length > 2 && args[0].equals("--export")) {
+            try {
+                LocalDate from = null;
+                LocalDate to = null;
+                RentalStatus status = null;
+                for (int i = 3; i + 1 < args.length; i += 2) {
+                    switch (args[i]) {
+                        case "--from":
+                            from = LocalDate.parse(args[i + 1]);
+                            break;
+                        case "--to":
+                            to = LocalDate.parse(args[i + 1]);
+                            break;
+                        case "--status":
+                            status = RentalStatus.valueOf(args[i + 1].toUpperCase());
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                }
+                long started = System.currentTimeMillis();
+                long count = new DataExportService(system).exportToFile(args[1], args[2], from, to, status);
+                System.out.println("Exported " + count + " " + args[1] + " records to " + args[2] + " in "
+                        + (System.currentTimeMillis() - started) + " ms");
+            } catch (java.io.IOException | RuntimeException e) {
+                System.out.println("Failed to export " + args[1] + ": " + e.getMessage());
+            }
+            return;
+        }
+
+        // Month-end receipts: --receipts <from> <to> <file.zip> [txt,csv,pdf] [threads]
+        if (args.length > 3 && args[0].equals("--receipts")) {
+            try {
+                List<String> formats = args.length > 4 ? Arrays.asList(args[4].toLowerCase().split(","))
+                        : BatchReceiptService.ALL_FORMATS;
+                int threads = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+                new BatchReceiptService(system).generate(LocalDate.parse(args[1]), LocalDate.parse(args[2]),
+                        formats, args[3], threads).display();
+            } catch (java.io.IOException | RuntimeException e) {
+                System.out.println("Failed to generate receipts: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Headless mode: serve the HTTP/JSON API instead of the console menus (--http [port])
+        if (args.length > 0 && args[0].equals("--http")) {
+            // --http [port] [bind address]; loopback only unless an address is given
+            int port = RentalApiServer.DEFAULT_PORT;
+            try {
+                if (args.length > 1) {
+                    port = Integer.parseInt(args[1]);
+                }
+                java.net.InetAddress bind = args.length > 2 ? java.net.InetAddress.getByName(args[2])
+                        : java.net.InetAddress.getLoopbackAddress();
+                new RentalApiServer(system, bind, port).start();
+                System.out.println("CARSEEK API listening on http://" + bind.getHostAddress() + ":" + port + "/api/");
+                System.out.println("Clients authenticate with HTTP Basic account credentials or the bearer token in "
+                        + RentalApiServer.TOKEN_FILE);
+            } catch (NumberFormatException | java.io.IOException e) {
+                System.out.println("Failed to start API server: " + e.getMessage());
+            }
+            return;
+        }
         
         Scanner scanner = new Scanner(System.in);
         clearScreen();
@@ -152,6 +307,7 @@ public class Main {
             System.out.println("║  4. Payment Management                                           ║");
             System.out.println("║  5. Reports & Analytics                                          ║");
             System.out.println("║  6. Admin Profile Management                                     ║");
+            System.out.println("║  7. Bulk Data Import                                             ║");
             System.out.println("║  0. Logout                                                       ║");
             System.out.println("╚══════════════════════════════════════════════════════════════════╝");
             System.out.print("Select option: ");
@@ -176,6 +332,9 @@ public class Main {
                 case "6":
                     AdminService.manageAdminProfile(scanner, currentAccount);
                     break;
+                case "7":
+                    AdminService.bulkImport(system, scanner);
+                    break;
                 case "0":
                     System.out.println("Logged out.");
                     clearScreen();
@@ -235,7 +394,7 @@ public class Main {
         System.out.println("║                      SYSTEM STATISTICS                           ║");
         System.out.println("╠══════════════════════════════════════════════════════════════════╣");
         
-        List<Rental> rentals = system.getRentals();
+        List<Rental> rentals = system.getAllRentals();
         List<Vehicle> vehicles = vehicleService.getVehicles();
         
         int totalRentals = rentals.size();
@@ -321,8 +480,7 @@ public class Main {
 
     // Payment management menu
     public static void paymentManagementMenu(RentalSystem system, Scanner scanner, Account account) {
-        PaymentService paymentService = new PaymentService();
-        paymentService.paymentManagementMenu(scanner, account);
+        system.getPaymentService().paymentManagementMenu(scanner, account);
     }
 
 } 
\ No newline at end of file
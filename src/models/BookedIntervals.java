@@ -0,0 +1,65 @@
+package models;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Sorted, immutable set of booked date ranges for one vehicle, stored as
+ * epoch-day pairs so overlap checks are a binary search rather than a scan.
+ */
+public final class BookedIntervals {
+
+    public static final BookedIntervals EMPTY = new BookedIntervals(new long[0]);
+
+    private final int[] starts; // sorted by start day
+    private final int[] maxEnds; // running maximum of end days, so overlaps stay searchable
+
+    /**
+     * @param packed each entry is (startEpochDay << 32) | endEpochDay as produced by {@link #pack}
+     */
+    private BookedIntervals(long[] packed) {
+        Arrays.sort(packed);
+        this.starts = new int[packed.length];
+        this.maxEnds = new int[packed.length];
+        int maxEnd = Integer.MIN_VALUE;
+        for (int i = 0; i < packed.length; i++) {
+            starts[i] = (int) (packed[i] >> 32);
+            maxEnd = Math.max(maxEnd, (int) packed[i]);
+            maxEnds[i] = maxEnd;
+        }
+    }
+
+    public static BookedIntervals of(long[] packed, int count) {
+        return count == 0 ? EMPTY : new BookedIntervals(Arrays.copyOf(packed, count));
+    }
+
+    public static long pack(LocalDate startDate, LocalDate endDate) {
+        return ((long) (int) startDate.toEpochDay() << 32) | ((int) endDate.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Check whether [startDay, endDay] touches any booking widened by bufferDays on each side
+     */
+    public boolean overlaps(long startDay, long endDay, int bufferDays) {
+        // Last booking that starts on or before the requested end (plus buffer)
+        long limit = endDay + bufferDays;
+        int low = 0;
+        int high = starts.length - 1;
+        int last = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= limit) {
+                last = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // Any of those bookings overlaps iff the furthest end reaches the requested start
+        return last >= 0 && maxEnds[last] + (long) bufferDays >= startDay;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+}
@@ -0,0 +1,90 @@
+package models;
+
+import java.time.LocalDate;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tentative, time-limited hold on a vehicle for a date range, placed while a
+ * customer is still going through the booking prompts. Ordered by expiry so
+ * holds can sit in a DelayQueue.
+ */
+public class BookingHold implements Delayed {
+    private final String holdId;
+    private final int vehicleId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final String holder;
+    private final long expiresAtNanos;
+    private volatile boolean released;
+
+    public BookingHold(String holdId, int vehicleId, LocalDate startDate, LocalDate endDate, String holder,
+            long ttlMillis) {
+        this.holdId = holdId;
+        this.vehicleId = vehicleId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.holder = holder;
+        this.expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public String getHoldId() {
+        return holdId;
+    }
+
+    public int getVehicleId() {
+        return vehicleId;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public String getHolder() {
+        return holder;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public void markReleased() {
+        released = true;
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /**
+     * Still blocking other customers: neither released nor expired
+     */
+    public boolean isLive() {
+        return !released && !isExpired();
+    }
+
+    /**
+     * Whether this hold, widened by bufferDays on both sides, overlaps the inclusive range
+     */
+    public boolean overlaps(LocalDate otherStart, LocalDate otherEnd, int bufferDays) {
+        return !startDate.minusDays(bufferDays).isAfter(otherEnd)
+                && !otherStart.isAfter(endDate.plusDays(bufferDays));
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(expiresAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other instanceof BookingHold) {
+            return Long.compare(expiresAtNanos, ((BookingHold) other).expiresAtNanos);
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
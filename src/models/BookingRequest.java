@@ -0,0 +1,64 @@
+package models;
+
+import java.time.LocalDate;
+
+/**
+ * Input for a headless booking: who, which vehicle, which dates
+ */
+public class BookingRequest {
+    private final Customer customer;
+    private final int vehicleId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final boolean insurance;
+    private final String username;
+    private final long observedVersion; // Vehicle.getScheduleVersion() when availability was checked, or -1
+
+    public BookingRequest(Customer customer, int vehicleId, LocalDate startDate, LocalDate endDate,
+            boolean insurance, String username) {
+        this(customer, vehicleId, startDate, endDate, insurance, username, -1);
+    }
+
+    /**
+     * @param observedVersion schedule version seen when the dates were checked; the booking
+     *                        commits without re-checking if the schedule has not changed since
+     */
+    public BookingRequest(Customer customer, int vehicleId, LocalDate startDate, LocalDate endDate,
+            boolean insurance, String username, long observedVersion) {
+        this.customer = customer;
+        this.vehicleId = vehicleId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.insurance = insurance;
+        this.username = username;
+        this.observedVersion = observedVersion;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public int getVehicleId() {
+        return vehicleId;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public boolean isInsurance() {
+        return insurance;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getObservedVersion() {
+        return observedVersion;
+    }
+}
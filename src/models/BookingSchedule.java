@@ -0,0 +1,258 @@
+package models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Date-sorted booking schedule for one vehicle.
+ * Bookings are kept as parallel epoch-day arrays ordered by start date, with a
+ * running maximum of end dates so overlap, next-booking and exact-match lookups
+ * are binary searches. Bookings that ended before the retention cutoff are
+ * archived (dropped from the arrays and counted) so long-lived vehicles only
+ * carry their current and upcoming bookings.
+ *
+ * Every change to the bookings bumps a version stamp. A caller that checked
+ * availability at some version can later book with compareAndBook: if nothing
+ * changed in between the booking commits without re-checking, otherwise the
+ * range is re-validated against the current bookings.
+ */
+public class BookingSchedule {
+
+    private long[] starts = new long[4];
+    private long[] ends = new long[4];
+    private long[] maxEnds = new long[4]; // maxEnds[i] = max(ends[0..i])
+    private int size;
+    private int archivedCount;
+    private long lastPruneCutoff = Long.MIN_VALUE;
+    private long version;
+
+    // Fleet-wide compare-and-book outcomes, for measuring contention
+    private static final AtomicLong fastCommits = new AtomicLong();
+    private static final AtomicLong revalidatedCommits = new AtomicLong();
+    private static final AtomicLong conflicts = new AtomicLong();
+
+    /**
+     * Add a booking in start-date order (no conflict check)
+     */
+    public synchronized void add(LocalDate startDate, LocalDate endDate) {
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            maxEnds = Arrays.copyOf(maxEnds, capacity);
+        }
+        int pos = upperBound(start);
+        System.arraycopy(starts, pos, starts, pos + 1, size - pos);
+        System.arraycopy(ends, pos, ends, pos + 1, size - pos);
+        starts[pos] = start;
+        ends[pos] = end;
+        size++;
+        version++;
+        refreshMaxEnds(pos);
+    }
+
+    /**
+     * Book the range if the schedule is still at the observed version; if it has
+     * changed since, book only if the range is still free. Returns false on conflict.
+     */
+    public synchronized boolean compareAndBook(LocalDate startDate, LocalDate endDate, int bufferDays,
+            long observedVersion) {
+        if (observedVersion == version) {
+            fastCommits.incrementAndGet();
+        } else if (overlaps(startDate, endDate, bufferDays)) {
+            conflicts.incrementAndGet();
+            return false;
+        } else {
+            revalidatedCommits.incrementAndGet();
+        }
+        add(startDate, endDate);
+        return true;
+    }
+
+    /**
+     * Version stamp, changed by every add, remove and clear
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Remove the booking with exactly these dates; returns false if there is none
+     */
+    public synchronized boolean remove(LocalDate startDate, LocalDate endDate) {
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        for (int i = lowerBound(start); i < size && starts[i] == start; i++) {
+            if (ends[i] == end) {
+                System.arraycopy(starts, i + 1, starts, i, size - i - 1);
+                System.arraycopy(ends, i + 1, ends, i, size - i - 1);
+                size--;
+                version++;
+                refreshMaxEnds(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move the end of the booking [startDate, originalEnd] to newEnd in one step: the added
+     * days are checked against the other bookings before anything changes. Returns false,
+     * leaving the schedule untouched, if the booking is gone, newEnd is not later or the
+     * added days are taken.
+     */
+    public synchronized boolean extend(LocalDate startDate, LocalDate originalEnd, LocalDate newEnd) {
+        if (!newEnd.isAfter(originalEnd) || overlaps(originalEnd.plusDays(1), newEnd, 0)
+                || !remove(startDate, originalEnd)) {
+            return false;
+        }
+        add(startDate, newEnd);
+        return true;
+    }
+
+    /**
+     * Whether any booking, widened by bufferDays on both sides, overlaps the inclusive range
+     */
+    public synchronized boolean overlaps(LocalDate startDate, LocalDate endDate, int bufferDays) {
+        // Last booking that starts no later than endDate + buffer
+        int last = upperBound(endDate.toEpochDay() + bufferDays) - 1;
+        return last >= 0 && maxEnds[last] + bufferDays >= startDate.toEpochDay();
+    }
+
+    /**
+     * Earliest booking starting on or after the given day, or null
+     */
+    public synchronized Booking nextStartingFrom(LocalDate day) {
+        int i = lowerBound(day.toEpochDay());
+        return i < size ? toBooking(i) : null;
+    }
+
+    /**
+     * Whether any booking starts on or after the given day
+     */
+    public synchronized boolean hasStartFrom(LocalDate day) {
+        return size > 0 && starts[size - 1] >= day.toEpochDay();
+    }
+
+    /**
+     * Archive bookings whose end date is before the cutoff. Cheap when called
+     * repeatedly with the same cutoff. Returns the number of bookings archived.
+     */
+    public synchronized int archiveEndedBefore(LocalDate cutoff) {
+        long cutoffDay = cutoff.toEpochDay();
+        if (cutoffDay <= lastPruneCutoff) {
+            return 0;
+        }
+        lastPruneCutoff = cutoffDay;
+
+        // maxEnds is non-decreasing, so the archivable bookings form a prefix
+        int count = 0;
+        while (count < size && maxEnds[count] < cutoffDay) {
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(starts, count, starts, 0, size - count);
+        System.arraycopy(ends, count, ends, 0, size - count);
+        System.arraycopy(maxEnds, count, maxEnds, 0, size - count);
+        size -= count;
+        archivedCount += count;
+        return count;
+    }
+
+    public synchronized void clear() {
+        size = 0;
+        version++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int getArchivedCount() {
+        return archivedCount;
+    }
+
+    /**
+     * Snapshot of current bookings in start-date order
+     */
+    public synchronized List<Booking> toList() {
+        List<Booking> bookings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bookings.add(toBooking(i));
+        }
+        return Collections.unmodifiableList(bookings);
+    }
+
+    /**
+     * Bookings committed without re-validation because the schedule was unchanged
+     */
+    public static long getFastCommits() {
+        return fastCommits.get();
+    }
+
+    /**
+     * Bookings committed after re-validating against a changed schedule
+     */
+    public static long getRevalidatedCommits() {
+        return revalidatedCommits.get();
+    }
+
+    /**
+     * Bookings rejected because the schedule changed and the range was taken
+     */
+    public static long getConflicts() {
+        return conflicts.get();
+    }
+
+    private Booking toBooking(int i) {
+        return new Booking(LocalDate.ofEpochDay(starts[i]), LocalDate.ofEpochDay(ends[i]));
+    }
+
+    private void refreshMaxEnds(int from) {
+        for (int i = from; i < size; i++) {
+            maxEnds[i] = i == 0 ? ends[0] : Math.max(maxEnds[i - 1], ends[i]);
+        }
+    }
+
+    /**
+     * First index whose start is >= day
+     */
+    private int lowerBound(long day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First index whose start is > day
+     */
+    private int upperBound(long day) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,62 @@
+package models;
+
+import enums.ChangeType;
+
+/**
+ * One entry of the change log: a numbered state transition of a rental,
+ * vehicle, ticket or payment
+ */
+public class ChangeEvent {
+    private final long sequence;
+    private final long timestampMillis;
+    private final ChangeType type;
+    private final String entityId;
+    private final String from; // Previous state, empty when the entity is new
+    private final String to;
+    private final String detail;
+
+    public ChangeEvent(long sequence, long timestampMillis, ChangeType type, String entityId, String from,
+            String to, String detail) {
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.type = type;
+        this.entityId = entityId;
+        this.from = from == null ? "" : from;
+        this.to = to == null ? "" : to;
+        this.detail = detail == null ? "" : detail;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + entityId + " " + from + " -> " + to
+                + (detail.isEmpty() ? "" : " (" + detail + ")");
+    }
+}
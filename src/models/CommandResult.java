@@ -0,0 +1,79 @@
+package models;
+
+/**
+ * Outcome of a headless rental operation: success flag, a human-readable
+ * message, and whatever the operation produced (rental, ticket, payment amounts).
+ * Nothing is printed; console menus decide how to show it.
+ */
+public class CommandResult {
+    private final boolean success;
+    private final String message;
+    private Rental rental;
+    private Ticket ticket;
+    private double discountRate;
+    private double lateFee;
+    private double amountPaid;
+
+    private CommandResult(boolean success, String message) {
+        this.success = success;
+        this.message = message;
+    }
+
+    public static CommandResult ok(String message) {
+        return new CommandResult(true, message);
+    }
+
+    public static CommandResult fail(String message) {
+        return new CommandResult(false, message);
+    }
+
+    public CommandResult withRental(Rental rental) {
+        this.rental = rental;
+        return this;
+    }
+
+    public CommandResult withTicket(Ticket ticket) {
+        this.ticket = ticket;
+        return this;
+    }
+
+    public CommandResult withPayment(double discountRate, double lateFee, double amountPaid) {
+        this.discountRate = discountRate;
+        this.lateFee = lateFee;
+        this.amountPaid = amountPaid;
+        return this;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Rental getRental() {
+        return rental;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public double getDiscountRate() {
+        return discountRate;
+    }
+
+    public double getLateFee() {
+        return lateFee;
+    }
+
+    public double getAmountPaid() {
+        return amountPaid;
+    }
+
+    @Override
+    public String toString() {
+        return (success ? "OK: " : "FAILED: ") + message;
+    }
+}
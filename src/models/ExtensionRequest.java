@@ -0,0 +1,46 @@
+package models;
+
+import java.time.LocalDate;
+
+/**
+ * Input for a headless extension of a customer's active or pending rental
+ */
+public class ExtensionRequest {
+    private final String username;
+    private final int vehicleId;
+    private final LocalDate newEndDate;
+    private final boolean insurance;
+    private final int rentalId; // Rental to extend, or 0 for the customer's active (else pending) one
+
+    public ExtensionRequest(String username, int vehicleId, LocalDate newEndDate, boolean insurance) {
+        this(username, vehicleId, newEndDate, insurance, 0);
+    }
+
+    public ExtensionRequest(String username, int vehicleId, LocalDate newEndDate, boolean insurance, int rentalId) {
+        this.username = username;
+        this.vehicleId = vehicleId;
+        this.newEndDate = newEndDate;
+        this.insurance = insurance;
+        this.rentalId = rentalId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int getVehicleId() {
+        return vehicleId;
+    }
+
+    public LocalDate getNewEndDate() {
+        return newEndDate;
+    }
+
+    public boolean isInsurance() {
+        return insurance;
+    }
+
+    public int getRentalId() {
+        return rentalId;
+    }
+}
@@ -0,0 +1,83 @@
+package models;
+
+/**
+ * Summary of a bulk import run
+ */
+public class ImportReport {
+    private final String source;
+    private long rowsRead;
+    private long accepted;
+    private long rejected;
+    private long elapsedMillis;
+    private String rejectsFile;
+    private boolean committed;
+
+    public ImportReport(String source) {
+        this.source = source;
+    }
+
+    public void recordRead() {
+        rowsRead++;
+    }
+
+    public void recordAccepted() {
+        accepted++;
+    }
+
+    public void recordRejected() {
+        rejected++;
+    }
+
+    /**
+     * An accepted row that could not be committed after all
+     */
+    public void recordRejectedAtCommit() {
+        accepted--;
+        rejected++;
+    }
+
+    public void finish(long elapsedMillis, String rejectsFile, boolean committed) {
+        this.elapsedMillis = elapsedMillis;
+        this.rejectsFile = rejectsFile;
+        this.committed = committed;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String getRejectsFile() {
+        return rejectsFile;
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public void display() {
+        System.out.println("\n=== Import Summary: " + source + " ===");
+        System.out.printf("Rows read: %d | Accepted: %d | Rejected: %d%n", rowsRead, accepted, rejected);
+        System.out.printf("Time: %.2f s (%.0f rows/s)%n", elapsedMillis / 1000.0,
+                elapsedMillis > 0 ? rowsRead * 1000.0 / elapsedMillis : (double) rowsRead);
+        System.out.println(committed ? "Accepted rows committed." : "Nothing was committed.");
+        if (rejected > 0) {
+            System.out.println("Rejected rows written to: " + rejectsFile);
+        }
+    }
+}
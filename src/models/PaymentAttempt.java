@@ -0,0 +1,73 @@
+package models;
+
+import enums.PaymentState;
+
+/**
+ * Latest state of a rental's payment attempt, as recorded in the payment journal
+ */
+public class PaymentAttempt {
+    private final int rentalId;
+    private final String idempotencyKey; // Identifies the charge; the same key is never charged twice
+    private final PaymentState state;
+    private final double amount;
+    private final double discount;
+    private final double lateFee;
+    private final String method;
+    private final long ledgerRecord; // Payment ledger record once captured, otherwise -1
+    private final long updatedAtMillis;
+    private final String detail;
+
+    public PaymentAttempt(int rentalId, String idempotencyKey, PaymentState state, double amount, double discount,
+            double lateFee, String method, long ledgerRecord, long updatedAtMillis, String detail) {
+        this.rentalId = rentalId;
+        this.idempotencyKey = idempotencyKey;
+        this.state = state;
+        this.amount = amount;
+        this.discount = discount;
+        this.lateFee = lateFee;
+        this.method = method == null ? "" : method;
+        this.ledgerRecord = ledgerRecord;
+        this.updatedAtMillis = updatedAtMillis;
+        this.detail = detail == null ? "" : detail;
+    }
+
+    public int getRentalId() {
+        return rentalId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public PaymentState getState() {
+        return state;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public double getDiscount() {
+        return discount;
+    }
+
+    public double getLateFee() {
+        return lateFee;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getLedgerRecord() {
+        return ledgerRecord;
+    }
+
+    public long getUpdatedAtMillis() {
+        return updatedAtMillis;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+}
@@ -0,0 +1,92 @@
+package models;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * One settled payment as stored in the payment ledger
+ */
+public class PaymentRecord {
+    private final long recordNumber; // Position in the ledger, -1 until appended
+    private final long paidAtMillis;
+    private final int rentalId;
+    private final String customerName;
+    private final String vehicle;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final double baseFee;
+    private final double discount; // Rate, e.g. 0.1 for 10%
+    private final double lateFee;
+    private final double amount;
+    private final String status;
+
+    public PaymentRecord(long recordNumber, long paidAtMillis, int rentalId, String customerName, String vehicle,
+            LocalDate startDate, LocalDate endDate, double baseFee, double discount, double lateFee,
+            double amount, String status) {
+        this.recordNumber = recordNumber;
+        this.paidAtMillis = paidAtMillis;
+        this.rentalId = rentalId;
+        this.customerName = customerName == null ? "" : customerName;
+        this.vehicle = vehicle == null ? "" : vehicle;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.baseFee = baseFee;
+        this.discount = discount;
+        this.lateFee = lateFee;
+        this.amount = amount;
+        this.status = status == null ? "" : status;
+    }
+
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    public long getPaidAtMillis() {
+        return paidAtMillis;
+    }
+
+    public LocalDate getPaidDate() {
+        return Instant.ofEpochMilli(paidAtMillis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    public int getRentalId() {
+        return rentalId;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getVehicle() {
+        return vehicle;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public double getBaseFee() {
+        return baseFee;
+    }
+
+    public double getDiscount() {
+        return discount;
+    }
+
+    public double getLateFee() {
+        return lateFee;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
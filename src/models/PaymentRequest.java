@@ -0,0 +1,32 @@
+package models;
+
+/**
+ * Input for a headless payment settlement of a returned rental
+ */
+public class PaymentRequest {
+    private final int rentalId;
+    private final String promoCode;
+    private final String method;
+
+    /**
+     * @param promoCode promo code to apply, or null/empty for none
+     * @param method    payment method label recorded with the payment (e.g. "TouchNGo")
+     */
+    public PaymentRequest(int rentalId, String promoCode, String method) {
+        this.rentalId = rentalId;
+        this.promoCode = promoCode;
+        this.method = method;
+    }
+
+    public int getRentalId() {
+        return rentalId;
+    }
+
+    public String getPromoCode() {
+        return promoCode;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+}
@@ -0,0 +1,90 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable, precompiled pricing data for a vehicle.
+ * Long-term discount tiers are flattened into a sorted threshold array so the
+ * best discount for a rental length is found with a binary search instead of
+ * walking the discount map on every quote.
+ */
+public final class PricingTable {
+
+    private static final int[] NO_THRESHOLDS = new int[0];
+    private static final double[] NO_DISCOUNTS = new double[0];
+
+    private final double basePrice;
+    private final double insuranceMultiplier; // 1 + insurance rate
+    private final int[] thresholds;           // sorted minimum rental days per tier
+    private final double[] bestDiscounts;     // best discount available at or below each threshold
+
+    public PricingTable(double basePrice, double insuranceRate, Map<Integer, Double> longTermDiscounts) {
+        this.basePrice = basePrice;
+        this.insuranceMultiplier = 1 + insuranceRate;
+
+        if (longTermDiscounts == null || longTermDiscounts.isEmpty()) {
+            this.thresholds = NO_THRESHOLDS;
+            this.bestDiscounts = NO_DISCOUNTS;
+            return;
+        }
+
+        int[] days = new int[longTermDiscounts.size()];
+        int count = 0;
+        for (Integer key : longTermDiscounts.keySet()) {
+            if (key != null) {
+                days[count++] = key;
+            }
+        }
+        days = Arrays.copyOf(days, count);
+        Arrays.sort(days);
+
+        double[] discounts = new double[count];
+        double best = 0.0;
+        for (int i = 0; i < count; i++) {
+            Double value = longTermDiscounts.get(days[i]);
+            if (value != null && value > best) {
+                best = value;
+            }
+            discounts[i] = best;
+        }
+
+        this.thresholds = days;
+        this.bestDiscounts = discounts;
+    }
+
+    /**
+     * Get the best long-term discount rate for a rental length
+     */
+    public double discountForDays(long days) {
+        int low = 0;
+        int high = thresholds.length - 1;
+        int match = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] <= days) {
+                match = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return match < 0 ? 0.0 : bestDiscounts[match];
+    }
+
+    /**
+     * Price a rental of the given length (long-term discount and optional insurance applied)
+     */
+    public double quote(long days, boolean insurance) {
+        double fee = basePrice * days * (1 - discountForDays(days));
+        return insurance ? fee * insuranceMultiplier : fee;
+    }
+
+    public double getBasePrice() {
+        return basePrice;
+    }
+
+    public double getInsuranceMultiplier() {
+        return insuranceMultiplier;
+    }
+}
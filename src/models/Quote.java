@@ -0,0 +1,48 @@
+package models;
+
+/**
+ * Price quote for one vehicle over a requested rental period
+ */
+public class Quote {
+
+    private final Vehicle vehicle;
+    private final long days;
+    private final double discountRate;
+    private final double totalFee;
+    private final double deposit;
+
+    public Quote(Vehicle vehicle, long days, double discountRate, double totalFee, double deposit) {
+        this.vehicle = vehicle;
+        this.days = days;
+        this.discountRate = discountRate;
+        this.totalFee = totalFee;
+        this.deposit = deposit;
+    }
+
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    public long getDays() {
+        return days;
+    }
+
+    public double getDiscountRate() {
+        return discountRate;
+    }
+
+    public double getTotalFee() {
+        return totalFee;
+    }
+
+    public double getDeposit() {
+        return deposit;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s (%s): RM%.2f for %d days, discount %.1f%%, deposit RM%.2f",
+                vehicle.getBrand(), vehicle.getModel(), vehicle.getPlateNo(),
+                totalFee, days, discountRate * 100, deposit);
+    }
+}
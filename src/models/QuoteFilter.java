@@ -0,0 +1,69 @@
+package models;
+
+import enums.FuelType;
+import enums.VehicleType;
+
+/**
+ * Optional criteria for a fleet-wide quote; null fields are not filtered on
+ */
+public class QuoteFilter {
+
+    private VehicleType vehicleType;
+    private FuelType fuelType;
+    private String brand;
+    private double minCapacity;
+    private double maxCapacity = Double.MAX_VALUE;
+
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+
+    public void setVehicleType(VehicleType vehicleType) {
+        this.vehicleType = vehicleType;
+    }
+
+    public FuelType getFuelType() {
+        return fuelType;
+    }
+
+    public void setFuelType(FuelType fuelType) {
+        this.fuelType = fuelType;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand != null && !brand.trim().isEmpty() ? brand.trim() : null;
+    }
+
+    public double getMinCapacity() {
+        return minCapacity;
+    }
+
+    public double getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    public void setCapacityRange(double minCapacity, double maxCapacity) {
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * Check whether a vehicle satisfies every criterion that has been set
+     */
+    public boolean matches(Vehicle vehicle) {
+        if (vehicleType != null && vehicleType != vehicle.getVehicleTypeEnum()) {
+            return false;
+        }
+        if (fuelType != null && fuelType != vehicle.getFuelTypeEnum()) {
+            return false;
+        }
+        if (brand != null && !brand.equalsIgnoreCase(vehicle.getBrand())) {
+            return false;
+        }
+        return vehicle.getCapacity() >= minCapacity && vehicle.getCapacity() <= maxCapacity;
+    }
+}
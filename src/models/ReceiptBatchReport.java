@@ -0,0 +1,73 @@
+package models;
+
+/**
+ * Summary of a batch receipt run
+ */
+public class ReceiptBatchReport {
+    private final String zipFile;
+    private final int threads;
+    private long payments;
+    private long receipts;
+    private long renderedBytes;
+    private long zipBytes;
+    private long elapsedMillis;
+    private String statistics = "";
+
+    public ReceiptBatchReport(String zipFile, int threads) {
+        this.zipFile = zipFile;
+        this.threads = threads;
+    }
+
+    public void finish(long payments, long receipts, long renderedBytes, long zipBytes, long elapsedMillis,
+            String statistics) {
+        this.payments = payments;
+        this.receipts = receipts;
+        this.renderedBytes = renderedBytes;
+        this.zipBytes = zipBytes;
+        this.elapsedMillis = elapsedMillis;
+        this.statistics = statistics == null ? "" : statistics;
+    }
+
+    public String getZipFile() {
+        return zipFile;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getPayments() {
+        return payments;
+    }
+
+    public long getReceipts() {
+        return receipts;
+    }
+
+    public long getRenderedBytes() {
+        return renderedBytes;
+    }
+
+    public long getZipBytes() {
+        return zipBytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getReceiptsPerSecond() {
+        return elapsedMillis > 0 ? receipts * 1000.0 / elapsedMillis : receipts;
+    }
+
+    public void display() {
+        System.out.println("\n=== Receipt Archive: " + zipFile + " ===");
+        System.out.printf("Payments: %d | Receipts: %d | Threads: %d%n", payments, receipts, threads);
+        System.out.printf("Rendered: %.1f MB | Zip: %.1f MB%n", renderedBytes / 1048576.0, zipBytes / 1048576.0);
+        System.out.printf("Time: %.2f s (%.0f receipts/s, %.1f MB/s rendered)%n", elapsedMillis / 1000.0,
+                getReceiptsPerSecond(), elapsedMillis > 0 ? renderedBytes / 1048.576 / elapsedMillis : 0.0);
+        if (!statistics.isEmpty()) {
+            System.out.println(statistics);
+        }
+    }
+}
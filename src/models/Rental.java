@@ -13,10 +13,9 @@ public class Rental {
     private RentalStatus status;
     private double totalFee; // Estimated price
     private double actualFee; // Actual price (calculated when returning)
+    private double surgeFactor = 1.0; // Surge multiplier of the quote totalFee is based on
     private boolean insuranceSelected;
     private String username; // Associated login username
-    private boolean dueSoonReminderSent; // Reminder sent before return
-    private boolean overdueReminderSent; // Overdue reminder sent
 
     public Rental(int id, Customer customer, Vehicle vehicle, LocalDate startDate, LocalDate endDate,
             RentalStatus status, double totalFee, boolean insuranceSelected, String username) {
@@ -97,6 +96,14 @@ public class Rental {
         this.actualFee = actualFee;
     }
 
+    public double getSurgeFactor() {
+        return surgeFactor;
+    }
+
+    public void setSurgeFactor(double surgeFactor) {
+        this.surgeFactor = surgeFactor;
+    }
+
     public boolean isInsuranceSelected() {
         return insuranceSelected;
     }
@@ -113,22 +120,6 @@ public class Rental {
         this.username = username;
     }
 
-    public boolean isDueSoonReminderSent() {
-        return dueSoonReminderSent;
-    }
-
-    public void setDueSoonReminderSent(boolean dueSoonReminderSent) {
-        this.dueSoonReminderSent = dueSoonReminderSent;
-    }
-
-    public boolean isOverdueReminderSent() {
-        return overdueReminderSent;
-    }
-
-    public void setOverdueReminderSent(boolean overdueReminderSent) {
-        this.overdueReminderSent = overdueReminderSent;
-    }
-
     public int getRentalDays() {
         return (int) java.time.temporal.ChronoUnit.DAYS.between(startDate, endDate) + 1;
     }
@@ -0,0 +1,47 @@
+package models;
+
+import enums.RentalStatus;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a customer's rental history, newest first, with the customer's
+ * status totals and the cursor for the next page
+ */
+public class RentalHistoryPage {
+    private final List<Rental> rentals;
+    private final String nextCursor; // null on the last page
+    private final Map<RentalStatus, Integer> statusCounts;
+
+    public RentalHistoryPage(List<Rental> rentals, String nextCursor, Map<RentalStatus, Integer> statusCounts) {
+        this.rentals = Collections.unmodifiableList(rentals);
+        this.nextCursor = nextCursor;
+        this.statusCounts = Collections.unmodifiableMap(new EnumMap<>(statusCounts));
+    }
+
+    public List<Rental> getRentals() {
+        return rentals;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public int getCount(RentalStatus status) {
+        return statusCounts.getOrDefault(status, 0);
+    }
+
+    public int getTotal() {
+        int total = 0;
+        for (int count : statusCounts.values()) {
+            total += count;
+        }
+        return total;
+    }
+}
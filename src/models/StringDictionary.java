@@ -0,0 +1,63 @@
+package models;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only dictionary that interns repeated attribute values (brand, color,
+ * condition) as small integer codes. Each distinct value is stored once and
+ * shared by every vehicle and rental copy, so equal values can be compared by
+ * code or by reference.
+ */
+public final class StringDictionary {
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Code for a value, adding it on first use. Null maps to -1.
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            code = size++;
+            codes.put(value, code);
+            return code;
+        }
+    }
+
+    /**
+     * Value for a code, or null for -1
+     */
+    public String valueOf(int code) {
+        return code < 0 ? null : values[code];
+    }
+
+    /**
+     * Shared instance of a value (interning it if new)
+     */
+    public String canonical(String value) {
+        return valueOf(intern(value));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -3,6 +3,7 @@ package models;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Rental Ticket class - represents a booking confirmation ticket Generated when
@@ -12,6 +13,7 @@ public class Ticket {
 
     private String ticketId;
     private int rentalId;
+    private String username; // Owner's login; stable where the display name is not
     private String customerName;
     private String customerContact;
     private String vehicleInfo;
@@ -23,12 +25,13 @@ public class Ticket {
     private LocalDateTime generatedTime;
     private String pickupLocation;
     private String specialInstructions;
-    private boolean isUsed;
+    private final AtomicBoolean used = new AtomicBoolean(); // Claimed atomically at pickup
 
     // Constructor
     public Ticket(Rental rental) {
         this.ticketId = generateTicketId();
         this.rentalId = rental.getId();
+        this.username = rental.getUsername() == null ? "" : rental.getUsername();
         this.customerName = rental.getCustomer().getName();
         this.customerContact = rental.getCustomer().getContact();
         this.vehicleInfo = rental.getVehicle().getBrand() + " " + rental.getVehicle().getModel();
@@ -40,7 +43,28 @@ public class Ticket {
         this.generatedTime = LocalDateTime.now();
         this.pickupLocation = "Main Office - CarSeek HQ";
         this.specialInstructions = "Please bring valid ID and this ticket for vehicle pickup";
-        this.isUsed = false;
+    }
+
+    // Constructor for a ticket loaded from storage, keeping its original ID and generation time
+    public Ticket(String ticketId, int rentalId, String username, String customerName, String customerContact,
+            String vehicleInfo, String carPlate, String startDate, String endDate, double totalFee,
+            boolean insuranceIncluded, LocalDateTime generatedTime, String pickupLocation,
+            String specialInstructions, boolean used) {
+        this.ticketId = ticketId;
+        this.rentalId = rentalId;
+        this.username = username == null ? "" : username;
+        this.customerName = customerName;
+        this.customerContact = customerContact;
+        this.vehicleInfo = vehicleInfo;
+        this.carPlate = carPlate;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.totalFee = totalFee;
+        this.insuranceIncluded = insuranceIncluded;
+        this.generatedTime = generatedTime;
+        this.pickupLocation = pickupLocation;
+        this.specialInstructions = specialInstructions;
+        this.used.set(used);
     }
 
     // Generate unique ticket ID
@@ -55,6 +79,7 @@ public class Ticket {
      */
     public void updateFromRental(Rental rental) {
         // Update rental information but keep original ticket ID
+        this.username = rental.getUsername() == null ? "" : rental.getUsername();
         this.customerName = rental.getCustomer().getName();
         this.customerContact = rental.getCustomer().getContact();
         this.vehicleInfo = rental.getVehicle().getBrand() + " " + rental.getVehicle().getModel();
@@ -66,7 +91,7 @@ public class Ticket {
         this.generatedTime = LocalDateTime.now(); // Update generation time
         // Keep pickup location and special instructions unchanged
         // Reset used status for updated ticket
-        this.isUsed = false;
+        this.used.set(false);
     }
 
     // Display ticket information
@@ -89,7 +114,7 @@ public class Ticket {
         System.out.println("╠══════════════════════════════════════════════════════════════════╣");
         System.out.printf("║ Pickup Location: %-47s ║%n", pickupLocation);
         System.out.printf("║ Generated: %-53s ║%n", generatedTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-        System.out.printf("║ Status: %-56s ║%n", isUsed ? "Used" : "Valid");
+        System.out.printf("║ Status: %-56s ║%n", used.get() ? "Used" : "Valid");
         System.out.println("╠══════════════════════════════════════════════════════════════════╣");
         System.out.println("║ IMPORTANT INSTRUCTIONS:                                          ║");
         System.out.println("║ - Bring valid government-issued ID                               ║");
@@ -107,7 +132,24 @@ public class Ticket {
 
     // Mark ticket as used
     public void markAsUsed() {
-        this.isUsed = true;
+        used.set(true);
+    }
+
+    /**
+     * Mark the ticket as used if it is still valid. Only one caller can win,
+     * so a ticket validated at two pickup desks at once is used only once.
+     *
+     * @return true if this call used the ticket
+     */
+    public boolean claim() {
+        return used.compareAndSet(false, true);
+    }
+
+    /**
+     * Undo a claim whose use could not be recorded, so the ticket can be scanned again
+     */
+    public void release() {
+        used.set(false);
     }
 
     // Getters
@@ -119,6 +161,10 @@ public class Ticket {
         return rentalId;
     }
 
+    public String getUsername() {
+        return username;
+    }
+
     public String getCustomerName() {
         return customerName;
     }
@@ -164,7 +210,7 @@ public class Ticket {
     }
 
     public boolean isUsed() {
-        return isUsed;
+        return used.get();
     }
 
     // Setters
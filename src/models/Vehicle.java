@@ -1,53 +1,75 @@
 package models;
 
+import enums.FuelType;
 import enums.VehicleStatus;
+import enums.VehicleType;
+import interfaces.VehicleChangeListener;
+import interfaces.VehicleStatusObserver;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Vehicle {
 
+    // Shared dictionaries for repeated attribute values
+    private static final StringDictionary BRANDS = new StringDictionary();
+    private static final StringDictionary COLORS = new StringDictionary();
+    private static final StringDictionary CONDITIONS = new StringDictionary();
+    private static final StringDictionary CUSTOM_LABELS = new StringDictionary();
+
     private String vehicleID;
     private String plateNo;
-    private String carBrand;
+    private int brandCode; // BRANDS code
     private String carModel;
-    private String carType;
-    private String fuelType;
-    private String color;
+    private VehicleType carType;
+    private FuelType fuelType;
+    private String customLabel; // Original text when type or fuel is OTHER ("type|fuel"), otherwise null
+    private int colorCode; // COLORS code
     private int purchaseYear;
     private double capacity;
-    private String condition;
+    private int conditionCode; // CONDITIONS code
     private double insuranceRate;
     private VehicleStatus status; // Enum-backed vehicle status
     private boolean archived; // true = archived, false = active
 
     private double basePrice;
     private Map<Integer, Double> longTermDiscounts;
-    private List<Booking> schedule;
+    private PricingTable pricingTable; // Rebuilt whenever price, discounts or insurance rate change
+    private BookingSchedule schedule; // Date-sorted; past bookings are archived automatically
     private static final int BUFFER_DAYS = 2;
+    private VehicleChangeListener changeListener; // Notified on status / archive changes
+    private static volatile VehicleStatusObserver statusObserver; // Fleet-wide status transition feed
 
     public Vehicle(String vehicleID, String plateNo, String carBrand, String carModel,
             String carType, String fuelType, String color, int purchaseYear,
             double capacity, String condition, double insuranceRate, String available) {
         this.vehicleID = vehicleID;
         this.plateNo = plateNo;
-        this.carBrand = carBrand;
+        this.brandCode = BRANDS.intern(carBrand);
         this.carModel = carModel;
-        this.carType = carType;
-        this.fuelType = fuelType;
-        this.color = color;
+        this.carType = VehicleType.fromLabel(carType);
+        this.fuelType = FuelType.fromLabel(fuelType);
+        if (this.carType == VehicleType.OTHER || this.fuelType == FuelType.OTHER) {
+            // Keep custom text so unknown types and fuels survive a save/load round trip
+            this.customLabel = CUSTOM_LABELS.canonical(
+                    (this.carType == VehicleType.OTHER ? trimmed(carType) : "") + "|"
+                    + (this.fuelType == FuelType.OTHER ? trimmed(fuelType) : ""));
+        }
+        this.colorCode = COLORS.intern(color);
         this.purchaseYear = purchaseYear;
         this.capacity = capacity;
-        this.condition = condition;
+        this.conditionCode = CONDITIONS.intern(condition);
         this.insuranceRate = insuranceRate;
         this.status = parseStatus(available);
         this.archived = false;
 
         this.basePrice = 50.0;
-        this.longTermDiscounts = new HashMap<>();
-        this.schedule = new ArrayList<>();
+        this.longTermDiscounts = Collections.emptyMap();
+        this.schedule = new BookingSchedule();
+        rebuildPricingTable();
     }
 
     public Vehicle(String vehicleID, String plateNo, String carBrand, String carModel,
@@ -57,35 +79,48 @@ public class Vehicle {
         this(vehicleID, plateNo, carBrand, carModel, carType, fuelType, color,
                 purchaseYear, capacity, condition, insuranceRate, available);
         this.basePrice = basePrice;
-        this.longTermDiscounts = longTermDiscounts != null ? longTermDiscounts : new HashMap<>();
+        setLongTermDiscounts(longTermDiscounts);
     }
 
     public void setColor(String color) {
-        this.color = color;
+        this.colorCode = COLORS.intern(color);
     }
 
     public void setCondition(String condition) {
-        this.condition = condition;
+        this.conditionCode = CONDITIONS.intern(condition);
     }
 
     public void setInsuranceRate(double insuranceRate) {
         this.insuranceRate = insuranceRate;
+        rebuildPricingTable();
     }
 
     public void setAvailable(String available) {
+        VehicleStatus previous = this.status;
         this.status = parseStatus(available);
+        fireChanged(previous);
     }
 
     public void setArchived(boolean archived) {
         this.archived = archived;
+        fireChanged();
     }
 
     public void setBasePrice(double basePrice) {
         this.basePrice = basePrice;
+        rebuildPricingTable();
     }
 
     public void setLongTermDiscounts(Map<Integer, Double> longTermDiscounts) {
-        this.longTermDiscounts = longTermDiscounts != null ? longTermDiscounts : new HashMap<>();
+        // Keep a private read-only copy so the pricing table cannot go stale behind our back
+        this.longTermDiscounts = longTermDiscounts != null
+                ? Collections.unmodifiableMap(new HashMap<>(longTermDiscounts))
+                : Collections.emptyMap();
+        rebuildPricingTable();
+    }
+
+    private void rebuildPricingTable() {
+        this.pricingTable = new PricingTable(basePrice, insuranceRate, longTermDiscounts);
     }
 
     public String getVehicleID() {
@@ -97,7 +132,11 @@ public class Vehicle {
     }
 
     public String getBrand() {
-        return carBrand;
+        return BRANDS.valueOf(brandCode);
+    }
+
+    public int getBrandCode() {
+        return brandCode;
     }
 
     public String getModel() {
@@ -105,15 +144,33 @@ public class Vehicle {
     }
 
     public String getType() {
-        return carType;
+        if (carType == VehicleType.OTHER && customLabel != null) {
+            return customLabel.substring(0, customLabel.indexOf('|'));
+        }
+        return carType.getLabel();
     }
 
     public String getFuelType() {
+        if (fuelType == FuelType.OTHER && customLabel != null) {
+            return customLabel.substring(customLabel.indexOf('|') + 1);
+        }
+        return fuelType.getLabel();
+    }
+
+    public VehicleType getVehicleTypeEnum() {
+        return carType;
+    }
+
+    public FuelType getFuelTypeEnum() {
         return fuelType;
     }
 
     public String getColor() {
-        return color;
+        return COLORS.valueOf(colorCode);
+    }
+
+    public int getColorCode() {
+        return colorCode;
     }
 
     public int getYear() {
@@ -125,7 +182,11 @@ public class Vehicle {
     }
 
     public String getCondition() {
-        return condition;
+        return CONDITIONS.valueOf(conditionCode);
+    }
+
+    public int getConditionCode() {
+        return conditionCode;
     }
 
     public double getInsuranceRate() {
@@ -148,7 +209,16 @@ public class Vehicle {
         return longTermDiscounts;
     }
 
+    public PricingTable getPricingTable() {
+        return pricingTable;
+    }
+
     public List<Booking> getSchedule() {
+        archivePastBookings();
+        return schedule.toList();
+    }
+
+    public BookingSchedule getBookingSchedule() {
         return schedule;
     }
 
@@ -165,7 +235,7 @@ public class Vehicle {
     }
 
     public String getVehicleType() {
-        return carType;
+        return getType();
     }
 
     public String getStatus() {
@@ -177,68 +247,95 @@ public class Vehicle {
     }
 
     public void setStatus(String status) {
+        VehicleStatus previous = this.status;
         this.status = parseStatus(status);
+        fireChanged(previous);
     }
 
     public void setVehicleStatus(VehicleStatus status) {
+        VehicleStatus previous = this.status;
         this.status = status;
+        fireChanged(previous);
     }
 
-    public boolean isAvailable(LocalDate startDate, LocalDate endDate) {
+    public void setChangeListener(VehicleChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
 
-        if (status != VehicleStatus.AVAILABLE) {
-            return false;
-        }
+    /**
+     * Observer told about every status transition of any vehicle, or null for none
+     */
+    public static void setStatusObserver(VehicleStatusObserver observer) {
+        statusObserver = observer;
+    }
 
-        for (Booking booking : schedule) {
-            LocalDate bufferStart = booking.getStartDate().minusDays(BUFFER_DAYS);
-            LocalDate bufferEnd = booking.getEndDate().plusDays(BUFFER_DAYS);
+    private void fireChanged() {
+        if (changeListener != null) {
+            changeListener.vehicleChanged(this);
+        }
+    }
 
-            if (overlapsWithBuffer(startDate, endDate, bufferStart, bufferEnd)) {
-                return false;
-            }
+    private void fireChanged(VehicleStatus previous) {
+        fireChanged();
+        VehicleStatusObserver observer = statusObserver;
+        if (observer != null && previous != status) {
+            observer.vehicleStatusChanged(this, previous);
         }
-        return true;
     }
 
-    private boolean overlapsWithBuffer(LocalDate start1, LocalDate end1, LocalDate start2, LocalDate end2) {
-        return !start1.isAfter(end2) && !start2.isAfter(end1);
+    public boolean isAvailable(LocalDate startDate, LocalDate endDate) {
+
+        if (status != VehicleStatus.AVAILABLE) {
+            return false;
+        }
+
+        archivePastBookings();
+        return !schedule.overlaps(startDate, endDate, BUFFER_DAYS);
     }
 
     public void addBooking(LocalDate startDate, LocalDate endDate) {
         if (isAvailable(startDate, endDate)) {
-            schedule.add(new Booking(startDate, endDate));
+            schedule.add(startDate, endDate);
         } else {
             throw new IllegalArgumentException("Vehicle is not available for the requested period");
         }
     }
 
+    /**
+     * Put back a booking loaded from saved rentals (no availability check)
+     */
+    public void restoreBooking(LocalDate startDate, LocalDate endDate) {
+        schedule.add(startDate, endDate);
+    }
+
+    /**
+     * Version stamp of the booking schedule, to pass back to bookIfUnchanged
+     */
+    public long getScheduleVersion() {
+        return schedule.getVersion();
+    }
+
+    /**
+     * Book the range against the schedule version observed when availability was checked.
+     * Returns false if the schedule changed meanwhile and the range is no longer free.
+     */
+    public boolean bookIfUnchanged(LocalDate startDate, LocalDate endDate, long observedVersion) {
+        archivePastBookings();
+        return schedule.compareAndBook(startDate, endDate, BUFFER_DAYS, observedVersion);
+    }
+
     public void removeBooking(LocalDate startDate, LocalDate endDate) {
-        schedule.removeIf(booking
-                -> booking.getStartDate().equals(startDate) && booking.getEndDate().equals(endDate));
+        schedule.remove(startDate, endDate);
     }
 
     public boolean hasFutureBookings() {
-        LocalDate today = LocalDate.now();
-        for (Booking booking : schedule) {
-            if (booking.getStartDate().isAfter(today) || booking.getStartDate().equals(today)) {
-                return true;
-            }
-        }
-        return false;
+        archivePastBookings();
+        return schedule.hasStartFrom(LocalDate.now());
     }
 
     public Booking getNextBooking() {
-        LocalDate today = LocalDate.now();
-        Booking nextBooking = null;
-        for (Booking booking : schedule) {
-            if (booking.getStartDate().isAfter(today) || booking.getStartDate().equals(today)) {
-                if (nextBooking == null || booking.getStartDate().isBefore(nextBooking.getStartDate())) {
-                    nextBooking = booking;
-                }
-            }
-        }
-        return nextBooking;
+        archivePastBookings();
+        return schedule.nextStartingFrom(LocalDate.now());
     }
 
     public void clearAllBookings() {
@@ -247,7 +344,7 @@ public class Vehicle {
 
     public List<String> getUnavailablePeriods() {
         List<String> periods = new ArrayList<>();
-        for (Booking booking : schedule) {
+        for (Booking booking : getSchedule()) {
             LocalDate bufferStart = booking.getStartDate().minusDays(BUFFER_DAYS);
             LocalDate bufferEnd = booking.getEndDate().plusDays(BUFFER_DAYS);
             periods.add(String.format("%s to %s (includes %d-day buffer)",
@@ -264,50 +361,51 @@ public class Vehicle {
             return false;
         }
 
-        for (Booking booking : schedule) {
-            if (overlapsDirectly(startDate, endDate, booking.getStartDate(), booking.getEndDate())) {
-                return false;
-            }
-        }
-        return true;
+        archivePastBookings();
+        return !schedule.overlaps(startDate, endDate, 0);
     }
 
     /**
      * add booking for extension (no global availability or buffer check)
      */
     public void addBookingForExtension(LocalDate startDate, LocalDate endDate) {
-        for (Booking booking : schedule) {
-            if (overlapsDirectly(startDate, endDate, booking.getStartDate(), booking.getEndDate())) {
-                throw new IllegalArgumentException("Vehicle is not available for the extended period");
-            }
+        archivePastBookings();
+        if (schedule.overlaps(startDate, endDate, 0)) {
+            throw new IllegalArgumentException("Vehicle is not available for the extended period");
         }
-        schedule.add(new Booking(startDate, endDate));
+        schedule.add(startDate, endDate);
+    }
+
+    /**
+     * Extend a booking's end date if the added days are free (same customer, no buffer);
+     * the booking is left as it was otherwise
+     */
+    public boolean extendBooking(LocalDate startDate, LocalDate originalEnd, LocalDate newEnd) {
+        archivePastBookings();
+        return schedule.extend(startDate, originalEnd, newEnd);
     }
 
-    private boolean overlapsDirectly(LocalDate start1, LocalDate end1, LocalDate start2, LocalDate end2) {
-        return !start1.isAfter(end2) && !start2.isAfter(end1);
+    /**
+     * Archive bookings that ended before the buffer window around today; they can no longer block anything
+     */
+    private void archivePastBookings() {
+        schedule.archiveEndedBefore(LocalDate.now().minusDays(BUFFER_DAYS));
     }
 
     /**
      * get discount rate for rental days
      */
     public double getDiscountForDays(int days) {
-        double maxDiscount = 0.0;
-        for (Map.Entry<Integer, Double> entry : longTermDiscounts.entrySet()) {
-            if (days >= entry.getKey() && entry.getValue() > maxDiscount) {
-                maxDiscount = entry.getValue();
-            }
-        }
-        return maxDiscount;
+        return pricingTable.discountForDays(days);
     }
 
     @Override
     public String toString() {
         return String.format(
                 "║ %-13s %-12s %-10s %-10s %-13s %-10s %-10s %-15d %-12.1f %-12s %-15.2f %-15s ║",
-                vehicleID, plateNo, carBrand, carModel, carType,
-                fuelType, color, purchaseYear, capacity,
-                condition, basePrice, statusToString(status)
+                vehicleID, plateNo, getBrand(), carModel, getType(),
+                getFuelType(), getColor(), purchaseYear, capacity,
+                getCondition(), basePrice, statusToString(status)
         );
     }
 
@@ -332,6 +430,10 @@ public class Vehicle {
         }
     }
 
+    private static String trimmed(String value) {
+        return value == null ? "" : value.trim();
+    }
+
     private static String statusToString(VehicleStatus status) {
         if (status == null) {
             return "available";
@@ -1,7 +1,9 @@
 package services;
 
 import enums.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 import models.*;
@@ -88,6 +90,7 @@ public class AdminService extends AccountService {
         } else {
             System.out.printf("\nFound %d vehicle(s):\n", results.size());
             vehicleService.displaySearchResults(results);
+            vehicleService.displayFacetCounts(results);
         }
 
         System.out.println("Press Enter to continue...");
@@ -104,14 +107,15 @@ public class AdminService extends AccountService {
             System.out.println("║ 2. Popular Vehicle Report                                        ║");
             System.out.println("║ 3. Customer Report                                               ║");
             System.out.println("║ 4. System Report                                                 ║");
+            System.out.println("║ 5. Receipt Archive (zip)                                         ║");
             System.out.println("║ 0. Back to Admin Menu                                            ║");
             System.out.println("╚══════════════════════════════════════════════════════════════════╝");
             System.out.print("Select option: ");
 
             String choice = scanner.nextLine();
             
-            // Use system's rental data directly instead of creating new RentalHistoryManager
-            List<Rental> rentals = system.getRentals();
+            // Reports cover the archived history as well as the hot rentals
+            List<Rental> rentals = system.getAllRentals();
             
             switch (choice) {
                 case "1":
@@ -134,6 +138,9 @@ public class AdminService extends AccountService {
                     System.out.println("Press Enter to continue...");
                     scanner.nextLine();
                     break;
+                case "5":
+                    receiptArchive(system, scanner);
+                    break;
                 case "0":
                     return;
                 default:
@@ -144,6 +151,62 @@ public class AdminService extends AccountService {
         }
     }
 
+    /**
+     * Regenerate every receipt for payments in a date range into one zip file
+     */
+    public static void receiptArchive(RentalSystem system, Scanner scanner) {
+        try {
+            System.out.print("From date (yyyy-MM-dd): ");
+            LocalDate from = LocalDate.parse(scanner.nextLine().trim());
+            System.out.print("To date (yyyy-MM-dd): ");
+            LocalDate to = LocalDate.parse(scanner.nextLine().trim());
+            System.out.print("Formats (txt,csv,pdf; press Enter for all): ");
+            String input = scanner.nextLine().trim().toLowerCase();
+            List<String> formats = input.isEmpty() ? BatchReceiptService.ALL_FORMATS
+                    : Arrays.asList(input.split("\\s*,\\s*"));
+            String zipFile = "receipts_" + from + "_" + to + ".zip";
+
+            ReceiptBatchReport report = new BatchReceiptService(system).generate(from, to, formats, zipFile, 0);
+            report.display();
+        } catch (java.time.format.DateTimeParseException e) {
+            System.out.println("Invalid date. Please use yyyy-MM-dd.");
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            System.out.println("Failed to generate receipts: " + e.getMessage());
+        }
+        System.out.println("Press Enter to continue...");
+        scanner.nextLine();
+    }
+
+    public static void bulkImport(RentalSystem system, Scanner scanner) {
+        System.out.println("\n");
+        System.out.println("╔══════════════════════════════════════════════════════════════════╗");
+        System.out.println("║                        BULK DATA IMPORT                          ║");
+        System.out.println("╠══════════════════════════════════════════════════════════════════╣");
+        System.out.println("║ 1. Import Vehicles (.csv / .jsonl)                               ║");
+        System.out.println("║ 2. Import Historical Rentals (.csv / .jsonl)                     ║");
+        System.out.println("║ 0. Back to Admin Menu                                            ║");
+        System.out.println("╚══════════════════════════════════════════════════════════════════╝");
+        System.out.print("Select option: ");
+
+        String choice = scanner.nextLine().trim();
+        if (!choice.equals("1") && !choice.equals("2")) {
+            return;
+        }
+        System.out.print("Enter file path: ");
+        String path = scanner.nextLine().trim();
+
+        BulkImportService importer = new BulkImportService(system);
+        try {
+            ImportReport report = choice.equals("1") ? importer.importVehicles(path) : importer.importRentals(path);
+            report.display();
+        } catch (java.io.IOException e) {
+            System.out.println("Failed to import " + path + ": " + e.getMessage());
+            System.out.println("Nothing was committed.");
+        }
+        System.out.println("Press Enter to continue...");
+        scanner.nextLine();
+    }
+
     public static void manageAdminProfile(Scanner scanner, Account adminAccount) {
         if (adminAccount.getRole() != AccountRole.ADMIN) {
             System.out.println("This function is only for admin accounts.");
@@ -0,0 +1,83 @@
+package services;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load generator for RentalApiServer: a fixed number of concurrent
+ * clients issue GET requests back to back, then p50/p99 latency and
+ * throughput are reported. Requests carry the server's shared token when
+ * api_token.txt is present, so protected endpoints can be measured too.
+ */
+public class ApiLoadGenerator {
+
+    /**
+     * Run the load and print a latency/throughput summary
+     *
+     * @param url         full endpoint URL, e.g. http://localhost:8080/api/vehicles?q=toyota
+     * @param concurrency number of clients issuing requests in parallel
+     * @param requests    total number of requests
+     */
+    public static void run(String url, int concurrency, int requests) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET();
+        String token = RentalApiServer.readToken();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        HttpRequest request = builder.build();
+
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService clients = RentalApiServer.newRequestExecutor();
+
+        long started = System.nanoTime();
+        for (int c = 0; c < concurrency; c++) {
+            clients.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - t0;
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.HOURS);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.println("\n=== API Load Test ===");
+        System.out.println("URL: " + url);
+        System.out.printf("Requests: %d | Concurrency: %d | Errors: %d%n", requests, concurrency, errors.get());
+        System.out.printf("Throughput: %.1f req/s%n", requests / seconds);
+        System.out.printf("Latency p50: %.2f ms | p99: %.2f ms | max: %.2f ms%n",
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                (requests > 0 ? latencies[requests - 1] : 0) / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,163 @@
+package services;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import models.PaymentRecord;
+import models.ReceiptBatchReport;
+import models.Rental;
+import models.Vehicle;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+/**
+ * Regenerates the receipts of every payment in a date range into one zip
+ * archive for month-end accounting.
+ *
+ * Payments come from the payment ledger's date range query. Receipts are
+ * rendered and compressed in parallel (commons-compress
+ * ParallelScatterZipCreator); each worker thread reuses its own
+ * ReceiptRenderer, so buffers and fonts are not recreated per receipt.
+ * Entries are named <paid month>/Receipt_Rental_<id>_<ledger record>.<format>
+ * and a summary.csv lists every payment. The archive is written beside the
+ * target and moved into place when complete.
+ */
+public class BatchReceiptService {
+
+    public static final List<String> ALL_FORMATS =
+            Arrays.asList(ReceiptRenderer.TXT, ReceiptRenderer.CSV, ReceiptRenderer.PDF);
+
+    private final RentalSystem system;
+
+    public BatchReceiptService(RentalSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Write receipts for payments made within [from, to] (either bound may be null)
+     *
+     * @param formats receipt formats to include (see ReceiptRenderer)
+     * @param threads worker threads, or 0 for one per processor
+     */
+    public ReceiptBatchReport generate(LocalDate from, LocalDate to, Collection<String> formats, String zipPath,
+            int threads) throws IOException {
+        for (String format : formats) {
+            if (!ALL_FORMATS.contains(format)) {
+                throw new IllegalArgumentException("Unknown receipt format: " + format + " (expected one of "
+                        + ALL_FORMATS + ")");
+            }
+        }
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ReceiptBatchReport report = new ReceiptBatchReport(zipPath, workers);
+        long started = System.currentTimeMillis();
+
+        List<PaymentRecord> payments = system.getPaymentService().getLedger().findByDate(from, to);
+        String[] plates = resolvePlates(payments);
+
+        StringBuilder summary = new StringBuilder(payments.size() * 128 + 128)
+                .append("PaidOn,LedgerRecord,").append(ReceiptRenderer.CSV_HEADER);
+        for (int i = 0; i < payments.size(); i++) {
+            PaymentRecord payment = payments.get(i);
+            summary.append(payment.getPaidDate()).append(',').append(payment.getRecordNumber()).append(',');
+            ReceiptRenderer.appendCsvRow(summary, payment, plates[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        ThreadLocal<ReceiptRenderer> renderers = ThreadLocal.withInitial(ReceiptRenderer::new);
+        AtomicLong renderedBytes = new AtomicLong();
+        Path target = Paths.get(zipPath).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor);
+            byte[] summaryBytes = summary.toString().getBytes(StandardCharsets.UTF_8);
+            creator.addArchiveEntry(entry("summary.csv", System.currentTimeMillis()),
+                    () -> new ByteArrayInputStream(summaryBytes));
+            long receipts = 0;
+            for (int i = 0; i < payments.size(); i++) {
+                PaymentRecord payment = payments.get(i);
+                String plate = plates[i];
+                String baseName = YearMonth.from(payment.getPaidDate()) + "/Receipt_Rental_" + payment.getRentalId()
+                        + "_" + payment.getRecordNumber() + ".";
+                for (String format : formats) {
+                    creator.addArchiveEntry(entry(baseName + format, payment.getPaidAtMillis()), () -> {
+                        try {
+                            byte[] receipt = renderers.get().render(format, payment, plate);
+                            renderedBytes.addAndGet(receipt.length);
+                            return new ByteArrayInputStream(receipt);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    receipts++;
+                }
+            }
+
+            try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(temp.toFile())) {
+                creator.writeTo(zip);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing receipts", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                throw new IOException("Failed to render receipts: " + cause.getMessage(), cause);
+            }
+            UtilityService.replaceFile(temp, target);
+            report.finish(payments.size(), receipts, renderedBytes.get() + summaryBytes.length, Files.size(target),
+                    System.currentTimeMillis() - started, creator.getStatisticsMessage().toString());
+            return report;
+        } finally {
+            executor.shutdownNow();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static ZipArchiveEntry entry(String name, long timeMillis) {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(ZipEntry.DEFLATED); // Required by the parallel creator
+        entry.setTime(timeMillis);
+        return entry;
+    }
+
+    /**
+     * Car plate for each payment from its rental: a hot rental, or the archived month
+     * the rental ended in. Null when the rental is gone or is for another vehicle
+     * (migrated text history reused rental IDs).
+     */
+    private String[] resolvePlates(List<PaymentRecord> payments) {
+        Map<Integer, Rental> hot = new HashMap<>();
+        for (Rental rental : system.getRentals()) {
+            hot.put(rental.getId(), rental);
+        }
+        Map<YearMonth, Map<Integer, Rental>> archived = new HashMap<>();
+        String[] plates = new String[payments.size()];
+        for (int i = 0; i < plates.length; i++) {
+            PaymentRecord payment = payments.get(i);
+            Rental rental = hot.get(payment.getRentalId());
+            if (rental == null && payment.getEndDate() != null) {
+                rental = archived.computeIfAbsent(YearMonth.from(payment.getEndDate()), month -> {
+                    Map<Integer, Rental> byId = new HashMap<>();
+                    for (Rental closed : system.getHistoryStore().readMonth(month)) {
+                        byId.put(closed.getId(), closed);
+                    }
+                    return byId;
+                }).get(payment.getRentalId());
+            }
+            if (rental != null) {
+                Vehicle vehicle = rental.getVehicle();
+                if ((vehicle.getBrand() + " " + vehicle.getModel()).equals(payment.getVehicle())) {
+                    plates[i] = vehicle.getCarPlate();
+                }
+            }
+        }
+        return plates;
+    }
+}
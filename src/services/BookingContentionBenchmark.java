@@ -0,0 +1,165 @@
+package services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import models.*;
+
+/**
+ * Measures optimistic booking under contention on a real RentalSystem whose
+ * data lives in a temporary directory. Operators book random date ranges on a
+ * small fleet the way the console does: note the schedule version, check for
+ * conflicts, "think" without holding any lock, then book through
+ * RentalOperations.book, which commits with createRentalWithSchedule under
+ * the vehicle lock. A commit that finds the range taken is retried with fresh
+ * dates. Each operator cancels its oldest rentals as it goes, so the
+ * schedules stay at a steady density. Every commit is followed by a check of
+ * that vehicle under its lock (all active and pending rentals booked, nothing
+ * else booked, no two overlapping), and the whole fleet is checked at the
+ * end. Reports how commits split between unchanged-version fast commits,
+ * re-validated commits and conflicts, the retry rate and the p50/p99 time to
+ * a successful booking, which includes saving the rentals as the real path
+ * does. Console output from the rental flows is suppressed during the run.
+ * Real vehicles and rentals are never touched.
+ */
+public class BookingContentionBenchmark {
+
+    private static final int HORIZON_DAYS = 365;
+    private static final int KEPT_BOOKINGS = 4; // Per operator, before the oldest is cancelled
+
+    /**
+     * Run the benchmark and print commit outcomes, retry rate, latency and the booking checks
+     *
+     * @param vehicles    vehicles being booked (fewer means more contention)
+     * @param operators   threads booking in parallel
+     * @param bookings    total successful bookings to make
+     * @param thinkMicros simulated customer think time between check and commit
+     * @return true if no check found a lost, stray or overlapping booking
+     */
+    public static boolean run(int vehicles, int operators, int bookings, int thinkMicros)
+            throws IOException, InterruptedException {
+        Path dataDirectory = Files.createTempDirectory("booking_bench");
+        PrintStream console = System.out;
+        RentalSystem system = new RentalSystem(dataDirectory.toString());
+        try {
+            Vehicle[] fleet = new Vehicle[vehicles];
+            for (int i = 0; i < vehicles; i++) {
+                fleet[i] = new Vehicle(String.valueOf(9100 + i), "CON" + i, "Perodua", "Myvi", "Hatchback", "Petrol",
+                        "White", 2022, 1.5, "Good", 0.1, "available");
+            }
+            system.setVehicles(new ArrayList<>(Arrays.asList(fleet)));
+            RentalOperations operations = system.getOperations();
+            LocalDate base = LocalDate.now().plusDays(7);
+
+            long fastBefore = BookingSchedule.getFastCommits();
+            long revalidatedBefore = BookingSchedule.getRevalidatedCommits();
+            long conflictsBefore = BookingSchedule.getConflicts();
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger operatorIds = new AtomicInteger();
+            AtomicLong unavailable = new AtomicLong();
+            AtomicLong checks = new AtomicLong();
+            AtomicLong violations = new AtomicLong();
+            long[] latencies = new long[bookings];
+            ExecutorService executor = Executors.newFixedThreadPool(operators);
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long started = System.nanoTime();
+            for (int t = 0; t < operators; t++) {
+                executor.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    String username = "operator" + operatorIds.incrementAndGet();
+                    Customer customer = new Customer(username, "0");
+                    ArrayDeque<Rental> kept = new ArrayDeque<>();
+                    int n;
+                    while ((n = next.getAndIncrement()) < bookings) {
+                        long t0 = System.nanoTime();
+                        Rental rental;
+                        while (true) {
+                            Vehicle vehicle = fleet[random.nextInt(vehicles)];
+                            LocalDate start = base.plusDays(random.nextInt(HORIZON_DAYS));
+                            LocalDate end = start.plusDays(random.nextInt(5));
+                            long observed = vehicle.getScheduleVersion();
+                            if (system.getConflictDetails(vehicle.getId(), start, end) != null) {
+                                unavailable.incrementAndGet();
+                                continue;
+                            }
+                            if (thinkMicros > 0) {
+                                LockSupport.parkNanos(thinkMicros * 1000L);
+                            }
+                            CommandResult booked = operations.book(new BookingRequest(customer, vehicle.getId(), start,
+                                    end, false, username, observed));
+                            if (booked.isSuccess()) {
+                                rental = booked.getRental();
+                                break;
+                            }
+                        }
+                        latencies[n] = System.nanoTime() - t0;
+                        ExtensionStressTest.verify(system, rental.getVehicle(), checks, violations);
+
+                        kept.addLast(rental);
+                        if (kept.size() > KEPT_BOOKINGS) {
+                            operations.cancel(kept.removeFirst().getId(), "Benchmark");
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.setOut(console);
+
+            int[] totals = new int[4];
+            for (Vehicle vehicle : fleet) {
+                int[] check = ExtensionStressTest.checkBookings(system, vehicle);
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += check[i];
+                }
+            }
+            boolean passed = violations.get() == 0 && totals[1] == 0 && totals[2] == 0 && totals[3] == 0;
+
+            long fast = BookingSchedule.getFastCommits() - fastBefore;
+            long revalidated = BookingSchedule.getRevalidatedCommits() - revalidatedBefore;
+            long conflicts = BookingSchedule.getConflicts() - conflictsBefore;
+            long attempts = fast + revalidated + conflicts;
+            Arrays.sort(latencies);
+            System.out.println("\n=== Booking Contention Benchmark ===");
+            System.out.printf("Vehicles: %d | Operators: %d | Bookings: %d | Think time: %d us%n",
+                    vehicles, operators, bookings, thinkMicros);
+            System.out.printf("Commit attempts: %d | Fast: %d | Re-validated: %d | Conflicts (retried): %d%n",
+                    attempts, fast, revalidated, conflicts);
+            System.out.printf("Retry rate: %.2f%% of commits | %.3f retries per booking | Unavailable at check: %d%n",
+                    attempts == 0 ? 0.0 : 100.0 * conflicts / attempts, (double) conflicts / bookings,
+                    unavailable.get());
+            System.out.printf("Throughput: %.0f bookings/s | Time to book p50: %.1f us | p99: %.1f us%n",
+                    bookings / seconds, percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3);
+            System.out.printf("Checks after commits: %d | Violations seen: %d | Active/pending rentals: %d"
+                    + " | Lost: %d | Stray: %d | Overlapping pairs: %d | %s%n", checks.get(), violations.get(),
+                    totals[0], totals[1], totals[2], totals[3], passed ? "PASSED" : "FAILED");
+            return passed;
+        } finally {
+            System.setOut(console);
+            system.getChangeLog().close();
+            ExtensionStressTest.deleteDirectory(dataDirectory);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
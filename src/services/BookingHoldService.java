@@ -0,0 +1,141 @@
+package services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import models.BookingHold;
+
+/**
+ * Short-lived booking holds. A hold keeps other customers off a vehicle's
+ * dates while the holder finishes the booking prompts, and lapses on its own
+ * after the TTL.
+ *
+ * Holds are grouped per vehicle; placing one checks and inserts atomically
+ * for that vehicle. Expired holds are released by a daemon reaper blocking on
+ * a DelayQueue, so nothing ever scans for them.
+ */
+public class BookingHoldService {
+
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000L;
+    private static final int BUFFER_DAYS = 2;
+
+    private final Map<Integer, List<BookingHold>> holdsByVehicle = new ConcurrentHashMap<>();
+    private final Map<String, BookingHold> holdsById = new ConcurrentHashMap<>();
+    private final DelayQueue<BookingHold> expiryQueue = new DelayQueue<>();
+    private final AtomicLong nextHoldId = new AtomicLong(1);
+    private final long ttlMillis;
+
+    public BookingHoldService() {
+        this(DEFAULT_TTL_MILLIS);
+    }
+
+    public BookingHoldService(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        Thread reaper = new Thread(this::reapExpired, "booking-hold-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    /**
+     * Place a hold for the holder, or return null if another customer holds overlapping dates.
+     * Any earlier hold by the same holder on this vehicle is replaced.
+     */
+    public BookingHold placeHold(int vehicleId, LocalDate startDate, LocalDate endDate, String holder) {
+        BookingHold hold = new BookingHold("H" + nextHoldId.getAndIncrement(), vehicleId, startDate, endDate,
+                holder, ttlMillis);
+        boolean[] placed = new boolean[1];
+        holdsByVehicle.compute(vehicleId, (id, holds) -> {
+            List<BookingHold> kept = new ArrayList<>();
+            if (holds != null) {
+                for (BookingHold existing : holds) {
+                    if (existing.isLive() && !existing.getHolder().equals(holder)
+                            && existing.overlaps(startDate, endDate, BUFFER_DAYS)) {
+                        return holds; // Conflict: leave the vehicle's holds untouched
+                    }
+                }
+                for (BookingHold existing : holds) {
+                    if (existing.isLive() && existing.getHolder().equals(holder)) {
+                        existing.markReleased();
+                        holdsById.remove(existing.getHoldId());
+                    } else if (existing.isLive()) {
+                        kept.add(existing);
+                    }
+                }
+            }
+            kept.add(hold);
+            placed[0] = true;
+            return kept;
+        });
+        if (!placed[0]) {
+            return null;
+        }
+        holdsById.put(hold.getHoldId(), hold);
+        expiryQueue.put(hold);
+        return hold;
+    }
+
+    /**
+     * Live hold by someone other than the given customer overlapping the dates, or null
+     */
+    public BookingHold findConflictingHold(int vehicleId, LocalDate startDate, LocalDate endDate, String customer) {
+        List<BookingHold> holds = holdsByVehicle.get(vehicleId);
+        if (holds == null) {
+            return null;
+        }
+        for (BookingHold hold : holds) {
+            if (hold.isLive() && !hold.getHolder().equals(customer)
+                    && hold.overlaps(startDate, endDate, BUFFER_DAYS)) {
+                return hold;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Release a hold early (booking committed or abandoned)
+     */
+    public void release(BookingHold hold) {
+        if (hold == null || hold.isReleased()) {
+            return;
+        }
+        hold.markReleased();
+        detach(hold);
+        // The queue entry is dropped by the reaper when it falls due
+    }
+
+    public BookingHold findHold(String holdId) {
+        return holdsById.get(holdId);
+    }
+
+    public int getActiveHoldCount() {
+        return holdsById.size();
+    }
+
+    private void detach(BookingHold hold) {
+        holdsById.remove(hold.getHoldId());
+        holdsByVehicle.computeIfPresent(hold.getVehicleId(), (id, holds) -> {
+            List<BookingHold> kept = new ArrayList<>(holds);
+            kept.remove(hold);
+            return kept.isEmpty() ? null : kept;
+        });
+    }
+
+    private void reapExpired() {
+        while (true) {
+            try {
+                BookingHold expired = expiryQueue.take();
+                if (!expired.isReleased()) {
+                    expired.markReleased();
+                    detach(expired);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package services;
+
+import enums.RentalStatus;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import models.*;
+import static services.UtilityService.*;
+
+/**
+ * Bulk import of vehicles and historical rentals from CSV (with a header row)
+ * or JSON-lines files.
+ *
+ * The file is streamed in batches: each batch is parsed and validated in
+ * parallel, then merged in file order (duplicate and overlap checks need a
+ * single writer). Rejected rows go to a side file next to the input with the
+ * line number and reason. Accepted rows are committed at the end, once the
+ * whole file was read; if reading fails part-way, nothing is committed.
+ * Vehicles are committed in one atomic file replace. Closed rentals go
+ * straight into the monthly rental history, and active and pending ones are
+ * booked under their vehicle lock and appended to rentals.json; a live row
+ * whose dates were booked by someone else meanwhile is rejected then.
+ *
+ * Vehicle columns: vehicleID, plateNo, brand, model, type, fuelType, year, basePrice,
+ *   and optionally color, capacity, condition, insuranceRate, availability, archived,
+ *   longTermDiscounts (CSV as "7:0.08;14:0.12").
+ * Rental columns: vehicleID, startDate, endDate, and optionally id, customerName (or name),
+ *   contact, username, status (default RETURNED), fee, actualFee, insurance, surgeFactor (default 1.0). Rows without an
+ *   id get a fresh one, not used by any hot, archived or imported rental, when committed.
+ *   Lines in the rentals.json record format are accepted as JSON-lines input too.
+ */
+public class BulkImportService {
+
+    private static final int BATCH_SIZE = 16384;
+    private static final int BUFFER_DAYS = 2;
+
+    private final RentalSystem system;
+
+    public BulkImportService(RentalSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Import vehicles and append them to the fleet and vehicles.json
+     */
+    public ImportReport importVehicles(String path) throws IOException {
+        Set<String> seenIds = new HashSet<>();
+        Set<String> seenPlates = new HashSet<>();
+        for (Vehicle v : vehicleService.getVehicles()) {
+            seenIds.add(v.getVehicleID().toUpperCase());
+            seenPlates.add(v.getPlateNo().toUpperCase());
+        }
+
+        List<Vehicle> accepted = new ArrayList<>();
+        ImportReport report = run(path, BulkImportService::parseVehicle, vehicle -> {
+            if (!seenIds.add(vehicle.getVehicleID().toUpperCase())) {
+                return "Duplicate vehicle ID " + vehicle.getVehicleID();
+            }
+            if (!seenPlates.add(vehicle.getPlateNo().toUpperCase())) {
+                seenIds.remove(vehicle.getVehicleID().toUpperCase());
+                return "Duplicate plate number " + vehicle.getPlateNo();
+            }
+            accepted.add(vehicle);
+            return null;
+        }, committing -> vehicleService.commitImportedVehicles(accepted, system.dataFile("vehicles.json")));
+        return report;
+    }
+
+    /**
+     * Import rentals for vehicles already in the fleet: closed ones into the rental history,
+     * active and pending ones into rentals.json
+     */
+    public ImportReport importRentals(String path) throws IOException {
+        Map<String, Vehicle> fleetByVehicleId = new HashMap<>();
+        for (Vehicle v : vehicleService.getVehicles()) {
+            fleetByVehicleId.put(v.getVehicleID().toUpperCase(), v);
+        }
+
+        Set<Integer> seenIds = new HashSet<>();
+        for (Rental archived : system.getHistoryStore().loadAll()) {
+            seenIds.add(archived.getId()); // Archived IDs are not in findRentalById
+        }
+        Map<Vehicle, BookingSchedule> importedBookings = new IdentityHashMap<>();
+        List<Rental> accepted = new ArrayList<>();
+        boolean[] touchesSchedules = new boolean[1];
+
+        ImportReport report = run(path, row -> parseRental(row, fleetByVehicleId), rental -> {
+            // Rows without an ID get one at commit, so rejected rows never use one up
+            if (rental.getId() > 0
+                    && (system.findRentalById(rental.getId()) != null || !seenIds.add(rental.getId()))) {
+                return "Duplicate rental ID " + rental.getId();
+            }
+
+            // Only live bookings occupy the vehicle; historical ones never conflict
+            if (rental.getStatus() == RentalStatus.ACTIVE || rental.getStatus() == RentalStatus.PENDING) {
+                Vehicle vehicle = rental.getVehicle();
+                BookingSchedule imported = importedBookings.computeIfAbsent(vehicle, v -> new BookingSchedule());
+                if (vehicle.getBookingSchedule().overlaps(rental.getStartDate(), rental.getEndDate(), BUFFER_DAYS)
+                        || imported.overlaps(rental.getStartDate(), rental.getEndDate(), BUFFER_DAYS)) {
+                    return "Overlaps an existing booking of vehicle " + vehicle.getVehicleID();
+                }
+                imported.add(rental.getStartDate(), rental.getEndDate());
+                touchesSchedules[0] = true;
+            }
+            accepted.add(rental);
+            return null;
+        }, committing -> {
+            for (Rental rental : accepted) {
+                if (rental.getId() <= 0) {
+                    int id;
+                    do {
+                        id = system.reserveRentalId();
+                    } while (system.findRentalById(id) != null || !seenIds.add(id));
+                    rental.setId(id);
+                }
+            }
+            List<Rental> conflicting = system.commitImportedRentals(accepted, "rentals.json");
+            if (!conflicting.isEmpty()) {
+                try (BufferedWriter rejects = Files.newBufferedWriter(Paths.get(path + ".rejects"),
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (Rental rental : conflicting) {
+                        committing.recordRejectedAtCommit();
+                        rejects.write("commit: Booked by another session meanwhile\trental " + rental.getId() + " "
+                                + rental.getVehicle().getVehicleID() + " " + rental.getStartDate() + " "
+                                + rental.getEndDate());
+                        rejects.newLine();
+                    }
+                }
+            }
+            if (touchesSchedules[0]) {
+                system.syncVehicleStatusWithRentals();
+                vehicleService.saveVehicles(system.dataFile("vehicles.json"));
+            }
+        });
+        return report;
+    }
+
+    // ---- Pipeline ----
+
+    private interface Committer {
+        void commit(ImportReport report) throws IOException;
+    }
+
+    /**
+     * Parsed row: the value, or the reason it was rejected
+     */
+    private static final class Parsed<T> {
+        final T value;
+        final String error;
+
+        Parsed(T value, String error) {
+            this.value = value;
+            this.error = error;
+        }
+    }
+
+    private <T> ImportReport run(String path, Function<Row, T> parser, Function<T, String> merger,
+            Committer committer) throws IOException {
+        long started = System.currentTimeMillis();
+        ImportReport report = new ImportReport(path);
+        String rejectsPath = path + ".rejects";
+        boolean csv = path.toLowerCase().endsWith(".csv");
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+                RejectWriter rejects = new RejectWriter(rejectsPath)) {
+            Map<String, Integer> header = null;
+            if (csv) {
+                String headerLine = reader.readLine();
+                if (headerLine == null) {
+                    throw new IOException("CSV file is empty");
+                }
+                header = new HashMap<>();
+                String[] names = splitCsv(headerLine);
+                for (int i = 0; i < names.length; i++) {
+                    header.put(names[i].trim().toLowerCase(), i);
+                }
+            }
+
+            String[] lines = new String[BATCH_SIZE];
+            long[] lineNumbers = new long[BATCH_SIZE];
+            long lineNumber = csv ? 1 : 0;
+            String line;
+            int count = 0;
+            while (true) {
+                line = reader.readLine();
+                if (line != null) {
+                    lineNumber++;
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    lines[count] = line;
+                    lineNumbers[count] = lineNumber;
+                    count++;
+                }
+                if (count == BATCH_SIZE || (line == null && count > 0)) {
+                    processBatch(lines, lineNumbers, count, header, parser, merger, report, rejects);
+                    count = 0;
+                }
+                if (line == null) {
+                    break;
+                }
+            }
+        }
+
+        boolean committed = false;
+        if (report.getAccepted() > 0) {
+            committer.commit(report);
+            committed = true;
+        }
+        report.finish(System.currentTimeMillis() - started, rejectsPath, committed);
+        return report;
+    }
+
+    private <T> void processBatch(String[] lines, long[] lineNumbers, int count, Map<String, Integer> header,
+            Function<Row, T> parser, Function<T, String> merger, ImportReport report, RejectWriter rejects)
+            throws IOException {
+        // Parse and validate in parallel; rows are independent at this stage
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Parsed<T>[] parsed = new Parsed[count];
+        IntStream.range(0, count).parallel().forEach(i -> {
+            try {
+                Row row = header != null ? new CsvRow(header, splitCsv(lines[i])) : new JsonRow(lines[i]);
+                parsed[i] = new Parsed<>(parser.apply(row), null);
+            } catch (RuntimeException e) {
+                parsed[i] = new Parsed<>(null, e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        });
+
+        // Merge in file order
+        for (int i = 0; i < count; i++) {
+            report.recordRead();
+            String error = parsed[i].error;
+            if (error == null) {
+                error = merger.apply(parsed[i].value);
+            }
+            if (error == null) {
+                report.recordAccepted();
+            } else {
+                report.recordRejected();
+                rejects.write(lineNumbers[i], error, lines[i]);
+            }
+        }
+    }
+
+    /**
+     * Rejects side file, created on the first rejected row
+     */
+    private static final class RejectWriter implements Closeable {
+        private final String path;
+        private BufferedWriter writer;
+
+        RejectWriter(String path) throws IOException {
+            this.path = path;
+            Files.deleteIfExists(Paths.get(path));
+        }
+
+        void write(long lineNumber, String reason, String raw) throws IOException {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+            }
+            writer.write("line " + lineNumber + ": " + reason + "\t" + raw);
+            writer.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    // ---- Row parsing ----
+
+    private interface Row {
+        /**
+         * Field value, or null if absent or empty
+         */
+        String get(String key);
+    }
+
+    private static final class CsvRow implements Row {
+        private final Map<String, Integer> header;
+        private final String[] fields;
+
+        CsvRow(Map<String, Integer> header, String[] fields) {
+            this.header = header;
+            this.fields = fields;
+        }
+
+        @Override
+        public String get(String key) {
+            Integer index = header.get(key.toLowerCase());
+            if (index == null || index >= fields.length) {
+                return null;
+            }
+            String value = fields[index].trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    private static final class JsonRow implements Row {
+        private final String json;
+
+        JsonRow(String json) {
+            if (!json.trim().startsWith("{")) {
+                throw new IllegalArgumentException("Not a JSON object");
+            }
+            this.json = json;
+        }
+
+        @Override
+        public String get(String key) {
+            String value = extractJsonValue(json, key);
+            return value == null || value.trim().isEmpty() || value.equals("null") ? null : value.trim();
+        }
+    }
+
+    private static Vehicle parseVehicle(Row row) {
+        String vehicleId = required(row, "vehicleID");
+        String plateNo = required(row, "plateNo");
+        String brand = required(row, "brand");
+        String model = required(row, "model");
+        String type = required(row, "type");
+        String fuelType = required(row, "fuelType");
+        int year = parseInt(required(row, "year"), "year");
+        if (year < 1950 || year > LocalDate.now().getYear() + 1) {
+            throw new IllegalArgumentException("Year out of range: " + year);
+        }
+        double basePrice = parseDouble(required(row, "basePrice"), "basePrice");
+        if (basePrice <= 0) {
+            throw new IllegalArgumentException("basePrice must be positive");
+        }
+        double capacity = parseDouble(optional(row, "capacity", "0"), "capacity");
+        double insuranceRate = parseDouble(optional(row, "insuranceRate", "0.1"), "insuranceRate");
+        if (insuranceRate < 0 || insuranceRate > 1) {
+            throw new IllegalArgumentException("insuranceRate must be between 0 and 1");
+        }
+
+        Map<Integer, Double> discounts = new HashMap<>();
+        String discountSpec = row.get("longTermDiscounts");
+        if (discountSpec != null) {
+            // "7:0.08;14:0.12" in CSV, {"7": 0.08,"14": 0.12} in JSON
+            for (String pair : discountSpec.replaceAll("[{}\"\\s]", "").split("[;,]")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                String[] keyValue = pair.split(":");
+                if (keyValue.length != 2) {
+                    throw new IllegalArgumentException("Invalid longTermDiscounts entry: " + pair);
+                }
+                discounts.put(parseInt(keyValue[0], "discount days"), parseDouble(keyValue[1], "discount rate"));
+            }
+        }
+
+        Vehicle vehicle = new Vehicle(vehicleId, plateNo.toUpperCase(), brand, model, type, fuelType,
+                optional(row, "color", ""), year, capacity, optional(row, "condition", "Good"), insuranceRate,
+                optional(row, "availability", "available"), basePrice, discounts);
+        vehicle.setArchived(Boolean.parseBoolean(optional(row, "archived", "false")));
+        return vehicle;
+    }
+
+    private Rental parseRental(Row row, Map<String, Vehicle> fleetByVehicleId) {
+        String vehicleId = required(row, "vehicleID");
+        Vehicle vehicle = fleetByVehicleId.get(vehicleId.toUpperCase());
+        if (vehicle == null) {
+            throw new IllegalArgumentException("Unknown vehicle " + vehicleId);
+        }
+        LocalDate startDate = parseDate(required(row, "startDate"), "startDate");
+        LocalDate endDate = parseDate(required(row, "endDate"), "endDate");
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("endDate is before startDate");
+        }
+
+        RentalStatus status;
+        String statusText = optional(row, "status", "RETURNED").toUpperCase();
+        try {
+            status = RentalStatus.valueOf(statusText);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown status " + statusText);
+        }
+
+        String name = row.get("customerName") != null ? row.get("customerName") : required(row, "name");
+        Customer customer = new Customer(name, optional(row, "contact", ""));
+        boolean insurance = Boolean.parseBoolean(optional(row, "insurance", "false"));
+        double surge = parseDouble(optional(row, "surgeFactor", "1.0"), "surgeFactor");
+        String feeText = row.get("fee");
+        double fee = feeText != null ? parseDouble(feeText, "fee")
+                : system.calculateRentalFee(vehicle, startDate, endDate, insurance, surge);
+        int id = row.get("id") != null ? parseInt(row.get("id"), "id") : 0;
+
+        Rental rental = new Rental(id, customer, vehicle, startDate, endDate, status, fee, insurance,
+                row.get("username"));
+        rental.setActualFee(parseDouble(optional(row, "actualFee", "0"), "actualFee"));
+        rental.setSurgeFactor(surge);
+        return rental;
+    }
+
+    private static String required(Row row, String key) {
+        String value = row.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
+    }
+
+    private static String optional(Row row, String key, String defaultValue) {
+        String value = row.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private static int parseInt(String value, String field) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static double parseDouble(String value, String field) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value, String field) {
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    /**
+     * Split one CSV line, honouring double-quoted fields with embedded commas and "" escapes
+     */
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,79 @@
+package services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import models.ChangeEvent;
+
+/**
+ * Resumable consumer position over a ChangeLog. The position is the sequence
+ * number of the last event handed out; commit() persists it to a checkpoint
+ * file so a restarted consumer continues where it left off, without rescans.
+ */
+public class ChangeFeedReader {
+
+    private final ChangeLog changeLog;
+    private final Path checkpointFile;
+    private long position;
+
+    /**
+     * @param checkpointFile file holding the committed position; created on the first commit
+     */
+    public ChangeFeedReader(ChangeLog changeLog, String checkpointFile) {
+        this.changeLog = changeLog;
+        this.checkpointFile = Paths.get(checkpointFile);
+        this.position = loadCheckpoint();
+    }
+
+    /**
+     * Next events after the current position; the position advances past them
+     */
+    public List<ChangeEvent> poll(int maxEvents) {
+        List<ChangeEvent> events = changeLog.readAfter(position, maxEvents);
+        if (!events.isEmpty()) {
+            position = events.get(events.size() - 1).getSequence();
+        }
+        return events;
+    }
+
+    /**
+     * Persist the current position once the polled events have been processed
+     */
+    public void commit() throws IOException {
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(temp, Long.toString(position).getBytes(StandardCharsets.UTF_8));
+        UtilityService.replaceFile(temp, checkpointFile);
+    }
+
+    /**
+     * Rewind or skip to a position, e.g. 0 to replay everything still retained
+     */
+    public void seek(long sequence) {
+        this.position = sequence;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * True if events after the position have already been rotated out of the log
+     */
+    public boolean hasGap() {
+        long oldest = changeLog.getOldestSequence();
+        return oldest > 0 && position < oldest - 1;
+    }
+
+    private long loadCheckpoint() {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Failed to read change feed checkpoint: " + e.getMessage());
+            return 0;
+        }
+    }
+}
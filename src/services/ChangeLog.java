@@ -0,0 +1,315 @@
+package services;
+
+import enums.ChangeType;
+import enums.RentalStatus;
+import enums.VehicleStatus;
+import interfaces.VehicleStatusObserver;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import models.ChangeEvent;
+import models.Rental;
+import models.Ticket;
+import models.Vehicle;
+import static services.UtilityService.*;
+
+/**
+ * Ordered change-data-capture log of rental, vehicle, ticket and payment
+ * transitions, so downstream consumers can sync incrementally instead of
+ * diffing whole data files.
+ *
+ * Events are appended as JSON lines to segment files named after the first
+ * sequence number they hold (changes-00000000000000000001.log, ...). A segment
+ * is closed once it passes the size limit and the oldest segments beyond the
+ * retention count are deleted. Sequence numbers increase by one per event and
+ * continue across restarts.
+ *
+ * Consumers remember the last sequence they processed and call readAfter (or
+ * use a ChangeFeedReader) to resume from there.
+ */
+public class ChangeLog implements VehicleStatusObserver {
+
+    public static final String DEFAULT_DIRECTORY = "changelog";
+    private static final String PREFIX = "changes-";
+    private static final String SUFFIX = ".log";
+    private static final long DEFAULT_SEGMENT_BYTES = 4L << 20;
+    private static final int DEFAULT_RETAINED_SEGMENTS = 32;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int retainedSegments;
+    private final AtomicLong sequence = new AtomicLong();
+    private boolean opened;
+    private Path resumeSegment; // Newest segment at startup, reused if it ends with a complete line
+    private OutputStream out;
+    private long segmentSize; // Bytes in the open segment
+
+    public ChangeLog() {
+        this(DEFAULT_DIRECTORY);
+    }
+
+    public ChangeLog(String directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_RETAINED_SEGMENTS);
+    }
+
+    public ChangeLog(String directory, long segmentBytes, int retainedSegments) {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.retainedSegments = retainedSegments;
+    }
+
+    // ---- Writing ----
+
+    public void rentalStatusChanged(Rental rental, RentalStatus previous) {
+        append(ChangeType.RENTAL_STATUS, String.valueOf(rental.getId()),
+                previous == null ? "" : previous.name(), rental.getStatus().name(),
+                "vehicle=" + rental.getVehicle().getVehicleID() + " user="
+                        + (rental.getUsername() == null ? "" : rental.getUsername()));
+    }
+
+    @Override
+    public void vehicleStatusChanged(Vehicle vehicle, VehicleStatus previous) {
+        append(ChangeType.VEHICLE_STATUS, vehicle.getVehicleID(),
+                previous == null ? "" : previous.name(), vehicle.getVehicleStatus().name(), "");
+    }
+
+    /**
+     * A rental added by a bulk import; consumers treat it like a newly created rental
+     */
+    public void rentalImported(Rental rental) {
+        append(ChangeType.RENTAL_STATUS, String.valueOf(rental.getId()), "", rental.getStatus().name(),
+                "vehicle=" + rental.getVehicle().getVehicleID() + " user="
+                        + (rental.getUsername() == null ? "" : rental.getUsername()) + " source=import");
+    }
+
+    /**
+     * A closed rental moved out of the hot rentals file into its monthly history segment
+     */
+    public void rentalArchived(Rental rental, YearMonth month) {
+        append(ChangeType.RENTAL_ARCHIVED, String.valueOf(rental.getId()), "HOT", "ARCHIVED",
+                "month=" + month);
+    }
+
+    public void ticketUsed(Ticket ticket) {
+        append(ChangeType.TICKET_USED, ticket.getTicketId(), "VALID", "USED",
+                "rental=" + ticket.getRentalId());
+    }
+
+    public void paymentSettled(Rental rental, double amount, String method) {
+        append(ChangeType.PAYMENT, String.valueOf(rental.getId()), "", "PAID",
+                String.format("amount=%.2f method=%s", amount, method == null ? "" : method));
+    }
+
+    /**
+     * Append an event and return it with its sequence number. Failures to write are
+     * reported and the event is dropped; callers' state changes are never rolled back.
+     */
+    public synchronized ChangeEvent append(ChangeType type, String entityId, String from, String to,
+            String detail) {
+        try {
+            openIfNeeded();
+            ChangeEvent event = new ChangeEvent(sequence.get() + 1, System.currentTimeMillis(), type,
+                    entityId, from, to, detail);
+            if (out == null && resumeSegment != null) {
+                openSegment(resumeSegment);
+                resumeSegment = null;
+            }
+            if (out == null || segmentSize >= segmentBytes) {
+                startSegment(event.getSequence());
+            }
+            byte[] line = (toJson(event) + "\n").getBytes(StandardCharsets.UTF_8);
+            out.write(line);
+            out.flush(); // Readers tail the file; each event is visible once appended
+            segmentSize += line.length;
+            sequence.set(event.getSequence());
+            return event;
+        } catch (IOException e) {
+            System.out.println("Failed to write change log: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sequence number of the newest event, 0 if none was ever written
+     */
+    public synchronized long getLastSequence() {
+        try {
+            openIfNeeded();
+        } catch (IOException e) {
+            System.out.println("Failed to open change log: " + e.getMessage());
+        }
+        return sequence.get();
+    }
+
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close change log: " + e.getMessage());
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Recover the last sequence number from the newest segment. Appending continues
+     * in that segment only if it ends with a complete line, so a torn line left by
+     * a crash is never extended.
+     */
+    private void openIfNeeded() throws IOException {
+        if (opened) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments();
+        long last = 0;
+        for (int i = segments.size() - 1; i >= 0 && last == 0; i--) {
+            try (BufferedReader reader = Files.newBufferedReader(segments.get(i), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ChangeEvent event = parse(line);
+                    if (event != null) {
+                        last = event.getSequence();
+                    }
+                }
+            }
+            if (last == 0) {
+                last = firstSequence(segments.get(i)) - 1;
+            }
+        }
+        sequence.set(last);
+        if (!segments.isEmpty() && endsWithNewline(segments.get(segments.size() - 1))) {
+            resumeSegment = segments.get(segments.size() - 1);
+        }
+        opened = true;
+    }
+
+    private void openSegment(Path segment) throws IOException {
+        close();
+        out = new BufferedOutputStream(Files.newOutputStream(segment, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND));
+        segmentSize = Files.size(segment);
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        openSegment(directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX)));
+
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size() - retainedSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    // ---- Reading ----
+
+    /**
+     * Up to maxEvents events with a sequence number greater than afterSequence, in order.
+     * If afterSequence is older than the retained segments, reading starts at the oldest
+     * event still on disk; compare with getOldestSequence to detect the gap.
+     */
+    public List<ChangeEvent> readAfter(long afterSequence, int maxEvents) {
+        List<ChangeEvent> events = new ArrayList<>();
+        List<Path> segments;
+        try {
+            segments = listSegments();
+        } catch (IOException e) {
+            System.out.println("Failed to read change log: " + e.getMessage());
+            return events;
+        }
+
+        // Start at the last segment whose first event is at or before the one wanted
+        int start = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (firstSequence(segments.get(i)) <= afterSequence + 1) {
+                start = i;
+            }
+        }
+        for (int i = start; i < segments.size() && events.size() < maxEvents; i++) {
+            try (BufferedReader reader = Files.newBufferedReader(segments.get(i), StandardCharsets.UTF_8)) {
+                String line;
+                while (events.size() < maxEvents && (line = reader.readLine()) != null) {
+                    ChangeEvent event = parse(line);
+                    if (event == null) {
+                        break; // Torn or in-progress line: the rest of this segment is not readable yet
+                    }
+                    if (event.getSequence() > afterSequence) {
+                        events.add(event);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // Rotated away while reading; continue with the next segment
+            } catch (IOException e) {
+                System.out.println("Failed to read change log: " + e.getMessage());
+                break;
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Sequence number of the oldest event still retained, 0 if the log is empty
+     */
+    public long getOldestSequence() {
+        try {
+            List<Path> segments = listSegments();
+            return segments.isEmpty() ? 0 : firstSequence(segments.get(0));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().forEach(segments::add); // Zero-padded names sort by first sequence
+        }
+        return segments;
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // ---- Format ----
+
+    static String toJson(ChangeEvent event) {
+        return "{\"seq\":" + event.getSequence()
+                + ",\"ts\":" + event.getTimestampMillis()
+                + ",\"type\":\"" + event.getType()
+                + "\",\"entity\":\"" + escapeJson(event.getEntityId())
+                + "\",\"from\":\"" + escapeJson(event.getFrom())
+                + "\",\"to\":\"" + escapeJson(event.getTo())
+                + "\",\"detail\":\"" + escapeJson(event.getDetail()) + "\"}";
+    }
+
+    /**
+     * Parse a line written by toJson, or return null if it is not a complete event
+     */
+    static ChangeEvent parse(String line) {
+        if (line == null || !line.startsWith("{") || !line.endsWith("}")) {
+            return null;
+        }
+        try {
+            return new ChangeEvent(Long.parseLong(extractJsonValue(line, "seq")),
+                    Long.parseLong(extractJsonValue(line, "ts")),
+                    ChangeType.valueOf(extractJsonValue(line, "type")),
+                    extractJsonValue(line, "entity"), extractJsonValue(line, "from"),
+                    extractJsonValue(line, "to"), extractJsonValue(line, "detail"));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package services;
+
+import enums.RentalStatus;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+import models.*;
+import static services.UtilityService.*;
+
+/**
+ * Streaming JSON-lines (NDJSON) export of rentals, vehicles and messages for
+ * downstream analytics.
+ *
+ * Records are written one per line as they are visited, so memory use does not
+ * grow with the data set. Exports work on a live system: the record list is the
+ * copy-on-write snapshot taken when the export starts, and each rental is
+ * serialized under its vehicle lock so its status, dates and fees are
+ * consistent with one another. Rental exports include the archived history
+ * months that overlap the date range.
+ *
+ * Rental keys match the JSON-lines input of BulkImportService, so an export can
+ * be imported into another instance.
+ */
+public class DataExportService {
+
+    public static final String RENTALS = "rentals";
+    public static final String VEHICLES = "vehicles";
+    public static final String MESSAGES = "messages";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final RentalSystem system;
+
+    public DataExportService(RentalSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Export a data set to a file, gzip-compressed when the name ends in .gz.
+     * The file is written beside the target and moved into place when complete,
+     * so readers never see a partial export.
+     *
+     * @param from   first day to include, or null for no lower bound
+     * @param to     last day to include, or null for no upper bound
+     * @param status rental status to include, or null for all (rentals only)
+     * @return number of records written
+     */
+    public long exportToFile(String dataset, String path, LocalDate from, LocalDate to, RentalStatus status)
+            throws IOException {
+        Path target = Paths.get(path).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            long count;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                if (path.toLowerCase().endsWith(".gz")) {
+                    out = new GZIPOutputStream(out, BUFFER_SIZE);
+                }
+                count = export(dataset, out, from, to, status);
+                out.close();
+            }
+            replaceFile(temp, target);
+            return count;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Write a data set to the stream as JSON lines. The stream is flushed but not closed.
+     *
+     * @return number of records written
+     */
+    public long export(String dataset, OutputStream out, LocalDate from, LocalDate to, RentalStatus status)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long count;
+        switch (dataset.toLowerCase()) {
+            case RENTALS:
+                count = writeRentals(writer, from, to, status);
+                break;
+            case VEHICLES:
+                count = writeVehicles(writer);
+                break;
+            case MESSAGES:
+                count = writeMessages(writer, from, to);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown data set: " + dataset
+                        + " (expected " + RENTALS + ", " + VEHICLES + " or " + MESSAGES + ")");
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Rentals whose rental period overlaps [from, to]: archived months first, then the hot rentals
+     */
+    private long writeRentals(Writer writer, LocalDate from, LocalDate to, RentalStatus status) throws IOException {
+        List<Rental> snapshot = system.getRentals();
+        Set<Integer> hotIds = new HashSet<>();
+        for (Rental rental : snapshot) {
+            hotIds.add(rental.getId());
+        }
+        StringBuilder line = new StringBuilder(512);
+        long count = 0;
+        // Archived rentals are closed and read-only, so they need no locking; one month is held at a time
+        RentalHistoryStore history = system.getHistoryStore();
+        for (YearMonth month : history.listMonths()) {
+            if (from != null && month.isBefore(YearMonth.from(from))) {
+                continue; // Segments are keyed by end month
+            }
+            for (Rental rental : history.readMonth(month)) {
+                if ((status != null && rental.getStatus() != status) || hotIds.contains(rental.getId())
+                        || (from != null && rental.getEndDate().isBefore(from))
+                        || (to != null && rental.getStartDate().isAfter(to))) {
+                    continue;
+                }
+                line.setLength(0);
+                appendRental(line, rental);
+                writer.append(line).append('\n');
+                count++;
+            }
+        }
+        for (Rental rental : snapshot) {
+            line.setLength(0);
+            ReentrantLock lock = system.lockForVehicle(rental.getVehicle().getId());
+            lock.lock();
+            try {
+                if ((status != null && rental.getStatus() != status)
+                        || (from != null && rental.getEndDate().isBefore(from))
+                        || (to != null && rental.getStartDate().isAfter(to))) {
+                    continue;
+                }
+                appendRental(line, rental);
+            } finally {
+                lock.unlock();
+            }
+            writer.append(line).append('\n');
+            count++;
+        }
+        return count;
+    }
+
+    private long writeVehicles(Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder(512);
+        long count = 0;
+        for (Vehicle vehicle : vehicleService.getVehicles()) {
+            line.setLength(0);
+            appendVehicle(line, vehicle);
+            writer.append(line).append('\n');
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Messages sent on a day within [from, to]
+     */
+    private long writeMessages(Writer writer, LocalDate from, LocalDate to) throws IOException {
+        StringBuilder line = new StringBuilder(512);
+        long count = 0;
+        for (Message message : system.getNotificationService().getAllMessages()) {
+            LocalDate day = message.getTimestamp().toLocalDate();
+            if ((from != null && day.isBefore(from)) || (to != null && day.isAfter(to))) {
+                continue;
+            }
+            line.setLength(0);
+            appendMessage(line, message);
+            writer.append(line).append('\n');
+            count++;
+        }
+        return count;
+    }
+
+    private static void appendRental(StringBuilder json, Rental rental) {
+        Vehicle vehicle = rental.getVehicle();
+        Customer customer = rental.getCustomer();
+        json.append("{\"id\":").append(rental.getId())
+                .append(",\"vehicleId\":").append(vehicle.getId())
+                .append(",\"vehicleID\":\"").append(escapeJson(vehicle.getVehicleID()))
+                .append("\",\"plateNo\":\"").append(escapeJson(vehicle.getPlateNo()))
+                .append("\",\"customerName\":\"").append(escapeJson(customer.getName()))
+                .append("\",\"contact\":\"").append(escapeJson(customer.getContact()))
+                .append("\",\"username\":\"").append(escapeJson(rental.getUsername()))
+                .append("\",\"startDate\":\"").append(rental.getStartDate())
+                .append("\",\"endDate\":\"").append(rental.getEndDate())
+                .append("\",\"status\":\"").append(rental.getStatus())
+                .append("\",\"fee\":").append(rental.getTotalFee())
+                .append(",\"actualFee\":").append(rental.getActualFee())
+                .append(",\"surgeFactor\":").append(rental.getSurgeFactor())
+                .append(",\"insurance\":").append(rental.isInsuranceSelected())
+                .append('}');
+    }
+
+    private static void appendVehicle(StringBuilder json, Vehicle vehicle) {
+        json.append("{\"id\":").append(vehicle.getId())
+                .append(",\"vehicleID\":\"").append(escapeJson(vehicle.getVehicleID()))
+                .append("\",\"plateNo\":\"").append(escapeJson(vehicle.getPlateNo()))
+                .append("\",\"brand\":\"").append(escapeJson(vehicle.getBrand()))
+                .append("\",\"model\":\"").append(escapeJson(vehicle.getModel()))
+                .append("\",\"type\":\"").append(escapeJson(vehicle.getType()))
+                .append("\",\"fuelType\":\"").append(escapeJson(vehicle.getFuelType()))
+                .append("\",\"color\":\"").append(escapeJson(vehicle.getColor()))
+                .append("\",\"year\":").append(vehicle.getYear())
+                .append(",\"capacity\":").append(vehicle.getCapacity())
+                .append(",\"condition\":\"").append(escapeJson(vehicle.getCondition()))
+                .append("\",\"insuranceRate\":").append(vehicle.getInsuranceRate())
+                .append(",\"availability\":\"").append(vehicle.getAvailable())
+                .append("\",\"archived\":").append(vehicle.isArchived())
+                .append(",\"basePrice\":").append(vehicle.getBasePrice())
+                .append(",\"longTermDiscounts\":{");
+        Map<Integer, Double> discounts = vehicle.getLongTermDiscounts();
+        if (discounts != null) {
+            boolean first = true;
+            for (Map.Entry<Integer, Double> entry : discounts.entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                json.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+                first = false;
+            }
+        }
+        json.append("}}");
+    }
+
+    private static void appendMessage(StringBuilder json, Message message) {
+        json.append("{\"id\":\"").append(escapeJson(message.getId()))
+                .append("\",\"sender\":\"").append(escapeJson(message.getSender()))
+                .append("\",\"recipient\":\"").append(escapeJson(message.getRecipient()))
+                .append("\",\"subject\":\"").append(escapeJson(message.getSubject()))
+                .append("\",\"content\":\"").append(escapeJson(message.getContent()))
+                .append("\",\"type\":\"").append(message.getType())
+                .append("\",\"timestamp\":\"").append(message.getTimestamp().format(TIMESTAMP_FORMAT))
+                .append("\",\"isRead\":").append(message.isRead())
+                .append(",\"relatedRentalId\":\"").append(escapeJson(message.getRelatedRentalId()))
+                .append("\",\"emailSent\":").append(message.isEmailSent())
+                .append('}');
+    }
+}
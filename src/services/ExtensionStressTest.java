@@ -0,0 +1,266 @@
+package services;
+
+import enums.RentalStatus;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import models.*;
+
+/**
+ * Multi-threaded stress test of rental extensions through a real RentalSystem
+ * whose data lives in a temporary directory. Customers hold rentals ten days
+ * apart on one vehicle, alternately active (committed as an import) and
+ * pending (booked). Threads extend them within their slot the way the console
+ * does: check the added days, pause while the customer confirms, then call
+ * extendRental or extendPendingRental, which re-check under the vehicle lock.
+ * Other threads book and cancel one-day walk-in rentals in the gaps and cut
+ * pending rentals back (cancel, then re-book the original dates), so checks
+ * regularly go stale. After every commit, and again at the end, every active
+ * and pending rental must be in the schedule, the schedule must hold nothing
+ * else, and no two of them may overlap. Console output from the rental flows
+ * is suppressed during the run. Real vehicles and rentals are never touched.
+ */
+public class ExtensionStressTest {
+
+    private static final int BOOKING_DAYS = 3;
+    private static final int SPACING_DAYS = 10;
+    private static final int THINK_MICROS = 50; // Customer confirming between the check and the commit
+
+    /**
+     * Run the stress test and print the outcome counts and invariant check
+     *
+     * @param customers rentals on the vehicle
+     * @param threads   threads extending, cutting back and booking walk-ins
+     * @param ops       total number of operations
+     * @return true if no booking was lost or left behind and none overlap
+     */
+    public static boolean run(int customers, int threads, int ops) throws IOException, InterruptedException {
+        Path dataDirectory = Files.createTempDirectory("extend_stress");
+        PrintStream console = System.out;
+        RentalSystem system = new RentalSystem(dataDirectory.toString());
+        try {
+            Vehicle vehicle = new Vehicle("9901", "STR0001", "Perodua", "Myvi", "Hatchback", "Petrol", "White",
+                    2022, 1.5, "Good", 0.1, "available");
+            List<Vehicle> fleet = new ArrayList<>();
+            fleet.add(vehicle);
+            system.setVehicles(fleet);
+            RentalOperations operations = system.getOperations();
+
+            LocalDate base = LocalDate.now().plusDays(30);
+            LocalDate[] starts = new LocalDate[customers];
+            List<Rental> active = new ArrayList<>();
+            for (int i = 0; i < customers; i++) {
+                starts[i] = base.plusDays((long) i * SPACING_DAYS);
+                LocalDate end = starts[i].plusDays(BOOKING_DAYS - 1);
+                if (i % 2 == 0) {
+                    active.add(new Rental(system.reserveRentalId(), new Customer("Stress " + i, "0"), vehicle,
+                            starts[i], end, RentalStatus.ACTIVE, 0, false, username(i)));
+                } else {
+                    operations.book(new BookingRequest(new Customer("Stress " + i, "0"), vehicle.getId(), starts[i],
+                            end, false, username(i)));
+                }
+            }
+            system.commitImportedRentals(active, "rentals.json");
+
+            AtomicInteger next = new AtomicInteger();
+            AtomicLong extended = new AtomicLong();
+            AtomicLong rejectedEarly = new AtomicLong();
+            AtomicLong rejectedUnderLock = new AtomicLong();
+            AtomicLong cutBack = new AtomicLong();
+            AtomicLong rebookFailed = new AtomicLong();
+            AtomicLong walkInChanges = new AtomicLong();
+            AtomicLong checks = new AtomicLong();
+            AtomicLong violations = new AtomicLong(); // Lost, stray or overlapping, seen right after a commit
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long started = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (next.getAndIncrement() < ops) {
+                        int c = random.nextInt(customers);
+                        int op = random.nextInt(8);
+                        // Looked up the way the console does, so another thread may change it meanwhile
+                        Rental rental = system.findActiveRentalByUserAndVehicle(username(c), vehicle.getId());
+                        if (rental == null) {
+                            rental = system.findPendingRentalByUserAndVehicle(username(c), vehicle.getId());
+                        }
+                        LocalDate lastDay = starts[c].plusDays(SPACING_DAYS - 3); // Clear of the next buffer
+                        if (op < 2) {
+                            // Walk-in customer books a day in the slot's gap (with the usual buffer), or cancels it
+                            Rental walkIn = system.findPendingRentalByUserAndVehicle("walkin" + c, vehicle.getId());
+                            if (walkIn != null) {
+                                operations.cancel(walkIn.getId(), "Walk-in cancelled");
+                            } else if (rental != null && !rental.getEndDate().plusDays(3).isAfter(lastDay)) {
+                                LocalDate day = rental.getEndDate().plusDays(3);
+                                if (operations.book(new BookingRequest(new Customer("Walk-in " + c, "0"),
+                                        vehicle.getId(), day, day, false, "walkin" + c)).isSuccess()) {
+                                    verify(system, vehicle, checks, violations);
+                                }
+                            }
+                            walkInChanges.incrementAndGet();
+                            continue;
+                        }
+                        boolean full = rental != null && !rental.getEndDate().isBefore(lastDay);
+                        if (rental == null || (c % 2 == 1 && (op == 2 || full))) {
+                            // Cut a pending rental back to its original dates, or retry a failed re-book
+                            if (rental != null && !operations.cancel(rental.getId(), "Cut back").isSuccess()) {
+                                continue;
+                            }
+                            if (operations.book(new BookingRequest(new Customer("Stress " + c, "0"), vehicle.getId(),
+                                    starts[c], starts[c].plusDays(BOOKING_DAYS - 1), false, username(c))).isSuccess()) {
+                                cutBack.incrementAndGet();
+                                verify(system, vehicle, checks, violations);
+                            } else {
+                                rebookFailed.incrementAndGet();
+                            }
+                            continue;
+                        }
+
+                        if (full) {
+                            continue; // Active rental already runs to the end of its slot
+                        }
+                        LocalDate newEnd = rental.getEndDate().plusDays(1 + random.nextInt(4));
+                        if (newEnd.isAfter(lastDay)) {
+                            newEnd = lastDay;
+                        }
+                        // Check the added days, let the customer confirm, then commit, as the console does
+                        if (system.getConflictDetailsWithExtension(vehicle.getId(), rental.getEndDate().plusDays(1),
+                                newEnd, username(c)) != null) {
+                            rejectedEarly.incrementAndGet();
+                            continue;
+                        }
+                        LockSupport.parkNanos(THINK_MICROS * 1000L);
+                        boolean done = rental.getStatus() == RentalStatus.ACTIVE
+                                ? system.extendRental(username(c), vehicle.getId(), newEnd, false)
+                                : system.extendPendingRental(username(c), vehicle.getId(), newEnd, false);
+                        if (done) {
+                            extended.incrementAndGet();
+                            verify(system, vehicle, checks, violations);
+                        } else {
+                            rejectedUnderLock.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.setOut(console);
+
+            int[] check = checkBookings(system, vehicle);
+            boolean passed = check[1] == 0 && check[2] == 0 && check[3] == 0 && violations.get() == 0;
+
+            System.out.println("\n=== Extension Stress Test ===");
+            System.out.printf("Customers: %d | Threads: %d | Operations: %d | Throughput: %.0f ops/s%n",
+                    customers, threads, ops, ops / seconds);
+            System.out.printf("Extended: %d | Cut back: %d | Re-book failed: %d | Walk-ins booked/cancelled: %d%n",
+                    extended.get(), cutBack.get(), rebookFailed.get(), walkInChanges.get());
+            System.out.printf("Rejected by pre-check: %d | Rejected under lock (stale pre-check or state change): %d%n",
+                    rejectedEarly.get(), rejectedUnderLock.get());
+            System.out.printf("Checks after commits: %d | Violations seen: %d%n", checks.get(), violations.get());
+            System.out.printf("Active/pending rentals: %d | Lost bookings: %d | Stray bookings: %d"
+                    + " | Overlapping pairs: %d | %s%n", check[0], check[1], check[2], check[3],
+                    passed ? "PASSED" : "FAILED");
+            return passed;
+        } finally {
+            System.setOut(console);
+            system.getChangeLog().close();
+            deleteDirectory(dataDirectory);
+        }
+    }
+
+    /**
+     * Check a vehicle's schedule against the rental system: every active and pending rental must
+     * be booked with its dates, nothing else may be booked, and no two of those rentals may overlap
+     * (every pair is compared, not only neighbours)
+     *
+     * @return live rentals, lost bookings, stray bookings and overlapping pairs
+     */
+    static int[] checkBookings(RentalSystem system, Vehicle vehicle) {
+        List<Rental> live = new ArrayList<>();
+        for (Rental rental : system.getRentals()) {
+            if (rental.getVehicle().getId() == vehicle.getId()
+                    && (rental.getStatus() == RentalStatus.ACTIVE || rental.getStatus() == RentalStatus.PENDING)) {
+                live.add(rental);
+            }
+        }
+        List<Booking> bookings = vehicle.getBookingSchedule().toList();
+        int lost = 0;
+        for (Rental rental : live) {
+            if (!contains(bookings, rental.getStartDate(), rental.getEndDate())) {
+                lost++;
+            }
+        }
+        int overlapping = 0;
+        for (int i = 0; i < live.size(); i++) {
+            for (int j = i + 1; j < live.size(); j++) {
+                Rental a = live.get(i);
+                Rental b = live.get(j);
+                if (!a.getStartDate().isAfter(b.getEndDate()) && !b.getStartDate().isAfter(a.getEndDate())) {
+                    overlapping++;
+                }
+            }
+        }
+        return new int[] {live.size(), lost, Math.max(0, bookings.size() - (live.size() - lost)), overlapping};
+    }
+
+    /**
+     * Check the vehicle under its lock right after a commit, so a double booking is seen even if
+     * a later cancellation would remove it before the final check
+     */
+    static void verify(RentalSystem system, Vehicle vehicle, AtomicLong checks, AtomicLong violations) {
+        int[] check;
+        ReentrantLock lock = system.lockForVehicle(vehicle.getId());
+        lock.lock();
+        try {
+            check = checkBookings(system, vehicle);
+        } finally {
+            lock.unlock();
+        }
+        checks.incrementAndGet();
+        violations.addAndGet(check[1] + check[2] + check[3]);
+    }
+
+    /**
+     * Delete a scratch data directory and everything in it
+     */
+    static void deleteDirectory(Path directory) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static String username(int customer) {
+        return "stress" + customer;
+    }
+
+    private static boolean contains(List<Booking> bookings, LocalDate start, LocalDate end) {
+        for (Booking booking : bookings) {
+            if (booking.getStartDate().equals(start) && booking.getEndDate().equals(end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
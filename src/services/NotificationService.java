@@ -1,6 +1,7 @@
 package services;
 
 import enums.MessageType;
+import enums.ReminderType;
 import enums.RentalStatus;
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -10,13 +11,17 @@ import models.*;
 
 public class NotificationService {
 
+    private static final String REMINDER_LEDGER_FILE = "reminder_ledger.txt";
+
     private EmailService emailService;
     private MessageService messageService;
+    private ReminderLedger reminderLedger; // Delivered reminders, kept apart from rental data
     private Map<String, String> userEmails; // User email mapping
 
     public NotificationService() {
         this.emailService = new EmailService();
         this.messageService = new MessageService();
+        this.reminderLedger = new ReminderLedger(REMINDER_LEDGER_FILE);
         this.userEmails = new HashMap<>();
         loadUserEmails();
     }
@@ -277,23 +282,29 @@ public class NotificationService {
             if (rental.getStatus() == RentalStatus.ACTIVE) {
                 LocalDate endDate = rental.getEndDate();
 
-                // Send tomorrow overdue reminder (only send once)
-                if (endDate.equals(tomorrow) && !rental.isDueSoonReminderSent()) {
+                // Send tomorrow overdue reminder (only send once per due date)
+                // The ledger entry is written before sending so a crash cannot cause a duplicate
+                if (endDate.equals(tomorrow)
+                        && reminderLedger.recordSent(rental.getId(), ReminderType.DUE_SOON, endDate)) {
                     sendRentalReminder(rental.getUsername(), rental.getVehicle().getModel(),
                             rental.getEndDate().toString(), String.valueOf(rental.getId()));
-                    rental.setDueSoonReminderSent(true);
                 }
 
-                // Send overdue notification (only send once)
-                if (endDate.isBefore(today) && !rental.isOverdueReminderSent()) {
+                // Send overdue notification (only send once per due date)
+                if (endDate.isBefore(today)
+                        && reminderLedger.recordSent(rental.getId(), ReminderType.OVERDUE, endDate)) {
                     sendOverdueNotification(rental.getUsername(), rental.getVehicle().getModel(),
                             rental.getEndDate().toString(), String.valueOf(rental.getId()));
-                    rental.setOverdueReminderSent(true);
                 }
             }
         }
     }
 
+    // Get reminder ledger
+    public ReminderLedger getReminderLedger() {
+        return reminderLedger;
+    }
+
     // Get user messages
     public List<Message> getUserMessages(String username) {
         return messageService.getMessagesByUser(username);
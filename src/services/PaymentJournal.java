@@ -0,0 +1,185 @@
+package services;
+
+import enums.PaymentState;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import models.PaymentAttempt;
+
+/**
+ * Append-only journal of payment state transitions.
+ * Each line records one transition of a rental's payment attempt
+ * (rentalId|key|state|amount|discount|lateFee|method|ledgerRecord|time|detail)
+ * and is forced to disk before the transition is acted on, so after a crash
+ * the journal shows how far every payment got. Replaying it gives the latest
+ * attempt per rental; a torn last line is ended before the next append and
+ * skipped.
+ *
+ * Each attempt has an idempotency key (PAY-<rentalId>-<attempt>) that is
+ * journaled as AUTHORIZING before the charge is sent under it. A new key is
+ * issued only after the previous attempt failed, and an interrupted charge is
+ * re-sent under its old key, so a rental is never charged twice.
+ */
+public class PaymentJournal {
+
+    public static final String DEFAULT_FILE = "payment_journal.log";
+
+    private final Path file;
+    private final Map<Integer, PaymentAttempt> latest = new HashMap<>();
+    private final Map<Integer, Integer> attempts = new HashMap<>();
+    private FileChannel channel;
+
+    public PaymentJournal() {
+        this(DEFAULT_FILE);
+    }
+
+    public PaymentJournal(String filename) {
+        this.file = Paths.get(filename);
+        loadJournal();
+    }
+
+    /**
+     * Replay the journal, skipping malformed (e.g. torn) lines
+     */
+    private void loadJournal() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|", -1);
+                if (parts.length < 10) {
+                    continue;
+                }
+                try {
+                    PaymentAttempt attempt = new PaymentAttempt(Integer.parseInt(parts[0]), parts[1],
+                            PaymentState.valueOf(parts[2]), Double.parseDouble(parts[3]),
+                            Double.parseDouble(parts[4]), Double.parseDouble(parts[5]), parts[6],
+                            Long.parseLong(parts[7]), Long.parseLong(parts[8]), parts[9]);
+                    remember(attempt);
+                } catch (Exception e) {
+                    // Ignore partially written entries
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to load payment journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Latest attempt for the rental, or null if it was never invoiced
+     */
+    public synchronized PaymentAttempt get(int rentalId) {
+        return latest.get(rentalId);
+    }
+
+    /**
+     * Record an invoice. Starts a new attempt (and key) unless the current one is
+     * still only invoiced, in which case it is re-invoiced under the same key.
+     *
+     * @throws IllegalStateException if the rental's payment is already being charged or captured
+     */
+    public synchronized PaymentAttempt invoice(int rentalId, double amount, double discount, double lateFee)
+            throws IOException {
+        PaymentAttempt current = latest.get(rentalId);
+        String key;
+        if (current == null || current.getState() == PaymentState.FAILED) {
+            key = "PAY-" + rentalId + "-" + (attempts.getOrDefault(rentalId, 0) + 1);
+        } else if (current.getState() == PaymentState.INVOICED) {
+            key = current.getIdempotencyKey();
+        } else {
+            throw new IllegalStateException("Payment " + current.getIdempotencyKey() + " is already "
+                    + current.getState());
+        }
+        return append(new PaymentAttempt(rentalId, key, PaymentState.INVOICED, amount, discount, lateFee,
+                "", -1, System.currentTimeMillis(), ""));
+    }
+
+    /**
+     * Move the rental's current attempt to the next state
+     *
+     * @param method       payment method, or null to keep the recorded one
+     * @param ledgerRecord payment ledger record when capturing, otherwise -1
+     * @throws IllegalStateException if the transition is not allowed
+     */
+    public synchronized PaymentAttempt transition(int rentalId, PaymentState next, String method, long ledgerRecord,
+            String detail) throws IOException {
+        PaymentAttempt current = latest.get(rentalId);
+        if (current == null || !current.getState().canMoveTo(next)) {
+            throw new IllegalStateException("Payment for rental " + rentalId + " cannot move from "
+                    + (current == null ? "none" : current.getState()) + " to " + next);
+        }
+        return append(new PaymentAttempt(rentalId, current.getIdempotencyKey(), next, current.getAmount(),
+                current.getDiscount(), current.getLateFee(), method == null ? current.getMethod() : method,
+                ledgerRecord, System.currentTimeMillis(), detail));
+    }
+
+    /**
+     * Attempts that were invoiced, sent for authorization or authorized but never captured or failed
+     */
+    public synchronized List<PaymentAttempt> getUnfinished() {
+        List<PaymentAttempt> unfinished = new ArrayList<>();
+        for (PaymentAttempt attempt : latest.values()) {
+            if (attempt.getState() != PaymentState.CAPTURED && attempt.getState() != PaymentState.FAILED) {
+                unfinished.add(attempt);
+            }
+        }
+        return unfinished;
+    }
+
+    public synchronized List<PaymentAttempt> getAll() {
+        return new ArrayList<>(latest.values());
+    }
+
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close payment journal: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    private PaymentAttempt append(PaymentAttempt attempt) throws IOException {
+        String line = attempt.getRentalId() + "|" + attempt.getIdempotencyKey() + "|" + attempt.getState() + "|"
+                + attempt.getAmount() + "|" + attempt.getDiscount() + "|" + attempt.getLateFee() + "|"
+                + clean(attempt.getMethod()) + "|" + attempt.getLedgerRecord() + "|"
+                + attempt.getUpdatedAtMillis() + "|" + clean(attempt.getDetail()) + "\n";
+        if (channel == null) {
+            if (!UtilityService.endsWithNewline(file)) {
+                line = "\n" + line; // End a line torn by a crash so it stays a skipped entry
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            close(); // The line may be torn; reopening checks the file end again
+            throw e;
+        }
+        remember(attempt);
+        return attempt;
+    }
+
+    private void remember(PaymentAttempt attempt) {
+        PaymentAttempt previous = latest.put(attempt.getRentalId(), attempt);
+        if (previous == null || !previous.getIdempotencyKey().equals(attempt.getIdempotencyKey())) {
+            attempts.merge(attempt.getRentalId(), 1, Integer::sum);
+        }
+    }
+
+    private static String clean(String text) {
+        return text.replaceAll("[|\r\n]", " ");
+    }
+}
@@ -0,0 +1,553 @@
+package services;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.zip.CRC32;
+import models.PaymentRecord;
+
+/**
+ * Append-only payment ledger of fixed-width binary records, replacing the
+ * line-per-payment payment_history.txt.
+ *
+ * Every record is RECORD_SIZE bytes and ends with a CRC32 of its contents, so
+ * record n is at a known offset and damage is detected per record. Each record
+ * also stores the number of the same customer's previous record; a small index
+ * file (payment_ledger.idx) keeps each customer's newest record number, payment
+ * count and running total. A customer's history is read by following that
+ * chain, touching only their own records. The index is saved every
+ * INDEX_INTERVAL appends and on close; records appended after the last save
+ * are re-indexed from the ledger when it is next opened.
+ *
+ * Records are appended in payment-time order, so the ledger is its own time
+ * index: a date range is located by binary search and read sequentially.
+ *
+ * On first use an existing payment_history.txt is migrated into the ledger;
+ * the text file is left in place. verify() and compact() check and repair the
+ * ledger (see --ledger in Main).
+ */
+public class PaymentLedger {
+
+    public static final String DEFAULT_FILE = "payment_ledger.dat";
+    public static final String LEGACY_FILE = "payment_history.txt";
+
+    private static final int MAGIC = 0x504C4447; // "PLDG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 256;
+    private static final int INDEX_INTERVAL = 256; // Appends between index saves
+
+    // Record layout (byte offsets)
+    private static final int PAID_AT = 0;
+    private static final int PREVIOUS = 8; // Customer's previous record number, -1 for their first payment
+    private static final int RENTAL_ID = 16;
+    private static final int START_DAY = 20;
+    private static final int END_DAY = 24;
+    private static final int BASE_FEE = 32;
+    private static final int DISCOUNT = 40;
+    private static final int LATE_FEE = 48;
+    private static final int AMOUNT = 56;
+    private static final int STATUS = 64;
+    private static final int STATUS_WIDTH = 16;
+    private static final int CUSTOMER = 80;
+    private static final int CUSTOMER_WIDTH = 96;
+    private static final int VEHICLE = 176;
+    private static final int VEHICLE_WIDTH = 72;
+    private static final int CRC = 252;
+
+    private final Path file;
+    private final Path indexFile;
+    private final Path legacyFile;
+    private FileChannel channel;
+    private long records;
+    private long indexedRecords; // Records covered by the saved index
+    private long lastPaidAt;
+    private final Map<String, CustomerTotals> customers = new HashMap<>();
+
+    /**
+     * Newest record, payment count and running total of one customer
+     */
+    private static final class CustomerTotals {
+        long last = -1;
+        int count;
+        double total;
+    }
+
+    public PaymentLedger() {
+        this(DEFAULT_FILE, LEGACY_FILE);
+    }
+
+    /**
+     * @param legacyFile text history to migrate when the ledger does not exist yet, or null
+     */
+    public PaymentLedger(String file, String legacyFile) {
+        this.file = Paths.get(file);
+        this.indexFile = Paths.get(file.replaceFirst("\\.dat$", "") + ".idx");
+        this.legacyFile = legacyFile == null ? null : Paths.get(legacyFile);
+    }
+
+    // ---- Writing ----
+
+    /**
+     * Append a payment and return it with its record number. The payment time is
+     * moved forward if needed so records stay in time order.
+     */
+    public synchronized PaymentRecord append(PaymentRecord payment) throws IOException {
+        openIfNeeded();
+        PaymentRecord record = write(payment);
+        channel.force(false);
+        if (records - indexedRecords >= INDEX_INTERVAL) {
+            writeIndex();
+        }
+        return record;
+    }
+
+    private PaymentRecord write(PaymentRecord payment) throws IOException {
+        long paidAt = Math.max(payment.getPaidAtMillis(), lastPaidAt);
+        PaymentRecord record = new PaymentRecord(records, paidAt, payment.getRentalId(), payment.getCustomerName(),
+                payment.getVehicle(), payment.getStartDate(), payment.getEndDate(), payment.getBaseFee(),
+                payment.getDiscount(), payment.getLateFee(), payment.getAmount(), payment.getStatus());
+        CustomerTotals totals = customers.computeIfAbsent(key(record.getCustomerName()), k -> new CustomerTotals());
+
+        ByteBuffer buffer = encode(record, totals.last);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset(records) + buffer.position());
+        }
+        index(totals, record);
+        records++;
+        lastPaidAt = paidAt;
+        return record;
+    }
+
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                if (records > indexedRecords) {
+                    writeIndex();
+                }
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close payment ledger: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    // ---- Queries ----
+
+    /**
+     * A customer's payments within [from, to], oldest first; either bound may be null.
+     * Reads only the customer's own records, newest first, stopping before 'from'.
+     */
+    public synchronized List<PaymentRecord> findByCustomer(String customerName, LocalDate from, LocalDate to)
+            throws IOException {
+        openIfNeeded();
+        LinkedList<PaymentRecord> result = new LinkedList<>();
+        CustomerTotals totals = customers.get(key(customerName));
+        long fromMillis = from == null ? Long.MIN_VALUE : startOf(from);
+        long toMillis = to == null ? Long.MAX_VALUE : startOf(to.plusDays(1));
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        for (long n = totals == null ? -1 : totals.last; n >= 0; n = buffer.getLong(PREVIOUS)) {
+            if (!readRecord(n, buffer)) {
+                System.out.println("Payment ledger record " + n + " is damaged; history for " + customerName
+                        + " is incomplete. Run --ledger verify.");
+                break;
+            }
+            long paidAt = buffer.getLong(PAID_AT);
+            if (paidAt < fromMillis) {
+                break;
+            }
+            if (paidAt < toMillis) {
+                result.addFirst(decode(n, buffer));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * All payments made within [from, to], in time order; either bound may be null
+     */
+    public synchronized List<PaymentRecord> findByDate(LocalDate from, LocalDate to) throws IOException {
+        openIfNeeded();
+        List<PaymentRecord> result = new ArrayList<>();
+        long toMillis = to == null ? Long.MAX_VALUE : startOf(to.plusDays(1));
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        for (long n = from == null ? 0 : firstAtOrAfter(startOf(from)); n < records; n++) {
+            if (!readRecord(n, buffer)) {
+                System.out.println("Skipped damaged payment ledger record " + n + ". Run --ledger verify.");
+                continue;
+            }
+            if (buffer.getLong(PAID_AT) >= toMillis) {
+                break;
+            }
+            result.add(decode(n, buffer));
+        }
+        return result;
+    }
+
+    /**
+     * Running total paid by the customer, without reading the ledger
+     */
+    public synchronized double getCustomerTotal(String customerName) throws IOException {
+        openIfNeeded();
+        CustomerTotals totals = customers.get(key(customerName));
+        return totals == null ? 0 : totals.total;
+    }
+
+    public synchronized int getCustomerPaymentCount(String customerName) throws IOException {
+        openIfNeeded();
+        CustomerTotals totals = customers.get(key(customerName));
+        return totals == null ? 0 : totals.count;
+    }
+
+    public synchronized long size() throws IOException {
+        openIfNeeded();
+        return records;
+    }
+
+    /**
+     * Lowest record number paid at or after the time (binary search; records are in time order)
+     */
+    private long firstAtOrAfter(long millis) throws IOException {
+        ByteBuffer paidAt = ByteBuffer.allocate(Long.BYTES);
+        long low = 0;
+        long high = records;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            paidAt.clear();
+            channel.read(paidAt, offset(mid) + PAID_AT);
+            if (paidAt.getLong(0) < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // ---- Maintenance ----
+
+    /**
+     * Check every record's checksum, time order and customer chain, report each problem
+     * and rebuild the index from the valid records.
+     *
+     * @return number of problems found
+     */
+    public synchronized int verify() throws IOException {
+        openIfNeeded();
+        int problems = 0;
+        long previousPaidAt = Long.MIN_VALUE;
+        Map<String, Long> expectedPrevious = new HashMap<>();
+        customers.clear();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        for (long n = 0; n < records; n++) {
+            if (!readRecord(n, buffer)) {
+                System.out.println("Record " + n + ": checksum mismatch");
+                problems++;
+                continue;
+            }
+            PaymentRecord record = decode(n, buffer);
+            if (record.getPaidAtMillis() < previousPaidAt) {
+                System.out.println("Record " + n + ": paid before the record preceding it");
+                problems++;
+            }
+            previousPaidAt = Math.max(previousPaidAt, record.getPaidAtMillis());
+            String key = key(record.getCustomerName());
+            long expected = expectedPrevious.getOrDefault(key, -1L);
+            if (buffer.getLong(PREVIOUS) != expected) {
+                System.out.println("Record " + n + ": customer chain points to " + buffer.getLong(PREVIOUS)
+                        + ", expected " + expected);
+                problems++;
+            }
+            expectedPrevious.put(key, n);
+            index(customers.computeIfAbsent(key, k -> new CustomerTotals()), record);
+        }
+        writeIndex();
+        System.out.println("Verified " + records + " payment records, " + problems + " problem(s)");
+        return problems;
+    }
+
+    /**
+     * Rewrite the ledger without damaged records, in time order and with the customer
+     * chains relinked. The new file is moved into place only once complete.
+     *
+     * @return number of records dropped
+     */
+    public synchronized int compact() throws IOException {
+        openIfNeeded();
+        List<PaymentRecord> valid = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        for (long n = 0; n < records; n++) {
+            if (readRecord(n, buffer)) {
+                valid.add(decode(n, buffer));
+            }
+        }
+        int dropped = (int) (records - valid.size());
+        valid.sort(Comparator.comparingLong(PaymentRecord::getPaidAtMillis)
+                .thenComparingLong(PaymentRecord::getRecordNumber));
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            close();
+            channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            startLedger();
+            for (PaymentRecord record : valid) {
+                write(record);
+            }
+            channel.force(true);
+            close();
+            UtilityService.replaceFile(temp, file);
+            Files.deleteIfExists(indexFile); // Record numbers changed; reindexed on reopening
+        } finally {
+            close();
+            Files.deleteIfExists(temp);
+            openIfNeeded();
+        }
+        System.out.println("Compacted payment ledger: kept " + valid.size() + " record(s), dropped " + dropped);
+        return dropped;
+    }
+
+    // ---- Opening, index and migration ----
+
+    /**
+     * Open the ledger, creating it (and migrating the text history) if missing. An
+     * incomplete record left by a crash is cut off, and records the index does not
+     * cover yet are indexed.
+     */
+    private void openIfNeeded() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        boolean created = !Files.exists(file) || Files.size(file) == 0;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (created) {
+            startLedger();
+            migrateLegacy();
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+            close();
+            throw new IOException(file + " is not a version " + VERSION + " payment ledger");
+        }
+        long size = channel.size();
+        records = (size - HEADER_SIZE) / RECORD_SIZE;
+        if (offset(records) != size) {
+            System.out.println("Discarded an incomplete payment ledger record at the end of " + file);
+            channel.truncate(offset(records));
+        }
+        if (records > 0) {
+            ByteBuffer paidAt = ByteBuffer.allocate(Long.BYTES);
+            channel.read(paidAt, offset(records - 1) + PAID_AT);
+            lastPaidAt = paidAt.getLong(0);
+        }
+        long indexed = readIndex();
+        if (indexed < records) {
+            // Appended after the index was last saved
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+            for (long n = indexed; n < records; n++) {
+                if (readRecord(n, buffer)) {
+                    PaymentRecord record = decode(n, buffer);
+                    index(customers.computeIfAbsent(key(record.getCustomerName()), k -> new CustomerTotals()),
+                            record);
+                }
+            }
+            writeIndex();
+        }
+    }
+
+    private void startLedger() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE);
+        channel.truncate(0);
+        channel.write(header, 0);
+        records = 0;
+        indexedRecords = 0;
+        lastPaidAt = 0;
+        customers.clear();
+    }
+
+    /**
+     * Copy payment_history.txt into the new ledger. The text format has no payment time,
+     * so each payment is dated at the rental's end date (the day it was returned and paid),
+     * or today if that is still ahead.
+     */
+    private void migrateLegacy() throws IOException {
+        if (legacyFile == null || !Files.exists(legacyFile)) {
+            writeIndex();
+            return;
+        }
+        List<PaymentRecord> legacy = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(legacyFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                if (parts.length != 9) {
+                    continue;
+                }
+                try {
+                    String[] period = parts[7].split(" to ");
+                    LocalDate start = LocalDate.parse(period[0].trim());
+                    LocalDate end = LocalDate.parse(period[1].trim());
+                    legacy.add(new PaymentRecord(-1, Math.min(startOf(end), now), Integer.parseInt(parts[1].trim()),
+                            parts[0], parts[2], start, end, Double.parseDouble(parts[3]),
+                            Double.parseDouble(parts[4]), Double.parseDouble(parts[5]),
+                            Double.parseDouble(parts[6]), parts[8].trim()));
+                } catch (RuntimeException e) {
+                    System.out.println("Skipped unreadable payment history line: " + line);
+                }
+            }
+        }
+        legacy.sort(Comparator.comparingLong(PaymentRecord::getPaidAtMillis)); // Stable: file order within a day
+        for (PaymentRecord record : legacy) {
+            write(record);
+        }
+        channel.force(true);
+        writeIndex();
+        System.out.println("Migrated " + legacy.size() + " payment(s) from " + legacyFile + " to " + file);
+    }
+
+    private static void index(CustomerTotals totals, PaymentRecord record) {
+        totals.last = record.getRecordNumber();
+        totals.count++;
+        totals.total += record.getAmount();
+    }
+
+    /**
+     * Load the saved index and return how many records it covers (0 if missing or unreadable)
+     */
+    private long readIndex() {
+        customers.clear();
+        indexedRecords = 0;
+        if (!Files.exists(indexFile)) {
+            return 0;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String[] header = reader.readLine().split("\t");
+            long indexed = Long.parseLong(header[1]);
+            if (indexed > records) {
+                customers.clear();
+                return 0; // Ledger was replaced or cut short; rebuild
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1); // key, last record, count, total
+                CustomerTotals totals = new CustomerTotals();
+                totals.last = Long.parseLong(parts[1]);
+                totals.count = Integer.parseInt(parts[2]);
+                totals.total = Double.parseDouble(parts[3]);
+                customers.put(parts[0], totals);
+            }
+            indexedRecords = indexed;
+            return indexed;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Failed to read payment ledger index, rebuilding: " + e.getMessage());
+            customers.clear();
+            return 0;
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write("records\t" + records + System.lineSeparator());
+            for (Map.Entry<String, CustomerTotals> entry : customers.entrySet()) {
+                CustomerTotals totals = entry.getValue();
+                writer.write(entry.getKey() + "\t" + totals.last + "\t" + totals.count + "\t" + totals.total
+                        + System.lineSeparator());
+            }
+        }
+        UtilityService.replaceFile(temp, indexFile);
+        indexedRecords = records;
+    }
+
+    // ---- Record format ----
+
+    private static long offset(long recordNumber) {
+        return HEADER_SIZE + recordNumber * RECORD_SIZE;
+    }
+
+    /**
+     * Read record n into the buffer; false if it fails its checksum
+     */
+    private boolean readRecord(long n, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset(n) + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, CRC);
+        return buffer.getInt(CRC) == (int) crc.getValue();
+    }
+
+    private static ByteBuffer encode(PaymentRecord record, long previous) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putLong(PAID_AT, record.getPaidAtMillis())
+                .putLong(PREVIOUS, previous)
+                .putInt(RENTAL_ID, record.getRentalId())
+                .putInt(START_DAY, record.getStartDate() == null ? Integer.MIN_VALUE
+                        : (int) record.getStartDate().toEpochDay())
+                .putInt(END_DAY, record.getEndDate() == null ? Integer.MIN_VALUE
+                        : (int) record.getEndDate().toEpochDay())
+                .putDouble(BASE_FEE, record.getBaseFee())
+                .putDouble(DISCOUNT, record.getDiscount())
+                .putDouble(LATE_FEE, record.getLateFee())
+                .putDouble(AMOUNT, record.getAmount());
+        putText(buffer, STATUS, STATUS_WIDTH, record.getStatus());
+        putText(buffer, CUSTOMER, CUSTOMER_WIDTH, record.getCustomerName());
+        putText(buffer, VEHICLE, VEHICLE_WIDTH, record.getVehicle());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, CRC);
+        buffer.putInt(CRC, (int) crc.getValue());
+        return buffer;
+    }
+
+    private static PaymentRecord decode(long n, ByteBuffer buffer) {
+        int startDay = buffer.getInt(START_DAY);
+        int endDay = buffer.getInt(END_DAY);
+        return new PaymentRecord(n, buffer.getLong(PAID_AT), buffer.getInt(RENTAL_ID),
+                getText(buffer, CUSTOMER), getText(buffer, VEHICLE),
+                startDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(startDay),
+                endDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(endDay),
+                buffer.getDouble(BASE_FEE), buffer.getDouble(DISCOUNT), buffer.getDouble(LATE_FEE),
+                buffer.getDouble(AMOUNT), getText(buffer, STATUS));
+    }
+
+    /**
+     * Length-prefixed UTF-8, cut at a character boundary if longer than the field
+     */
+    private static void putText(ByteBuffer buffer, int offset, int width, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, width - Short.BYTES);
+        while (length > 0 && length < bytes.length && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.putShort(offset, (short) length);
+        ByteBuffer field = buffer.duplicate(); // Absolute bulk put needs Java 16
+        field.position(offset + Short.BYTES);
+        field.put(bytes, 0, length);
+    }
+
+    private static String getText(ByteBuffer buffer, int offset) {
+        return new String(buffer.array(), offset + Short.BYTES, buffer.getShort(offset), StandardCharsets.UTF_8);
+    }
+
+    private static long startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String key(String customerName) {
+        return customerName == null ? "" : customerName.trim().toLowerCase(Locale.ROOT).replaceAll("[\t\r\n]", " ");
+    }
+}
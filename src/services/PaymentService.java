@@ -1,36 +1,349 @@
 package services;
 
 import enums.AccountRole;
+import enums.PaymentState;
+import interfaces.PaymentGateway;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import models.Account;
+import models.CommandResult;
+import models.PaymentAttempt;
+import models.PaymentRecord;
 import models.Rental;
 
+/**
+ * Payments for returned rentals. Each payment goes through the states
+ * INVOICED -> AUTHORIZING -> AUTHORIZED -> CAPTURED (or FAILED), journaled
+ * before each step, and is charged only once journaled as AUTHORIZING;
+ * a captured payment is in the payment ledger and the rental's actual fee.
+ * reconcile() finishes or repairs payments interrupted by a crash.
+ */
 public class PaymentService {
 
-    private static final String HISTORY_FILE = "payment_history.txt";
-    private static final Map<String, Double> PROMO_CODES = new HashMap<>();
-    static {
-        PROMO_CODES.put("PROMO10", 0.10); // 10% discount
-        PROMO_CODES.put("PROMO20", 0.20); // 20% discount
+    /** Headless settlement: the charge is simulated and always accepted */
+    private static final PaymentGateway SIMULATED_GATEWAY = (key, method, amount) -> true;
+
+    private final PricingEngine pricingEngine;
+    private final ChangeLog changeLog; // Records settled payments; null when not tracked
+    private final PaymentLedger ledger;
+    private final PaymentJournal journal;
+
+    public PaymentService() {
+        this(new PricingEngine());
+    }
+
+    public PaymentService(PricingEngine pricingEngine) {
+        this(pricingEngine, null);
+    }
+
+    public PaymentService(PricingEngine pricingEngine, ChangeLog changeLog) {
+        this(pricingEngine, changeLog, new PaymentLedger(), new PaymentJournal());
+    }
+
+    public PaymentService(PricingEngine pricingEngine, ChangeLog changeLog, PaymentLedger ledger,
+            PaymentJournal journal) {
+        this.pricingEngine = pricingEngine;
+        this.changeLog = changeLog;
+        this.ledger = ledger;
+        this.journal = journal;
+    }
+
+    public PaymentLedger getLedger() {
+        return ledger;
+    }
+
+    public PaymentJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * IDs of rentals with a completed payment: captured in the journal or recorded in the ledger
+     */
+    public Set<Integer> getPaidRentalIds() throws IOException {
+        Set<Integer> paid = new HashSet<>();
+        for (PaymentAttempt attempt : journal.getAll()) {
+            if (attempt.getState() == PaymentState.CAPTURED) {
+                paid.add(attempt.getRentalId());
+            }
+        }
+        for (PaymentRecord record : ledger.findByDate(null, null)) {
+            paid.add(record.getRentalId());
+        }
+        return paid;
+    }
+
+    /**
+     * Settle a rental's payment without any console interaction, charging it through the
+     * simulated gateway that accepts every charge
+     */
+    public CommandResult settle(Rental rental, String promoCode, String method) {
+        return settle(rental, promoCode, method, SIMULATED_GATEWAY);
+    }
+
+    /**
+     * Settle a rental's payment: apply the promo code, add the late fee, then invoice it,
+     * journal it as AUTHORIZING under its idempotency key, charge the key through the
+     * gateway and capture it. Idempotent per rental: a captured payment is returned as is,
+     * an authorized one is captured without charging again, and a charge interrupted
+     * before its outcome was journaled is re-sent under the same key. The journal and
+     * ledger are updated under this service's monitor, which is not held while the
+     * gateway runs, so a slow charge does not hold up other rentals.
+     */
+    public CommandResult settle(Rental rental, String promoCode, String method, PaymentGateway gateway) {
+        PaymentAttempt attempt;
+        synchronized (this) {
+            PaymentAttempt current = journal.get(rental.getId());
+            if (current != null && current.getState() == PaymentState.CAPTURED) {
+                return alreadyCaptured(rental, current);
+            }
+            if (current != null && current.getState() == PaymentState.AUTHORIZED) {
+                return capture(rental, current);
+            }
+            if (current != null && current.getState() == PaymentState.AUTHORIZING) {
+                attempt = current;
+            } else {
+                double discount = 0;
+                if (promoCode != null && !promoCode.trim().isEmpty()) {
+                    discount = pricingEngine.promoDiscount(promoCode);
+                    if (discount < 0) {
+                        return CommandResult.fail("Invalid promo code: " + promoCode).withRental(rental);
+                    }
+                }
+
+                double lateFee = calculateLateFee(rental);
+                double finalAmount = rental.getTotalFee() * (1 - discount) + lateFee;
+                if (finalAmount <= 0) {
+                    rental.setActualFee(finalAmount);
+                    return CommandResult.ok("No payment required").withRental(rental)
+                            .withPayment(discount, lateFee, 0);
+                }
+
+                try {
+                    journal.invoice(rental.getId(), finalAmount, discount, lateFee);
+                    attempt = journal.transition(rental.getId(), PaymentState.AUTHORIZING, method, -1, "");
+                } catch (IOException e) {
+                    return CommandResult.fail("Failed to record payment: " + e.getMessage()).withRental(rental);
+                } catch (IllegalStateException e) {
+                    return CommandResult.fail(e.getMessage()).withRental(rental); // Settled from another session meanwhile
+                }
+            }
+        }
+
+        boolean accepted = gateway.charge(attempt.getIdempotencyKey(), attempt.getMethod(), attempt.getAmount());
+
+        synchronized (this) {
+            PaymentAttempt current = journal.get(rental.getId());
+            if (current == null || !current.getIdempotencyKey().equals(attempt.getIdempotencyKey())) {
+                return CommandResult.fail("Payment " + attempt.getIdempotencyKey()
+                        + " was replaced by another payment meanwhile").withRental(rental);
+            }
+            if (current.getState() == PaymentState.CAPTURED) {
+                return alreadyCaptured(rental, current); // The same key was settled from another session
+            }
+            if (!accepted) {
+                failPayment(rental, "Declined by " + attempt.getMethod());
+                return CommandResult.fail("Payment " + attempt.getIdempotencyKey() + " was declined")
+                        .withRental(rental);
+            }
+            try {
+                if (current.getState() == PaymentState.AUTHORIZING) {
+                    current = journal.transition(rental.getId(), PaymentState.AUTHORIZED, null, -1, "");
+                }
+            } catch (IOException | IllegalStateException e) {
+                return CommandResult.fail("Payment " + attempt.getIdempotencyKey()
+                        + " was charged but not recorded (" + e.getMessage()
+                        + "); it is completed under the same key when the rental is paid again").withRental(rental);
+            }
+            return capture(rental, current);
+        }
+    }
+
+    private static CommandResult alreadyCaptured(Rental rental, PaymentAttempt attempt) {
+        return CommandResult.ok(String.format("Payment of RM%.2f already captured (%s)",
+                attempt.getAmount(), attempt.getIdempotencyKey()))
+                .withRental(rental).withPayment(attempt.getDiscount(), attempt.getLateFee(), attempt.getAmount());
+    }
+
+    /**
+     * Record an authorized payment in the ledger and on the rental, then mark it captured.
+     * The journal is re-checked first, so an attempt captured by another session meanwhile
+     * is not recorded twice. If the ledger write fails the payment stays authorized and is
+     * captured by reconcile().
+     */
+    private synchronized CommandResult capture(Rental rental, PaymentAttempt attempt) {
+        PaymentAttempt current = journal.get(rental.getId());
+        if (current == null || !current.getIdempotencyKey().equals(attempt.getIdempotencyKey())) {
+            return CommandResult.fail("Payment " + attempt.getIdempotencyKey()
+                    + " was replaced by another payment meanwhile").withRental(rental);
+        }
+        if (current.getState() == PaymentState.CAPTURED) {
+            return alreadyCaptured(rental, current);
+        }
+        if (current.getState() != PaymentState.AUTHORIZED) {
+            return CommandResult.fail("Payment " + current.getIdempotencyKey() + " is " + current.getState()
+                    + ", not authorized").withRental(rental);
+        }
+        try {
+            PaymentRecord record = ledger.append(new PaymentRecord(-1, System.currentTimeMillis(), rental.getId(),
+                    rental.getCustomer().getName(),
+                    rental.getVehicle().getBrand() + " " + rental.getVehicle().getModel(),
+                    rental.getStartDate(), rental.getEndDate(), rental.getTotalFee(), current.getDiscount(),
+                    current.getLateFee(), current.getAmount(), "PAID"));
+            rental.setActualFee(current.getAmount());
+            journal.transition(rental.getId(), PaymentState.CAPTURED, null, record.getRecordNumber(), "");
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Failed to save payment history: " + e.getMessage());
+            return CommandResult.fail("Payment " + current.getIdempotencyKey()
+                    + " is authorized but not yet recorded; it will be completed on restart").withRental(rental);
+        }
+        if (changeLog != null) {
+            changeLog.paymentSettled(rental, current.getAmount(), current.getMethod());
+        }
+        return CommandResult.ok(String.format("Payment of RM%.2f settled via %s", current.getAmount(),
+                current.getMethod())).withRental(rental)
+                .withPayment(current.getDiscount(), current.getLateFee(), current.getAmount());
+    }
+
+    /**
+     * Mark the rental's open attempt failed; nothing was charged
+     */
+    private void failPayment(Rental rental, String reason) {
+        try {
+            journal.transition(rental.getId(), PaymentState.FAILED, null, -1, reason);
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Failed to record payment cancellation: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finish or repair payments interrupted by a crash, in one pass on startup. An
+     * invoice that was never sent for authorization is failed; a charge that was
+     * sent but whose outcome was never journaled is left open, since it may have
+     * gone through, and is re-sent under the same key when the rental is next
+     * paid; an authorized payment is marked
+     * captured if its ledger record was already written, otherwise it is captured
+     * now; a captured amount that never reached the saved rental is applied again.
+     * Only ledger records written since the oldest open authorization are read.
+     *
+     * @return number of rentals whose actual fee changed and need saving
+     */
+    public synchronized int reconcile(List<Rental> rentals) {
+        Map<Integer, Rental> byId = new HashMap<>();
+        for (Rental rental : rentals) {
+            byId.put(rental.getId(), rental);
+        }
+        int completed = 0;
+        int changed = 0;
+        List<PaymentAttempt> unfinished = journal.getUnfinished();
+        try {
+            long since = Long.MAX_VALUE;
+            for (PaymentAttempt attempt : unfinished) {
+                if (attempt.getState() == PaymentState.AUTHORIZED) {
+                    since = Math.min(since, attempt.getUpdatedAtMillis());
+                }
+            }
+            Map<Integer, PaymentRecord> recorded = new HashMap<>();
+            if (since != Long.MAX_VALUE) {
+                LocalDate day = Instant.ofEpochMilli(since).atZone(ZoneId.systemDefault()).toLocalDate();
+                for (PaymentRecord record : ledger.findByDate(day, null)) {
+                    recorded.put(record.getRentalId(), record);
+                }
+            }
+
+            for (PaymentAttempt attempt : unfinished) {
+                int rentalId = attempt.getRentalId();
+                if (attempt.getState() == PaymentState.INVOICED) {
+                    journal.transition(rentalId, PaymentState.FAILED, null, -1, "Abandoned before authorization");
+                    completed++;
+                    continue;
+                }
+                if (attempt.getState() == PaymentState.AUTHORIZING) {
+                    System.out.println("Payment " + attempt.getIdempotencyKey() + " for rental " + rentalId
+                            + " was sent but not confirmed; it is re-sent under the same key when next paid");
+                    continue;
+                }
+                PaymentRecord record = recorded.get(rentalId);
+                Rental rental = byId.get(rentalId);
+                if (record != null && record.getPaidAtMillis() >= attempt.getUpdatedAtMillis()) {
+                    journal.transition(rentalId, PaymentState.CAPTURED, null, record.getRecordNumber(),
+                            "Recovered from ledger");
+                } else if (rental != null) {
+                    if (!capture(rental, attempt).isSuccess()) {
+                        continue;
+                    }
+                } else {
+                    System.out.println("Payment " + attempt.getIdempotencyKey() + " is authorized but rental "
+                            + rentalId + " was not found");
+                    continue;
+                }
+                completed++;
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Failed to reconcile payments: " + e.getMessage());
+        }
+
+        for (PaymentAttempt attempt : journal.getAll()) {
+            Rental rental = byId.get(attempt.getRentalId());
+            if (attempt.getState() == PaymentState.CAPTURED && rental != null
+                    && Math.abs(rental.getActualFee() - attempt.getAmount()) > 0.005) {
+                rental.setActualFee(attempt.getAmount());
+                changed++;
+            }
+        }
+        if (completed + changed > 0) {
+            System.out.println("Payment reconciliation: " + completed + " interrupted payment(s) completed, "
+                    + changed + " rental fee(s) corrected");
+        }
+        return changed;
     }
 
+    /**
+     * Interactive payment: prompts for promo code, confirmation and payment method, then
+     * settles it through settle() with the chosen method's prompts as the gateway
+     */
     public void processPayment(Rental rental, Scanner scanner) {
         System.out.println("\n╔════════════════════════════════════════════════════╗");
         System.out.println("║                   PAYMENT MODULE                   ║");
         System.out.println("╚════════════════════════════════════════════════════╝");
 
+        PaymentAttempt current = journal.get(rental.getId());
+        if (current != null && current.getState() == PaymentState.CAPTURED) {
+            System.out.printf("This rental has already been paid (RM%.2f, %s).\n", current.getAmount(),
+                    current.getIdempotencyKey());
+            return;
+        }
+        if (current != null && (current.getState() == PaymentState.AUTHORIZING
+                || current.getState() == PaymentState.AUTHORIZED)) {
+            // Possibly already charged; finish it under the same key rather than charging again
+            System.out.printf("Payment %s of RM%.2f via %s was interrupted; completing it.\n",
+                    current.getIdempotencyKey(), current.getAmount(), current.getMethod());
+            CommandResult result = settle(rental, null, current.getMethod(), consoleGateway(scanner));
+            System.out.println(result.getMessage());
+            if (result.isSuccess()) {
+                postPaymentOptions(scanner, rental, result.getDiscountRate(), result.getLateFee());
+            }
+            return;
+        }
+
         // Apply promo code
         double discount = 0;
+        String promoCode = null;
         System.out.print("Do you have a promo code? (yes/no): ");
         String hasPromo = scanner.nextLine().trim().toLowerCase();
         if (hasPromo.equals("yes") || hasPromo.equals("y")) {
             System.out.print("Enter promo code: ");
             String code = scanner.nextLine().trim().toUpperCase();
-            if (PROMO_CODES.containsKey(code)) {
-                discount = PROMO_CODES.get(code);
+            double promo = pricingEngine.promoDiscount(code);
+            if (promo >= 0) {
+                discount = promo;
+                promoCode = code;
                 System.out.println("Promo code applied! Discount: " + (int)(discount * 100) + "%");
             } else {
                 System.out.println("Invalid promo code. No discount applied.");
@@ -40,13 +353,13 @@ public class PaymentService {
         // Calculate late fee
         double lateFee = calculateLateFee(rental);
 
-        // Calculate final amount
+        // Calculate final amount; the rental is only updated once the payment is captured
         double finalAmount = rental.getTotalFee() * (1 - discount) + lateFee;
-        rental.setActualFee(finalAmount); // Update rental object
 
-        displayInvoice(rental, discount, lateFee);
+        displayInvoice(rental, discount, lateFee, finalAmount);
 
         if (finalAmount <= 0) {
+            settle(rental, promoCode, "", SIMULATED_GATEWAY);
             System.out.println("\nNo payment required. Thank you!");
             return;
         }
@@ -66,8 +379,8 @@ public class PaymentService {
         }
 
         // Choose payment method
-        boolean paid = false;
-        while (!paid) {
+        String method = null;
+        while (method == null) {
             System.out.println("\nSelect Payment Method:");
             System.out.println("1. TouchNGo");
             System.out.println("2. Bank Transfer");
@@ -77,31 +390,51 @@ public class PaymentService {
             String choice = scanner.nextLine();
 
             switch (choice) {
-                case "1": paid = handleTouchNGo(scanner, rental, finalAmount); break;
-                case "2": paid = handleBankTransfer(scanner, rental, finalAmount); break;
-                case "3": paid = handleGrabPay(scanner, rental, finalAmount); break;
+                case "1": method = "TouchNGo"; break;
+                case "2": method = "Bank Transfer"; break;
+                case "3": method = "GrabPay"; break;
                 case "0": System.out.println("Payment cancelled."); return;
                 default: System.out.println("Invalid choice. Please enter again.");
             }
         }
 
-        // Save history
-        savePaymentRecord(rental, discount, lateFee, "PAID");
+        // Journaled as AUTHORIZING under its key before the method's prompts charge it
+        CommandResult result = settle(rental, promoCode, method, consoleGateway(scanner));
+        if (!result.isSuccess()) {
+            System.out.println(result.getMessage());
+            return;
+        }
 
         // Post-payment options
-        postPaymentOptions(scanner, rental, discount, lateFee);
+        postPaymentOptions(scanner, rental, result.getDiscountRate(), result.getLateFee());
     }
 
     // ------------------- PAYMENT HANDLERS ---------------------
-    private boolean handleTouchNGo(Scanner scanner, Rental rental, double amount) {
+    /**
+     * Gateway that charges through the console prompts of the chosen payment method
+     */
+    private PaymentGateway consoleGateway(Scanner scanner) {
+        return (key, method, amount) -> {
+            switch (method) {
+                case "TouchNGo": return handleTouchNGo(scanner, key, amount);
+                case "Bank Transfer": return handleBankTransfer(scanner, key, amount);
+                case "GrabPay": return handleGrabPay(scanner, key, amount);
+                default:
+                    System.out.println("Unknown payment method: " + method);
+                    return false;
+            }
+        };
+    }
+
+    private boolean handleTouchNGo(Scanner scanner, String key, double amount) {
         String phone = getValidPhone(scanner, "TouchNGo");
         String pin = getValidPIN(scanner, "TouchNGo");
 
-        System.out.printf("\nPayment of RM%.2f successful using TouchNGo (+60%s)\n", amount, phone);
+        System.out.printf("\nPayment of RM%.2f successful using TouchNGo (+60%s, ref %s)\n", amount, phone, key);
         return true;
     }
 
-    private boolean handleBankTransfer(Scanner scanner, Rental rental, double amount) {
+    private boolean handleBankTransfer(Scanner scanner, String key, double amount) {
         String bank = getBankChoice(scanner);
         String bankId = getValidPhone(scanner, "Bank");
         String password = getValidPIN(scanner, "Bank");
@@ -117,15 +450,15 @@ public class PaymentService {
             if (!inputTac.equals(String.valueOf(tac))) System.out.println("Invalid TAC. Try again.");
         }
 
-        System.out.printf("\nPayment of RM%.2f successful via %s (User: +60%s)\n", amount, bank, bankId);
+        System.out.printf("\nPayment of RM%.2f successful via %s (User: +60%s, ref %s)\n", amount, bank, bankId, key);
         return true;
     }
 
-    private boolean handleGrabPay(Scanner scanner, Rental rental, double amount) {
+    private boolean handleGrabPay(Scanner scanner, String key, double amount) {
         String phone = getValidPhone(scanner, "GrabPay");
         String pin = getValidPIN(scanner, "GrabPay");
 
-        System.out.printf("\nPayment of RM%.2f successful via GrabPay (+60%s)\n", amount, phone);
+        System.out.printf("\nPayment of RM%.2f successful via GrabPay (+60%s, ref %s)\n", amount, phone, key);
         return true;
     }
 
@@ -219,62 +552,73 @@ public class PaymentService {
     }
 
     // ------------------- HISTORY ---------------------
-    private void savePaymentRecord(Rental rental, double discount, double lateFee, String status) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(HISTORY_FILE, true))) {
-            bw.write(rental.getCustomer().getName() + "|" +
-                    rental.getId() + "|" +
-                    rental.getVehicle().getBrand() + " " + rental.getVehicle().getModel() + "|" +
-                    rental.getTotalFee() + "|" +
-                    discount + "|" +
-                    lateFee + "|" +
-                    rental.getActualFee() + "|" +
-                    rental.getStartDate() + " to " + rental.getEndDate() + "|" +
-                    status + "\n");
-        } catch (IOException e) {
-            System.out.println("Failed to save payment history: " + e.getMessage());
-        }
+    public void viewPaymentHistory(String customerName) {
+        viewPaymentHistory(customerName, null, null);
     }
 
-    public void viewPaymentHistory(String customerName) {
+    /**
+     * Print a customer's payments within [from, to] (either bound may be null) from the ledger
+     */
+    public void viewPaymentHistory(String customerName, LocalDate from, LocalDate to) {
         System.out.println("\n========= PAYMENT HISTORY for " + customerName + " =========");
-        boolean found = false;
-        double total = 0;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(HISTORY_FILE))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length == 9 && parts[0].equalsIgnoreCase(customerName)) {
-                    System.out.printf("Rental ID: %s | Vehicle: %s | Base Fee: RM%s | Discount: %s | Late Fee: %s | Paid: RM%s | Period: %s | Status: %s\n",
-                            parts[1], parts[2], parts[3], parts[4], parts[5], parts[6], parts[7], parts[8]);
-                    total += Double.parseDouble(parts[6]);
-                    found = true;
-                }
+        try {
+            List<PaymentRecord> payments = ledger.findByCustomer(customerName, from, to);
+            double total = 0;
+            for (PaymentRecord payment : payments) {
+                printPayment(payment);
+                total += payment.getAmount();
+            }
+            if (payments.isEmpty()) {
+                System.out.println("No payment history found.");
+            } else if (from == null && to == null) {
+                System.out.printf("Total Spending: RM%.2f\n", ledger.getCustomerTotal(customerName));
+            } else {
+                System.out.printf("Total Spending in period: RM%.2f (all time: RM%.2f)\n", total,
+                        ledger.getCustomerTotal(customerName));
             }
         } catch (IOException e) {
             System.out.println("Error reading payment history: " + e.getMessage());
         }
+    }
 
-        if (!found) {
-            System.out.println("No payment history found.");
-        } else {
-            System.out.printf("Total Spending: RM%.2f\n", total);
+    /**
+     * Print every payment made within [from, to], with the period total
+     */
+    public void viewPaymentsByDate(LocalDate from, LocalDate to) {
+        System.out.println("\n========= PAYMENTS " + (from == null ? "" : "from " + from + " ")
+                + (to == null ? "" : "to " + to) + " =========");
+        try {
+            List<PaymentRecord> payments = ledger.findByDate(from, to);
+            double total = 0;
+            for (PaymentRecord payment : payments) {
+                System.out.print(payment.getPaidDate() + " | " + payment.getCustomerName() + " | ");
+                printPayment(payment);
+                total += payment.getAmount();
+            }
+            if (payments.isEmpty()) {
+                System.out.println("No payments found.");
+            } else {
+                System.out.printf("%d payment(s), Total: RM%.2f\n", payments.size(), total);
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading payment history: " + e.getMessage());
         }
     }
 
+    private static void printPayment(PaymentRecord payment) {
+        System.out.printf("Rental ID: %s | Vehicle: %s | Base Fee: RM%s | Discount: %s | Late Fee: %s | Paid: RM%s | Period: %s | Status: %s\n",
+                payment.getRentalId(), payment.getVehicle(), payment.getBaseFee(), payment.getDiscount(),
+                payment.getLateFee(), payment.getAmount(),
+                payment.getStartDate() + " to " + payment.getEndDate(), payment.getStatus());
+    }
+
     // ------------------- INVOICE / RECEIPT ---------------------
     private double calculateLateFee(Rental rental) {
-        LocalDate today = LocalDate.now();
-        if (today.isAfter(rental.getEndDate())) {
-            long daysLate = ChronoUnit.DAYS.between(rental.getEndDate(), today);
-            return daysLate * 20; // RM20 per late day
-        }
-        return 0;
+        return pricingEngine.lateFee(rental.getEndDate(), LocalDate.now());
     }
 
-    private void displayInvoice(Rental rental, double discount, double lateFee) {
+    private void displayInvoice(Rental rental, double discount, double lateFee, double finalAmount) {
         double baseFee = rental.getTotalFee();
-        double finalAmount = rental.getActualFee();
 
         System.out.println("\n╔════════════════════ INVOICE DETAILS ════════════════════╗");
         System.out.printf("Rental ID      : %d\n", rental.getId());
@@ -308,20 +652,9 @@ public class PaymentService {
 
     private String generateTextReceipt(Rental rental, double discount, double lateFee) {
         String fileName = "Receipt_Rental_" + rental.getId() + ".txt";
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
-            bw.write("============= VEHICLE RENTAL PAYMENT RECEIPT =============\n");
-            bw.write("Rental ID       : " + rental.getId() + "\n");
-            bw.write("Customer        : " + rental.getCustomer().getName() + "\n");
-            bw.write("Vehicle         : " + rental.getVehicle().getBrand() + " " + rental.getVehicle().getModel() + "\n");
-            bw.write("Car Plate       : " + rental.getVehicle().getCarPlate() + "\n");
-            bw.write("Rental Period   : " + rental.getStartDate() + " → " + rental.getEndDate() + "\n");
-            bw.write("Base Fee        : RM" + String.format("%.2f", rental.getTotalFee()) + "\n");
-            bw.write("Discount        : RM" + String.format("%.2f", rental.getTotalFee() * discount) + "\n");
-            bw.write("Late Fee        : RM" + String.format("%.2f", lateFee) + "\n");
-            bw.write("Final Amount    : RM" + String.format("%.2f", rental.getActualFee()) + "\n");
-            bw.write("Payment Status  : PAID\n");
-            bw.write("==========================================================\n");
-            bw.write("Thank you for choosing CarSeek!\n");
+        try {
+            Files.write(Paths.get(fileName), new ReceiptRenderer().render(ReceiptRenderer.TXT,
+                    receiptRecord(rental, discount, lateFee), rental.getVehicle().getCarPlate()));
         } catch (IOException e) {
             System.out.println("Failed to save receipt: " + e.getMessage());
         }
@@ -330,24 +663,24 @@ public class PaymentService {
 
     private String generateCSVReceipt(Rental rental, double discount, double lateFee) {
         String fileName = "Receipt_Rental_" + rental.getId() + ".csv";
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
-            bw.write("RentalID,Customer,Vehicle,CarPlate,RentalPeriod,BaseFee,Discount,LateFee,FinalAmount,PaymentStatus\n");
-            bw.write(rental.getId() + "," +
-                    rental.getCustomer().getName() + "," +
-                    rental.getVehicle().getBrand() + " " + rental.getVehicle().getModel() + "," +
-                    rental.getVehicle().getCarPlate() + "," +
-                    rental.getStartDate() + " → " + rental.getEndDate() + "," +
-                    String.format("%.2f", rental.getTotalFee()) + "," +
-                    String.format("%.2f", rental.getTotalFee() * discount) + "," +
-                    String.format("%.2f", lateFee) + "," +
-                    String.format("%.2f", rental.getActualFee()) + "," +
-                    "PAID\n");
+        try {
+            Files.write(Paths.get(fileName), new ReceiptRenderer().render(ReceiptRenderer.CSV,
+                    receiptRecord(rental, discount, lateFee), rental.getVehicle().getCarPlate()));
         } catch (IOException e) {
             System.out.println("Failed to save CSV receipt: " + e.getMessage());
         }
         return fileName;
     }
 
+    /**
+     * The just-settled payment in the shape the receipt renderer takes
+     */
+    private static PaymentRecord receiptRecord(Rental rental, double discount, double lateFee) {
+        return new PaymentRecord(-1, System.currentTimeMillis(), rental.getId(), rental.getCustomer().getName(),
+                rental.getVehicle().getBrand() + " " + rental.getVehicle().getModel(), rental.getStartDate(),
+                rental.getEndDate(), rental.getTotalFee(), discount, lateFee, rental.getActualFee(), "PAID");
+    }
+
     // ================= PAYMENT MANAGEMENT MENU =================
 
     /**
@@ -361,6 +694,10 @@ public class PaymentService {
             System.out.println("║                         PAYMENT MANAGEMENT                       ║");
             System.out.println("╠══════════════════════════════════════════════════════════════════╣");
             System.out.println("║ 1. View Payment History                                          ║");
+            if (account.getRole() == AccountRole.ADMIN) {
+                System.out.println("║ 2. Payments by Date Range                                        ║");
+                System.out.println("║ 3. Verify Payment Ledger                                         ║");
+            }
             System.out.println("║ 0. Back to Main Menu                                             ║");
             System.out.println("╚══════════════════════════════════════════════════════════════════╝");
             System.out.print("Select option: ");
@@ -370,6 +707,30 @@ public class PaymentService {
                 case "1":
                     viewPaymentHistoryMenu(scanner, account);
                     break;
+                case "2":
+                    if (account.getRole() != AccountRole.ADMIN) {
+                        System.out.println("Invalid option. Please try again.");
+                        break;
+                    }
+                    LocalDate from = promptDate(scanner, "From date (yyyy-MM-dd, or press Enter for no limit): ");
+                    LocalDate to = promptDate(scanner, "To date (yyyy-MM-dd, or press Enter for no limit): ");
+                    viewPaymentsByDate(from, to);
+                    System.out.println("\nPress Enter to continue...");
+                    scanner.nextLine();
+                    break;
+                case "3":
+                    if (account.getRole() != AccountRole.ADMIN) {
+                        System.out.println("Invalid option. Please try again.");
+                        break;
+                    }
+                    try {
+                        ledger.verify();
+                    } catch (IOException e) {
+                        System.out.println("Failed to verify payment ledger: " + e.getMessage());
+                    }
+                    System.out.println("\nPress Enter to continue...");
+                    scanner.nextLine();
+                    break;
                 case "0":
                     return;
                 default:
@@ -399,11 +760,31 @@ public class PaymentService {
             customerName = account.getFullName();
         }
 
-        viewPaymentHistory(customerName);
+        LocalDate from = promptDate(scanner, "From date (yyyy-MM-dd, or press Enter for all): ");
+        LocalDate to = from == null ? null : promptDate(scanner, "To date (yyyy-MM-dd, or press Enter for today): ");
+        viewPaymentHistory(customerName, from, to);
         
         System.out.println("\nPress Enter to continue...");
         scanner.nextLine();
     }
 
+    /**
+     * Read an optional date; empty input gives null
+     */
+    private LocalDate promptDate(Scanner scanner, String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                return null;
+            }
+            try {
+                return LocalDate.parse(input);
+            } catch (DateTimeParseException e) {
+                System.out.println("Invalid date. Please use yyyy-MM-dd.");
+            }
+        }
+    }
+
 }
 
@@ -1,11 +1,15 @@
 package services;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
+import com.itextpdf.text.pdf.qrcode.EncodeHintType;
+import com.itextpdf.text.pdf.qrcode.ErrorCorrectionLevel;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +34,13 @@ public class PdfTicketService {
      * Generate PDF ticket and return as byte array for email attachment
      */
     public byte[] generatePdfTicket(Ticket ticket) {
+        return generatePdfTicket(ticket, null);
+    }
+
+    /**
+     * Generate PDF ticket with a QR code of the signed scan code (skipped when null)
+     */
+    public byte[] generatePdfTicket(Ticket ticket, String scanCode) {
         try {
             Document document = new Document(PageSize.A4, 50, 50, 50, 50);
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -46,6 +57,9 @@ public class PdfTicketService {
             // Compact single-page layout
             addCompactHeader(document, ticket, baseFont);
             addCompactDetails(document, ticket, labelFont, valueFont);
+            if (scanCode != null) {
+                addScanCode(document, scanCode, baseFont);
+            }
             addCompactInstructions(document, baseFont, labelFont, valueFont);
             addCompactFooter(document, smallFont);
             
@@ -175,6 +189,44 @@ public class PdfTicketService {
         document.add(detailsTable);
     }
     
+    private void addScanCode(Document document, String scanCode, BaseFont baseFont) throws DocumentException {
+        // QR code for the pickup counter, with the ticket ID as a typed fallback
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        Image qrImage = new BarcodeQRCode(scanCode, 1, 1, hints).getImage();
+        qrImage.scaleAbsolute(96f, 96f);
+
+        PdfPTable scanTable = new PdfPTable(2);
+        scanTable.setWidthPercentage(100);
+        scanTable.setWidths(new float[]{1f, 3f});
+        scanTable.setSpacingAfter(12f);
+
+        PdfPCell qrCell = new PdfPCell(qrImage, false);
+        qrCell.setBorder(Rectangle.BOX);
+        qrCell.setBorderColor(BORDER_COLOR);
+        qrCell.setBorderWidth(0.5f);
+        qrCell.setPadding(6f);
+        qrCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        scanTable.addCell(qrCell);
+
+        PdfPCell textCell = new PdfPCell();
+        textCell.setBorder(Rectangle.BOX);
+        textCell.setBorderColor(BORDER_COLOR);
+        textCell.setBorderWidth(0.5f);
+        textCell.setPadding(10f);
+        textCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        textCell.setBackgroundColor(BACKGROUND_COLOR);
+
+        Paragraph scanTitle = new Paragraph("SCAN AT PICKUP", new Font(baseFont, 11, Font.BOLD, TEXT_COLOR));
+        scanTitle.setSpacingAfter(4f);
+        textCell.addElement(scanTitle);
+        textCell.addElement(new Paragraph("Show this code at the pickup counter. It is signed and only valid "
+                + "for this ticket and rental period.", new Font(baseFont, 8, Font.NORMAL, SECONDARY_COLOR)));
+        scanTable.addCell(textCell);
+
+        document.add(scanTable);
+    }
+
     private PdfPCell createCompactSection(String title, BaseColor color) throws DocumentException {
         PdfPCell cell = new PdfPCell();
         cell.setBorder(Rectangle.BOX);
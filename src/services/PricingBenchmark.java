@@ -0,0 +1,122 @@
+package services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import models.PricingTable;
+import models.Vehicle;
+
+/**
+ * Measures PricingEngine.quote throughput against the 1M quotes/s target.
+ * A rules file with seasonal, weekend and surge rules is written to a
+ * temporary file (the real pricing rules are never read or changed), then
+ * worker threads price random date ranges over a synthetic fleet while the
+ * utilization, and so the surge tier, keeps changing. Reports quotes/s and
+ * p50/p99 latency sampled on every 16th quote.
+ */
+public class PricingBenchmark {
+
+    private static final double TARGET_QUOTES_PER_SECOND = 1_000_000;
+    private static final int SAMPLE_EVERY = 16;
+    private static final int RANGES = 4096;
+
+    /**
+     * Run the benchmark and print a throughput/latency summary
+     *
+     * @param vehicles synthetic fleet size
+     * @param threads  threads pricing in parallel
+     * @param quotes   total number of quotes
+     * @return true if the target throughput was reached
+     */
+    public static boolean run(int vehicles, int threads, int quotes) throws IOException, InterruptedException {
+        Path rules = Files.createTempFile("pricing_bench", ".properties");
+        try {
+            Files.write(rules, ("season.DECEMBER=1.20\nseason.JULY=1.10\nweekend=1.15\nweekday.FRIDAY=1.05\n"
+                    + "surge.0.80=1.10\nsurge.0.95=1.25\n").getBytes(StandardCharsets.ISO_8859_1));
+            PricingEngine engine = new PricingEngine(rules.toString());
+
+            Random random = new Random(42);
+            Map<Integer, Double> discounts = new HashMap<>();
+            discounts.put(7, 0.08);
+            discounts.put(14, 0.12);
+            discounts.put(30, 0.20);
+            PricingTable[] tables = new PricingTable[vehicles];
+            for (int i = 0; i < vehicles; i++) {
+                tables[i] = new Vehicle("B" + i, "BEN" + i, "Perodua", "Myvi", "Hatchback", "Petrol", "White",
+                        2022, 1.5, "Good", 0.1 + random.nextInt(10) / 100.0, "available",
+                        80 + random.nextInt(300), discounts).getPricingTable();
+            }
+            LocalDate today = LocalDate.now();
+            LocalDate[] starts = new LocalDate[RANGES];
+            LocalDate[] ends = new LocalDate[RANGES];
+            for (int i = 0; i < RANGES; i++) {
+                starts[i] = today.plusDays(random.nextInt(365));
+                ends[i] = starts[i].plusDays(random.nextInt(35));
+            }
+
+            long[] latencies = new long[(quotes + SAMPLE_EVERY - 1) / SAMPLE_EVERY];
+            int chunk = 1024;
+            AtomicInteger next = new AtomicInteger();
+            double[] checksums = new double[threads]; // Keeps the JIT from discarding the quotes
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            long started = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                executor.execute(() -> {
+                    double sum = 0;
+                    int from;
+                    while ((from = next.getAndAdd(chunk)) < quotes) {
+                        int to = Math.min(from + chunk, quotes);
+                        engine.updateUtilization((from % 100) / 100.0); // Moves through every surge tier
+                        for (int i = from; i < to; i++) {
+                            PricingTable table = tables[i % vehicles];
+                            int r = (i * 31) & (RANGES - 1);
+                            if (i % SAMPLE_EVERY == 0) {
+                                long t0 = System.nanoTime();
+                                sum += engine.quote(table, starts[r], ends[r], (i & 1) == 0);
+                                latencies[i / SAMPLE_EVERY] = System.nanoTime() - t0;
+                            } else {
+                                sum += engine.quote(table, starts[r], ends[r], (i & 1) == 0);
+                            }
+                        }
+                    }
+                    checksums[worker] = sum;
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            double rate = quotes / seconds;
+
+            Arrays.sort(latencies);
+            System.out.println("\n=== Pricing Benchmark ===");
+            System.out.printf("Vehicles: %d | Threads: %d | Quotes: %d | Checksum: %.0f%n",
+                    vehicles, threads, quotes, Arrays.stream(checksums).sum());
+            System.out.printf("Throughput: %.0f quotes/s (target %.0f: %s)%n", rate, TARGET_QUOTES_PER_SECOND,
+                    rate >= TARGET_QUOTES_PER_SECOND ? "met" : "missed");
+            System.out.printf("Latency p50: %d ns | p99: %d ns (every %dth quote)%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), SAMPLE_EVERY);
+            return rate >= TARGET_QUOTES_PER_SECOND;
+        } finally {
+            Files.deleteIfExists(rules);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,276 @@
+package services;
+
+import java.io.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import models.PricingTable;
+
+/**
+ * Rule-based pricing: seasonal (monthly) and day-of-week multipliers,
+ * utilization surge tiers, promo codes and late fees, loaded from
+ * pricing_rules.properties.
+ *
+ * Rules are compiled once into a flat plan: a per-day calendar factor table
+ * with prefix sums, so pricing a date range is two array reads regardless of
+ * its length. The surge factor is resolved when utilization is updated, not
+ * on every quote.
+ */
+public class PricingEngine {
+
+    public static final String DEFAULT_RULES_FILE = "pricing_rules.properties";
+
+    private static final double DEFAULT_LATE_FEE_PER_DAY = 20.0;
+    private static final int HORIZON_PAST_DAYS = 2 * 366;
+    private static final int HORIZON_FUTURE_DAYS = 4 * 366;
+
+    private final String filename;
+    private volatile Plan plan;
+    private volatile double utilization;
+    private volatile double surgeFactor = 1.0;
+
+    public PricingEngine() {
+        this(DEFAULT_RULES_FILE);
+    }
+
+    public PricingEngine(String filename) {
+        this.filename = filename;
+        reload();
+    }
+
+    /**
+     * Reload rules from the config file and recompile the evaluation plan
+     */
+    public void reload() {
+        Properties props = new Properties();
+        boolean loaded = false;
+        File file = new File(filename);
+        if (file.exists()) {
+            try (InputStream input = new FileInputStream(file)) {
+                props.load(input);
+                loaded = true;
+            } catch (IOException e) {
+                System.out.println("Failed to load pricing rules: " + e.getMessage());
+            }
+        }
+        plan = compile(props, LocalDate.now(), loaded);
+        surgeFactor = plan.surgeFor(utilization);
+    }
+
+    /**
+     * Price a rental: calendar-weighted base price, long-term discount, surge and optional insurance
+     */
+    public double quote(PricingTable table, LocalDate startDate, LocalDate endDate, boolean insurance) {
+        return quote(table, startDate, endDate, insurance, surgeFactor);
+    }
+
+    /**
+     * Price a rental at a given surge multiplier, e.g. the one quoted when it was booked
+     */
+    public double quote(PricingTable table, LocalDate startDate, LocalDate endDate, boolean insurance,
+            double surge) {
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        double fee = table.getBasePrice() * calendarFactor(startDate, endDate)
+                * (1 - table.discountForDays(days)) * surge;
+        return insurance ? fee * table.getInsuranceMultiplier() : fee;
+    }
+
+    /**
+     * Sum of per-day calendar multipliers over an inclusive date range.
+     * Equals the number of days when no seasonal or weekday rules are configured.
+     */
+    public double calendarFactor(LocalDate startDate, LocalDate endDate) {
+        Plan p = plan;
+        long startDay = startDate.toEpochDay();
+        long endDay = endDate.toEpochDay();
+        if (endDay < startDay) {
+            return 0.0;
+        }
+        if (p.flatCalendar) {
+            return endDay - startDay + 1;
+        }
+        if (startDay >= p.firstDay && endDay < p.firstDay + p.prefix.length - 1) {
+            int from = (int) (startDay - p.firstDay);
+            int to = (int) (endDay - p.firstDay) + 1;
+            return p.prefix[to] - p.prefix[from];
+        }
+        // Outside the precompiled horizon: evaluate day by day
+        double sum = 0.0;
+        for (long day = startDay; day <= endDay; day++) {
+            sum += p.dayFactor(day);
+        }
+        return sum;
+    }
+
+    /**
+     * Current surge multiplier derived from the last reported utilization
+     */
+    public double getSurgeFactor() {
+        return surgeFactor;
+    }
+
+    /**
+     * Report fleet utilization (0..1) and resolve the matching surge tier
+     */
+    public void updateUtilization(double utilization) {
+        this.utilization = utilization;
+        this.surgeFactor = plan.surgeFor(utilization);
+    }
+
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * Discount rate for a promo code, or -1 if the code is not recognised
+     */
+    public double promoDiscount(String code) {
+        if (code == null) {
+            return -1;
+        }
+        Double rate = plan.promoCodes.get(code.trim().toUpperCase());
+        return rate == null ? -1 : rate;
+    }
+
+    /**
+     * Late fee for returning after the end date
+     */
+    public double lateFee(LocalDate endDate, LocalDate returnDate) {
+        if (!returnDate.isAfter(endDate)) {
+            return 0;
+        }
+        return ChronoUnit.DAYS.between(endDate, returnDate) * plan.lateFeePerDay;
+    }
+
+    public double getLateFeePerDay() {
+        return plan.lateFeePerDay;
+    }
+
+    /**
+     * Compile raw properties into a flat evaluation plan
+     *
+     * @param fromRulesFile false when there is no readable rules file; only then are the
+     *                      built-in promo codes used, so a rules file without promo.* keys
+     *                      turns promos off
+     */
+    private static Plan compile(Properties props, LocalDate today, boolean fromRulesFile) {
+        double[] monthFactors = new double[12];
+        for (Month month : Month.values()) {
+            monthFactors[month.ordinal()] = parseDouble(props, "season." + month, 1.0);
+        }
+        double[] weekdayFactors = new double[7];
+        for (DayOfWeek day : DayOfWeek.values()) {
+            weekdayFactors[day.ordinal()] = parseDouble(props, "weekday." + day, 1.0);
+        }
+        // Shorthand for SATURDAY and SUNDAY together
+        String weekend = props.getProperty("weekend");
+        if (weekend != null) {
+            double factor = parseDouble(props, "weekend", 1.0);
+            weekdayFactors[DayOfWeek.SATURDAY.ordinal()] = factor;
+            weekdayFactors[DayOfWeek.SUNDAY.ordinal()] = factor;
+        }
+
+        TreeMap<Double, Double> surgeTiers = new TreeMap<>();
+        Map<String, Double> promoCodes = new HashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            try {
+                if (key.startsWith("surge.")) {
+                    surgeTiers.put(Double.parseDouble(key.substring(6)), Double.parseDouble(props.getProperty(key).trim()));
+                } else if (key.startsWith("promo.")) {
+                    promoCodes.put(key.substring(6).trim().toUpperCase(), Double.parseDouble(props.getProperty(key).trim()));
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid pricing rule '" + key + "', ignoring.");
+            }
+        }
+        if (!fromRulesFile) {
+            promoCodes.put("PROMO10", 0.10);
+            promoCodes.put("PROMO20", 0.20);
+        }
+
+        double lateFeePerDay = parseDouble(props, "late.fee.per.day", DEFAULT_LATE_FEE_PER_DAY);
+        return new Plan(monthFactors, weekdayFactors, surgeTiers, promoCodes, lateFeePerDay,
+                today.toEpochDay() - HORIZON_PAST_DAYS, HORIZON_PAST_DAYS + HORIZON_FUTURE_DAYS);
+    }
+
+    private static double parseDouble(Properties props, String key, double defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid pricing rule '" + key + "', using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Immutable compiled rules
+     */
+    private static final class Plan {
+        final double[] monthFactors;
+        final double[] weekdayFactors;
+        final double[] surgeThresholds; // ascending utilization thresholds
+        final double[] surgeFactors;
+        final Map<String, Double> promoCodes;
+        final double lateFeePerDay;
+        final boolean flatCalendar;
+        final long firstDay;            // epoch day of prefix[0]
+        final double[] prefix;          // prefix[i] = sum of day factors for days [firstDay, firstDay + i)
+
+        Plan(double[] monthFactors, double[] weekdayFactors, TreeMap<Double, Double> surgeTiers,
+                Map<String, Double> promoCodes, double lateFeePerDay, long firstDay, int horizonDays) {
+            this.monthFactors = monthFactors;
+            this.weekdayFactors = weekdayFactors;
+            this.promoCodes = Collections.unmodifiableMap(promoCodes);
+            this.lateFeePerDay = lateFeePerDay;
+
+            this.surgeThresholds = new double[surgeTiers.size()];
+            this.surgeFactors = new double[surgeTiers.size()];
+            int i = 0;
+            for (Map.Entry<Double, Double> tier : surgeTiers.entrySet()) {
+                surgeThresholds[i] = tier.getKey();
+                surgeFactors[i] = tier.getValue();
+                i++;
+            }
+
+            boolean flat = true;
+            for (double f : monthFactors) {
+                flat &= f == 1.0;
+            }
+            for (double f : weekdayFactors) {
+                flat &= f == 1.0;
+            }
+            this.flatCalendar = flat;
+            this.firstDay = firstDay;
+
+            if (flat) {
+                this.prefix = new double[0];
+            } else {
+                this.prefix = new double[horizonDays + 1];
+                for (int d = 0; d < horizonDays; d++) {
+                    prefix[d + 1] = prefix[d] + dayFactor(firstDay + d);
+                }
+            }
+        }
+
+        double dayFactor(long epochDay) {
+            // 1970-01-01 was a Thursday (DayOfWeek ordinal 3)
+            int weekday = (int) Math.floorMod(epochDay + 3, 7L);
+            int month = LocalDate.ofEpochDay(epochDay).getMonthValue() - 1;
+            return monthFactors[month] * weekdayFactors[weekday];
+        }
+
+        double surgeFor(double utilization) {
+            double factor = 1.0;
+            for (int i = 0; i < surgeThresholds.length && utilization >= surgeThresholds[i]; i++) {
+                factor = surgeFactors[i];
+            }
+            return factor;
+        }
+    }
+}
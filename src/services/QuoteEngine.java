@@ -0,0 +1,142 @@
+package services;
+
+import enums.VehicleStatus;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import models.*;
+
+/**
+ * Fleet-wide quote engine: prices one date range across every vehicle and
+ * returns the available ones ranked by total fee.
+ *
+ * Pricing inputs are packed into parallel primitive arrays, rebuilt only when
+ * the fleet has changed since the last query. Booked ranges are per-vehicle
+ * sorted intervals copied from each vehicle's BookingSchedule, re-read only
+ * when that schedule's version stamp has moved, so every booking, cancellation
+ * and extension is seen by the next quote without waiting for a save.
+ */
+public class QuoteEngine {
+
+    private static final int BUFFER_DAYS = 2;
+
+    private final RentalSystem system;
+
+    // Packed snapshot, index-aligned with snapshotVehicles
+    private Vehicle[] snapshotVehicles = new Vehicle[0];
+    private PricingTable[] pricingTables = new PricingTable[0];
+    private double[] basePrices = new double[0];
+    private double[] insuranceMultipliers = new double[0];
+    private BookedIntervals[] bookedIntervals = new BookedIntervals[0];
+    private long[] scheduleVersions = new long[0]; // Schedule version each interval set was copied at
+    private long vehiclesVersion = -1;
+
+    public QuoteEngine(RentalSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Quote every available vehicle matching the filter, cheapest first
+     *
+     * @param limit maximum number of quotes to return (0 for all)
+     */
+    public synchronized List<Quote> quote(LocalDate startDate, LocalDate endDate, boolean insurance,
+            QuoteFilter filter, int limit) {
+        refreshSnapshot();
+
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        PricingEngine pricing = system.getPricingEngine();
+        double calendarFactor = pricing.calendarFactor(startDate, endDate) * pricing.getSurgeFactor();
+        long startDay = startDate.toEpochDay();
+        long endDay = endDate.toEpochDay();
+        int n = snapshotVehicles.length;
+
+        // Calendar and surge multipliers are the same for every vehicle, so they are resolved once;
+        // then per-vehicle discount for this rental length and one straight-line pass for the fees
+        double[] discounts = new double[n];
+        for (int i = 0; i < n; i++) {
+            discounts[i] = pricingTables[i].discountForDays(days);
+        }
+        double[] fees = new double[n];
+        for (int i = 0; i < n; i++) {
+            double fee = basePrices[i] * calendarFactor * (1 - discounts[i]);
+            fees[i] = insurance ? fee * insuranceMultipliers[i] : fee;
+        }
+
+        List<Quote> quotes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Vehicle vehicle = snapshotVehicles[i];
+            if (vehicle.isArchived() || vehicle.getVehicleStatus() == VehicleStatus.OUT_OF_SERVICE) {
+                continue;
+            }
+            if (filter != null && !filter.matches(vehicle)) {
+                continue;
+            }
+            if (bookedIntervals[i].overlaps(startDay, endDay, BUFFER_DAYS)) {
+                continue;
+            }
+            quotes.add(new Quote(vehicle, days, discounts[i], fees[i], RentalSystem.depositFor(days, fees[i])));
+        }
+
+        quotes.sort(Comparator.comparingDouble(Quote::getTotalFee));
+        if (limit > 0 && quotes.size() > limit) {
+            return new ArrayList<>(quotes.subList(0, limit));
+        }
+        return quotes;
+    }
+
+    /**
+     * Cheapest available vehicle for the period, or null if none is free
+     */
+    public Quote cheapestAvailable(LocalDate startDate, LocalDate endDate, boolean insurance, QuoteFilter filter) {
+        List<Quote> quotes = quote(startDate, endDate, insurance, filter, 1);
+        return quotes.isEmpty() ? null : quotes.get(0);
+    }
+
+    /**
+     * Rebuild the packed arrays if the fleet changed, and re-read the booked intervals of
+     * every vehicle whose schedule changed
+     */
+    private void refreshSnapshot() {
+        long currentVehicles = vehicleService.getModificationCount();
+        if (currentVehicles != vehiclesVersion) {
+            List<Vehicle> vehicles = vehicleService.getVehicles();
+            int n = vehicles.size();
+            Vehicle[] newVehicles = vehicles.toArray(new Vehicle[0]);
+            PricingTable[] newTables = new PricingTable[n];
+            double[] newBasePrices = new double[n];
+            double[] newMultipliers = new double[n];
+            for (int i = 0; i < n; i++) {
+                PricingTable table = newVehicles[i].getPricingTable();
+                newTables[i] = table;
+                newBasePrices[i] = table.getBasePrice();
+                newMultipliers[i] = table.getInsuranceMultiplier();
+            }
+            long[] newVersions = new long[n];
+            Arrays.fill(newVersions, -1); // Schedule versions are never negative, so all are read below
+            snapshotVehicles = newVehicles;
+            pricingTables = newTables;
+            basePrices = newBasePrices;
+            insuranceMultipliers = newMultipliers;
+            bookedIntervals = new BookedIntervals[n];
+            scheduleVersions = newVersions;
+            vehiclesVersion = currentVehicles;
+        }
+
+        for (int i = 0; i < snapshotVehicles.length; i++) {
+            BookingSchedule schedule = snapshotVehicles[i].getBookingSchedule();
+            // Version first: a booking made in between is copied early and re-read next time
+            long version = schedule.getVersion();
+            if (version == scheduleVersions[i]) {
+                continue;
+            }
+            List<Booking> bookings = schedule.toList();
+            long[] packed = new long[bookings.size()];
+            for (int b = 0; b < packed.length; b++) {
+                packed[b] = BookedIntervals.pack(bookings.get(b).getStartDate(), bookings.get(b).getEndDate());
+            }
+            bookedIntervals[i] = BookedIntervals.of(packed, packed.length);
+            scheduleVersions[i] = version;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package services;
+
+import com.itextpdf.text.*;
+import com.itextpdf.text.pdf.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import models.PaymentRecord;
+
+/**
+ * Renders payment receipts as TXT, CSV or PDF bytes.
+ *
+ * A renderer keeps its text buffer, PDF output buffer and fonts between
+ * receipts, so batch jobs give each worker thread its own instance; it is
+ * not thread-safe.
+ */
+public class ReceiptRenderer {
+
+    public static final String TXT = "txt";
+    public static final String CSV = "csv";
+    public static final String PDF = "pdf";
+    public static final String CSV_HEADER =
+            "RentalID,Customer,Vehicle,CarPlate,RentalPeriod,BaseFee,Discount,LateFee,FinalAmount,PaymentStatus\n";
+
+    private static final BaseColor PRIMARY_COLOR = new BaseColor(30, 41, 59);
+    private static final BaseColor TEXT_COLOR = new BaseColor(15, 23, 42);
+    private static final BaseColor BORDER_COLOR = new BaseColor(203, 213, 225);
+
+    private final StringBuilder text = new StringBuilder(1024);
+    private final ByteArrayOutputStream pdfBuffer = new ByteArrayOutputStream(8192);
+    private Font titleFont; // PDF fonts are created on first PDF
+    private Font subtitleFont;
+    private Font labelFont;
+    private Font valueFont;
+
+    /**
+     * Receipt for the payment in the given format
+     *
+     * @param carPlate plate of the rented vehicle, or null if unknown
+     */
+    public byte[] render(String format, PaymentRecord payment, String carPlate) throws IOException {
+        switch (format) {
+            case TXT:
+                return toBytes(appendText(payment, carPlate));
+            case CSV:
+                text.setLength(0);
+                text.append(CSV_HEADER);
+                appendCsvRow(text, payment, carPlate);
+                return toBytes(text);
+            case PDF:
+                return renderPdf(payment, carPlate);
+            default:
+                throw new IllegalArgumentException("Unknown receipt format: " + format
+                        + " (expected " + TXT + ", " + CSV + " or " + PDF + ")");
+        }
+    }
+
+    /**
+     * One CSV line (no header) for the payment; free-text fields are RFC 4180 quoted
+     */
+    public static void appendCsvRow(StringBuilder csv, PaymentRecord payment, String carPlate) {
+        csv.append(payment.getRentalId()).append(',');
+        UtilityService.appendCsvField(csv, payment.getCustomerName()).append(',');
+        UtilityService.appendCsvField(csv, payment.getVehicle()).append(',');
+        UtilityService.appendCsvField(csv, carPlate == null ? "-" : carPlate).append(',')
+                .append(payment.getStartDate()).append(" → ").append(payment.getEndDate()).append(',');
+        UtilityService.appendMoney(csv, payment.getBaseFee()).append(',');
+        UtilityService.appendMoney(csv, payment.getBaseFee() * payment.getDiscount()).append(',');
+        UtilityService.appendMoney(csv, payment.getLateFee()).append(',');
+        UtilityService.appendMoney(csv, payment.getAmount()).append(',')
+                .append(payment.getStatus()).append('\n');
+    }
+
+    private StringBuilder appendText(PaymentRecord payment, String carPlate) {
+        text.setLength(0);
+        text.append("============= VEHICLE RENTAL PAYMENT RECEIPT =============\n")
+                .append("Rental ID       : ").append(payment.getRentalId()).append('\n')
+                .append("Customer        : ").append(payment.getCustomerName()).append('\n')
+                .append("Vehicle         : ").append(payment.getVehicle()).append('\n')
+                .append("Car Plate       : ").append(carPlate == null ? "-" : carPlate).append('\n')
+                .append("Rental Period   : ").append(payment.getStartDate()).append(" → ")
+                .append(payment.getEndDate()).append('\n');
+        UtilityService.appendMoney(text.append("Base Fee        : RM"), payment.getBaseFee()).append('\n');
+        UtilityService.appendMoney(text.append("Discount        : RM"), payment.getBaseFee() * payment.getDiscount()).append('\n');
+        UtilityService.appendMoney(text.append("Late Fee        : RM"), payment.getLateFee()).append('\n');
+        UtilityService.appendMoney(text.append("Final Amount    : RM"), payment.getAmount()).append('\n');
+        text.append("Payment Status  : ").append(payment.getStatus()).append('\n')
+                .append("==========================================================\n")
+                .append("Thank you for choosing CarSeek!\n");
+        return text;
+    }
+
+    private byte[] renderPdf(PaymentRecord payment, String carPlate) throws IOException {
+        try {
+            if (titleFont == null) {
+                BaseFont baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+                titleFont = new Font(baseFont, 14, Font.BOLD, BaseColor.WHITE);
+                subtitleFont = new Font(baseFont, 10, Font.NORMAL, new BaseColor(200, 220, 255));
+                labelFont = new Font(baseFont, 10, Font.BOLD, TEXT_COLOR);
+                valueFont = new Font(baseFont, 10, Font.NORMAL, TEXT_COLOR);
+            }
+            pdfBuffer.reset();
+            Document document = new Document(PageSize.A5, 36, 36, 36, 36);
+            PdfWriter.getInstance(document, pdfBuffer);
+            document.open();
+
+            PdfPTable header = new PdfPTable(1);
+            header.setWidthPercentage(100);
+            header.setSpacingAfter(12f);
+            PdfPCell title = new PdfPCell();
+            title.setBorder(Rectangle.NO_BORDER);
+            title.setBackgroundColor(PRIMARY_COLOR);
+            title.setPadding(12f);
+            title.addElement(new Paragraph("CARSEEK", titleFont));
+            title.addElement(new Paragraph("PAYMENT RECEIPT", subtitleFont));
+            header.addCell(title);
+            document.add(header);
+
+            PdfPTable details = new PdfPTable(2);
+            details.setWidthPercentage(100);
+            details.setWidths(new float[]{1f, 2f});
+            addRow(details, "Rental ID", String.valueOf(payment.getRentalId()));
+            addRow(details, "Customer", payment.getCustomerName());
+            addRow(details, "Vehicle", payment.getVehicle());
+            addRow(details, "Car Plate", carPlate == null ? "-" : carPlate);
+            addRow(details, "Rental Period", payment.getStartDate() + " to " + payment.getEndDate());
+            addRow(details, "Paid On", payment.getPaidDate().toString());
+            addRow(details, "Base Fee", money(payment.getBaseFee()));
+            addRow(details, "Discount", money(payment.getBaseFee() * payment.getDiscount()));
+            addRow(details, "Late Fee", money(payment.getLateFee()));
+            addRow(details, "Final Amount", money(payment.getAmount()));
+            addRow(details, "Payment Status", payment.getStatus());
+            document.add(details);
+
+            Paragraph thanks = new Paragraph("Thank you for choosing CarSeek!", valueFont);
+            thanks.setSpacingBefore(12f);
+            thanks.setAlignment(Element.ALIGN_CENTER);
+            document.add(thanks);
+            document.close();
+            return pdfBuffer.toByteArray();
+        } catch (DocumentException e) {
+            throw new IOException("Failed to render PDF receipt for rental " + payment.getRentalId(), e);
+        }
+    }
+
+    private void addRow(PdfPTable table, String label, String value) {
+        PdfPCell labelCell = new PdfPCell(new Phrase(label, labelFont));
+        PdfPCell valueCell = new PdfPCell(new Phrase(value, valueFont));
+        for (PdfPCell cell : new PdfPCell[]{labelCell, valueCell}) {
+            cell.setBorderColor(BORDER_COLOR);
+            cell.setPadding(5f);
+            table.addCell(cell);
+        }
+    }
+
+    private String money(double amount) {
+        StringBuilder value = new StringBuilder(16).append("RM");
+        return UtilityService.appendMoney(value, amount).toString();
+    }
+
+    private static byte[] toBytes(StringBuilder text) {
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
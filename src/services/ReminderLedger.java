@@ -0,0 +1,90 @@
+package services;
+
+import enums.ReminderType;
+import java.io.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only ledger of delivered rental reminders.
+ * Each line records (rentalId, reminderType, dueDate) so reminder runs
+ * never need to rewrite rentals.json to remember what was already sent.
+ */
+public class ReminderLedger {
+
+    private final String filename;
+    private final LongHashSet delivered;
+
+    public ReminderLedger(String filename) {
+        this.filename = filename;
+        this.delivered = new LongHashSet();
+        loadLedger();
+    }
+
+    /**
+     * Load ledger entries into memory, skipping malformed (e.g. torn) lines
+     */
+    private void loadLedger() {
+        File file = new File(filename);
+        if (!file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                if (parts.length < 3) {
+                    continue;
+                }
+                try {
+                    int rentalId = Integer.parseInt(parts[0].trim());
+                    ReminderType type = ReminderType.valueOf(parts[1].trim());
+                    LocalDate dueDate = LocalDate.parse(parts[2].trim());
+                    delivered.add(key(rentalId, type, dueDate));
+                } catch (Exception e) {
+                    // Ignore partially written entries
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to load reminder ledger: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check whether a reminder has already been delivered
+     */
+    public synchronized boolean hasBeenSent(int rentalId, ReminderType type, LocalDate dueDate) {
+        return delivered.contains(key(rentalId, type, dueDate));
+    }
+
+    /**
+     * Record a reminder delivery. Returns false if it was already recorded,
+     * so callers can use it as an idempotent claim before sending.
+     */
+    public synchronized boolean recordSent(int rentalId, ReminderType type, LocalDate dueDate) {
+        if (!delivered.add(key(rentalId, type, dueDate))) {
+            return false;
+        }
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true))) {
+            bw.write(rentalId + "|" + type + "|" + dueDate + "|" + LocalDateTime.now() + "\n");
+        } catch (IOException e) {
+            System.out.println("Failed to save reminder ledger: " + e.getMessage());
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return delivered.size();
+    }
+
+    /**
+     * Pack (rentalId, type, dueDate) into one long: rental ID in the high 32 bits,
+     * reminder type in the next 4 bits and the due date's epoch day in the low 28 bits
+     */
+    private static long key(int rentalId, ReminderType type, LocalDate dueDate) {
+        long epochDay = dueDate.toEpochDay() & 0x0FFFFFFFL;
+        return ((long) rentalId << 32) | ((long) type.ordinal() << 28) | epochDay;
+    }
+}
@@ -0,0 +1,719 @@
+package services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import enums.AccountRole;
+import enums.RentalStatus;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import models.*;
+import static services.UtilityService.*;
+
+/**
+ * Embedded HTTP/JSON API over RentalSystem, for the web portal and load testing.
+ *
+ * Endpoints (parameters come from the query string, a form body or a flat JSON body):
+ *   GET  /api/vehicles?q=...                     search with the vehicle query language
+ *   GET  /api/quote?start=&end=&insurance=&limit= ranked quotes for a date range
+ *   POST /api/rentals                            book (vehicleId, start, end, insurance, name, contact)
+ *   GET  /api/rentals/{id}                       rental details
+ *   POST /api/rentals/{id}/approve               approve a pending rental (admin)
+ *   POST /api/rentals/{id}/return                return an active rental (admin)
+ *   GET  /api/tickets?username=... | /api/tickets/{ticketId}
+ *   GET  /api/messages?user=...  POST /api/messages (to, subject, content)
+ *   GET  /api/export/{rentals|vehicles|messages}?from=&to=&status=  streamed JSON lines (admin)
+ *        (gzip-encoded when the client sends Accept-Encoding: gzip)
+ *   GET  /api/changes?after=&limit=             change events after a sequence number (admin)
+ *   GET  /api/history?user=&cursor=&limit=      a customer's rental history, newest first (own, or any for admins)
+ *
+ * Vehicles and quotes are public. Every other endpoint needs a caller: a
+ * customer or admin account with HTTP Basic credentials, or a trusted client
+ * (e.g. the web portal) sending "Authorization: Bearer <token>" with the
+ * shared token from api_token.txt, which acts as an admin. Customers only see
+ * and act on their own rentals, tickets and messages; username parameters
+ * default to the caller and only admins may name someone else. The server
+ * listens on the loopback interface unless another bind address is given.
+ *
+ * Each exchange runs on its own virtual thread when the JVM supports them,
+ * otherwise on a cached thread pool.
+ */
+public class RentalApiServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final String TOKEN_FILE = "api_token.txt";
+
+    private final RentalSystem system;
+    private final RentalOperations operations;
+    private final DataExportService exporter;
+    private final InetAddress bindAddress;
+    private final int port;
+    private byte[] token; // Shared client token, loaded on start
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public RentalApiServer(RentalSystem system, int port) {
+        this(system, InetAddress.getLoopbackAddress(), port);
+    }
+
+    public RentalApiServer(RentalSystem system, InetAddress bindAddress, int port) {
+        this.system = system;
+        this.operations = system.getOperations();
+        this.exporter = new DataExportService(system);
+        this.bindAddress = bindAddress;
+        this.port = port;
+    }
+
+    /**
+     * Load (or create) the shared token, bind the port and start serving requests
+     */
+    public void start() throws IOException {
+        token = UtilityService.readOrCreateSecret(Paths.get(TOKEN_FILE), 32).getBytes(StandardCharsets.US_ASCII);
+        // Headers and body go out as separate writes; without TCP_NODELAY each response waits on delayed ACKs
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext("/api/vehicles", this::handleVehicles);
+        server.createContext("/api/quote", this::handleQuote);
+        server.createContext("/api/rentals", this::handleRentals);
+        server.createContext("/api/tickets", this::handleTickets);
+        server.createContext("/api/messages", this::handleMessages);
+        server.createContext("/api/export", this::handleExport);
+        server.createContext("/api/changes", this::handleChanges);
+        server.createContext("/api/history", this::handleHistory);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    /**
+     * The shared client token, or null if no server has created one yet
+     */
+    public static String readToken() throws IOException {
+        Path file = Paths.get(TOKEN_FILE);
+        return Files.exists(file) ? new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim() : null;
+    }
+
+    /**
+     * Virtual thread per request where available (Java 21+), cached platform threads otherwise
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    // ---- Handlers ----
+
+    private void handleVehicles(HttpExchange exchange) throws IOException {
+        serve(exchange, (caller, params) -> {
+            requireMethod(exchange, "GET");
+            String query = params.get("q");
+            List<Vehicle> vehicles;
+            if (query == null || query.trim().isEmpty()) {
+                vehicles = vehicleService.getVehicles();
+            } else {
+                vehicles = VehicleQuery.compile(query).execute(vehicleService.getSearchIndex());
+            }
+            StringBuilder json = new StringBuilder("[");
+            for (Vehicle v : vehicles) {
+                if (v.isArchived()) {
+                    continue;
+                }
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                appendVehicle(json, v);
+            }
+            return json.append(']').toString();
+        });
+    }
+
+    private void handleQuote(HttpExchange exchange) throws IOException {
+        serve(exchange, (caller, params) -> {
+            requireMethod(exchange, "GET");
+            LocalDate start = dateParam(params, "start");
+            LocalDate end = dateParam(params, "end");
+            requireBookableDates(start, end);
+            boolean insurance = Boolean.parseBoolean(params.getOrDefault("insurance", "false"));
+            int limit = intParam(params, "limit", 10);
+            List<Quote> quotes = system.getQuoteEngine().quote(start, end, insurance, null, limit);
+            StringBuilder json = new StringBuilder("[");
+            for (Quote q : quotes) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append("{\"vehicle\":");
+                appendVehicle(json, q.getVehicle());
+                json.append(",\"days\":").append(q.getDays())
+                        .append(",\"discountRate\":").append(q.getDiscountRate())
+                        .append(",\"totalFee\":").append(round(q.getTotalFee()))
+                        .append(",\"deposit\":").append(round(q.getDeposit())).append('}');
+            }
+            return json.append(']').toString();
+        });
+    }
+
+    private void handleRentals(HttpExchange exchange) throws IOException {
+        serve(exchange, (caller, params) -> {
+            requireCaller(caller);
+            String[] path = pathSegments(exchange, "/api/rentals");
+            if (path.length == 0) {
+                requireMethod(exchange, "POST");
+                return book(caller, params);
+            }
+
+            int rentalId = parseId(path[0]);
+            if (path.length == 1) {
+                requireMethod(exchange, "GET");
+                Rental rental = findRental(rentalId);
+                requireSelfOrAdmin(caller, rental.getUsername());
+                return rentalJson(rental);
+            }
+
+            requireMethod(exchange, "POST");
+            requireAdmin(caller);
+            findRental(rentalId);
+            CommandResult result;
+            switch (path[1]) {
+                case "approve":
+                    result = operations.approve(rentalId);
+                    break;
+                case "return":
+                    result = operations.returnVehicle(rentalId);
+                    break;
+                default:
+                    throw new ApiException(404, "Unknown rental action: " + path[1]);
+            }
+            if (!result.isSuccess()) {
+                throw new ApiException(409, result.getMessage());
+            }
+            return rentalJson(result.getRental());
+        });
+    }
+
+    private void handleTickets(HttpExchange exchange) throws IOException {
+        serve(exchange, (caller, params) -> {
+            requireCaller(caller);
+            requireMethod(exchange, "GET");
+            TicketService tickets = system.getTicketService();
+            String[] path = pathSegments(exchange, "/api/tickets");
+            if (path.length > 0) {
+                Ticket ticket = tickets.getTicketById(path[0]);
+                if (ticket == null) {
+                    throw new ApiException(404, "Ticket not found: " + path[0]);
+                }
+                requireSelfOrAdmin(caller, ticket.getUsername());
+                return ticketJson(ticket);
+            }
+            String username = userParam(caller, params, "username");
+            StringBuilder json = new StringBuilder("[");
+            for (Ticket ticket : tickets.getCustomerTickets(username)) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append(ticketJson(ticket));
+            }
+            return json.append(']').toString();
+        });
+    }
+
+    private void handleMessages(HttpExchange exchange) throws IOException {
+        serve(exchange, (caller, params) -> {
+            requireCaller(caller);
+            if ("POST".equals(exchange.getRequestMethod())) {
+                // The sender is whoever signed in, never a client-supplied name
+                if (caller.username == null) {
+                    throw new ApiException(403, "Sending messages requires an account login");
+                }
+                boolean sent = system.sendUserMessage(caller.username, requireParam(params, "to"),
+                        requireParam(params, "subject"), params.getOrDefault("content", ""));
+                return "{\"sent\":" + sent + "}";
+            }
+            requireMethod(exchange, "GET");
+            String user = userParam(caller, params, "user");
+            StringBuilder json = new StringBuilder("[");
+            for (Message m : system.getUserMessages(user)) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append("{\"id\":\"").append(escapeJson(m.getId()))
+                        .append("\",\"from\":\"").append(escapeJson(m.getSender()))
+                        .append("\",\"to\":\"").append(escapeJson(m.getRecipient()))
+                        .append("\",\"subject\":\"").append(escapeJson(m.getSubject()))
+                        .append("\",\"content\":\"").append(escapeJson(m.getContent()))
+                        .append("\",\"timestamp\":\"").append(m.getTimestamp())
+                        .append("\",\"read\":").append(m.isRead()).append('}');
+            }
+            return json.append(']').toString();
+        });
+    }
+
+    private void handleChanges(HttpExchange exchange) throws IOException {
+        serve(exchange, (caller, params) -> {
+            requireAdmin(caller);
+            requireMethod(exchange, "GET");
+            long after = params.containsKey("after") ? parseSequence(params.get("after")) : 0;
+            int limit = Math.min(intParam(params, "limit", 1000), 10000);
+            ChangeLog changeLog = system.getChangeLog();
+            List<ChangeEvent> events = changeLog.readAfter(after, limit);
+            StringBuilder json = new StringBuilder("{\"events\":[");
+            for (int i = 0; i < events.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(ChangeLog.toJson(events.get(i)));
+            }
+            long next = events.isEmpty() ? after : events.get(events.size() - 1).getSequence();
+            return json.append("],\"next\":").append(next)
+                    .append(",\"oldest\":").append(changeLog.getOldestSequence())
+                    .append(",\"last\":").append(changeLog.getLastSequence()).append('}').toString();
+        });
+    }
+
+    private void handleHistory(HttpExchange exchange) throws IOException {
+        serve(exchange, (caller, params) -> {
+            requireMethod(exchange, "GET");
+            int limit = Math.min(intParam(params, "limit", 20), 100);
+            requireCaller(caller);
+            RentalHistoryPage page = system.getHistoryIndex().page(userParam(caller, params, "user"),
+                    params.get("cursor"), limit);
+            StringBuilder json = new StringBuilder("{\"rentals\":[");
+            for (int i = 0; i < page.getRentals().size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(rentalJson(page.getRentals().get(i)));
+            }
+            json.append("],\"next\":").append(page.hasNext() ? "\"" + page.getNextCursor() + "\"" : "null")
+                    .append(",\"counts\":{");
+            for (RentalStatus status : RentalStatus.values()) {
+                json.append(status.ordinal() > 0 ? "," : "").append('"').append(status).append("\":")
+                        .append(page.getCount(status));
+            }
+            return json.append("}}").toString();
+        });
+    }
+
+    private static long parseSequence(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid sequence number: " + value);
+        }
+    }
+
+    /**
+     * Streams the export as chunked JSON lines; parameters are validated before the headers go out
+     */
+    private void handleExport(HttpExchange exchange) throws IOException {
+        String dataset;
+        LocalDate from;
+        LocalDate to;
+        RentalStatus status;
+        try {
+            requireAdmin(authenticate(exchange));
+            Map<String, String> params = readParams(exchange);
+            requireMethod(exchange, "GET");
+            String[] path = pathSegments(exchange, "/api/export");
+            if (path.length != 1) {
+                throw new ApiException(404, "Expected /api/export/{rentals|vehicles|messages}");
+            }
+            dataset = path[0];
+            from = params.containsKey("from") ? dateParam(params, "from") : null;
+            to = params.containsKey("to") ? dateParam(params, "to") : null;
+            status = params.containsKey("status")
+                    ? RentalStatus.valueOf(requireParam(params, "status").toUpperCase())
+                    : null;
+            if (!dataset.equals(DataExportService.RENTALS) && !dataset.equals(DataExportService.VEHICLES)
+                    && !dataset.equals(DataExportService.MESSAGES)) {
+                throw new ApiException(404, "Unknown data set: " + dataset);
+            }
+        } catch (ApiException e) {
+            sendJson(exchange, e.status, errorJson(e.getMessage()));
+            return;
+        } catch (IllegalArgumentException e) {
+            sendJson(exchange, 400, errorJson(e.getMessage()));
+            return;
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody();
+                OutputStream out = gzip ? new GZIPOutputStream(body, 1 << 16) : body) {
+            exporter.export(dataset, out, from, to, status);
+        }
+    }
+
+    private String book(Caller caller, Map<String, String> params) {
+        int vehicleId = parseId(requireParam(params, "vehicleId"));
+        Vehicle vehicle = vehicleService.findVehicleById(vehicleId);
+        if (vehicle == null || vehicle.isArchived()) {
+            throw new ApiException(404, "Vehicle not found: " + vehicleId);
+        }
+        LocalDate start = dateParam(params, "start");
+        LocalDate end = dateParam(params, "end");
+        requireBookableDates(start, end);
+        String username = userParam(caller, params, "username");
+        Customer customer = new Customer(params.getOrDefault("name", username), params.getOrDefault("contact", ""));
+        boolean insurance = Boolean.parseBoolean(params.getOrDefault("insurance", "false"));
+        CommandResult result = operations.book(new BookingRequest(customer, vehicleId, start, end, insurance, username));
+        if (!result.isSuccess()) {
+            throw new ApiException(409, result.getMessage());
+        }
+        return rentalJson(result.getRental());
+    }
+
+    // ---- JSON ----
+
+    private static void appendVehicle(StringBuilder json, Vehicle v) {
+        json.append("{\"id\":").append(v.getId())
+                .append(",\"brand\":\"").append(escapeJson(v.getBrand()))
+                .append("\",\"model\":\"").append(escapeJson(v.getModel()))
+                .append("\",\"plate\":\"").append(escapeJson(v.getCarPlate()))
+                .append("\",\"type\":\"").append(escapeJson(v.getVehicleType()))
+                .append("\",\"fuel\":\"").append(escapeJson(v.getFuelType()))
+                .append("\",\"year\":").append(v.getYear())
+                .append(",\"status\":\"").append(escapeJson(v.getStatus()))
+                .append("\",\"basePrice\":").append(v.getBasePrice()).append('}');
+    }
+
+    private static String rentalJson(Rental r) {
+        return "{\"id\":" + r.getId()
+                + ",\"vehicleId\":" + r.getVehicle().getId()
+                + ",\"customer\":\"" + escapeJson(r.getCustomer().getName())
+                + "\",\"username\":\"" + escapeJson(r.getUsername())
+                + "\",\"startDate\":\"" + r.getStartDate()
+                + "\",\"endDate\":\"" + r.getEndDate()
+                + "\",\"status\":\"" + r.getStatus()
+                + "\",\"totalFee\":" + round(r.getTotalFee())
+                + ",\"actualFee\":" + round(r.getActualFee()) + "}";
+    }
+
+    private static String ticketJson(Ticket t) {
+        return "{\"ticketId\":\"" + escapeJson(t.getTicketId())
+                + "\",\"rentalId\":" + t.getRentalId()
+                + ",\"username\":\"" + escapeJson(t.getUsername())
+                + "\",\"customer\":\"" + escapeJson(t.getCustomerName())
+                + "\",\"vehicle\":\"" + escapeJson(t.getVehicleInfo())
+                + "\",\"plate\":\"" + escapeJson(t.getCarPlate())
+                + "\",\"startDate\":\"" + escapeJson(t.getStartDate())
+                + "\",\"endDate\":\"" + escapeJson(t.getEndDate())
+                + "\",\"totalFee\":" + round(t.getTotalFee())
+                + ",\"used\":" + t.isUsed() + "}";
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    // ---- Request plumbing ----
+
+    private interface Endpoint {
+        /**
+         * @param caller the authenticated caller, or null for an anonymous request
+         */
+        String handle(Caller caller, Map<String, String> params) throws IOException;
+    }
+
+    /**
+     * Who made a request: an account (username set), or the shared-token client (admin, no username)
+     */
+    private static final class Caller {
+        final String username;
+        final boolean admin;
+
+        Caller(String username, boolean admin) {
+            this.username = username;
+            this.admin = admin;
+        }
+    }
+
+    /**
+     * Error with an HTTP status, reported to the client as {"error": message}
+     */
+    private static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void serve(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = endpoint.handle(authenticate(exchange), readParams(exchange));
+        } catch (ApiException e) {
+            status = e.status;
+            body = errorJson(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = errorJson(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = errorJson("Internal error: " + e.getMessage());
+        }
+        sendJson(exchange, status, body);
+    }
+
+    /**
+     * Caller from the Authorization header: Bearer with the shared token, or Basic
+     * with account credentials; null when the header is absent
+     */
+    private Caller authenticate(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null) {
+            return null;
+        }
+        if (header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            byte[] presented = header.substring(7).trim().getBytes(StandardCharsets.US_ASCII);
+            if (MessageDigest.isEqual(token, presented)) {
+                return new Caller(null, true);
+            }
+        } else if (header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            try {
+                String credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()),
+                        StandardCharsets.UTF_8);
+                int colon = credentials.indexOf(':');
+                Account account = colon < 0 ? null
+                        : AccountService.login(credentials.substring(0, colon), credentials.substring(colon + 1));
+                if (account != null) {
+                    return new Caller(account.getUsername(), account.getRole() == AccountRole.ADMIN);
+                }
+            } catch (IllegalArgumentException e) {
+                // Malformed base64; rejected below
+            }
+        }
+        throw new ApiException(401, "Invalid credentials");
+    }
+
+    private static void requireCaller(Caller caller) {
+        if (caller == null) {
+            throw new ApiException(401, "Authentication required");
+        }
+    }
+
+    private static void requireAdmin(Caller caller) {
+        requireCaller(caller);
+        if (!caller.admin) {
+            throw new ApiException(403, "Admin access required");
+        }
+    }
+
+    private static void requireSelfOrAdmin(Caller caller, String username) {
+        requireCaller(caller);
+        if (!caller.admin && !caller.username.equals(username)) {
+            throw new ApiException(403, "Not allowed to access another user's data");
+        }
+    }
+
+    /**
+     * Username a request is about: the named one for admins, otherwise the caller
+     */
+    private static String userParam(Caller caller, Map<String, String> params, String name) {
+        String named = params.get(name);
+        if (named == null || named.trim().isEmpty()) {
+            if (caller.username == null) {
+                throw new ApiException(400, "Missing parameter: " + name);
+            }
+            return caller.username;
+        }
+        requireSelfOrAdmin(caller, named.trim());
+        return named.trim();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String errorJson(String message) {
+        return "{\"error\":\"" + escapeJson(message) + "\"}";
+    }
+
+    /**
+     * Query string parameters, then form or flat JSON body fields (body wins on clashes)
+     */
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        if (body.startsWith("{")) {
+            for (String key : jsonKeys(body)) {
+                String value = extractJsonValue(body, key);
+                if (value != null) {
+                    params.put(key, value);
+                }
+            }
+        } else if (!body.isEmpty()) {
+            parseForm(body, params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String raw, Map<String, String> params) {
+        if (raw == null || raw.isEmpty()) {
+            return;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Top-level keys of a flat JSON object
+     */
+    private static List<String> jsonKeys(String json) {
+        List<String> keys = new ArrayList<>();
+        boolean inString = false;
+        int depth = 0;
+        int keyStart = -1;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                    // A string directly followed by ':' at depth 1 is a key
+                    int j = i + 1;
+                    while (j < json.length() && Character.isWhitespace(json.charAt(j))) {
+                        j++;
+                    }
+                    if (depth == 1 && j < json.length() && json.charAt(j) == ':') {
+                        keys.add(json.substring(keyStart, i));
+                    }
+                }
+            } else if (c == '"') {
+                inString = true;
+                keyStart = i + 1;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+        return keys;
+    }
+
+    private static String[] pathSegments(HttpExchange exchange, String prefix) {
+        String rest = exchange.getRequestURI().getPath().substring(prefix.length());
+        List<String> segments = new ArrayList<>();
+        for (String part : rest.split("/")) {
+            if (!part.isEmpty()) {
+                segments.add(part);
+            }
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!method.equals(exchange.getRequestMethod())) {
+            throw new ApiException(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    private static String requireParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new ApiException(400, "Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    private static LocalDate dateParam(Map<String, String> params, String name) {
+        try {
+            return LocalDate.parse(requireParam(params, name));
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Invalid date for " + name + ", expected yyyy-MM-dd");
+        }
+    }
+
+    /**
+     * Reject dates a booking could not have (past start, end before start, too long or too far
+     * ahead) with the same rules as RentalOperations, before anything is priced or booked
+     */
+    private static void requireBookableDates(LocalDate start, LocalDate end) {
+        String problem = RentalOperations.checkDates(start, end);
+        if (problem != null) {
+            throw new ApiException(400, problem);
+        }
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return parseId(value);
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid number: " + value);
+        }
+    }
+
+    private Rental findRental(int rentalId) {
+        Rental rental = system.findRentalById(rentalId);
+        if (rental == null) {
+            throw new ApiException(404, "Rental not found: " + rentalId);
+        }
+        return rental;
+    }
+}
@@ -0,0 +1,195 @@
+package services;
+
+import enums.RentalStatus;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import models.Rental;
+import models.RentalHistoryPage;
+
+/**
+ * Per-customer rental history index.
+ *
+ * Status counters are kept for every customer (hot rentals plus archived ones)
+ * and updated as rentals are created and change status, so totals never need
+ * a scan. A customer's timeline, ordered by start date, starts with their hot
+ * rentals the first time their history is read; archived months (only those
+ * the history store lists for the customer) are merged in newest first, just
+ * far enough to fill the requested page. New rentals are added as they are
+ * created.
+ *
+ * Pages are read newest first. The cursor is the position key of the last
+ * rental on the previous page, so paging is stable while new rentals arrive.
+ */
+public class RentalHistoryIndex {
+
+    private final RentalSystem system;
+    private final Map<String, AtomicIntegerArray> statusCounts = new ConcurrentHashMap<>();
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+
+    public RentalHistoryIndex(RentalSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Recount from the hot rentals and the archive's per-user counts; timelines are rebuilt on next use
+     */
+    public void rebuild(List<Rental> hotRentals) {
+        Map<String, AtomicIntegerArray> counts = new HashMap<>();
+        for (Map.Entry<String, int[]> archived : system.getHistoryStore().getUserStatusCounts().entrySet()) {
+            counts.put(archived.getKey(), new AtomicIntegerArray(archived.getValue()));
+        }
+        for (Rental rental : hotRentals) {
+            counts.computeIfAbsent(key(rental.getUsername()), u -> newCounts())
+                    .incrementAndGet(rental.getStatus().ordinal());
+        }
+        statusCounts.clear();
+        statusCounts.putAll(counts);
+        timelines.clear();
+    }
+
+    /**
+     * A new rental was created
+     */
+    public void added(Rental rental) {
+        String user = key(rental.getUsername());
+        statusCounts.computeIfAbsent(user, u -> newCounts()).incrementAndGet(rental.getStatus().ordinal());
+        // Waits for a timeline being built for this user, so the rental is never missed
+        timelines.computeIfPresent(user, (u, timeline) -> {
+            timeline.entries.put(position(rental), rental);
+            return timeline;
+        });
+    }
+
+    public void statusChanged(Rental rental, RentalStatus previous) {
+        AtomicIntegerArray counts = statusCounts.computeIfAbsent(key(rental.getUsername()), u -> newCounts());
+        counts.decrementAndGet(previous.ordinal());
+        counts.incrementAndGet(rental.getStatus().ordinal());
+    }
+
+    public Map<RentalStatus, Integer> getStatusCounts(String username) {
+        Map<RentalStatus, Integer> result = new EnumMap<>(RentalStatus.class);
+        AtomicIntegerArray counts = statusCounts.get(key(username));
+        for (RentalStatus status : RentalStatus.values()) {
+            result.put(status, counts == null ? 0 : counts.get(status.ordinal()));
+        }
+        return result;
+    }
+
+    /**
+     * One page of the customer's history, newest first
+     *
+     * @param cursor null for the first page, otherwise the previous page's next cursor
+     */
+    public RentalHistoryPage page(String username, String cursor, int pageSize) {
+        long after;
+        try {
+            after = cursor == null ? Long.MAX_VALUE : Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + cursor);
+        }
+        Timeline timeline = timeline(username);
+        List<Rental> rentals = new ArrayList<>(pageSize);
+        boolean more;
+        synchronized (timeline) {
+            // One extra entry tells whether another page follows
+            timeline.loadUntil(after, pageSize + 1);
+            NavigableMap<Long, Rental> newestFirst = timeline.entries.headMap(after, false).descendingMap();
+            Long last = null;
+            for (Map.Entry<Long, Rental> entry : newestFirst.entrySet()) {
+                if (rentals.size() == pageSize) {
+                    break;
+                }
+                rentals.add(entry.getValue());
+                last = entry.getKey();
+            }
+            more = last != null && (newestFirst.tailMap(last, false).firstEntry() != null
+                    || !timeline.pendingMonths.isEmpty());
+            cursor = more ? Long.toString(last) : null;
+        }
+        return new RentalHistoryPage(rentals, cursor, getStatusCounts(username));
+    }
+
+    /**
+     * The customer's whole history, oldest first
+     */
+    public List<Rental> getAll(String username) {
+        Timeline timeline = timeline(username);
+        synchronized (timeline) {
+            timeline.loadUntil(Long.MAX_VALUE, Integer.MAX_VALUE);
+            return new ArrayList<>(timeline.entries.values());
+        }
+    }
+
+    private Timeline timeline(String username) {
+        return timelines.computeIfAbsent(key(username), this::newTimeline);
+    }
+
+    private Timeline newTimeline(String user) {
+        Timeline timeline = new Timeline(user, system.getHistoryStore().getUserMonths(user));
+        for (Rental rental : system.getRentals()) {
+            if (key(rental.getUsername()).equals(user)) {
+                timeline.entries.put(position(rental), rental);
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * A customer's rentals by position, with the archived months not merged in yet
+     */
+    private final class Timeline {
+        final String user;
+        final ConcurrentSkipListMap<Long, Rental> entries = new ConcurrentSkipListMap<>();
+        final Deque<YearMonth> pendingMonths; // Newest first
+        long settledFrom = Long.MIN_VALUE; // Entries at or above this position can no longer be preceded by unloaded ones
+
+        Timeline(String user, List<YearMonth> archivedMonths) {
+            this.user = user;
+            this.pendingMonths = new ArrayDeque<>(archivedMonths);
+            if (!pendingMonths.isEmpty()) {
+                // Archived rentals all ended before the month after the newest one, so they start before it too
+                settledFrom = positionOf(pendingMonths.peekFirst().plusMonths(1).atDay(1));
+            }
+        }
+
+        /**
+         * Merge archived months until 'wanted' settled entries precede the given position or all are merged
+         */
+        void loadUntil(long before, int wanted) {
+            while (!pendingMonths.isEmpty()
+                    && entries.subMap(settledFrom, true, before, false).size() < wanted) {
+                YearMonth month = pendingMonths.pollFirst();
+                for (Rental rental : system.getHistoryStore().loadMonth(month)) {
+                    if (key(rental.getUsername()).equals(user)) {
+                        // A hot copy left by an interrupted archive run wins over the archived one
+                        entries.putIfAbsent(position(rental), rental);
+                    }
+                }
+                settledFrom = pendingMonths.isEmpty() ? Long.MIN_VALUE : positionOf(month.atDay(1));
+            }
+        }
+    }
+
+    /**
+     * Orders by start date, then rental ID; start dates never change after booking
+     */
+    private static long position(Rental rental) {
+        return (rental.getStartDate().toEpochDay() << 32) | (rental.getId() & 0xFFFFFFFFL);
+    }
+
+    private static long positionOf(LocalDate day) {
+        return day.toEpochDay() << 32;
+    }
+
+    private static String key(String username) {
+        return username == null ? "" : username;
+    }
+
+    private static AtomicIntegerArray newCounts() {
+        return new AtomicIntegerArray(RentalStatus.values().length);
+    }
+}
@@ -0,0 +1,333 @@
+package services;
+
+import enums.RentalStatus;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Stream;
+import models.Rental;
+
+/**
+ * Cold rental history partitioned into monthly segment files
+ * (rental_history/rentals-2024-03.json, keyed by the month a rental ended).
+ *
+ * Segments hold only closed rentals and are read-only once written, apart from
+ * archiving appending to them. Lookups of single months (one customer's
+ * history) keep a few recently used months in memory; scans over every month
+ * (exports, reports, ID lookups) stream the segments through readMonth without
+ * caching them, so a scan never evicts the months customers are paging through
+ * and operational paths never pay for old history. A manifest records the highest archived rental ID so IDs are never
+ * reused after their rentals leave the hot file, and a per-user index records
+ * which months hold each customer's rentals and how many of each status, so
+ * one customer's history never needs the other segments.
+ */
+public class RentalHistoryStore {
+
+    public static final String DEFAULT_DIRECTORY = "rental_history";
+    private static final String PREFIX = "rentals-";
+    private static final String SUFFIX = ".json";
+    private static final String MANIFEST = "manifest.properties";
+    private static final String USER_INDEX = "users.index";
+    private static final int CACHED_SEGMENTS = 12;
+
+    private final RentalSystem system;
+    private final Path directory;
+    private Map<String, TreeMap<YearMonth, int[]>> userMonths; // username -> month -> counts by status ordinal
+    private final Map<YearMonth, List<Rental>> cache = new LinkedHashMap<YearMonth, List<Rental>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<YearMonth, List<Rental>> eldest) {
+            return size() > CACHED_SEGMENTS;
+        }
+    };
+
+    public RentalHistoryStore(RentalSystem system, String directory) {
+        this.system = system;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Months that have a segment, oldest first
+     */
+    public List<YearMonth> listMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return months;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            months.add(YearMonth.parse(name.substring(PREFIX.length(),
+                                    name.length() - SUFFIX.length())));
+                        } catch (RuntimeException e) {
+                            // Not a segment file
+                        }
+                    });
+        } catch (IOException e) {
+            System.out.println("Failed to list rental history: " + e.getMessage());
+        }
+        Collections.sort(months);
+        return months;
+    }
+
+    /**
+     * Rentals that ended in the month, parsed on first use and kept in the cache (read-only)
+     */
+    public synchronized List<Rental> loadMonth(YearMonth month) {
+        List<Rental> cached = cache.get(month);
+        if (cached != null) {
+            return cached;
+        }
+        List<Rental> rentals = parseMonth(month);
+        if (!rentals.isEmpty()) {
+            cache.put(month, rentals);
+        }
+        return rentals;
+    }
+
+    /**
+     * Rentals that ended in the month for a scan over many months: the cached copy if there
+     * is one, otherwise parsed without being cached (read-only)
+     */
+    public List<Rental> readMonth(YearMonth month) {
+        synchronized (this) {
+            List<Rental> cached = cache.get(month);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return parseMonth(month);
+    }
+
+    private List<Rental> parseMonth(YearMonth month) {
+        Path segment = segmentPath(month);
+        if (!Files.exists(segment)) {
+            return Collections.emptyList();
+        }
+        try {
+            String json = new String(Files.readAllBytes(segment), StandardCharsets.UTF_8);
+            return Collections.unmodifiableList(system.parseArchivedRentals(json));
+        } catch (IOException e) {
+            System.out.println("Failed to load rental history " + month + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Archived rentals whose period overlaps [from, to]; either bound may be null
+     */
+    public List<Rental> loadRange(LocalDate from, LocalDate to) {
+        List<Rental> result = new ArrayList<>();
+        for (YearMonth month : listMonths()) {
+            // Segments are keyed by end month, so anything ending before 'from' is skipped unread
+            if (from != null && month.isBefore(YearMonth.from(from))) {
+                continue;
+            }
+            for (Rental rental : readMonth(month)) {
+                if ((from == null || !rental.getEndDate().isBefore(from))
+                        && (to == null || !rental.getStartDate().isAfter(to))) {
+                    result.add(rental);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<Rental> loadAll() {
+        return loadRange(null, null);
+    }
+
+    /**
+     * Search the segments newest first; loads segments until the rental is found
+     */
+    public Rental findById(int id) {
+        List<YearMonth> months = listMonths();
+        for (int i = months.size() - 1; i >= 0; i--) {
+            for (Rental rental : readMonth(months.get(i))) {
+                if (rental.getId() == id) {
+                    return rental;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Merge closed rentals into their month segments. Each segment is rewritten to a
+     * temporary file and moved into place; a rental already in the segment is replaced
+     * by its newer copy, so re-archiving after an interrupted run never duplicates it.
+     */
+    public synchronized void archive(Map<YearMonth, List<Rental>> rentalsByMonth) throws IOException {
+        Files.createDirectories(directory);
+        int maxId = getMaxArchivedId();
+        for (Map.Entry<YearMonth, List<Rental>> entry : rentalsByMonth.entrySet()) {
+            Map<Integer, Rental> merged = new LinkedHashMap<>();
+            for (Rental rental : loadMonth(entry.getKey())) {
+                merged.put(rental.getId(), rental);
+            }
+            for (Rental rental : entry.getValue()) {
+                merged.put(rental.getId(), rental);
+                maxId = Math.max(maxId, rental.getId());
+            }
+            List<Rental> segment = new ArrayList<>(merged.values());
+            segment.sort(Comparator.comparing(Rental::getEndDate).thenComparingInt(Rental::getId));
+
+            Path target = segmentPath(entry.getKey());
+            writeAtomically(target, out -> system.writeArchivedRentals(out, segment));
+            cache.put(entry.getKey(), Collections.unmodifiableList(segment));
+            indexMonth(entry.getKey(), segment);
+        }
+        String manifest = "maxArchivedId=" + maxId + System.lineSeparator();
+        writeAtomically(directory.resolve(MANIFEST), out -> out.write(manifest));
+        writeUserIndex();
+    }
+
+    // ---- Per-user index ----
+
+    /**
+     * Months holding the user's archived rentals, newest first
+     */
+    public synchronized List<YearMonth> getUserMonths(String username) {
+        TreeMap<YearMonth, int[]> months = userIndex().get(userKey(username));
+        return months == null ? Collections.emptyList() : new ArrayList<>(months.descendingKeySet());
+    }
+
+    /**
+     * Archived rental counts per user, indexed by RentalStatus ordinal
+     */
+    public synchronized Map<String, int[]> getUserStatusCounts() {
+        Map<String, int[]> totals = new HashMap<>();
+        for (Map.Entry<String, TreeMap<YearMonth, int[]>> user : userIndex().entrySet()) {
+            int[] sum = new int[RentalStatus.values().length];
+            for (int[] counts : user.getValue().values()) {
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += counts[i];
+                }
+            }
+            totals.put(user.getKey(), sum);
+        }
+        return totals;
+    }
+
+    private static String userKey(String username) {
+        return username == null ? "" : username;
+    }
+
+    /**
+     * Replace the index entries of one month with the counts from its merged segment
+     */
+    private void indexMonth(YearMonth month, List<Rental> segment) {
+        Map<String, TreeMap<YearMonth, int[]>> index = userIndex();
+        for (TreeMap<YearMonth, int[]> months : index.values()) {
+            months.remove(month);
+        }
+        for (Rental rental : segment) {
+            int[] counts = index.computeIfAbsent(userKey(rental.getUsername()), u -> new TreeMap<>())
+                    .computeIfAbsent(month, m -> new int[RentalStatus.values().length]);
+            counts[rental.getStatus().ordinal()]++;
+        }
+        index.values().removeIf(Map::isEmpty);
+    }
+
+    /**
+     * The per-user index, read from disk on first use or rebuilt from the segments if missing
+     */
+    private Map<String, TreeMap<YearMonth, int[]>> userIndex() {
+        if (userMonths != null) {
+            return userMonths;
+        }
+        userMonths = new HashMap<>();
+        Path file = directory.resolve(USER_INDEX);
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t", -1); // username, month, counts
+                    if (parts.length != 3) {
+                        continue;
+                    }
+                    String[] values = parts[2].split(",");
+                    int[] counts = new int[RentalStatus.values().length];
+                    for (int i = 0; i < counts.length && i < values.length; i++) {
+                        counts[i] = Integer.parseInt(values[i]);
+                    }
+                    userMonths.computeIfAbsent(parts[0], u -> new TreeMap<>()).put(YearMonth.parse(parts[1]), counts);
+                }
+                return userMonths;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Failed to read rental history user index, rebuilding: " + e.getMessage());
+                userMonths.clear();
+            }
+        }
+        List<YearMonth> months = listMonths();
+        for (YearMonth month : months) {
+            indexMonth(month, loadMonth(month));
+        }
+        if (!months.isEmpty()) {
+            try {
+                writeUserIndex();
+            } catch (IOException e) {
+                System.out.println("Failed to save rental history user index: " + e.getMessage());
+            }
+        }
+        return userMonths;
+    }
+
+    private void writeUserIndex() throws IOException {
+        Map<String, TreeMap<YearMonth, int[]>> index = userIndex();
+        writeAtomically(directory.resolve(USER_INDEX), out -> {
+            for (Map.Entry<String, TreeMap<YearMonth, int[]>> user : index.entrySet()) {
+                for (Map.Entry<YearMonth, int[]> month : user.getValue().entrySet()) {
+                    out.write(user.getKey() + "\t" + month.getKey() + "\t");
+                    int[] counts = month.getValue();
+                    for (int i = 0; i < counts.length; i++) {
+                        out.write((i > 0 ? "," : "") + counts[i]);
+                    }
+                    out.write(System.lineSeparator());
+                }
+            }
+        });
+    }
+
+    /**
+     * Highest rental ID ever archived, 0 if none
+     */
+    public int getMaxArchivedId() {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return 0;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            return Integer.parseInt(properties.getProperty("maxArchivedId", "0").trim());
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Failed to read rental history manifest: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private Path segmentPath(YearMonth month) {
+        return directory.resolve(PREFIX + month + SUFFIX);
+    }
+
+    private interface Content {
+        void write(Writer out) throws IOException;
+    }
+
+    private static void writeAtomically(Path target, Content content) throws IOException {
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                content.write(writer);
+            }
+            UtilityService.replaceFile(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package services;
+
+import enums.RentalStatus;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import models.*;
+
+/**
+ * Headless command API over RentalSystem: book, approve, cancel, return, pay
+ * and extend, each taking plain request values and returning a CommandResult.
+ * Nothing here reads stdin or prints, so scripts, batch jobs, the HTTP API and
+ * benchmarks can drive rentals directly; the console menus are adapters that
+ * prompt for input and display the result. The booking date rules live here,
+ * so every entry point accepts the same bookings.
+ */
+public class RentalOperations {
+
+    public static final int MAX_RENTAL_DAYS = 30;
+    public static final int MAX_ADVANCE_YEARS = 3;
+
+    private final RentalSystem system;
+
+    public RentalOperations(RentalSystem system) {
+        this.system = system;
+    }
+
+    /**
+     * Why a rental cannot start on this date (in the past, or more than
+     * MAX_ADVANCE_YEARS ahead), or null if it can
+     */
+    public static String checkStartDate(LocalDate startDate) {
+        LocalDate today = LocalDate.now();
+        if (startDate.isBefore(today)) {
+            return "Start date cannot be in the past";
+        }
+        if (startDate.isAfter(today.plusYears(MAX_ADVANCE_YEARS))) {
+            return "Bookings can be made at most " + MAX_ADVANCE_YEARS + " years in advance";
+        }
+        return null;
+    }
+
+    /**
+     * Why a new rental cannot have these dates, or null if it can. The booking rules
+     * shared by the console, the HTTP API and quotes: a valid start date, an end date
+     * not before it, and at most MAX_RENTAL_DAYS days.
+     */
+    public static String checkDates(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            return "Start and end dates are required";
+        }
+        String problem = checkStartDate(startDate);
+        if (problem != null) {
+            return problem;
+        }
+        if (endDate.isBefore(startDate)) {
+            return "End date must not be before start date";
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) + 1 > MAX_RENTAL_DAYS) {
+            return "Maximum rental duration is " + MAX_RENTAL_DAYS + " days";
+        }
+        return null;
+    }
+
+    /**
+     * Book a rental for approval, against the schedule version in the request if one was observed
+     */
+    public CommandResult book(BookingRequest request) {
+        Vehicle vehicle = vehicleService.findVehicleById(request.getVehicleId());
+        if (vehicle == null || vehicle.isArchived()) {
+            return CommandResult.fail("Vehicle not found: " + request.getVehicleId());
+        }
+        String problem = checkDates(request.getStartDate(), request.getEndDate());
+        if (problem != null) {
+            return CommandResult.fail(problem);
+        }
+        try {
+            Rental rental = system.createRentalWithSchedule(request.getCustomer(), vehicle, request.getStartDate(),
+                    request.getEndDate(), request.isInsurance(), request.getUsername(),
+                    request.getObservedVersion());
+            return CommandResult.ok("Rental " + rental.getId() + " created, pending approval").withRental(rental);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Book a walk-in rental at the counter: active at once, with its ticket generated
+     */
+    public CommandResult bookWalkIn(BookingRequest request) {
+        Vehicle vehicle = vehicleService.findVehicleById(request.getVehicleId());
+        if (vehicle == null || vehicle.isArchived()) {
+            return CommandResult.fail("Vehicle not found: " + request.getVehicleId());
+        }
+        String problem = checkDates(request.getStartDate(), request.getEndDate());
+        if (problem != null) {
+            return CommandResult.fail(problem);
+        }
+        try {
+            Rental rental = system.createOfflineRental(request.getCustomer(), vehicle, request.getStartDate(),
+                    request.getEndDate(), request.isInsurance(), request.getUsername());
+            return CommandResult.ok("Rental " + rental.getId() + " created and active").withRental(rental)
+                    .withTicket(system.getTicketService().getTicketByRentalId(rental.getId()));
+        } catch (IllegalArgumentException e) {
+            return CommandResult.fail(e.getMessage());
+        }
+    }
+
+    public CommandResult approve(int rentalId) {
+        return system.approve(rentalId);
+    }
+
+    public CommandResult cancel(int rentalId, String reason) {
+        Rental rental = system.findRentalById(rentalId);
+        if (rental == null) {
+            return CommandResult.fail("Rental not found: " + rentalId);
+        }
+        if (!system.cancelRental(rentalId, reason)) {
+            return CommandResult.fail("Only pending rentals can be cancelled").withRental(rental);
+        }
+        return CommandResult.ok("Rental " + rentalId + " cancelled").withRental(rental);
+    }
+
+    /**
+     * Return the vehicle; payment is settled separately with pay()
+     */
+    public CommandResult returnVehicle(int rentalId) {
+        Rental rental = system.findRentalById(rentalId);
+        if (rental == null) {
+            return CommandResult.fail("Rental not found: " + rentalId);
+        }
+        if (!system.returnVehicle(rentalId)) {
+            return CommandResult.fail("Only active rentals can be returned").withRental(rental);
+        }
+        system.syncVehicleStatusWithRentals();
+        vehicleService.saveVehicles(system.dataFile("vehicles.json"));
+        return CommandResult.ok("Rental " + rentalId + " returned").withRental(rental);
+    }
+
+    public CommandResult pay(PaymentRequest request) {
+        Rental rental = system.findRentalById(request.getRentalId());
+        if (rental == null) {
+            return CommandResult.fail("Rental not found: " + request.getRentalId());
+        }
+        if (rental.getStatus() != RentalStatus.RETURNED) {
+            return CommandResult.fail("Payment is settled after the vehicle is returned").withRental(rental);
+        }
+        CommandResult result = system.getPaymentService().settle(rental, request.getPromoCode(), request.getMethod());
+        if (result.isSuccess()) {
+            system.saveRentals("rentals.json"); // Persist the settled actual fee
+        }
+        return result;
+    }
+
+    /**
+     * Extend the rental named in the request, or else the customer's active rental of the
+     * vehicle, or their pending one if there is no active rental
+     */
+    public CommandResult extend(ExtensionRequest request) {
+        String username = request.getUsername();
+        int vehicleId = request.getVehicleId();
+        Rental target;
+        if (request.getRentalId() > 0) {
+            target = system.findRentalById(request.getRentalId());
+            if (target == null || target.getVehicle().getId() != vehicleId
+                    || (target.getStatus() != RentalStatus.ACTIVE && target.getStatus() != RentalStatus.PENDING)) {
+                return CommandResult.fail("No active or pending rental " + request.getRentalId() + " of vehicle "
+                        + vehicleId);
+            }
+        } else {
+            Rental active = system.findActiveRentalByUserAndVehicle(username, vehicleId);
+            target = active != null ? active : system.findPendingRentalByUserAndVehicle(username, vehicleId);
+            if (target == null) {
+                return CommandResult.fail("No active or pending rental of vehicle " + vehicleId + " for " + username);
+            }
+        }
+        LocalDate newEndDate = request.getNewEndDate();
+        if (!newEndDate.isAfter(target.getEndDate())) {
+            return CommandResult.fail("New end date must be after the current end date " + target.getEndDate());
+        }
+        if (newEndDate.isAfter(LocalDate.now().plusYears(MAX_ADVANCE_YEARS).plusDays(MAX_RENTAL_DAYS))) {
+            return CommandResult.fail("Rentals can be extended at most " + MAX_ADVANCE_YEARS + " years ahead")
+                    .withRental(target);
+        }
+        // Only the added days need checking; they are adjacent to the customer's own booking
+        String conflict = system.getConflictDetailsWithExtension(vehicleId, target.getEndDate().plusDays(1),
+                newEndDate, username);
+        if (conflict != null) {
+            return CommandResult.fail(conflict).withRental(target);
+        }
+
+        boolean extended = target.getStatus() == RentalStatus.ACTIVE
+                ? system.extendRental(username, vehicleId, newEndDate, request.isInsurance())
+                : system.extendPendingRental(username, vehicleId, newEndDate, request.isInsurance());
+        if (!extended) {
+            return CommandResult.fail("Rental " + target.getId()
+                    + " changed state or the added days were just booked; it was not extended").withRental(target);
+        }
+        return CommandResult.ok("Rental " + target.getId() + " extended to " + newEndDate)
+                .withRental(target).withTicket(system.getTicketService().getTicketByRentalId(target.getId()));
+    }
+}
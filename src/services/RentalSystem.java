@@ -2,9 +2,18 @@ package services;
 
 import enums.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import models.*;
 import static services.UtilityService.*;
 
@@ -13,18 +22,58 @@ import static services.UtilityService.*;
  */
 public class RentalSystem {
 
-    private List<Rental> rentals;
+    private volatile List<Rental> rentals;
     private NotificationService notificationService;
     private TicketService ticketService;
     private PaymentService paymentService;
-    private int nextRentalId = 1;
+    private QuoteEngine quoteEngine;
+    private PricingEngine pricingEngine;
+    private BookingHoldService holdService;
+    private final ChangeLog changeLog;
+    private final RentalHistoryStore historyStore; // Closed rentals from before the hot window
+    private final RentalHistoryIndex historyIndex; // Per-customer timelines and status counters
+    private final RentalOperations operations = new RentalOperations(this);
+    private final AtomicInteger nextRentalId = new AtomicInteger(1);
+    private final Map<Integer, Rental> rentalsById = new ConcurrentHashMap<>();
+    private final ReentrantLock[] vehicleLocks = new ReentrantLock[LOCK_STRIPES]; // Striped by vehicle ID
+    private final Object saveLock = new Object();
+    private final String dataDirectory; // Relative data files resolve here; "" is the working directory
     public boolean shouldExit = false;
 
+    private static final int LOCK_STRIPES = 64;
+    private static final int HOT_MONTHS = 2; // Closed rentals stay in rentals.json for this many months
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final long UNOBSERVED_VERSION = -1; // never matches, so the booking is always re-validated
+
     public RentalSystem() {
-        rentals = new ArrayList<>();
+        this("");
+    }
+
+    /**
+     * Rental system keeping its rental and vehicle files, change log, tickets, payments
+     * and history in the given directory, so tools can run against a scratch copy
+     *
+     * @param dataDirectory directory for the data files, or "" for the working directory
+     */
+    public RentalSystem(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+        rentals = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            vehicleLocks[i] = new ReentrantLock();
+        }
         notificationService = new NotificationService();
-        ticketService = new TicketService();
-        paymentService = new PaymentService();
+        changeLog = new ChangeLog(dataFile(ChangeLog.DEFAULT_DIRECTORY));
+        Vehicle.setStatusObserver(changeLog);
+        ticketService = new TicketService(changeLog, new TicketStore(dataFile(TicketStore.DEFAULT_FILE)),
+                dataFile(TicketSigner.DEFAULT_KEY_FILE));
+        pricingEngine = new PricingEngine();
+        holdService = new BookingHoldService();
+        paymentService = new PaymentService(pricingEngine, changeLog,
+                new PaymentLedger(dataFile(PaymentLedger.DEFAULT_FILE), dataFile(PaymentLedger.LEGACY_FILE)),
+                new PaymentJournal(dataFile(PaymentJournal.DEFAULT_FILE)));
+        quoteEngine = new QuoteEngine(this);
+        historyStore = new RentalHistoryStore(this, dataFile(RentalHistoryStore.DEFAULT_DIRECTORY));
+        historyIndex = new RentalHistoryIndex(this);
     }
 
     // Account management moved to AccountService
@@ -33,28 +82,35 @@ public class RentalSystem {
      * Load rental data from JSON file
      */
     public void loadRentals(String filename) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(dataFile(filename)))) {
             StringBuilder jsonContent = new StringBuilder();
             String line;
             while ((line = reader.readLine()) != null) {
                 jsonContent.append(line);
             }
 
-            rentals = parseRentalsFromJson(jsonContent.toString());
-            if (rentals == null) {
-                rentals = new ArrayList<>();
+            List<Rental> parsed = parseRentalsFromJson(jsonContent.toString());
+            rentals = parsed != null ? new CopyOnWriteArrayList<>(parsed) : new CopyOnWriteArrayList<>();
+
+            rentalsById.clear();
+            for (Rental r : rentals) {
+                rentalsById.put(r.getId(), r);
             }
+            historyIndex.rebuild(rentals);
 
+            rebuildVehicleSchedules();
+            refreshUtilization();
             System.out.println("Loaded rentals: " + rentals.size());
-            // Update next rental ID
+            // Update next rental ID, never reusing the IDs of archived rentals
+            nextRentalId.accumulateAndGet(historyStore.getMaxArchivedId() + 1, Math::max);
             for (Rental r : rentals) {
-                if (r.getId() >= nextRentalId) {
-                    nextRentalId = r.getId() + 1;
-                }
+                nextRentalId.accumulateAndGet(r.getId() + 1, Math::max);
             }
         } catch (IOException e) {
             System.out.println("Failed to load rental data: " + e.getMessage());
-            rentals = new ArrayList<>();
+            rentals = new CopyOnWriteArrayList<>();
+            rentalsById.clear();
+            historyIndex.rebuild(rentals);
         }
     }
 
@@ -62,19 +118,267 @@ public class RentalSystem {
      * Save rental data to JSON file
      */
     public void saveRentals(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            String jsonContent = convertRentalsToJson();
-            writer.println(jsonContent);
-        } catch (IOException e) {
-            System.out.println("Failed to save rental data: " + e.getMessage());
+        // Serialize writers so concurrent sessions never interleave output in the same file
+        synchronized (saveLock) {
+            refreshUtilization();
+            try (Writer writer = new BufferedWriter(new FileWriter(dataFile(filename)), 1 << 16)) {
+                writeRentalsJson(writer, rentals);
+                writer.write(System.lineSeparator());
+            } catch (IOException e) {
+                System.out.println("Failed to save rental data: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Commit imported rentals. Closed (returned or cancelled) rentals are historical and go
+     * straight into the monthly history segments by end month, so a large history never
+     * lands in the hot file or shows up as payable. Active and pending rentals are booked
+     * on their vehicles under the vehicle lock, re-checked against bookings made since the
+     * import checked them, then appended to the hot file in one atomic replace; memory is
+     * only updated after the move succeeded, and if it fails their bookings are released.
+     * The history segments are written first, as when archiving.
+     *
+     * @return live rentals not committed because their dates were booked meanwhile
+     */
+    public List<Rental> commitImportedRentals(List<Rental> imported, String filename) throws IOException {
+        synchronized (saveLock) {
+            Map<YearMonth, List<Rental>> closed = new TreeMap<>();
+            List<Rental> live = new ArrayList<>();
+            List<Rental> conflicting = new ArrayList<>();
+            for (Rental r : imported) {
+                if (r.getStatus() != RentalStatus.ACTIVE && r.getStatus() != RentalStatus.PENDING) {
+                    closed.computeIfAbsent(YearMonth.from(r.getEndDate()), m -> new ArrayList<>()).add(r);
+                } else if (bookImported(r)) {
+                    live.add(r);
+                } else {
+                    conflicting.add(r);
+                }
+            }
+
+            try {
+                if (!closed.isEmpty()) {
+                    historyStore.archive(closed);
+                }
+                if (!live.isEmpty()) {
+                    List<Rental> combined = new ArrayList<>(rentals.size() + live.size());
+                    combined.addAll(rentals);
+                    combined.addAll(live);
+
+                    Path target = Paths.get(dataFile(filename)).toAbsolutePath();
+                    Path temp = Files.createTempFile(target.getParent(), "rentals", ".tmp");
+                    try {
+                        try (Writer writer = Files.newBufferedWriter(temp)) {
+                            writeRentalsJson(writer, combined);
+                            writer.write(System.lineSeparator());
+                        }
+                        replaceFile(temp, target);
+                    } finally {
+                        Files.deleteIfExists(temp);
+                    }
+                    rentals = new CopyOnWriteArrayList<>(combined);
+                }
+            } catch (IOException e) {
+                for (Rental r : live) {
+                    ReentrantLock lock = lockForVehicle(r.getVehicle().getId());
+                    lock.lock();
+                    try {
+                        r.getVehicle().removeBooking(r.getStartDate(), r.getEndDate());
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                throw e;
+            }
+
+            for (Rental r : live) {
+                rentalsById.put(r.getId(), r);
+                nextRentalId.accumulateAndGet(r.getId() + 1, Math::max);
+                changeLog.rentalImported(r);
+            }
+            for (Map.Entry<YearMonth, List<Rental>> month : closed.entrySet()) {
+                for (Rental r : month.getValue()) {
+                    nextRentalId.accumulateAndGet(r.getId() + 1, Math::max);
+                    changeLog.rentalImported(r);
+                    changeLog.rentalArchived(r, month.getKey());
+                }
+            }
+            historyIndex.rebuild(rentals);
+            refreshUtilization();
+            return conflicting;
+        }
+    }
+
+    /**
+     * Book an imported live rental on its vehicle, unless its dates (or a hold on them) were
+     * taken since the import checked them
+     */
+    private boolean bookImported(Rental rental) {
+        Vehicle vehicle = rental.getVehicle();
+        ReentrantLock lock = lockForVehicle(vehicle.getId());
+        lock.lock();
+        try {
+            return holdService.findConflictingHold(vehicle.getId(), rental.getStartDate(), rental.getEndDate(),
+                    rental.getUsername()) == null
+                    && vehicle.bookIfUnchanged(rental.getStartDate(), rental.getEndDate(), UNOBSERVED_VERSION);
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Move closed rentals that ended before the hot window (the current and previous month)
+     * into the monthly history segments, then save the smaller hot file. Returned rentals stay
+     * hot until they are paid, so payment never has to reach into the archive. Segments are
+     * written first, so an interrupted run leaves the rentals in both places and the next run
+     * merges them again by ID.
+     *
+     * @return number of rentals archived
+     */
+    public int archiveColdRentals(String filename) {
+        LocalDate cutoff = YearMonth.now().minusMonths(HOT_MONTHS - 1).atDay(1);
+        synchronized (saveLock) {
+            Set<Integer> paid;
+            try {
+                paid = paymentService.getPaidRentalIds();
+            } catch (IOException e) {
+                System.out.println("Failed to archive rental history: " + e.getMessage());
+                return 0;
+            }
+            Map<YearMonth, List<Rental>> cold = new TreeMap<>();
+            List<Rental> hot = new ArrayList<>(rentals.size());
+            int archived = 0;
+            for (Rental r : rentals) {
+                boolean closed = r.getStatus() == RentalStatus.CANCELLED
+                        || (r.getStatus() == RentalStatus.RETURNED
+                                && (paid.contains(r.getId()) || r.getTotalFee() <= 0));
+                if (closed && r.getEndDate().isBefore(cutoff)) {
+                    cold.computeIfAbsent(YearMonth.from(r.getEndDate()), m -> new ArrayList<>()).add(r);
+                    archived++;
+                } else {
+                    hot.add(r);
+                }
+            }
+            if (archived == 0) {
+                return 0;
+            }
+            try {
+                historyStore.archive(cold);
+            } catch (IOException e) {
+                System.out.println("Failed to archive rental history: " + e.getMessage());
+                return 0;
+            }
+
+            rentals = new CopyOnWriteArrayList<>(hot);
+            for (Map.Entry<YearMonth, List<Rental>> month : cold.entrySet()) {
+                for (Rental r : month.getValue()) {
+                    rentalsById.remove(r.getId());
+                    changeLog.rentalArchived(r, month.getKey());
+                }
+            }
+            saveRentals(filename);
+            historyIndex.rebuild(rentals);
+            return archived;
+        }
+    }
+
+    /**
+     * Hot rentals plus every archived month, for reports and history views. Loads cold
+     * segments on demand; operational code should use getRentals instead.
+     */
+    public List<Rental> getAllRentals() {
+        List<Rental> hot = rentals;
+        List<Rental> all = new ArrayList<>();
+        for (Rental r : historyStore.loadAll()) {
+            if (!rentalsById.containsKey(r.getId())) { // Hot copy wins if an archive run was interrupted
+                all.add(r);
+            }
+        }
+        all.addAll(hot);
+        return all;
+    }
+
+    /**
+     * A customer's rentals including archived history, oldest first by start date
+     */
+    public List<Rental> getRentalHistoryByUsername(String username) {
+        return historyIndex.getAll(username);
+    }
+
+    public RentalHistoryStore getHistoryStore() {
+        return historyStore;
+    }
+
+    public RentalHistoryIndex getHistoryIndex() {
+        return historyIndex;
+    }
+
+    /**
+     * Path of a data file, resolved against the data directory unless absolute
+     */
+    public String dataFile(String filename) {
+        return dataDirectory.isEmpty() ? filename : Paths.get(dataDirectory).resolve(filename).toString();
+    }
+
+    /**
+     * Allocate a fresh rental ID
+     */
+    public int reserveRentalId() {
+        return nextRentalId.getAndIncrement();
+    }
+
+    /**
+     * Lock guarding check-then-book and status transitions for one vehicle (striped by vehicle ID)
+     */
+    public ReentrantLock lockForVehicle(int vehicleId) {
+        return vehicleLocks[Math.floorMod(Integer.hashCode(vehicleId) * 0x9E3779B9, LOCK_STRIPES)];
+    }
+
+    /**
+     * Register a newly created rental, index it and record its creation in the change log
+     */
+    private void addRental(Rental rental) {
+        rentals.add(rental);
+        rentalsById.put(rental.getId(), rental);
+        historyIndex.added(rental);
+        changeLog.rentalStatusChanged(rental, null);
+    }
+
+    /**
+     * Move a rental to a new status and record the transition; callers hold the vehicle lock
+     */
+    private void transition(Rental rental, RentalStatus status) {
+        RentalStatus previous = rental.getStatus();
+        rental.setStatus(status);
+        historyIndex.statusChanged(rental, previous);
+        changeLog.rentalStatusChanged(rental, previous);
+    }
+
     // Account parsing moved to AccountService
     /**
      * Parse rental JSON data
      */
     private List<Rental> parseRentalsFromJson(String json) {
+        return parseRentalsFromJson(json, true);
+    }
+
+    /**
+     * Rentals from an archived history segment: parsed without registering tickets or
+     * migrating reminder flags, since archived rentals are closed and read-only
+     */
+    List<Rental> parseArchivedRentals(String json) {
+        return parseRentalsFromJson(json, false);
+    }
+
+    void writeArchivedRentals(Writer out, List<Rental> rentalList) throws IOException {
+        writeRentalsJson(out, rentalList);
+        out.write(System.lineSeparator());
+    }
+
+    /**
+     * @param live true for the hot rental file, whose tickets and reminder flags are loaded into the services
+     */
+    private List<Rental> parseRentalsFromJson(String json, boolean live) {
         List<Rental> rentalList = new ArrayList<>();
         try {
             json = json.trim();
@@ -83,9 +387,19 @@ public class RentalSystem {
 
                 String[] rentalObjects = splitJsonObjects(json);
 
+                // Rentals share the fleet's Vehicle instance instead of keeping their own copy
+                Map<Integer, Vehicle> fleetById = new HashMap<>();
+                for (Vehicle v : vehicleService.getVehicles()) {
+                    fleetById.put(v.getId(), v);
+                }
+
                 for (String rentalJson : rentalObjects) {
-                    Rental rental = parseRentalFromJson(rentalJson.trim());
+                    Rental rental = parseRentalFromJson(rentalJson.trim(), live);
                     if (rental != null) {
+                        Vehicle fleetVehicle = fleetById.get(rental.getVehicle().getId());
+                        if (fleetVehicle != null) {
+                            rental.setVehicle(fleetVehicle);
+                        }
                         rentalList.add(rental);
                     }
                 }
@@ -99,12 +413,14 @@ public class RentalSystem {
     /**
      * Parse single rental object
      */
-    private Rental parseRentalFromJson(String json) {
+    private Rental parseRentalFromJson(String json, boolean live) {
         try {
             int id = Integer.parseInt(extractJsonValue(json, "id"));
             double fee = Double.parseDouble(extractJsonValue(json, "fee"));
             String actualFeeStr = extractJsonValue(json, "actualFee");
             double actualFee = (actualFeeStr != null) ? Double.parseDouble(actualFeeStr) : 0.0;
+            String surgeStr = extractJsonValue(json, "surgeFactor");
+            double surgeFactor = surgeStr != null ? Double.parseDouble(surgeStr) : 1.0; // Not stored before surge pricing
             boolean insurance = Boolean.parseBoolean(extractJsonValue(json, "insurance"));
             String statusStr = extractJsonValue(json, "status");
             String startDateStr = extractJsonValue(json, "startDate");
@@ -128,19 +444,21 @@ public class RentalSystem {
             if (customer != null && vehicle != null) {
                 Rental rental = new Rental(id, customer, vehicle, startDate, endDate, status, fee, insurance, username);
                 rental.setActualFee(actualFee);
-
-                // Parse reminder record
-                String dueSoonReminderStr = extractJsonValue(json, "dueSoonReminderSent");
-                if (dueSoonReminderStr != null) {
-                    rental.setDueSoonReminderSent(Boolean.parseBoolean(dueSoonReminderStr));
+                rental.setSurgeFactor(surgeFactor);
+                if (!live) {
+                    return rental;
                 }
 
-                String overdueReminderStr = extractJsonValue(json, "overdueReminderSent");
-                if (overdueReminderStr != null) {
-                    rental.setOverdueReminderSent(Boolean.parseBoolean(overdueReminderStr));
+                // Migrate legacy reminder flags into the reminder ledger
+                ReminderLedger reminderLedger = notificationService.getReminderLedger();
+                if (Boolean.parseBoolean(extractJsonValue(json, "dueSoonReminderSent"))) {
+                    reminderLedger.recordSent(id, ReminderType.DUE_SOON, endDate);
+                }
+                if (Boolean.parseBoolean(extractJsonValue(json, "overdueReminderSent"))) {
+                    reminderLedger.recordSent(id, ReminderType.OVERDUE, endDate);
                 }
 
-                // Parse ticket information
+                // Tickets live in the ticket store; older files inlined them here
                 String ticketJson = extractJsonObject(json, "ticket");
                 if (ticketJson != null && !ticketJson.equals("null")) {
                     loadTicketFromJson(ticketJson, rental);
@@ -169,32 +487,30 @@ public class RentalSystem {
     }
 
     /**
-     * Load ticket information from JSON to TicketService
+     * Migrate a ticket inlined in an older rentals.json into the ticket store,
+     * keeping its original ID and generation time
      */
     private void loadTicketFromJson(String ticketJson, Rental rental) {
         try {
             String ticketId = extractJsonValue(ticketJson, "ticketId");
+            String generatedTime = extractJsonValue(ticketJson, "generatedTime");
             String pickupLocation = extractJsonValue(ticketJson, "pickupLocation");
             String specialInstructions = extractJsonValue(ticketJson, "specialInstructions");
             String isUsedStr = extractJsonValue(ticketJson, "isUsed");
 
-            if (ticketId != null) {
-                // Create ticket object
-                Ticket ticket = new Ticket(rental);
-
-                // Set ticket properties (need to modify Ticket class to support these setters)
-                ticket.setPickupLocation(
-                        pickupLocation != null ? pickupLocation : "Main Office - Vehicle Rental Center");
-                ticket.setSpecialInstructions(specialInstructions != null ? specialInstructions
-                        : "Please bring valid ID and this ticket for vehicle pickup");
-
-                if (isUsedStr != null && Boolean.parseBoolean(isUsedStr)) {
-                    ticket.markAsUsed();
-                }
-
-                // Load ticket into TicketService
-                ticketService.loadTicket(ticket);
-
+            if (ticketId != null && ticketService.getTicketByRentalId(rental.getId()) == null) {
+                Vehicle vehicle = rental.getVehicle();
+                Ticket ticket = new Ticket(ticketId, rental.getId(), rental.getUsername(),
+                        rental.getCustomer().getName(), rental.getCustomer().getContact(),
+                        vehicle.getBrand() + " " + vehicle.getModel(), vehicle.getCarPlate(),
+                        rental.getStartDate().toString(), rental.getEndDate().toString(), rental.getTotalFee(),
+                        rental.isInsuranceSelected(),
+                        generatedTime != null ? LocalDateTime.parse(generatedTime) : LocalDateTime.now(),
+                        pickupLocation != null ? pickupLocation : "Main Office - Vehicle Rental Center",
+                        specialInstructions != null ? specialInstructions
+                                : "Please bring valid ID and this ticket for vehicle pickup",
+                        isUsedStr != null && Boolean.parseBoolean(isUsedStr));
+                ticketService.importTicket(ticket);
             }
         } catch (Exception e) {
             System.out.println("Failure to parse ticket information: " + e.getMessage());
@@ -202,95 +518,81 @@ public class RentalSystem {
     }
 
     /**
-     * Convert rental data to JSON format
+     * Write rentals as a JSON array, one record at a time, so the whole document is never held in memory
      */
-    private String convertRentalsToJson() {
-        StringBuilder json = new StringBuilder();
-        json.append("[\n");
-
-        for (int i = 0; i < rentals.size(); i++) {
-            Rental rental = rentals.get(i);
-            json.append("  {\n");
-            json.append("    \"id\": ").append(rental.getId()).append(",\n");
-            json.append("    \"fee\": ").append(rental.getTotalFee()).append(",\n");
-            json.append("    \"actualFee\": ").append(rental.getActualFee()).append(",\n");
-            json.append("    \"insurance\": ").append(rental.isInsuranceSelected()).append(",\n");
-            json.append("    \"status\": \"").append(rental.getStatus()).append("\",\n");
-            json.append("    \"startDate\": \"").append(rental.getStartDate()).append("\",\n");
-            json.append("    \"endDate\": \"").append(rental.getEndDate()).append("\",\n");
-
-            // Customer information
-            models.Customer customer = rental.getCustomer();
-            json.append("    \"customer\": {\n");
-            json.append("      \"name\": \"").append(customer.getName()).append("\",\n");
-            json.append("      \"contact\": \"").append(customer.getContact()).append("\"\n");
-            json.append("    },\n");
-
-            // Vehicle information - using field names expected by vehicleService.parseVehicleFromJson
-            Vehicle vehicle = rental.getVehicle();
-            json.append("    \"vehicle\": {\n");
-            json.append("      \"vehicleID\": \"").append(vehicle.getVehicleID()).append("\",\n");
-            json.append("      \"plateNo\": \"").append(vehicle.getPlateNo()).append("\",\n");
-            json.append("      \"brand\": \"").append(vehicle.getBrand()).append("\",\n");
-            json.append("      \"model\": \"").append(vehicle.getModel()).append("\",\n");
-            json.append("      \"type\": \"").append(vehicle.getType()).append("\",\n");
-            json.append("      \"fuelType\": \"").append(vehicle.getFuelType()).append("\",\n");
-            json.append("      \"color\": \"").append(vehicle.getColor()).append("\",\n");
-            json.append("      \"year\": ").append(vehicle.getYear()).append(",\n");
-            json.append("      \"capacity\": ").append(vehicle.getCapacity()).append(",\n");
-            json.append("      \"condition\": \"").append(vehicle.getCondition()).append("\",\n");
-            json.append("      \"insuranceRate\": ").append(vehicle.getInsuranceRate()).append(",\n");
-            json.append("      \"availability\": \"").append(vehicle.getStatus()).append("\",\n");
-            json.append("      \"archived\": ").append(vehicle.isArchived()).append(",\n");
-            json.append("      \"basePrice\": ").append(vehicle.getBasePrice()).append(",\n");
-            json.append("      \"longTermDiscounts\": {");
-
-            Map<Integer, Double> discounts = vehicle.getLongTermDiscounts();
-            if (discounts != null && !discounts.isEmpty()) {
-                int count = 0;
-                for (Map.Entry<Integer, Double> entry : discounts.entrySet()) {
-                    if (count > 0) {
-                        json.append(",");
-                    }
-                    json.append("\"").append(entry.getKey()).append("\": ").append(entry.getValue());
-                    count++;
-                }
-            }
-            json.append("}\n");
-            json.append("    },\n");
-
-            // Add username field
-            json.append("    \"username\": \"")
-                    .append(escapeJson(rental.getUsername() != null ? rental.getUsername() : "")).append("\",\n");
-            json.append("    \"dueSoonReminderSent\": ").append(rental.isDueSoonReminderSent()).append(",\n");
-            json.append("    \"overdueReminderSent\": ").append(rental.isOverdueReminderSent()).append(",\n");
-
-            // Add ticket information field
-            json.append("    \"ticket\": ");
-            Ticket ticket = ticketService.getTicketByRentalId(rental.getId());
-            if (ticket != null) {
-                json.append("{\n");
-                json.append("      \"ticketId\": \"").append(ticket.getTicketId()).append("\",\n");
-                json.append("      \"generatedTime\": \"").append(ticket.getGeneratedTime()).append("\",\n");
-                json.append("      \"pickupLocation\": \"").append(ticket.getPickupLocation()).append("\",\n");
-                json.append("      \"specialInstructions\": \"").append(ticket.getSpecialInstructions())
-                        .append("\",\n");
-                json.append("      \"isUsed\": ").append(ticket.isUsed()).append("\n");
-                json.append("    }");
-            } else {
-                json.append("null");
+    private void writeRentalsJson(Writer out, List<Rental> rentalList) throws IOException {
+        out.write("[\n");
+        StringBuilder json = new StringBuilder(2048);
+        for (int i = 0; i < rentalList.size(); i++) {
+            json.setLength(0);
+            appendRentalJson(json, rentalList.get(i));
+            if (i < rentalList.size() - 1) {
+                json.append(",");
             }
             json.append("\n");
-            json.append("  }");
+            out.append(json);
+        }
+        out.write("]");
+    }
 
-            if (i < rentals.size() - 1) {
-                json.append(",");
+    /**
+     * Append one rental as a JSON object (no trailing comma or newline)
+     */
+    private void appendRentalJson(StringBuilder json, Rental rental) {
+        json.append("  {\n");
+        json.append("    \"id\": ").append(rental.getId()).append(",\n");
+        json.append("    \"fee\": ").append(rental.getTotalFee()).append(",\n");
+        json.append("    \"actualFee\": ").append(rental.getActualFee()).append(",\n");
+        json.append("    \"surgeFactor\": ").append(rental.getSurgeFactor()).append(",\n");
+        json.append("    \"insurance\": ").append(rental.isInsuranceSelected()).append(",\n");
+        json.append("    \"status\": \"").append(rental.getStatus()).append("\",\n");
+        json.append("    \"startDate\": \"").append(rental.getStartDate()).append("\",\n");
+        json.append("    \"endDate\": \"").append(rental.getEndDate()).append("\",\n");
+
+        // Customer information
+        models.Customer customer = rental.getCustomer();
+        json.append("    \"customer\": {\n");
+        json.append("      \"name\": \"").append(customer.getName()).append("\",\n");
+        json.append("      \"contact\": \"").append(customer.getContact()).append("\"\n");
+        json.append("    },\n");
+
+        // Vehicle information - using field names expected by vehicleService.parseVehicleFromJson
+        Vehicle vehicle = rental.getVehicle();
+        json.append("    \"vehicle\": {\n");
+        json.append("      \"vehicleID\": \"").append(vehicle.getVehicleID()).append("\",\n");
+        json.append("      \"plateNo\": \"").append(vehicle.getPlateNo()).append("\",\n");
+        json.append("      \"brand\": \"").append(vehicle.getBrand()).append("\",\n");
+        json.append("      \"model\": \"").append(vehicle.getModel()).append("\",\n");
+        json.append("      \"type\": \"").append(vehicle.getType()).append("\",\n");
+        json.append("      \"fuelType\": \"").append(vehicle.getFuelType()).append("\",\n");
+        json.append("      \"color\": \"").append(vehicle.getColor()).append("\",\n");
+        json.append("      \"year\": ").append(vehicle.getYear()).append(",\n");
+        json.append("      \"capacity\": ").append(vehicle.getCapacity()).append(",\n");
+        json.append("      \"condition\": \"").append(vehicle.getCondition()).append("\",\n");
+        json.append("      \"insuranceRate\": ").append(vehicle.getInsuranceRate()).append(",\n");
+        json.append("      \"availability\": \"").append(vehicle.getStatus()).append("\",\n");
+        json.append("      \"archived\": ").append(vehicle.isArchived()).append(",\n");
+        json.append("      \"basePrice\": ").append(vehicle.getBasePrice()).append(",\n");
+        json.append("      \"longTermDiscounts\": {");
+
+        Map<Integer, Double> discounts = vehicle.getLongTermDiscounts();
+        if (discounts != null && !discounts.isEmpty()) {
+            int count = 0;
+            for (Map.Entry<Integer, Double> entry : discounts.entrySet()) {
+                if (count > 0) {
+                    json.append(",");
+                }
+                json.append("\"").append(entry.getKey()).append("\": ").append(entry.getValue());
+                count++;
             }
-            json.append("\n");
         }
+        json.append("}\n");
+        json.append("    },\n");
 
-        json.append("]");
-        return json.toString();
+        // Add username field
+        json.append("    \"username\": \"")
+                .append(escapeJson(rental.getUsername() != null ? rental.getUsername() : "")).append("\"\n");
+        json.append("  }");
     }
 
     /**
@@ -339,28 +641,27 @@ public class RentalSystem {
      */
     public double calculateRentalFee(Vehicle vehicle, LocalDate startDate, LocalDate endDate,
             boolean insurance) {
-        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
-        double baseRate = vehicle.getBasePrice(); // Use vehicle's base price
-        double totalFee = baseRate * days;
+        return pricingEngine.quote(vehicle.getPricingTable(), startDate, endDate, insurance);
+    }
 
-        // Apply long-term discount
-        double discount = 0.0;
-        Map<Integer, Double> discounts = vehicle.getLongTermDiscounts();
-        if (discounts != null) {
-            for (Map.Entry<Integer, Double> entry : discounts.entrySet()) {
-                if (days >= entry.getKey()) {
-                    discount = Math.max(discount, entry.getValue());
-                }
-            }
-        }
-        totalFee = totalFee * (1 - discount);
+    /**
+     * Rental fee at a fixed surge multiplier (the one a booking was quoted at)
+     */
+    public double calculateRentalFee(Vehicle vehicle, LocalDate startDate, LocalDate endDate,
+            boolean insurance, double surgeFactor) {
+        return pricingEngine.quote(vehicle.getPricingTable(), startDate, endDate, insurance, surgeFactor);
+    }
 
-        // Add insurance if selected
-        if (insurance) {
-            totalFee += totalFee * vehicle.getInsuranceRate();
+    /**
+     * Price one date range across many vehicles (same order as the input list)
+     */
+    public double[] calculateRentalFees(List<Vehicle> vehicles, LocalDate startDate, LocalDate endDate,
+            boolean insurance) {
+        double[] fees = new double[vehicles.size()];
+        for (int i = 0; i < fees.length; i++) {
+            fees[i] = pricingEngine.quote(vehicles.get(i).getPricingTable(), startDate, endDate, insurance);
         }
-
-        return totalFee;
+        return fees;
     }
 
     /**
@@ -368,29 +669,50 @@ public class RentalSystem {
      */
     public double calculateDeposit(Vehicle vehicle, LocalDate startDate, LocalDate endDate, boolean insurance) {
         long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
-        
-        // No deposit required for rentals 3 days or less
-        if (days <= 3) {
-            return 0.0;
+        return depositFor(days, calculateRentalFee(vehicle, startDate, endDate, insurance));
+    }
+
+    /**
+     * Rebuild fleet booking schedules from pending and active rentals (schedules are not persisted)
+     */
+    private void rebuildVehicleSchedules() {
+        for (Vehicle v : vehicleService.getVehicles()) {
+            v.clearAllBookings();
+        }
+        for (Rental r : rentals) {
+            if (r.getStatus() == RentalStatus.ACTIVE || r.getStatus() == RentalStatus.PENDING) {
+                r.getVehicle().restoreBooking(r.getStartDate(), r.getEndDate());
+            }
         }
-        
-        // 50% deposit for rentals longer than 3 days
-        double totalFee = calculateRentalFee(vehicle, startDate, endDate, insurance);
-        return totalFee * 0.5;
     }
 
     /**
-     * Validate booking date range (maximum 3 years in advance)
+     * Report the share of the active fleet currently out on rental to the pricing engine
      */
-    public boolean validateBookingDateRange(LocalDate startDate) {
-        LocalDate today = LocalDate.now();
-        LocalDate maxAllowedDate = today.plusYears(3);
-        
-        if (startDate.isAfter(maxAllowedDate)) {
-            return false;
+    private void refreshUtilization() {
+        int fleetSize = 0;
+        for (Vehicle v : vehicleService.getVehicles()) {
+            if (!v.isArchived()) {
+                fleetSize++;
+            }
         }
-        
-        return true;
+        int active = 0;
+        for (Rental r : rentals) {
+            if (r.getStatus() == RentalStatus.ACTIVE) {
+                active++;
+            }
+        }
+        pricingEngine.updateUtilization(fleetSize == 0 ? 0.0 : (double) active / fleetSize);
+    }
+
+    /**
+     * Deposit rule shared by bookings and quotes: none for 3 days or less, otherwise 50% of the fee
+     */
+    public static double depositFor(long days, double totalFee) {
+        if (days <= 3) {
+            return 0.0;
+        }
+        return totalFee * 0.5;
     }
 
     /**
@@ -398,18 +720,27 @@ public class RentalSystem {
      */
     public Rental createRental(Customer customer, Vehicle vehicle, LocalDate startDate, LocalDate endDate,
             boolean insurance, String username) {
-        double fee = calculateRentalFee(vehicle, startDate, endDate, insurance);
-        Rental rental = new Rental(nextRentalId++, customer, vehicle, startDate, endDate, RentalStatus.PENDING, fee,
-                insurance, username);
-        rentals.add(rental);
+        double surge = pricingEngine.getSurgeFactor(); // Kept on the rental so the return is priced alike
+        double fee = calculateRentalFee(vehicle, startDate, endDate, insurance, surge);
+        Rental rental;
+        ReentrantLock lock = lockForVehicle(vehicle.getId());
+        lock.lock();
+        try {
+            rental = new Rental(nextRentalId.getAndIncrement(), customer, vehicle, startDate, endDate,
+                    RentalStatus.PENDING, fee, insurance, username);
+            rental.setSurgeFactor(surge);
+            addRental(rental);
 
-        // Update vehicle status to reserved
-        vehicle.setStatus("reserved");
+            // Update vehicle status to reserved
+            vehicle.setStatus("reserved");
 
-        // Also update the vehicle in vehicleService to keep data in sync
-        Vehicle vehicleInService = vehicleService.findVehicleById(vehicle.getId());
-        if (vehicleInService != null) {
-            vehicleInService.setStatus("reserved");
+            // Also update the vehicle in vehicleService to keep data in sync
+            Vehicle vehicleInService = vehicleService.findVehicleById(vehicle.getId());
+            if (vehicleInService != null) {
+                vehicleInService.setStatus("reserved");
+            }
+        } finally {
+            lock.unlock();
         }
 
         // Send lease confirmation notice
@@ -417,57 +748,82 @@ public class RentalSystem {
                 startDate.toString(), endDate.toString(), fee);
 
         saveRentals("rentals.json"); // Save rental record immediately
-        vehicleService.saveVehicles("vehicles.json"); // Save vehicle status change
+        vehicleService.saveVehicles(dataFile("vehicles.json")); // Save vehicle status change
         return rental;
     }
 
     /**
-     * Approve a rental (admin function)
+     * Approve a rental (admin function) and show the generated ticket
      */
     public boolean approveRental(int rentalId) {
+        CommandResult result = approve(rentalId);
+        if (!result.isSuccess()) {
+            return false;
+        }
+        System.out.println(" " + result.getMessage());
+
+        // Display ticket information to admin
+        System.out.println("\n=== Ticket Generated ===");
+        result.getTicket().displayTicket();
+        return true;
+    }
+
+    /**
+     * Approve a pending rental without console output: generates the ticket,
+     * notifies the customer and saves
+     */
+    public CommandResult approve(int rentalId) {
         Rental rental = findRentalById(rentalId);
-        if (rental != null && rental.getStatus() == RentalStatus.PENDING) {
-            rental.setStatus(RentalStatus.ACTIVE);
+        if (rental == null) {
+            return CommandResult.fail("Rental not found: " + rentalId);
+        }
+
+        Ticket ticket;
+        ReentrantLock lock = lockForVehicle(rental.getVehicle().getId());
+        lock.lock();
+        try {
+            if (rental.getStatus() != RentalStatus.PENDING) {
+                return CommandResult.fail("Only pending rentals can be approved").withRental(rental);
+            }
+            transition(rental, RentalStatus.ACTIVE);
             // Keep vehicle reserved until actual pickup
             rental.getVehicle().setStatus("reserved");
 
             // Generate ticket for approved rental
-            Ticket ticket = ticketService.generateTicket(rental);
-
-            // Generate PDF ticket
-            PdfTicketService pdfTicketService = new PdfTicketService();
-            byte[] pdfTicket = pdfTicketService.generatePdfTicket(ticket);
+            ticket = ticketService.generateTicket(rental);
+        } finally {
+            lock.unlock();
+        }
 
-            if (pdfTicket != null) {
-                // Send rental approval notification with PDF ticket
-                notificationService.sendRentalApprovalWithPdfTicket(rental.getUsername(),
-                        rental.getVehicle().getModel(),
-                        String.valueOf(rental.getId()),
-                        ticket.getTicketId(),
-                        pdfTicket);
+        // Generate PDF ticket
+        PdfTicketService pdfTicketService = new PdfTicketService();
+        byte[] pdfTicket = pdfTicketService.generatePdfTicket(ticket, ticketService.getScanCode(ticket));
 
-                System.out.println(" PDF ticket generated and sent to customer email!");
-            } else {
-                // Fallback to regular ticket notification
-                notificationService.sendRentalApprovalWithTicket(rental.getUsername(),
-                        rental.getVehicle().getModel(),
-                        String.valueOf(rental.getId()),
-                        ticket.getTicketId());
+        String message;
+        if (pdfTicket != null) {
+            // Send rental approval notification with PDF ticket
+            notificationService.sendRentalApprovalWithPdfTicket(rental.getUsername(),
+                    rental.getVehicle().getModel(),
+                    String.valueOf(rental.getId()),
+                    ticket.getTicketId(),
+                    pdfTicket);
 
-                System.out.println(" PDF generation failed, sent regular ticket notification");
-            }
+            message = "PDF ticket generated and sent to customer email!";
+        } else {
+            // Fallback to regular ticket notification
+            notificationService.sendRentalApprovalWithTicket(rental.getUsername(),
+                    rental.getVehicle().getModel(),
+                    String.valueOf(rental.getId()),
+                    ticket.getTicketId());
 
-            // Display ticket information to admin
-            System.out.println("\n=== Ticket Generated ===");
-            ticket.displayTicket();
+            message = "PDF generation failed, sent regular ticket notification";
+        }
 
-            // Save data to JSON file
-            saveRentals("rentals.json");
-            vehicleService.saveVehicles("vehicles.json"); // Save vehicle status change
+        // Save data to JSON file
+        saveRentals("rentals.json");
+        vehicleService.saveVehicles(dataFile("vehicles.json")); // Save vehicle status change
 
-            return true;
-        }
-        return false;
+        return CommandResult.ok(message).withRental(rental).withTicket(ticket);
     }
 
     /**
@@ -479,8 +835,17 @@ public class RentalSystem {
 
     public boolean cancelRental(int rentalId, String reason) {
         Rental rental = findRentalById(rentalId);
-        if (rental != null && rental.getStatus() == RentalStatus.PENDING) {
-            rental.setStatus(RentalStatus.CANCELLED);
+        if (rental == null) {
+            return false;
+        }
+
+        ReentrantLock lock = lockForVehicle(rental.getVehicle().getId());
+        lock.lock();
+        try {
+            if (rental.getStatus() != RentalStatus.PENDING) {
+                return false;
+            }
+            transition(rental, RentalStatus.CANCELLED);
 
             // Remove this booking from the vehicle booking list
             Vehicle vehicle = rental.getVehicle();
@@ -492,14 +857,15 @@ public class RentalSystem {
             } else {
                 vehicle.setStatus("available");
             }
+        } finally {
+            lock.unlock();
+        }
 
-            // Save data to JSON file immediately
-            saveRentals("rentals.json");
-            vehicleService.saveVehicles("vehicles.json"); // Save vehicle status change
+        // Save data to JSON file immediately
+        saveRentals("rentals.json");
+        vehicleService.saveVehicles(dataFile("vehicles.json")); // Save vehicle status change
 
-            return true;
-        }
-        return false;
+        return true;
     }
 
     /**
@@ -507,12 +873,21 @@ public class RentalSystem {
      */
     public boolean returnVehicle(int rentalId) {
         Rental rental = findRentalById(rentalId);
-        if (rental != null && rental.getStatus() == RentalStatus.ACTIVE) {
+        if (rental == null) {
+            return false;
+        }
+
+        ReentrantLock lock = lockForVehicle(rental.getVehicle().getId());
+        lock.lock();
+        try {
+            if (rental.getStatus() != RentalStatus.ACTIVE) {
+                return false;
+            }
             // Calculate actual fee based on actual return date
             double actualFee = calculateActualRentalFee(rental);
             rental.setActualFee(actualFee);
 
-            rental.setStatus(RentalStatus.RETURNED);
+            transition(rental, RentalStatus.RETURNED);
 
             // Remove this booking from the vehicle booking list
             Vehicle vehicle = rental.getVehicle();
@@ -524,12 +899,13 @@ public class RentalSystem {
             } else {
                 vehicle.setStatus("available");
             }
-
-            saveRentals("rentals.json");
-            vehicleService.saveVehicles("vehicles.json"); // Save vehicle status change
-            return true;
+        } finally {
+            lock.unlock();
         }
-        return false;
+
+        saveRentals("rentals.json");
+        vehicleService.saveVehicles(dataFile("vehicles.json")); // Save vehicle status change
+        return true;
     }
 
     /**
@@ -542,20 +918,16 @@ public class RentalSystem {
         // Use the later of original end date or actual return date
         LocalDate effectiveEndDate = actualEndDate.isAfter(rental.getEndDate()) ? actualEndDate : rental.getEndDate();
 
+        // Priced at the surge quoted when booking, not whatever utilization is at return time
         return calculateRentalFee(rental.getVehicle(), originalStartDate, effectiveEndDate,
-                rental.isInsuranceSelected());
+                rental.isInsuranceSelected(), rental.getSurgeFactor());
     }
 
     /**
      * Find rental by ID
      */
     public Rental findRentalById(int id) {
-        for (Rental r : rentals) {
-            if (r.getId() == id) {
-                return r;
-            }
-        }
-        return null;
+        return rentalsById.get(id);
     }
 
     /**
@@ -623,16 +995,67 @@ public class RentalSystem {
     }
 
     // Account management moved to AccountService
+    /**
+     * Version stamp that changes whenever rental data is loaded or saved
+     */
+    public PricingEngine getPricingEngine() {
+        return pricingEngine;
+    }
+
+    /**
+     * Headless operations over this system; the console flows go through these too
+     */
+    public RentalOperations getOperations() {
+        return operations;
+    }
+
+    public QuoteEngine getQuoteEngine() {
+        return quoteEngine;
+    }
+
     public List<Rental> getRentals() {
         return rentals;
     }
 
+    /**
+     * Complete payments interrupted by a crash and save any rental fees that were corrected
+     */
+    public void reconcilePayments(String filename) {
+        if (paymentService.reconcile(getRentals()) > 0) {
+            saveRentals(filename);
+        }
+    }
+
+    public PaymentService getPaymentService() {
+        return paymentService;
+    }
+
+    public BookingHoldService getHoldService() {
+        return holdService;
+    }
+
+    /**
+     * Place a short-lived hold on the vehicle's dates for this customer while they finish booking.
+     * Returns null if another customer already holds overlapping dates.
+     */
+    public BookingHold placeHold(Vehicle vehicle, LocalDate startDate, LocalDate endDate, String username) {
+        return holdService.placeHold(vehicle.getId(), startDate, endDate, username);
+    }
+
+    public void releaseHold(BookingHold hold) {
+        holdService.release(hold);
+    }
+
     // Customer management moved to AccountService
     // Get notification service
     public NotificationService getNotificationService() {
         return notificationService;
     }
 
+    public ChangeLog getChangeLog() {
+        return changeLog;
+    }
+
     public TicketService getTicketService() {
         return ticketService;
     }
@@ -668,30 +1091,50 @@ public class RentalSystem {
      */
     public Rental createRentalWithSchedule(Customer customer, Vehicle vehicle, LocalDate startDate,
             LocalDate endDate, boolean insurance, String username) {
-        // Check if vehicle has time conflicts with existing rentals (smarter check)
-        if (hasTimeConflict(vehicle.getId(), startDate, endDate)) {
-            throw new IllegalArgumentException("Vehicle is not available for the requested period");
-        }
+        return createRentalWithSchedule(customer, vehicle, startDate, endDate, insurance, username, UNOBSERVED_VERSION);
+    }
 
-        double fee = calculateRentalFee(vehicle, startDate, endDate, insurance);
-        Rental rental = new Rental(nextRentalId++, customer, vehicle, startDate, endDate,
-                RentalStatus.PENDING, fee, insurance, username);
-        rentals.add(rental);
+    /**
+     * Create rental against the schedule version seen when availability was checked
+     * (Vehicle.getScheduleVersion()). If the schedule has not changed since, the booking
+     * commits without re-checking; otherwise the dates are re-validated once.
+     */
+    public Rental createRentalWithSchedule(Customer customer, Vehicle vehicle, LocalDate startDate,
+            LocalDate endDate, boolean insurance, String username, long observedVersion) {
+        double surge = pricingEngine.getSurgeFactor(); // Kept on the rental so the return is priced alike
+        double fee = calculateRentalFee(vehicle, startDate, endDate, insurance, surge);
+        Rental rental;
+
+        // The lock is only held for the commit itself, never across the customer's prompts
+        ReentrantLock lock = lockForVehicle(vehicle.getId());
+        lock.lock();
+        try {
+            if (holdService.findConflictingHold(vehicle.getId(), startDate, endDate, username) != null) {
+                throw new IllegalArgumentException("Vehicle is currently held by another customer for these dates");
+            }
+            if (!vehicle.bookIfUnchanged(startDate, endDate, observedVersion)) {
+                throw new IllegalArgumentException("Vehicle is not available for the requested period");
+            }
 
-        // Add to vehicle booking schedule (skip the isAvailable check since we already verified no conflicts)
-        vehicle.addBookingForExtension(startDate, endDate);
+            rental = new Rental(nextRentalId.getAndIncrement(), customer, vehicle, startDate, endDate,
+                    RentalStatus.PENDING, fee, insurance, username);
+            rental.setSurgeFactor(surge);
+            addRental(rental);
 
-        // Update vehicle status to reserved
-        vehicle.setStatus("reserved");
+            // Update vehicle status to reserved
+            vehicle.setStatus("reserved");
 
-        // Also update the vehicle in vehicleService to keep data in sync
-        Vehicle vehicleInService = vehicleService.findVehicleById(vehicle.getId());
-        if (vehicleInService != null) {
-            vehicleInService.setStatus("reserved");
+            // Also update the vehicle in vehicleService to keep data in sync
+            Vehicle vehicleInService = vehicleService.findVehicleById(vehicle.getId());
+            if (vehicleInService != null) {
+                vehicleInService.setStatus("reserved");
+            }
+        } finally {
+            lock.unlock();
         }
 
         saveRentals("rentals.json");
-        vehicleService.saveVehicles("vehicles.json"); // Save vehicle status change
+        vehicleService.saveVehicles(dataFile("vehicles.json")); // Save vehicle status change
         return rental;
     }
 
@@ -699,38 +1142,15 @@ public class RentalSystem {
      * Process vehicle return (simplified without damage checking)
      */
     public boolean returnVehicle(int rentalId, Scanner scanner) {
-        Rental rental = findRentalById(rentalId);
-        if (rental != null && rental.getStatus() == RentalStatus.ACTIVE) {
-            // Calculate actual fee
-            double actualFee = calculateActualRentalFee(rental);
-            rental.setActualFee(actualFee);
-
-            // Set rental status to returned
-            rental.setStatus(RentalStatus.RETURNED);
-
-            // Remove this booking from vehicle booking list
-            Vehicle vehicle = rental.getVehicle();
-            vehicle.removeBooking(rental.getStartDate(), rental.getEndDate());
-
-            // Set vehicle status based on future bookings
-            if (vehicle.hasFutureBookings()) {
-                vehicle.setStatus("reserved");
-            } else {
-                vehicle.setStatus("available");
-            }
-
-            saveRentals("rentals.json");
-
-            // Sync vehicle status to ensure consistency
-            syncVehicleStatusWithRentals();
-            vehicleService.saveVehicles("vehicles.json"); // Save vehicle status change
+        if (!operations.returnVehicle(rentalId).isSuccess()) {
+            return false;
+        }
 
-            // Process payment after successful return
-            paymentService.processPayment(rental, scanner);
+        // Process payment after successful return (prompts the operator), then persist the captured fee
+        paymentService.processPayment(findRentalById(rentalId), scanner);
+        saveRentals("rentals.json");
 
-            return true;
-        }
-        return false;
+        return true;
     }
 
     /**
@@ -815,26 +1235,39 @@ public class RentalSystem {
      */
     public Rental createOfflineRental(Customer customer, Vehicle vehicle, LocalDate startDate,
             LocalDate endDate, boolean insurance, String username) {
-        // Check if vehicle has time conflicts (same logic as regular booking)
-        if (hasTimeConflict(vehicle.getId(), startDate, endDate)) {
-            throw new IllegalArgumentException("Vehicle is not available for the requested period");
-        }
+        double surge = pricingEngine.getSurgeFactor(); // Kept on the rental so the return is priced alike
+        double fee = calculateRentalFee(vehicle, startDate, endDate, insurance, surge);
+        Rental rental;
 
-        double fee = calculateRentalFee(vehicle, startDate, endDate, insurance);
-        Rental rental = new Rental(nextRentalId++, customer, vehicle, startDate, endDate,
-                RentalStatus.ACTIVE, fee, insurance, username);
-        rentals.add(rental);
+        ReentrantLock lock = lockForVehicle(vehicle.getId());
+        lock.lock();
+        try {
+            // Check if vehicle has time conflicts (same logic as regular booking)
+            if (hasTimeConflict(vehicle.getId(), startDate, endDate)) {
+                throw new IllegalArgumentException("Vehicle is not available for the requested period");
+            }
+            if (holdService.findConflictingHold(vehicle.getId(), startDate, endDate, username) != null) {
+                throw new IllegalArgumentException("Vehicle is currently held by another customer for these dates");
+            }
 
-        // Add to vehicle schedule (skip the isAvailable check since we already verified no conflicts)
-        vehicle.addBookingForExtension(startDate, endDate);
+            rental = new Rental(nextRentalId.getAndIncrement(), customer, vehicle, startDate, endDate,
+                    RentalStatus.ACTIVE, fee, insurance, username);
+            rental.setSurgeFactor(surge);
+            addRental(rental);
 
-        // Set vehicle status to RENTED
-        vehicle.setStatus("rented");
+            // Add to vehicle schedule (skip the isAvailable check since we already verified no conflicts)
+            vehicle.addBookingForExtension(startDate, endDate);
 
-        // Also update the vehicle in vehicleService to keep data in sync
-        Vehicle vehicleInService = vehicleService.findVehicleById(vehicle.getId());
-        if (vehicleInService != null) {
-            vehicleInService.setStatus("rented");
+            // Set vehicle status to RENTED
+            vehicle.setStatus("rented");
+
+            // Also update the vehicle in vehicleService to keep data in sync
+            Vehicle vehicleInService = vehicleService.findVehicleById(vehicle.getId());
+            if (vehicleInService != null) {
+                vehicleInService.setStatus("rented");
+            }
+        } finally {
+            lock.unlock();
         }
 
         // Generate ticket immediately
@@ -842,7 +1275,7 @@ public class RentalSystem {
 
         // Save data
         saveRentals("rentals.json");
-        vehicleService.saveVehicles("vehicles.json");
+        vehicleService.saveVehicles(dataFile("vehicles.json"));
 
         return rental;
     }
@@ -906,7 +1339,8 @@ public class RentalSystem {
     }
 
     /**
-     * Extend existing rental
+     * Extend existing rental. Returns false if it is no longer active or the added days were
+     * booked since the caller checked them.
      */
     public boolean extendRental(String username, int vehicleId, LocalDate newEndDate, boolean insurance) {
         Rental existingRental = findActiveRentalByUserAndVehicle(username, vehicleId);
@@ -915,36 +1349,47 @@ public class RentalSystem {
         }
 
         Vehicle vehicle = existingRental.getVehicle();
-        LocalDate originalEndDate = existingRental.getEndDate();
-
-        // Update vehicle booking schedule (extension-safe, no global buffer check)
-        vehicle.removeBooking(existingRental.getStartDate(), originalEndDate);
-        vehicle.addBookingForExtension(existingRental.getStartDate(), newEndDate);
+        ReentrantLock lock = lockForVehicle(vehicle.getId());
+        lock.lock();
+        try {
+            // Another operator may have returned the rental since it was looked up
+            if (existingRental.getStatus() != RentalStatus.ACTIVE) {
+                return false;
+            }
+            // The added days are re-checked here; the check callers made before locking may be stale
+            if (!vehicle.extendBooking(existingRental.getStartDate(), existingRental.getEndDate(), newEndDate)) {
+                return false;
+            }
 
-        // Calculate new total fee
-        double newTotalFee = calculateRentalFee(vehicle, existingRental.getStartDate(), newEndDate, insurance);
+            // Re-quote the whole rental; the return is priced at this quote's surge from now on
+            double surge = pricingEngine.getSurgeFactor();
+            double newTotalFee = calculateRentalFee(vehicle, existingRental.getStartDate(), newEndDate, insurance,
+                    surge);
 
-        // Update rental details
-        existingRental.setEndDate(newEndDate);
-        existingRental.setTotalFee(newTotalFee);
-        existingRental.setInsuranceSelected(insurance);
+            // Update rental details
+            existingRental.setEndDate(newEndDate);
+            existingRental.setTotalFee(newTotalFee);
+            existingRental.setSurgeFactor(surge);
+            existingRental.setInsuranceSelected(insurance);
+        } finally {
+            lock.unlock();
+        }
 
-        // Reset reminder flags for extended rental
-        existingRental.setDueSoonReminderSent(false);
-        existingRental.setOverdueReminderSent(false);
+        // Reminders are keyed by due date in the ledger, so the new end date gets fresh reminders
 
         // Generate new ticket for the extended rental
         ticketService.generateTicket(existingRental);
 
         // Save data
         saveRentals("rentals.json");
-        vehicleService.saveVehicles("vehicles.json");
+        vehicleService.saveVehicles(dataFile("vehicles.json"));
 
         return true;
     }
 
     /**
-     * Extend pending rental by same user and vehicle
+     * Extend pending rental by same user and vehicle. Returns false if it is no longer pending
+     * or the added days were booked since the caller checked them.
      */
     public boolean extendPendingRental(String username, int vehicleId, LocalDate newEndDate, boolean insurance) {
         Rental pending = findPendingRentalByUserAndVehicle(username, vehicleId);
@@ -953,20 +1398,31 @@ public class RentalSystem {
         }
 
         Vehicle vehicle = pending.getVehicle();
-        LocalDate originalEndDate = pending.getEndDate();
-
-        // Update schedule for pending extension
-        vehicle.removeBooking(pending.getStartDate(), originalEndDate);
-        vehicle.addBookingForExtension(pending.getStartDate(), newEndDate);
+        ReentrantLock lock = lockForVehicle(vehicle.getId());
+        lock.lock();
+        try {
+            // Another operator may have approved or cancelled it since it was looked up
+            if (pending.getStatus() != RentalStatus.PENDING) {
+                return false;
+            }
+            // The added days are re-checked here; the check callers made before locking may be stale
+            if (!vehicle.extendBooking(pending.getStartDate(), pending.getEndDate(), newEndDate)) {
+                return false;
+            }
 
-        // Recompute fee and update rental fields
-        double newTotalFee = calculateRentalFee(vehicle, pending.getStartDate(), newEndDate, insurance);
-        pending.setEndDate(newEndDate);
-        pending.setTotalFee(newTotalFee);
-        pending.setInsuranceSelected(insurance);
+            // Recompute fee and update rental fields
+            double surge = pricingEngine.getSurgeFactor();
+            double newTotalFee = calculateRentalFee(vehicle, pending.getStartDate(), newEndDate, insurance, surge);
+            pending.setEndDate(newEndDate);
+            pending.setTotalFee(newTotalFee);
+            pending.setSurgeFactor(surge);
+            pending.setInsuranceSelected(insurance);
+        } finally {
+            lock.unlock();
+        }
 
         saveRentals("rentals.json");
-        vehicleService.saveVehicles("vehicles.json");
+        vehicleService.saveVehicles(dataFile("vehicles.json"));
         return true;
     }
 
@@ -1044,7 +1500,8 @@ public class RentalSystem {
         while (selected == null) {
             System.out.println(
                     "\nNote: Enter vehicle plate number to see detailed availability and view unavailable period for reserved vehicle");
-            System.out.print("\nEnter vehicle plate number to rent (or type 'search' to search, 'exit' to return): ");
+            System.out.print(
+                    "\nEnter vehicle plate number to rent (or type 'search' to search, 'compare' to compare prices, 'exit' to return): ");
             String input = scanner.nextLine().trim();
 
             if (input.equalsIgnoreCase("exit")) {
@@ -1057,6 +1514,11 @@ public class RentalSystem {
                 continue;
             }
 
+            if (input.equalsIgnoreCase("compare")) {
+                compareVehiclePrices(system, scanner);
+                continue;
+            }
+
             // Check if input is a valid plate number
             if (!input.isEmpty()) {
                 plateNo = input;
@@ -1145,9 +1607,10 @@ public class RentalSystem {
                 boolean insurance = AccountService.getYesNoInput(scanner, "Include insurance for the extended period?");
 
                 // Extend the rental
-                if (system.extendRental(account.getUsername(), vehicleId, newEndDate, insurance)) {
-                    Rental updatedRental = system.findActiveRentalByUserAndVehicle(account.getUsername(),
-                            vehicleId);
+                CommandResult result = system.getOperations().extend(new ExtensionRequest(account.getUsername(),
+                        vehicleId, newEndDate, insurance, existingRental.getId()));
+                if (result.isSuccess()) {
+                    Rental updatedRental = result.getRental();
                     System.out.println("\n=== RENTAL EXTENSION SUCCESSFUL ===\n");
                     System.out.printf("Updated Rental ID: %d\n", updatedRental.getId());
                     System.out.printf("Extended until: %s\n", updatedRental.getEndDate());
@@ -1155,13 +1618,13 @@ public class RentalSystem {
                     System.out.println("New ticket generated.");
 
                     // Display new ticket
-                    Ticket newTicket = system.getTicketService().getTicketByRentalId(updatedRental.getId());
+                    Ticket newTicket = result.getTicket();
                     if (newTicket != null) {
                         System.out.println("\n=== Updated Ticket ===\n");
                         newTicket.displayTicket();
                     }
                 } else {
-                    System.out.println("Failed to extend rental. Please try again or contact support.");
+                    System.out.println("Failed to extend rental: " + result.getMessage());
                 }
 
                 System.out.println("\nPress Enter to continue...");
@@ -1227,11 +1690,13 @@ public class RentalSystem {
                 System.out.printf("\nInsurance rate: %.1f%%\n", insuranceRate2 * 100);
                 boolean insurance2 = AccountService.getYesNoInput(scanner, "Include insurance for the extended period?");
 
-                if (system.extendPendingRental(account.getUsername(), vehicleId, newEndDate, insurance2)) {
+                CommandResult result = system.getOperations().extend(new ExtensionRequest(account.getUsername(),
+                        vehicleId, newEndDate, insurance2, pendingRental.getId()));
+                if (result.isSuccess()) {
                     System.out.println("\n=== PENDING RENTAL EXTENSION SUCCESSFUL ===\n");
                     System.out.printf("Extended until: %s\n", newEndDate);
                 } else {
-                    System.out.println("Failed to extend pending rental. Please try again or contact support.");
+                    System.out.println("Failed to extend pending rental: " + result.getMessage());
                 }
 
                 System.out.println("\nPress Enter to continue...");
@@ -1290,14 +1755,9 @@ public class RentalSystem {
             } else {
                 try {
                     startDate = LocalDate.parse(startStr);
-                    if (startDate.isBefore(LocalDate.now())) {
-                        System.out.println("Start date cannot be in the past.");
-                        System.out.println("\nPress Enter to continue...");
-                        scanner.nextLine();
-                        startDate = null; // Reset to continue loop
-                        continue;
-                    } else if (!system.validateBookingDateRange(startDate)) {
-                        System.out.println("Error: Booking cannot be more than 3 years in advance.");
+                    String problem = RentalOperations.checkStartDate(startDate);
+                    if (problem != null) {
+                        System.out.println("Error: " + problem + ".");
                         System.out.println("\nPress Enter to continue...");
                         scanner.nextLine();
                         startDate = null; // Reset to continue loop
@@ -1340,8 +1800,9 @@ public class RentalSystem {
                     System.out.println("Rental days must be positive.");
                     System.out.println("\nPress Enter to continue...");
                     scanner.nextLine();
-                } else if (rentalDays > 30) {
-                    System.out.println("Error: Maximum rental duration is 30 days.");
+                } else if (rentalDays > RentalOperations.MAX_RENTAL_DAYS) {
+                    System.out.println("Error: Maximum rental duration is " + RentalOperations.MAX_RENTAL_DAYS
+                            + " days.");
                     System.out.println("\nPress Enter to continue...");
                     scanner.nextLine();
                     rentalDays = 0;
@@ -1355,6 +1816,9 @@ public class RentalSystem {
 
         LocalDate endDate = startDate.plusDays(rentalDays - 1);
 
+        // Remember the schedule version this availability check is based on
+        long observedVersion = selected.getScheduleVersion();
+
         // Check for conflicts
         String conflictDetails = system.getConflictDetails(vehicleId, startDate, endDate);
         if (conflictDetails != null) {
@@ -1369,6 +1833,16 @@ public class RentalSystem {
             return;
         }
 
+        // Hold these dates while the customer finishes, so a competing session is told now rather than at checkout
+        BookingHold hold = system.placeHold(selected, startDate, endDate, account.getUsername());
+        if (hold == null) {
+            System.out.println("\nThis vehicle is currently being booked by another customer for overlapping dates.");
+            System.out.println("Please choose different dates or another vehicle, or try again in a few minutes.");
+            System.out.println("\nPress Enter to continue...");
+            scanner.nextLine();
+            return;
+        }
+
         // Show applied discount
         double discount = selected.getDiscountForDays(rentalDays);
         double baseRentalCost = selected.getBasePrice() * rentalDays;
@@ -1453,6 +1927,7 @@ public class RentalSystem {
                 System.out.println("Payment Method: Cash/Card/Bank Transfer");
                 
                 if (!AccountService.getYesNoInput(scanner, "Proceed with deposit payment?")) {
+                    system.releaseHold(hold);
                     if (AccountService.getYesNoInput(scanner, "Cancel booking?")) {
                         System.out.println("Booking cancelled by customer.");
                         return;
@@ -1473,16 +1948,21 @@ public class RentalSystem {
             
             try {
                 clearScreen();
-                Rental rental = system.createRentalWithSchedule(customer, selected, startDate, endDate, insurance,
-                        account.getUsername());
-                System.out.println("\n=== BOOKING SUCCESSFUL ===\n");
-                System.out.println("Rental ID: " + rental.getId());
-                System.out.println("Status: PENDING APPROVAL (Admin will review)");
-                System.out.println("You will receive a notification once approved.");
-            } catch (IllegalArgumentException e) {
-                System.out.println("Booking failed: " + e.getMessage());
+                CommandResult result = system.getOperations().book(new BookingRequest(customer, vehicleId,
+                        startDate, endDate, insurance, account.getUsername(), observedVersion));
+                if (result.isSuccess()) {
+                    System.out.println("\n=== BOOKING SUCCESSFUL ===\n");
+                    System.out.println("Rental ID: " + result.getRental().getId());
+                    System.out.println("Status: PENDING APPROVAL (Admin will review)");
+                    System.out.println("You will receive a notification once approved.");
+                } else {
+                    System.out.println("Booking failed: " + result.getMessage());
+                }
+            } finally {
+                system.releaseHold(hold);
             }
         } else {
+            system.releaseHold(hold);
             if (AccountService.getYesNoInput(scanner, "Cancel booking?")) {
                 System.out.println("Booking cancelled by customer.");
             } else {
@@ -1493,96 +1973,75 @@ public class RentalSystem {
     }
 
     // View my rental history (enhanced with status grouping)
-    public static void viewMyRentalHistoryEnhanced(RentalSystem system, String username) {
+    public static void viewMyRentalHistoryEnhanced(RentalSystem system, Scanner scanner, String username) {
         System.out.println("\n╔══════════════════════════════════════════════════════════════════╗");
         System.out.println("║                        MY RENTAL HISTORY                         ║");
         System.out.println("╚══════════════════════════════════════════════════════════════════╝");
 
-        List<Rental> myRentals = system.getRentalsByUsername(username);
-        if (myRentals.isEmpty()) {
+        RentalHistoryIndex index = system.getHistoryIndex();
+        RentalHistoryPage page = index.page(username, null, HISTORY_PAGE_SIZE);
+        if (page.getTotal() == 0) {
             System.out.println("\nNo rental history found.");
             return;
         }
 
-        // Group rentals by status
-        List<Rental> pendingRentals = new ArrayList<>();
-        List<Rental> activeRentals = new ArrayList<>();
-        List<Rental> returnedRentals = new ArrayList<>();
-        List<Rental> cancelledRentals = new ArrayList<>();
-
-        for (Rental r : myRentals) {
-            switch (r.getStatus()) {
-                case PENDING:
-                    pendingRentals.add(r);
-                    break;
-                case ACTIVE:
-                    activeRentals.add(r);
-                    break;
-                case RETURNED:
-                    returnedRentals.add(r);
-                    break;
-                case CANCELLED:
-                    cancelledRentals.add(r);
-                    break;
-            }
-        }
+        // Totals come from the maintained counters; only the page being shown is read
+        System.out.println("\nTotal Rentals: " + page.getTotal() + " | Pending: " + page.getCount(RentalStatus.PENDING)
+                + " | Active: " + page.getCount(RentalStatus.ACTIVE) + " | Completed: "
+                + page.getCount(RentalStatus.RETURNED) + " | Cancelled: " + page.getCount(RentalStatus.CANCELLED));
 
-        // Display pending rentals
-        if (!pendingRentals.isEmpty()) {
-            System.out.println("\n[PENDING RENTALS] - Awaiting Admin Approval");
-            System.out.println("================================================================");
-            for (Rental r : pendingRentals) {
-                System.out.println("ID: " + r.getId() + " | Vehicle: " + r.getVehicle().getPlateNo() + " - " + r.getVehicle().getBrand()
-                        + " " + r.getVehicle().getModel() + " | Period: " + r.getStartDate()
-                        + " to " + r.getEndDate() + " | Est. Fee: RM" + String.format("%.2f", r.getTotalFee()));
+        int pageNumber = 1;
+        while (true) {
+            StringBuilder out = new StringBuilder(HISTORY_PAGE_SIZE * 128);
+            out.append("\n[PAGE ").append(pageNumber).append("] - Newest First\n");
+            out.append("================================================================\n");
+            for (Rental r : page.getRentals()) {
+                appendHistoryRow(out, r);
             }
-        }
+            System.out.print(out);
 
-        // Display active rentals
-        if (!activeRentals.isEmpty()) {
-            System.out.println("\n[ACTIVE RENTALS] - Currently in Use");
-            System.out.println("================================================================");
-            for (Rental r : activeRentals) {
-                System.out.println("ID: " + r.getId() + " | Vehicle: " + r.getVehicle().getPlateNo() + " - " + r.getVehicle().getBrand()
-                        + " " + r.getVehicle().getModel() + " | Period: " + r.getStartDate()
-                        + " to " + r.getEndDate() + " | Est. Fee: RM" + String.format("%.2f", r.getTotalFee()));
+            if (!page.hasNext()) {
+                System.out.println("================================================================");
+                System.out.println("End of rental history.");
+                return;
             }
-        }
-
-        // Display returned rentals
-        if (!returnedRentals.isEmpty()) {
-            System.out.println("\n[COMPLETED RENTALS] - Successfully Returned");
-            System.out.println("================================================================");
-            for (Rental r : returnedRentals) {
-                String feeDisplay = r.getActualFee() > 0 ? "Final Fee: RM" + String.format("%.2f", r.getActualFee())
-                        : "Est. Fee: RM" + String.format("%.2f", r.getTotalFee());
-                System.out.println("ID: " + r.getId() + " | Vehicle: " + r.getVehicle().getBrand()
-                        + " " + r.getVehicle().getModel() + " | Period: " + r.getStartDate()
-                        + " to " + r.getEndDate() + " | " + feeDisplay);
+            System.out.print("\nEnter 'n' for the next page, or press Enter to finish: ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("n")) {
+                return;
             }
+            page = index.page(username, page.getNextCursor(), HISTORY_PAGE_SIZE);
+            pageNumber++;
         }
+    }
 
-        // Display cancelled rentals
-        if (!cancelledRentals.isEmpty()) {
-            System.out.println("\n[CANCELLED RENTALS]");
-            System.out.println("================================================================");
-            for (Rental r : cancelledRentals) {
-                System.out.println("ID: " + r.getId() + " | Vehicle: " + r.getVehicle().getBrand()
-                        + " " + r.getVehicle().getModel() + " | Period: " + r.getStartDate()
-                        + " to " + r.getEndDate() + " | Status: CANCELLED");
-            }
+    private static void appendHistoryRow(StringBuilder out, Rental r) {
+        Vehicle v = r.getVehicle();
+        out.append("ID: ").append(r.getId()).append(" | Vehicle: ").append(v.getPlateNo()).append(" - ")
+                .append(v.getBrand()).append(' ').append(v.getModel()).append(" | Period: ")
+                .append(r.getStartDate()).append(" to ").append(r.getEndDate()).append(" | ");
+        switch (r.getStatus()) {
+            case PENDING:
+                out.append("PENDING | Est. Fee: RM");
+                appendMoney(out, r.getTotalFee());
+                break;
+            case ACTIVE:
+                out.append("ACTIVE | Est. Fee: RM");
+                appendMoney(out, r.getTotalFee());
+                break;
+            case RETURNED:
+                out.append(r.getActualFee() > 0 ? "COMPLETED | Final Fee: RM" : "COMPLETED | Est. Fee: RM");
+                appendMoney(out, r.getActualFee() > 0 ? r.getActualFee() : r.getTotalFee());
+                break;
+            default:
+                out.append("CANCELLED");
         }
-
-        System.out.println("\n================================================================");
-        System.out.println("Total Rentals: " + myRentals.size() + " | Pending: " + pendingRentals.size()
-                + " | Active: " + activeRentals.size() + " | Completed: " + returnedRentals.size()
-                + " | Cancelled: " + cancelledRentals.size());
+        out.append('\n');
     }
 
     // Quick search
     public static void searchInBookingProcess(RentalSystem system, Scanner scanner, Account account) {
         System.out.println("\n=== Quick Vehicle Search ===");
-        System.out.print("Enter search query (brand/model/type/fuel) or use Boolean operators (AND/OR): ");
+        System.out.print("Enter search query (brand/model/type/fuel) or use Boolean operators (AND/OR/NOT): ");
         String query = scanner.nextLine().trim().toLowerCase();
 
         if (query.isEmpty()) {
@@ -1595,7 +2054,9 @@ public class RentalSystem {
         System.out.println("- Single term: 'toyota' or 'suv'");
         System.out.println("- Multiple terms (AND): 'toyota AND suv'");
         System.out.println("- Alternative terms (OR): 'toyota OR honda'");
-        System.out.println("- Complex: 'toyota OR honda AND car'");
+        System.out.println("- Exclude (NOT): 'toyota NOT hybrid'");
+        System.out.println("- Fields: 'brand:toyota', 'year>2020', 'price<100', 'capacity:4..7'");
+        System.out.println("- Complex: '(toyota OR honda) AND fuel:petrol'");
 
         // Parse and execute search
         List<Vehicle> searchResults = vehicleService.performSearch(vehicleService.getVehicles(), query);
@@ -1609,6 +2070,98 @@ public class RentalSystem {
         // Execute Boolean logic search
         System.out.println("\nSearch Results (" + searchResults.size() + " vehicles found):");
         vehicleService.displaySearchResults(searchResults);
+        vehicleService.displayFacetCounts(searchResults);
+    }
+
+    /**
+     * Compare prices of all available vehicles for one rental period, cheapest first
+     */
+    public static void compareVehiclePrices(RentalSystem system, Scanner scanner) {
+        System.out.println("\n=== Compare Vehicle Prices ===");
+
+        LocalDate startDate;
+        System.out.print("Enter start date (yyyy-MM-dd or 'today'): ");
+        String startStr = scanner.nextLine().trim();
+        try {
+            startDate = startStr.equalsIgnoreCase("today") ? LocalDate.now() : LocalDate.parse(startStr);
+        } catch (Exception e) {
+            System.out.println("Invalid date format. Please use yyyy-MM-dd.");
+            return;
+        }
+        String startProblem = RentalOperations.checkStartDate(startDate);
+        if (startProblem != null) {
+            System.out.println(startProblem + ".");
+            return;
+        }
+
+        int days;
+        System.out.print("Enter number of rental days: ");
+        try {
+            days = Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number format. Please enter a valid number.");
+            return;
+        }
+        if (days <= 0) {
+            System.out.println("Rental days must be positive.");
+            return;
+        }
+        LocalDate endDate = startDate.plusDays(days - 1);
+
+        boolean insurance = AccountService.getYesNoInput(scanner, "Include insurance?");
+
+        QuoteFilter filter = new QuoteFilter();
+        System.out.print("Vehicle type (e.g. Sedan, SUV, MPV, Hatchback; blank for any): ");
+        String typeStr = scanner.nextLine().trim();
+        if (!typeStr.isEmpty()) {
+            VehicleType type = VehicleType.fromLabel(typeStr);
+            if (type == VehicleType.OTHER) {
+                System.out.println("Unknown vehicle type, ignoring.");
+            } else {
+                filter.setVehicleType(type);
+            }
+        }
+        System.out.print("Fuel type (Petrol/Diesel/Electric/Hybrid, blank for any): ");
+        String fuelStr = scanner.nextLine().trim();
+        if (!fuelStr.isEmpty()) {
+            FuelType fuel = FuelType.fromLabel(fuelStr);
+            if (fuel == FuelType.OTHER) {
+                System.out.println("Unknown fuel type, ignoring.");
+            } else {
+                filter.setFuelType(fuel);
+            }
+        }
+        System.out.print("Brand (blank for any): ");
+        String brand = scanner.nextLine().trim();
+        if (!brand.isEmpty()) {
+            filter.setBrand(brand);
+        }
+        System.out.print("Minimum capacity (blank for any): ");
+        String capacityStr = scanner.nextLine().trim();
+        if (!capacityStr.isEmpty()) {
+            try {
+                filter.setCapacityRange(Double.parseDouble(capacityStr), Double.MAX_VALUE);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid capacity, ignoring.");
+            }
+        }
+
+        List<Quote> quotes = system.getQuoteEngine().quote(startDate, endDate, insurance, filter, 0);
+        if (quotes.isEmpty()) {
+            System.out.println("\nNo vehicles available for " + startDate + " to " + endDate + ".");
+            return;
+        }
+
+        System.out.println("\nAvailable vehicles for " + startDate + " to " + endDate + " (" + days + " days):");
+        System.out.printf("%-4s %-12s %-25s %10s %9s %12s %10s\n",
+                "#", "Plate", "Vehicle", "RM/day", "Discount", "Total", "Deposit");
+        int rank = 1;
+        for (Quote quote : quotes) {
+            Vehicle v = quote.getVehicle();
+            System.out.printf("%-4d %-12s %-25s %10.2f %8.0f%% %12.2f %10.2f\n",
+                    rank++, v.getCarPlate(), v.getBrand() + " " + v.getModel(), v.getBasePrice(),
+                    quote.getDiscountRate() * 100, quote.getTotalFee(), quote.getDeposit());
+        }
     }
 
     // Request vehicle return
@@ -1971,10 +2524,11 @@ public class RentalSystem {
             reason = "No reason provided";
         }
 
-        if (system.cancelRental(rentalId, reason)) {
+        CommandResult result = system.getOperations().cancel(rentalId, reason);
+        if (result.isSuccess()) {
             System.out.println("Rental rejected successfully with reason: " + reason);
         } else {
-            System.out.println("Failed to reject rental. Please check the rental ID.");
+            System.out.println("Failed to reject rental: " + result.getMessage());
         }
     }
 
@@ -1992,10 +2546,10 @@ public class RentalSystem {
         String choice = scanner.nextLine();
         switch (choice) {
             case "1":
-                ReportService.generateMonthlyReport(system.getRentals(), scanner);
+                ReportService.generateMonthlyReport(system.getAllRentals(), scanner);
                 break;
             case "2":
-                ReportService.generatePopularVehicleReport(system.getRentals(), scanner);
+                ReportService.generatePopularVehicleReport(system.getAllRentals(), scanner);
                 break;
             case "3":
                 exportRentalHistory(system, scanner);
@@ -2009,7 +2563,7 @@ public class RentalSystem {
 
     // Export rental history
     public static void exportRentalHistory(RentalSystem system, Scanner scanner) {
-        List<Rental> rentals = system.getRentals();
+        List<Rental> rentals = system.getAllRentals();
 
         System.out.println("\n╔══════════════════════════════════════════════════════════════════╗");
         System.out.println("║                      RENTAL HISTORY EXPORT                       ║");
@@ -2056,6 +2610,7 @@ public class RentalSystem {
             System.out.println("║ 2. View Ticket Details                                           ║");
             System.out.println("║ 3. Validate Ticket                                               ║");
             System.out.println("║ 4. Ticket Statistics                                             ║");
+            System.out.println("║ 5. Verify Scanned Ticket Code                                    ║");
             System.out.println("║ 0. Return to Main Menu                                           ║");
             System.out.println("╚══════════════════════════════════════════════════════════════════╝");
             System.out.print("Choose option: ");
@@ -2082,6 +2637,16 @@ public class RentalSystem {
                     System.out.println("\nPress Enter to continue...");
                     scanner.nextLine();
                     break;
+                case "5":
+                    System.out.print("Scan ticket code: ");
+                    CommandResult scan = ticketService.verifyScanCode(scanner.nextLine());
+                    if (scan.getTicket() != null) {
+                        scan.getTicket().displayTicket();
+                    }
+                    System.out.println((scan.isSuccess() ? " " : " ERROR: ") + scan.getMessage());
+                    System.out.println("\nPress Enter to continue...");
+                    scanner.nextLine();
+                    break;
                 case "0":
                     return;
                 default:
@@ -2093,19 +2658,33 @@ public class RentalSystem {
     // Validate ticket for vehicle pickup
     public static void validateTicketForPickup(RentalSystem system, Scanner scanner) {
         System.out.println("\n=== Ticket Validation for Vehicle Pickup ===");
-        System.out.print("Enter ticket ID: ");
-        String ticketId = scanner.nextLine();
-
-        System.out.print("Enter customer IC last 4 digits: ");
-        String icLastFour = scanner.nextLine();
+        System.out.print("Scan ticket code or enter ticket ID: ");
+        String ticketInput = scanner.nextLine().trim();
 
         TicketService ticketService = system.getTicketService();
-        Ticket ticket = ticketService.getTicketById(ticketId);
+        Ticket ticket;
+        if (TicketSigner.isScanCode(ticketInput)) {
+            CommandResult scan = ticketService.verifyScanCode(ticketInput);
+            if (!scan.isSuccess()) {
+                System.out.println("\n ERROR: " + scan.getMessage());
+                System.out.println("Pickup cancelled - ticket code rejected.");
+                System.out.println("\nPress Enter to continue...");
+                scanner.nextLine();
+                return;
+            }
+            ticket = scan.getTicket();
+        } else {
+            ticket = ticketService.getTicketById(ticketInput);
+        }
 
         if (ticket == null) {
             System.out.println(" Ticket not found.");
             return;
         }
+        String ticketId = ticket.getTicketId();
+
+        System.out.print("Enter customer IC last 4 digits: ");
+        String icLastFour = scanner.nextLine();
 
         // Display ticket details for verification
         ticket.displayTicket();
@@ -2120,14 +2699,7 @@ public class RentalSystem {
         }
 
         // Find the rental associated with this ticket
-        Rental associatedRental = null;
-        for (Rental rental : system.getRentals()) {
-            Ticket rentalTicket = system.getTicketService().getTicketByRentalId(rental.getId());
-            if (rentalTicket != null && rentalTicket.getTicketId().equals(ticketId)) {
-                associatedRental = rental;
-                break;
-            }
-        }
+        Rental associatedRental = system.findRentalById(ticket.getRentalId());
 
         if (associatedRental == null) {
             System.out.println("\n ERROR: Could not find rental record for this ticket!");
@@ -2200,13 +2772,14 @@ public class RentalSystem {
         String confirm = scanner.nextLine();
 
         if (confirm.equalsIgnoreCase("y")) {
-            if (ticketService.validateAndUseTicket(ticketId, ticket.getCustomerName())) {
+            // Another desk may have used the ticket since it was displayed; only one claim succeeds
+            if (ticketService.validateAndUseTicket(ticketId, customerUsername)) {
                 System.out.println(" Ticket validated successfully!");
                 System.out.println("Vehicle can be handed over to customer.");
 
                 // Update rental status to active if needed and set vehicle status to RENTED
-                Rental rental = system.findRentalById(ticket.getRentalId());
-                if (rental != null && rental.getStatus() == RentalStatus.ACTIVE) {
+                Rental rental = associatedRental;
+                if (rental.getStatus() == RentalStatus.ACTIVE) {
                     // Set vehicle status to RENTED when picked up
                     rental.getVehicle().setStatus("rented");
 
@@ -2218,7 +2791,7 @@ public class RentalSystem {
 
                     System.out.println(" Rental is active and ready for pickup.");
                     System.out.println(" Vehicle status updated to RENTED.");
-                    vehicleService.saveVehicles("vehicles.json");
+                    vehicleService.saveVehicles(system.dataFile("vehicles.json"));
                 }
             } else {
                 System.out.println(" Ticket validation failed.");
@@ -2394,9 +2967,11 @@ public class RentalSystem {
                 boolean extensionInsurance = AccountService.getYesNoInput(scanner, "Include insurance for the extended period?");
 
                 // Extend the rental
-                if (system.extendRental(selectedAccount.getUsername(), vehicleId, newEndDate, extensionInsurance)) {
-                    Rental updatedRental = system.findActiveRentalByUserAndVehicle(selectedAccount.getUsername(),
-                            vehicleId);
+                CommandResult result = system.getOperations().extend(new ExtensionRequest(
+                        selectedAccount.getUsername(), vehicleId, newEndDate, extensionInsurance,
+                        existingRental.getId()));
+                if (result.isSuccess()) {
+                    Rental updatedRental = result.getRental();
                     System.out.println("\n=== OFFLINE RENTAL EXTENSION SUCCESSFUL ===\n");
                     System.out.printf("Updated Rental ID: %d\n", updatedRental.getId());
                     System.out.printf("Extended until: %s\n", updatedRental.getEndDate());
@@ -2404,13 +2979,13 @@ public class RentalSystem {
                     System.out.println("New ticket generated.");
 
                     // Display new ticket
-                    Ticket newTicket = system.getTicketService().getTicketByRentalId(updatedRental.getId());
+                    Ticket newTicket = result.getTicket();
                     if (newTicket != null) {
                         System.out.println("\n=== Updated Ticket ===\n");
                         newTicket.displayTicket();
                     }
                 } else {
-                    System.out.println("Failed to extend rental. Please try again.");
+                    System.out.println("Failed to extend rental: " + result.getMessage());
                 }
 
                 System.out.println("\nPress Enter to continue...");
@@ -2458,14 +3033,9 @@ public class RentalSystem {
             } else {
                 try {
                     startDate = LocalDate.parse(startStr);
-                    if (startDate.isBefore(LocalDate.now())) {
-                        System.out.println("Start date cannot be in the past.");
-                        System.out.println("\nPress Enter to continue...");
-                        scanner.nextLine();
-                        startDate = null; // Reset to continue loop
-                        continue;
-                    } else if (!system.validateBookingDateRange(startDate)) {
-                        System.out.println("Error: Booking cannot be more than 3 years in advance.");
+                    String problem = RentalOperations.checkStartDate(startDate);
+                    if (problem != null) {
+                        System.out.println("Error: " + problem + ".");
                         System.out.println("\nPress Enter to continue...");
                         scanner.nextLine();
                         startDate = null; // Reset to continue loop
@@ -2508,8 +3078,9 @@ public class RentalSystem {
                     System.out.println("Rental days must be positive.");
                     System.out.println("\nPress Enter to continue...");
                     scanner.nextLine();
-                } else if (rentalDays > 30) {
-                    System.out.println("Error: Maximum rental duration is 30 days.");
+                } else if (rentalDays > RentalOperations.MAX_RENTAL_DAYS) {
+                    System.out.println("Error: Maximum rental duration is " + RentalOperations.MAX_RENTAL_DAYS
+                            + " days.");
                     System.out.println("\nPress Enter to continue...");
                     scanner.nextLine();
                     rentalDays = 0;
@@ -2607,26 +3178,24 @@ public class RentalSystem {
             System.out.println("✓ Deposit payment confirmed!");
         }
 
-        try {
-            // Create temporary customer object for rental
-            models.Customer customer = new models.Customer(customerName, contact);
-            Rental rental = system.createOfflineRental(customer, selectedVehicle, startDate, endDate,
-                    insurance, selectedAccount.getUsername());
-
+        // Create temporary customer object for rental
+        models.Customer customer = new models.Customer(customerName, contact);
+        CommandResult result = system.getOperations().bookWalkIn(new BookingRequest(customer, vehicleId,
+                startDate, endDate, insurance, selectedAccount.getUsername()));
+        if (result.isSuccess()) {
             System.out.println("\n=== OFFLINE BOOKING SUCCESSFUL ===\n");
-            System.out.println("Rental ID: " + rental.getId());
+            System.out.println("Rental ID: " + result.getRental().getId());
             System.out.println("Status: ACTIVE (No approval needed)");
             System.out.println("Ticket generated.");
 
             // Display ticket information
-            Ticket ticket = system.getTicketService().getTicketByRentalId(rental.getId());
+            Ticket ticket = result.getTicket();
             if (ticket != null) {
                 System.out.println("\n=== Generated Ticket ===\n");
                 ticket.displayTicket();
             }
-
-        } catch (Exception e) {
-            System.out.println("Failed to create offline booking: " + e.getMessage());
+        } else {
+            System.out.println("Failed to create offline booking: " + result.getMessage());
         }
 
         System.out.println("\nPress Enter to continue...");
@@ -2666,7 +3235,7 @@ public class RentalSystem {
                     scanner.nextLine();
                     break;
                 case "2":
-                    viewAllRentals(system.getRentals());
+                    viewAllRentals(system.getAllRentals());
                     System.out.println("\nPress Enter to continue...");
                     scanner.nextLine();
                     break;
@@ -2791,7 +3360,7 @@ public class RentalSystem {
                     scanner.nextLine();
                     break;
                 case "5":
-                    RentalSystem.viewMyRentalHistoryEnhanced(system, account.getUsername());
+                    RentalSystem.viewMyRentalHistoryEnhanced(system, scanner, account.getUsername());
                     System.out.println("\nPress Enter to continue...");
                     scanner.nextLine();
                     break;
@@ -2813,7 +3382,6 @@ public class RentalSystem {
 
     // View my rental tickets
     public static void viewMyTickets(RentalSystem system, Scanner scanner, String username) {
-        // Get customer name from username
         Account account = AccountService.getAccountByUsername(username);
         if (account == null) {
             System.out.println("Account not found.");
@@ -2822,16 +3390,9 @@ public class RentalSystem {
             return;
         }
 
-        String customerName = account.getFullName();
-        if (customerName == null || customerName.isEmpty()) {
-            System.out.println("Please complete your profile first to view tickets.");
-            System.out.println("Press Enter to continue...");
-            scanner.nextLine();
-            return;
-        }
-
+        // Tickets are owned by username, so renaming the profile does not hide them
         TicketService ticketService = system.getTicketService();
-        List<Ticket> customerTickets = ticketService.getCustomerTickets(customerName);
+        List<Ticket> customerTickets = ticketService.getCustomerTickets(username);
 
         if (customerTickets.isEmpty()) {
             System.out.println("\n=== No Tickets Found ===");
@@ -2895,10 +3456,19 @@ public class RentalSystem {
         String idStr = scanner.nextLine();
         try {
             int rentalId = Integer.parseInt(idStr);
-            if (system.cancelRental(rentalId)) {
+            boolean mine = false;
+            for (Rental r : pendingRentals) {
+                mine |= r.getId() == rentalId;
+            }
+            if (!mine) {
+                System.out.println("Unable to cancel booking: it is not one of your pending bookings.");
+                return;
+            }
+            CommandResult result = system.getOperations().cancel(rentalId, "Cancelled by customer");
+            if (result.isSuccess()) {
                 System.out.println("Booking cancelled successfully.");
             } else {
-                System.out.println("Unable to cancel booking.");
+                System.out.println("Unable to cancel booking: " + result.getMessage());
             }
         } catch (NumberFormatException e) {
             System.out.println("Invalid rental ID format.");
@@ -0,0 +1,95 @@
+package services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import models.Ticket;
+
+/**
+ * Measures scan code verification at the pickup counter: a registry of
+ * synthetic tickets (in a temporary store, with a throwaway key) is verified
+ * by several desk threads, one in ten codes tampered with, then throughput
+ * and p50/p99 latency are reported. Real ticket data is never touched.
+ */
+public class TicketScanBenchmark {
+
+    /**
+     * Run the benchmark and print a throughput/latency summary
+     *
+     * @param ticketCount tickets in the registry
+     * @param desks       threads verifying codes in parallel
+     * @param scans       total number of codes verified
+     */
+    public static void run(int ticketCount, int desks, int scans) throws IOException, InterruptedException {
+        Path storeFile = Files.createTempFile("ticket_bench", ".log");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        TicketStore store = new TicketStore(storeFile.toString());
+        try {
+            TicketService tickets = new TicketService(null, store, new TicketSigner(key));
+            String[] codes = new String[ticketCount];
+            LocalDate start = LocalDate.now();
+            for (int i = 0; i < ticketCount; i++) {
+                String ticketId = "TKT-20250101120000-" + String.format("%08X", i);
+                Ticket ticket = new Ticket(ticketId, i + 1, "user" + (i % 500), "Customer " + i, "0123456789",
+                        "Perodua Myvi", "WXY" + (1000 + i % 9000), start.plusDays(i % 30).toString(),
+                        start.plusDays(i % 30 + 3).toString(), 300.0, false, LocalDateTime.now(),
+                        "Main Office - CarSeek HQ", "", false);
+                tickets.importTicket(ticket);
+                codes[i] = tickets.getScanCode(ticket);
+            }
+
+            long[] latencies = new long[scans];
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(desks);
+            long started = System.nanoTime();
+            for (int d = 0; d < desks; d++) {
+                executor.execute(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < scans) {
+                        String code = codes[i % ticketCount];
+                        if (i % 10 == 9) {
+                            code = code.replace("|WXY", "|WXZ"); // Forged plate, signature no longer matches
+                        }
+                        long t0 = System.nanoTime();
+                        boolean ok = tickets.verifyScanCode(code).isSuccess();
+                        latencies[i] = System.nanoTime() - t0;
+                        (ok ? accepted : rejected).incrementAndGet();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.println("\n=== Ticket Scan Benchmark ===");
+            System.out.printf("Tickets: %d | Desks: %d | Scans: %d | Accepted: %d | Rejected: %d%n",
+                    ticketCount, desks, scans, accepted.get(), rejected.get());
+            System.out.printf("Throughput: %.0f scans/s%n", scans / seconds);
+            System.out.printf("Latency p50: %.1f us | p99: %.1f us%n",
+                    percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3);
+        } finally {
+            store.close();
+            Files.deleteIfExists(storeFile);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -1,45 +1,80 @@
 package services;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import models.*;
 
+/**
+ * Ticket registry indexed by ticket ID, rental ID and owner username, backed
+ * by an append-only ticket store that keeps ticket IDs stable across restarts.
+ *
+ * The indexes are concurrent maps, so pickup desks can look tickets up and
+ * validate them at the same time; validating a ticket uses it with a single
+ * compare-and-set, so it can never be used twice. Scan codes printed on PDF
+ * tickets are HMAC-signed (see TicketSigner) and verified with one map lookup.
+ */
 public class TicketService {
-    private Map<String, Ticket> tickets; // ticketId -> Ticket
-    private Map<String, List<Ticket>> customerTickets; // customerName -> List of tickets
-    private Map<Integer, Ticket> rentalTickets; // rentalId -> Ticket
+    private final Map<String, Ticket> tickets; // ticketId -> Ticket
+    private final Map<String, List<Ticket>> userTickets; // username -> tickets, oldest first
+    private final Map<Integer, Ticket> rentalTickets; // rentalId -> Ticket
     
+    private final ChangeLog changeLog; // Records ticket use; null when not tracked
+    private final TicketStore store;
+    private final TicketSigner signer; // Null when the ticket key could not be loaded
+
     public TicketService() {
-        this.tickets = new HashMap<>();
-        this.customerTickets = new HashMap<>();
-        this.rentalTickets = new HashMap<>();
+        this(null);
+    }
+
+    public TicketService(ChangeLog changeLog) {
+        this(changeLog, new TicketStore(), TicketSigner.DEFAULT_KEY_FILE);
+    }
+
+    public TicketService(ChangeLog changeLog, TicketStore store, String keyFile) {
+        this(changeLog, store, loadSigner(keyFile));
+    }
+
+    public TicketService(ChangeLog changeLog, TicketStore store, TicketSigner signer) {
+        this.tickets = new ConcurrentHashMap<>();
+        this.userTickets = new ConcurrentHashMap<>();
+        this.rentalTickets = new ConcurrentHashMap<>();
+        this.changeLog = changeLog;
+        this.store = store;
+        this.signer = signer;
+        for (Ticket ticket : store.load().values()) {
+            register(ticket);
+        }
     }
     
     /**
      * Generate a new ticket for approved rental
      */
     public Ticket generateTicket(Rental rental) {
+        Ticket ticket = new Ticket(rental);
+        Ticket existingTicket = rentalTickets.putIfAbsent(rental.getId(), ticket);
+
         // Check if ticket already exists for this rental
-        if (rentalTickets.containsKey(rental.getId())) {
+        if (existingTicket != null) {
             System.out.println("Warning: Ticket already exists for rental ID " + rental.getId());
             // Update existing ticket with latest rental information
-            Ticket existingTicket = rentalTickets.get(rental.getId());
+            String previousOwner = existingTicket.getUsername();
             existingTicket.updateFromRental(rental);
+            if (!previousOwner.equals(existingTicket.getUsername())) {
+                unindexUser(previousOwner, existingTicket);
+                indexUser(existingTicket);
+            }
+            save(existingTicket);
             System.out.println("Ticket updated with new rental information: " + existingTicket.getTicketId());
             return existingTicket;
         }
         
-        // Create new ticket
-        Ticket ticket = new Ticket(rental);
-        
-        // Store in maps
         tickets.put(ticket.getTicketId(), ticket);
-        rentalTickets.put(rental.getId(), ticket);
-        
-        // Store in customer tickets
-        String customerName = ticket.getCustomerName();
-        customerTickets.computeIfAbsent(customerName, k -> new ArrayList<>()).add(ticket);
+        indexUser(ticket);
+        save(ticket);
         
         System.out.println("Ticket generated: " + ticket.getTicketId());
         return ticket;
@@ -52,6 +87,49 @@ public class TicketService {
         return tickets.get(ticketId);
     }
     
+    /**
+     * Signed scan code for the ticket's QR code, or null if codes are unavailable
+     */
+    public String getScanCode(Ticket ticket) {
+        return signer == null ? null : signer.sign(ticket);
+    }
+
+    /**
+     * Check a scanned ticket code: the signature, then the ticket by ID (one map
+     * lookup), then that the code still matches the ticket and it is unused.
+     * Nothing is changed; pickup still goes through validateAndUseTicket.
+     */
+    public CommandResult verifyScanCode(String code) {
+        if (signer == null) {
+            return CommandResult.fail("Ticket codes cannot be verified: ticket key not loaded");
+        }
+        String[] fields = signer.verify(code);
+        if (fields == null) {
+            return CommandResult.fail("Invalid ticket code (signature check failed)");
+        }
+        Ticket ticket = tickets.get(fields[0]);
+        if (ticket == null) {
+            return CommandResult.fail("Ticket not found: " + fields[0]);
+        }
+        if (!TicketSigner.matches(fields, ticket)) {
+            return CommandResult.fail("Ticket code is out of date; the ticket was changed after it was issued")
+                    .withTicket(ticket);
+        }
+        if (ticket.isUsed()) {
+            return CommandResult.fail("Ticket has already been used").withTicket(ticket);
+        }
+        return CommandResult.ok("Ticket code verified").withTicket(ticket);
+    }
+
+    private static TicketSigner loadSigner(String keyFile) {
+        try {
+            return new TicketSigner(keyFile);
+        } catch (IOException e) {
+            System.out.println("Failed to load ticket key: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Get ticket by rental ID
      */
@@ -60,30 +138,63 @@ public class TicketService {
     }
     
     /**
-     * Get all tickets for a customer
+     * Get all tickets owned by a user
      */
-    public List<Ticket> getCustomerTickets(String customerName) {
-        return customerTickets.getOrDefault(customerName, new ArrayList<>());
+    public List<Ticket> getCustomerTickets(String username) {
+        List<Ticket> owned = userTickets.get(username == null ? "" : username);
+        return owned == null ? new ArrayList<>() : new ArrayList<>(owned);
     }
 
     /**
-     * Load an existing ticket (used when loading from JSON)
+     * Add a ticket from legacy data (tickets inlined in rentals.json) to the store,
+     * unless its ID or rental already has a stored ticket
+     *
+     * @return true if the ticket was imported
      */
-    public void loadTicket(Ticket ticket) {
+    public boolean importTicket(Ticket ticket) {
+        if (tickets.containsKey(ticket.getTicketId()) || rentalTickets.containsKey(ticket.getRentalId())) {
+            return false;
+        }
+        register(ticket);
+        save(ticket);
+        return true;
+    }
+
+    private void register(Ticket ticket) {
         // Store in maps
         tickets.put(ticket.getTicketId(), ticket);
-        rentalTickets.put(ticket.getRentalId(), ticket);
-        
-        // Store in customer tickets
-        String customerName = ticket.getCustomerName();
-        customerTickets.computeIfAbsent(customerName, k -> new ArrayList<>()).add(ticket);
+        Ticket replaced = rentalTickets.put(ticket.getRentalId(), ticket);
+        if (replaced != null && replaced != ticket) {
+            tickets.remove(replaced.getTicketId(), replaced);
+            unindexUser(replaced.getUsername(), replaced);
+        }
+        indexUser(ticket);
+    }
+
+    private void save(Ticket ticket) {
+        try {
+            store.appendTicket(ticket);
+        } catch (IOException e) {
+            System.out.println("Failed to save ticket: " + e.getMessage());
+        }
+    }
+
+    private void indexUser(Ticket ticket) {
+        userTickets.computeIfAbsent(ticket.getUsername(), k -> new CopyOnWriteArrayList<>()).add(ticket);
+    }
+
+    private void unindexUser(String username, Ticket ticket) {
+        userTickets.computeIfPresent(username, (k, owned) -> {
+            owned.remove(ticket);
+            return owned.isEmpty() ? null : owned;
+        });
     }
     
     /**
      * Get all valid (unused) tickets for a customer
      */
-    public List<Ticket> getValidCustomerTickets(String customerName) {
-        List<Ticket> allTickets = getCustomerTickets(customerName);
+    public List<Ticket> getValidCustomerTickets(String username) {
+        List<Ticket> allTickets = getCustomerTickets(username);
         List<Ticket> validTickets = new ArrayList<>();
         
         for (Ticket ticket : allTickets) {
@@ -96,9 +207,11 @@ public class TicketService {
     }
     
     /**
-     * Validate and use a ticket
+     * Validate and use a ticket. The ticket is looked up by ID and claimed with a
+     * single compare-and-set, so when several desks validate the same ticket
+     * at once exactly one succeeds.
      */
-    public boolean validateAndUseTicket(String ticketId, String customerName) {
+    public boolean validateAndUseTicket(String ticketId, String username) {
         Ticket ticket = tickets.get(ticketId);
         
         if (ticket == null) {
@@ -106,17 +219,27 @@ public class TicketService {
             return false;
         }
         
-        if (ticket.isUsed()) {
-            System.out.println("Error: Ticket has already been used.");
+        if (!ticket.getUsername().equals(username)) {
+            System.out.println("Error: Ticket does not belong to this customer.");
             return false;
         }
         
-        if (!ticket.getCustomerName().equals(customerName)) {
-            System.out.println("Error: Ticket does not belong to this customer.");
+        if (!ticket.claim()) {
+            System.out.println("Error: Ticket has already been used.");
             return false;
         }
         
-        ticket.markAsUsed();
+        try {
+            store.appendUsed(ticket);
+        } catch (IOException e) {
+            // A use that is not on disk would be forgotten on restart; the scan fails and can be retried
+            ticket.release();
+            System.out.println("Failed to save ticket use: " + e.getMessage());
+            return false;
+        }
+        if (changeLog != null) {
+            changeLog.ticketUsed(ticket);
+        }
         System.out.println(" Ticket validated and marked as used.");
         return true;
     }
@@ -124,11 +247,11 @@ public class TicketService {
     /**
      * Display all tickets for a customer
      */
-    public void displayCustomerTickets(String customerName) {
-        List<Ticket> customerTicketList = getCustomerTickets(customerName);
+    public void displayCustomerTickets(String username) {
+        List<Ticket> customerTicketList = getCustomerTickets(username);
         
         if (customerTicketList.isEmpty()) {
-            System.out.println("No tickets found for customer: " + customerName);
+            System.out.println("No tickets found for customer: " + username);
             return;
         }
         
@@ -177,7 +300,7 @@ public class TicketService {
         stats.put("total", totalTickets);
         stats.put("used", usedTickets);
         stats.put("valid", validTickets);
-        stats.put("customers", customerTickets.size());
+        stats.put("customers", userTickets.size());
         
         return stats;
     }
@@ -213,7 +336,7 @@ public class TicketService {
         }
     }
     
-    public boolean hasValidTickets(String customerName) {
-        return !getValidCustomerTickets(customerName).isEmpty();
+    public boolean hasValidTickets(String username) {
+        return !getValidCustomerTickets(username).isEmpty();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,139 @@
+package services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import models.Ticket;
+
+/**
+ * Signs and checks the scan codes printed on PDF tickets.
+ *
+ * A scan code is T1|ticketId|rentalId|plate|start|end|mac, with dates as
+ * yyyyMMdd and mac the first 16 bytes of an HMAC-SHA256 over everything
+ * before it, base64url encoded. The key is generated on first use and kept
+ * in a key file beside the data files; anyone holding it can issue valid
+ * codes, so it is created readable by the owner only where supported.
+ */
+public class TicketSigner {
+
+    public static final String DEFAULT_KEY_FILE = "ticket_qr.key";
+    public static final String PREFIX = "T1|";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int KEY_BYTES = 32;
+    private static final int MAC_BYTES = 16;
+    private static final int FIELDS = 7;
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs; // Mac instances are not thread-safe
+
+    public TicketSigner() throws IOException {
+        this(DEFAULT_KEY_FILE);
+    }
+
+    public TicketSigner(String keyFile) throws IOException {
+        this(loadOrCreateKey(Paths.get(keyFile)));
+    }
+
+    public TicketSigner(byte[] keyBytes) {
+        this.key = new SecretKeySpec(keyBytes.clone(), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        });
+    }
+
+    /**
+     * Scan code for the ticket's current details
+     */
+    public String sign(Ticket ticket) {
+        String body = PREFIX + clean(ticket.getTicketId()) + "|" + ticket.getRentalId() + "|"
+                + clean(ticket.getCarPlate()) + "|" + compactDate(ticket.getStartDate()) + "|"
+                + compactDate(ticket.getEndDate());
+        return body + "|" + Base64.getUrlEncoder().withoutPadding().encodeToString(mac(body));
+    }
+
+    /**
+     * Fields of a scan code whose signature checks out, or null if the code is
+     * malformed or was not signed with this key
+     *
+     * @return ticketId, rentalId, plate, start and end date as signed
+     */
+    public String[] verify(String code) {
+        if (code == null) {
+            return null;
+        }
+        code = code.trim();
+        int macStart = code.lastIndexOf('|');
+        if (!code.startsWith(PREFIX) || macStart < 0) {
+            return null;
+        }
+        String[] parts = code.split("\\|", -1);
+        if (parts.length != FIELDS) {
+            return null;
+        }
+        byte[] presented;
+        try {
+            presented = Base64.getUrlDecoder().decode(parts[6]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        byte[] expected = mac(code.substring(0, macStart));
+        if (!MessageDigest.isEqual(expected, presented)) {
+            return null;
+        }
+        return Arrays.copyOfRange(parts, 1, FIELDS - 1);
+    }
+
+    /**
+     * Whether verified scan code fields still describe the ticket (an extension
+     * changes the dates, so codes printed before it no longer match)
+     */
+    public static boolean matches(String[] fields, Ticket ticket) {
+        return fields[0].equals(clean(ticket.getTicketId()))
+                && fields[1].equals(String.valueOf(ticket.getRentalId()))
+                && fields[2].equals(clean(ticket.getCarPlate()))
+                && fields[3].equals(compactDate(ticket.getStartDate()))
+                && fields[4].equals(compactDate(ticket.getEndDate()));
+    }
+
+    public static boolean isScanCode(String input) {
+        return input != null && input.trim().startsWith(PREFIX);
+    }
+
+    private byte[] mac(String body) {
+        return Arrays.copyOf(macs.get().doFinal(body.getBytes(StandardCharsets.UTF_8)), MAC_BYTES);
+    }
+
+    private static byte[] loadOrCreateKey(Path file) throws IOException {
+        byte[] keyBytes;
+        try {
+            keyBytes = Base64.getDecoder().decode(UtilityService.readOrCreateSecret(file, KEY_BYTES));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Ticket key in " + file + " is not valid base64");
+        }
+        if (keyBytes.length < KEY_BYTES) {
+            throw new IOException("Ticket key in " + file + " is shorter than " + KEY_BYTES + " bytes");
+        }
+        return keyBytes;
+    }
+
+    private static String compactDate(String isoDate) {
+        return isoDate.replace("-", "");
+    }
+
+    private static String clean(String text) {
+        return text == null ? "" : text.replace('|', ' ');
+    }
+}
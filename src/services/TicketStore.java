@@ -0,0 +1,169 @@
+package services;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import models.Ticket;
+
+/**
+ * Append-only ticket store.
+ *
+ * A TICKET line holds a full ticket (written when it is generated or updated
+ * for an extension) and a USED line marks it used at pickup:
+ *   TICKET|ticketId|rentalId|username|customer|contact|vehicle|plate|start|end|fee|insurance|generated|location|instructions|used
+ *   USED|ticketId|time
+ * Every line is forced to disk before the change is reported, so ticket IDs
+ * and pickups survive a crash. A torn last line left by a crash is ended
+ * before the next append, so it is skipped on load instead of swallowing the
+ * new line. Loading replays the file into tickets keyed by
+ * ID; when most lines are superseded the file is rewritten with one line per
+ * ticket.
+ */
+public class TicketStore {
+
+    public static final String DEFAULT_FILE = "tickets.log";
+
+    private static final String TICKET = "TICKET";
+    private static final String USED = "USED";
+    private static final int TICKET_FIELDS = 16;
+
+    private final Path file;
+    private FileChannel channel;
+
+    public TicketStore() {
+        this(DEFAULT_FILE);
+    }
+
+    public TicketStore(String filename) {
+        this.file = Paths.get(filename);
+    }
+
+    /**
+     * Replay the store, skipping malformed (e.g. torn) lines
+     *
+     * @return tickets by ID in the order they were first generated
+     */
+    public synchronized Map<String, Ticket> load() {
+        Map<String, Ticket> tickets = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return tickets;
+        }
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                String[] parts = line.split("\\|", -1);
+                try {
+                    if (parts[0].equals(TICKET) && parts.length >= TICKET_FIELDS) {
+                        Ticket ticket = parseTicket(parts);
+                        tickets.put(ticket.getTicketId(), ticket);
+                    } else if (parts[0].equals(USED) && parts.length >= 2 && tickets.containsKey(parts[1])) {
+                        tickets.get(parts[1]).markAsUsed();
+                    }
+                } catch (Exception e) {
+                    // Ignore partially written entries
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to load tickets: " + e.getMessage());
+            return tickets;
+        }
+        if (lines > 2 * tickets.size() + 100) {
+            try {
+                rewrite(tickets.values());
+            } catch (IOException e) {
+                System.out.println("Failed to compact ticket store: " + e.getMessage());
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * Record a new ticket, or the latest details of an updated one
+     */
+    public synchronized void appendTicket(Ticket ticket) throws IOException {
+        append(ticketLine(ticket));
+    }
+
+    /**
+     * Record that a ticket was used at pickup
+     */
+    public synchronized void appendUsed(Ticket ticket) throws IOException {
+        append(USED + "|" + ticket.getTicketId() + "|" + System.currentTimeMillis() + "\n");
+    }
+
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close ticket store: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    private void append(String line) throws IOException {
+        if (channel == null) {
+            if (!UtilityService.endsWithNewline(file)) {
+                line = "\n" + line;
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            close(); // The line may be torn; reopening checks the file end again
+            throw e;
+        }
+    }
+
+    /**
+     * Replace the file with one line per ticket, written beside it and moved into place
+     */
+    private void rewrite(Collection<Ticket> tickets) throws IOException {
+        close();
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Ticket ticket : tickets) {
+                    writer.write(ticketLine(ticket));
+                }
+            }
+            UtilityService.replaceFile(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Ticket parseTicket(String[] parts) {
+        return new Ticket(parts[1], Integer.parseInt(parts[2]), parts[3], parts[4], parts[5], parts[6], parts[7],
+                parts[8], parts[9], Double.parseDouble(parts[10]), Boolean.parseBoolean(parts[11]),
+                LocalDateTime.parse(parts[12]), parts[13], parts[14], Boolean.parseBoolean(parts[15]));
+    }
+
+    private static String ticketLine(Ticket ticket) {
+        return TICKET + "|" + clean(ticket.getTicketId()) + "|" + ticket.getRentalId() + "|"
+                + clean(ticket.getUsername()) + "|" + clean(ticket.getCustomerName()) + "|"
+                + clean(ticket.getCustomerContact()) + "|" + clean(ticket.getVehicleInfo()) + "|"
+                + clean(ticket.getCarPlate()) + "|" + ticket.getStartDate() + "|" + ticket.getEndDate() + "|"
+                + ticket.getTotalFee() + "|" + ticket.isInsuranceIncluded() + "|" + ticket.getGeneratedTime() + "|"
+                + clean(ticket.getPickupLocation()) + "|" + clean(ticket.getSpecialInstructions()) + "|"
+                + ticket.isUsed() + "\n";
+    }
+
+    private static String clean(String text) {
+        return text == null ? "" : text.replaceAll("[|\r\n]", " ");
+    }
+}
@@ -1,4 +1,17 @@
 package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Base64;
+
 public class UtilityService {
 
     public static void clearScreen() {
@@ -21,6 +34,42 @@ public class UtilityService {
         }
     }
 
+    /**
+     * Append an amount with two decimals, as %.2f would, without the Formatter overhead
+     */
+    public static StringBuilder appendMoney(StringBuilder out, double amount) {
+        long cents = Math.round(Math.abs(amount) * 100);
+        if (amount < 0 && cents > 0) {
+            out.append('-');
+        }
+        out.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        return out.append(fraction < 10 ? "0" : "").append(fraction);
+    }
+
+    /**
+     * Append a CSV field per RFC 4180: quoted, with embedded quotes doubled,
+     * when it holds a comma, quote or line break; as-is otherwise
+     */
+    public static StringBuilder appendCsvField(StringBuilder out, String field) {
+        if (field == null) {
+            return out;
+        }
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0
+                && field.indexOf('\r') < 0) {
+            return out.append(field);
+        }
+        out.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
     /**
      * @param str 
      * @return 
@@ -255,4 +304,56 @@ public class UtilityService {
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Move a fully written temporary file over the target, atomically where the
+     * file system supports it, so readers never see a partly written file
+     */
+    public static void replaceFile(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Whether an append-only file is missing, empty or ends with a complete line.
+     * A crash mid-append leaves a torn last line; writers start with a newline
+     * when this is false so the next record is not glued onto it.
+     */
+    public static boolean endsWithNewline(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return true;
+        }
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) == '\n';
+        }
+    }
+
+    /**
+     * Secret kept in a key file: read if present, otherwise generated from the
+     * given number of random bytes and written base64 encoded, readable by the
+     * owner only where the file system supports it
+     */
+    public static String readOrCreateSecret(Path file, int bytes) throws IOException {
+        if (Files.exists(file)) {
+            return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+        }
+        byte[] secret = new byte[bytes];
+        new SecureRandom().nextBytes(secret);
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+        }
+        String encoded = Base64.getEncoder().encodeToString(secret);
+        Files.write(file, encoded.getBytes(StandardCharsets.US_ASCII));
+        return encoded;
+    }
 }
@@ -0,0 +1,528 @@
+package services;
+
+import enums.SearchField;
+import enums.VehicleFacet;
+import java.util.*;
+import models.Vehicle;
+
+/**
+ * Compiled vehicle search query.
+ *
+ * Supported syntax (keywords and fields are case-insensitive):
+ *   toyota                     bare term, matched against brand/model/plate/type/fuel
+ *   "perodua axia"             quoted phrase
+ *   brand:toyota               field qualifier (brand, model, plate, type, fuel, color, condition, status)
+ *   year>2020, price<=100      numeric comparison (year, price, capacity) with > >= < <= =
+ *   capacity:4..7              inclusive numeric range
+ *   a AND b, a OR b, NOT a     boolean operators; adjacent terms are ANDed; parentheses group
+ *
+ * Queries compile into a predicate tree. Text terms and status resolve through
+ * the vehicle search index as bitsets; other attributes are checked per slot.
+ * Compiled plans are kept in an LRU cache keyed by the query text.
+ */
+public class VehicleQuery {
+
+    private static final int CACHE_SIZE = 128;
+    private static final Map<String, VehicleQuery> PLAN_CACHE = new LinkedHashMap<String, VehicleQuery>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VehicleQuery> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final String text;
+    private final Node root;
+
+    private VehicleQuery(String text, Node root) {
+        this.text = text;
+        this.root = root;
+    }
+
+    /**
+     * Compile a query, reusing a cached plan for the same text
+     *
+     * @throws IllegalArgumentException if the query cannot be parsed
+     */
+    public static VehicleQuery compile(String query) {
+        String key = query == null ? "" : query.trim().toLowerCase();
+        synchronized (PLAN_CACHE) {
+            VehicleQuery cached = PLAN_CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        VehicleQuery compiled = new VehicleQuery(key, new Parser(tokenize(key)).parseQuery());
+        synchronized (PLAN_CACHE) {
+            PLAN_CACHE.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Run the query against the indexed fleet
+     */
+    public List<Vehicle> execute(VehicleSearchIndex index) {
+        return index.toVehicles(root.evaluate(index));
+    }
+
+    /**
+     * Run the query against an arbitrary list, keeping its order
+     */
+    public List<Vehicle> filter(List<Vehicle> vehicles) {
+        List<Vehicle> results = new ArrayList<>();
+        for (Vehicle v : vehicles) {
+            if (root.matches(v)) {
+                results.add(v);
+            }
+        }
+        return results;
+    }
+
+    public boolean matches(Vehicle vehicle) {
+        return root.matches(vehicle);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    // ------------------- PREDICATE TREE ---------------------
+
+    private interface Node {
+        BitSet evaluate(VehicleSearchIndex index);
+
+        boolean matches(Vehicle vehicle);
+    }
+
+    private static final class AllNode implements Node {
+        public BitSet evaluate(VehicleSearchIndex index) {
+            return index.allSlots();
+        }
+
+        public boolean matches(Vehicle vehicle) {
+            return true;
+        }
+
+        public String toString() {
+            return "*";
+        }
+    }
+
+    private static final class AndNode implements Node {
+        private final List<Node> children;
+
+        AndNode(List<Node> children) {
+            this.children = children;
+        }
+
+        public BitSet evaluate(VehicleSearchIndex index) {
+            BitSet result = children.get(0).evaluate(index);
+            for (int i = 1; i < children.size() && !result.isEmpty(); i++) {
+                result.and(children.get(i).evaluate(index));
+            }
+            return result;
+        }
+
+        public boolean matches(Vehicle vehicle) {
+            for (Node child : children) {
+                if (!child.matches(vehicle)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public String toString() {
+            return "AND" + children;
+        }
+    }
+
+    private static final class OrNode implements Node {
+        private final List<Node> children;
+
+        OrNode(List<Node> children) {
+            this.children = children;
+        }
+
+        public BitSet evaluate(VehicleSearchIndex index) {
+            BitSet result = new BitSet();
+            for (Node child : children) {
+                result.or(child.evaluate(index));
+            }
+            return result;
+        }
+
+        public boolean matches(Vehicle vehicle) {
+            for (Node child : children) {
+                if (child.matches(vehicle)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public String toString() {
+            return "OR" + children;
+        }
+    }
+
+    private static final class NotNode implements Node {
+        private final Node child;
+
+        NotNode(Node child) {
+            this.child = child;
+        }
+
+        public BitSet evaluate(VehicleSearchIndex index) {
+            BitSet result = index.allSlots();
+            result.andNot(child.evaluate(index));
+            return result;
+        }
+
+        public boolean matches(Vehicle vehicle) {
+            return !child.matches(vehicle);
+        }
+
+        public String toString() {
+            return "NOT(" + child + ")";
+        }
+    }
+
+    /**
+     * Substring match on indexed text fields
+     */
+    private static final class TextNode implements Node {
+        private final Set<SearchField> fields;
+        private final String term;
+
+        TextNode(Set<SearchField> fields, String term) {
+            this.fields = fields;
+            this.term = term;
+        }
+
+        public BitSet evaluate(VehicleSearchIndex index) {
+            return index.matchSlots(term, fields);
+        }
+
+        public boolean matches(Vehicle vehicle) {
+            for (SearchField field : fields) {
+                if (lower(textOf(vehicle, field)).contains(term)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public String toString() {
+            return fields + "~'" + term + "'";
+        }
+    }
+
+    /**
+     * Non-indexed attribute test, evaluated per live slot
+     */
+    private abstract static class ScanNode implements Node {
+        public BitSet evaluate(VehicleSearchIndex index) {
+            BitSet result = index.allSlots();
+            for (int slot = result.nextSetBit(0); slot >= 0; slot = result.nextSetBit(slot + 1)) {
+                if (!matches(index.vehicleAt(slot))) {
+                    result.clear(slot);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class AttributeNode extends ScanNode {
+        private final String field;
+        private final String value;
+
+        AttributeNode(String field, String value) {
+            this.field = field;
+            this.value = value;
+        }
+
+        @Override
+        public BitSet evaluate(VehicleSearchIndex index) {
+            if (field.equals("status")) {
+                return index.facetSlots(VehicleFacet.STATUS, value);
+            }
+            return super.evaluate(index);
+        }
+
+        public boolean matches(Vehicle vehicle) {
+            switch (field) {
+                case "color":
+                    return lower(vehicle.getColor()).contains(value);
+                case "condition":
+                    return lower(vehicle.getCondition()).contains(value);
+                default: // status
+                    return lower(vehicle.getStatus()).equals(value);
+            }
+        }
+
+        public String toString() {
+            return field + "='" + value + "'";
+        }
+    }
+
+    private static final class RangeNode extends ScanNode {
+        private final String field;
+        private final double min;
+        private final double max;
+        private final boolean minInclusive;
+        private final boolean maxInclusive;
+
+        RangeNode(String field, double min, boolean minInclusive, double max, boolean maxInclusive) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+            this.minInclusive = minInclusive;
+            this.maxInclusive = maxInclusive;
+        }
+
+        public boolean matches(Vehicle vehicle) {
+            double v;
+            switch (field) {
+                case "year":
+                    v = vehicle.getYear();
+                    break;
+                case "price":
+                    v = vehicle.getBasePrice();
+                    break;
+                default: // capacity
+                    v = vehicle.getCapacity();
+                    break;
+            }
+            return (minInclusive ? v >= min : v > min) && (maxInclusive ? v <= max : v < max);
+        }
+
+        public String toString() {
+            return field + (minInclusive ? "[" : "(") + min + "," + max + (maxInclusive ? "]" : ")");
+        }
+    }
+
+    // ------------------- PARSER ---------------------
+
+    private static final Set<String> OPERATORS = new HashSet<>(Arrays.asList(":", "=", ">", ">=", "<", "<="));
+    private static final Set<String> NUMERIC_FIELDS = new HashSet<>(Arrays.asList("year", "price", "capacity"));
+    private static final Set<String> ATTRIBUTE_FIELDS = new HashSet<>(Arrays.asList("color", "condition", "status"));
+
+    /**
+     * Split query text into words, quoted phrases, parentheses and comparison operators
+     */
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == ':' || c == '=') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '>' || c == '<') {
+                if (i + 1 < query.length() && query.charAt(i + 1) == '=') {
+                    tokens.add(c + "=");
+                    i += 2;
+                } else {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                }
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated quote");
+                }
+                // Leading quote marks the token as a phrase rather than a keyword
+                tokens.add("\"" + query.substring(i + 1, end));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < query.length() && "()\":=<> \t".indexOf(query.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(query.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+        private final List<String> tokens;
+        private int pos;
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        Node parseQuery() {
+            if (tokens.isEmpty()) {
+                return new AllNode();
+            }
+            Node node = parseOr();
+            if (pos < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected '" + tokens.get(pos) + "'");
+            }
+            return node;
+        }
+
+        private Node parseOr() {
+            List<Node> children = new ArrayList<>();
+            children.add(parseAnd());
+            while (accept("or")) {
+                children.add(parseAnd());
+            }
+            return children.size() == 1 ? children.get(0) : new OrNode(children);
+        }
+
+        private Node parseAnd() {
+            List<Node> children = new ArrayList<>();
+            children.add(parseNot());
+            while (pos < tokens.size()) {
+                String next = tokens.get(pos);
+                if (next.equals("and")) {
+                    pos++;
+                } else if (next.equals("or") || next.equals(")")) {
+                    break;
+                }
+                // Adjacent terms are an implicit AND
+                children.add(parseNot());
+            }
+            return children.size() == 1 ? children.get(0) : new AndNode(children);
+        }
+
+        private Node parseNot() {
+            if (accept("not")) {
+                return new NotNode(parseNot());
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            String token = next();
+            if (token.equals("(")) {
+                Node inner = parseOr();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Missing ')'");
+                }
+                return inner;
+            }
+            if (token.equals(")") || OPERATORS.contains(token)) {
+                throw new IllegalArgumentException("Unexpected '" + token + "'");
+            }
+            if (pos < tokens.size() && OPERATORS.contains(tokens.get(pos))) {
+                return parseQualified(token, next());
+            }
+            return new TextNode(EnumSet.allOf(SearchField.class), unquote(token));
+        }
+
+        private Node parseQualified(String field, String op) {
+            String value = unquote(next());
+            if (NUMERIC_FIELDS.contains(field)) {
+                return numeric(field, op, value);
+            }
+            if (!op.equals(":") && !op.equals("=")) {
+                throw new IllegalArgumentException("Field '" + field + "' does not support '" + op + "'");
+            }
+            if (ATTRIBUTE_FIELDS.contains(field)) {
+                return new AttributeNode(field, value);
+            }
+            SearchField searchField = textField(field);
+            if (searchField == null) {
+                throw new IllegalArgumentException("Unknown field '" + field + "'");
+            }
+            return new TextNode(EnumSet.of(searchField), value);
+        }
+
+        private Node numeric(String field, String op, String value) {
+            if (op.equals(":") && value.contains("..")) {
+                String[] bounds = value.split("\\.\\.", -1);
+                double min = bounds[0].isEmpty() ? Double.NEGATIVE_INFINITY : number(bounds[0]);
+                double max = bounds.length < 2 || bounds[1].isEmpty() ? Double.POSITIVE_INFINITY : number(bounds[1]);
+                return new RangeNode(field, min, true, max, true);
+            }
+            double n = number(value);
+            switch (op) {
+                case ">":
+                    return new RangeNode(field, n, false, Double.POSITIVE_INFINITY, true);
+                case ">=":
+                    return new RangeNode(field, n, true, Double.POSITIVE_INFINITY, true);
+                case "<":
+                    return new RangeNode(field, Double.NEGATIVE_INFINITY, true, n, false);
+                case "<=":
+                    return new RangeNode(field, Double.NEGATIVE_INFINITY, true, n, true);
+                default: // ':' or '='
+                    return new RangeNode(field, n, true, n, true);
+            }
+        }
+
+        private boolean accept(String token) {
+            if (pos < tokens.size() && tokens.get(pos).equals(token)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private String next() {
+            if (pos >= tokens.size()) {
+                throw new IllegalArgumentException("Unexpected end of query");
+            }
+            return tokens.get(pos++);
+        }
+    }
+
+    private static String unquote(String token) {
+        return token.startsWith("\"") ? token.substring(1) : token;
+    }
+
+    private static double number(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number but found '" + value + "'");
+        }
+    }
+
+    private static SearchField textField(String field) {
+        switch (field) {
+            case "brand":
+                return SearchField.BRAND;
+            case "model":
+                return SearchField.MODEL;
+            case "plate":
+                return SearchField.PLATE;
+            case "type":
+                return SearchField.TYPE;
+            case "fuel":
+                return SearchField.FUEL;
+            default:
+                return null;
+        }
+    }
+
+    private static String textOf(Vehicle vehicle, SearchField field) {
+        switch (field) {
+            case BRAND:
+                return vehicle.getBrand();
+            case MODEL:
+                return vehicle.getModel();
+            case PLATE:
+                return vehicle.getCarPlate();
+            case TYPE:
+                return vehicle.getVehicleType();
+            default:
+                return vehicle.getFuelType();
+        }
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase();
+    }
+}
@@ -0,0 +1,487 @@
+package services;
+
+import enums.FuelType;
+import enums.SearchField;
+import enums.VehicleFacet;
+import enums.VehicleType;
+import interfaces.VehicleChangeListener;
+import java.util.*;
+import models.Vehicle;
+
+/**
+ * N-gram inverted index over vehicle brand, model, plate, type and fuel.
+ *
+ * Every 1-, 2- and 3-character substring of each lowercased field is mapped
+ * to a sorted posting list of vehicle slots. A substring query intersects the
+ * posting lists of its trigrams (or looks up the single gram for queries of up
+ * to three characters) and only verifies the few surviving candidates.
+ *
+ * Slots are assigned in insertion order and never reused. A re-indexed vehicle
+ * gets a new slot and its old one is tombstoned; the index is compacted once
+ * tombstones outnumber live slots.
+ *
+ * The same slots back per-value facet bitsets (type, fuel, status, brand), so
+ * combined filters are bitwise ANDs and facet counts are bitset cardinalities.
+ * Status and archive changes arrive through the vehicle change listener and
+ * only flip the affected bits.
+ */
+public class VehicleSearchIndex implements VehicleChangeListener {
+
+    private static final int MAX_GRAM = 3;
+    private static final int FIELD_COUNT = SearchField.values().length;
+    private static final int[] EMPTY = new int[0];
+
+    private final List<Vehicle> slots = new ArrayList<>();
+    private final List<String[]> slotValues = new ArrayList<>(); // lowercased field values per slot
+    private final Map<Vehicle, Integer> slotByVehicle = new IdentityHashMap<>();
+    private final BitSet live = new BitSet();
+    private final List<Map<Long, Postings>> postings = new ArrayList<>();
+    private final Map<VehicleFacet, Map<String, BitSet>> facets = new EnumMap<>(VehicleFacet.class);
+    private final Map<VehicleFacet, Map<String, String>> facetLabels = new EnumMap<>(VehicleFacet.class);
+    private final List<String[]> slotFacetKeys = new ArrayList<>();
+    private final BitSet archivedSlots = new BitSet();
+    private int deadCount;
+
+    // Fleet list this index was built from, used to detect direct list edits
+    private List<Vehicle> source;
+    private int sourceSize;
+
+    public VehicleSearchIndex() {
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            postings.add(new HashMap<>());
+        }
+        for (VehicleFacet facet : VehicleFacet.values()) {
+            facets.put(facet, new HashMap<>());
+            facetLabels.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * Discard everything and index the given fleet
+     */
+    public synchronized void rebuild(List<Vehicle> vehicles) {
+        for (Vehicle v : slotByVehicle.keySet()) {
+            v.setChangeListener(null);
+        }
+        slots.clear();
+        slotValues.clear();
+        slotFacetKeys.clear();
+        slotByVehicle.clear();
+        live.clear();
+        archivedSlots.clear();
+        for (Map<Long, Postings> fieldPostings : postings) {
+            fieldPostings.clear();
+        }
+        for (VehicleFacet facet : VehicleFacet.values()) {
+            facets.get(facet).clear();
+            facetLabels.get(facet).clear();
+        }
+        deadCount = 0;
+        for (Vehicle v : vehicles) {
+            insert(v);
+        }
+        source = vehicles;
+        sourceSize = vehicles.size();
+    }
+
+    /**
+     * Rebuild if the fleet list was replaced or resized without going through the index
+     */
+    public synchronized void ensureCurrent(List<Vehicle> vehicles) {
+        if (vehicles != source || vehicles.size() != sourceSize) {
+            rebuild(vehicles);
+        }
+    }
+
+    /**
+     * Index a newly added vehicle
+     */
+    public synchronized void add(Vehicle vehicle) {
+        if (slotByVehicle.containsKey(vehicle)) {
+            reindex(vehicle);
+            return;
+        }
+        insert(vehicle);
+        sourceSize++;
+    }
+
+    /**
+     * Refresh a vehicle's entry after an update; no-op when its indexed fields are unchanged
+     */
+    public synchronized void reindex(Vehicle vehicle) {
+        Integer slot = slotByVehicle.get(vehicle);
+        if (slot == null) {
+            insert(vehicle);
+            return;
+        }
+        if (Arrays.equals(slotValues.get(slot), valuesOf(vehicle))) {
+            // Text unchanged: only move the facet bits that differ
+            unsetFacets(slot);
+            setFacets(slot, vehicle);
+            return;
+        }
+        tombstone(slot);
+        insert(vehicle);
+        compactIfNeeded();
+    }
+
+    /**
+     * Drop a vehicle from the index
+     */
+    public synchronized void remove(Vehicle vehicle) {
+        Integer slot = slotByVehicle.remove(vehicle);
+        if (slot != null) {
+            vehicle.setChangeListener(null);
+            tombstone(slot);
+            sourceSize--;
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Called by fleet vehicles when their status or archived flag changes
+     */
+    @Override
+    public synchronized void vehicleChanged(Vehicle vehicle) {
+        if (slotByVehicle.containsKey(vehicle)) {
+            reindex(vehicle);
+        }
+    }
+
+    /**
+     * Vehicles whose field (any of the given fields) contains the term, case-insensitively
+     */
+    public synchronized List<Vehicle> search(String term, Set<SearchField> fields) {
+        return toVehicles(matchSlots(term, fields));
+    }
+
+    /**
+     * Slots of vehicles matching the term in any of the given fields
+     */
+    public synchronized BitSet matchSlots(String term, Set<SearchField> fields) {
+        BitSet result = new BitSet();
+        String needle = term == null ? "" : term.toLowerCase().trim();
+        if (needle.isEmpty()) {
+            result.or(live);
+            return result;
+        }
+
+        long[] grams = queryGrams(needle);
+        boolean exactGram = needle.length() <= MAX_GRAM;
+        for (SearchField field : fields) {
+            int f = field.ordinal();
+            for (int slot : candidates(f, grams)) {
+                if (!live.get(slot) || result.get(slot)) {
+                    continue;
+                }
+                if (exactGram || slotValues.get(slot)[f].contains(needle)) {
+                    result.set(slot);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Slots of every live vehicle
+     */
+    public synchronized BitSet allSlots() {
+        return (BitSet) live.clone();
+    }
+
+    /**
+     * Slots of vehicles whose facet equals the value (case-insensitive)
+     */
+    public synchronized BitSet facetSlots(VehicleFacet facet, String value) {
+        BitSet bits = facets.get(facet).get(facetKey(value));
+        return bits == null ? new BitSet() : (BitSet) bits.clone();
+    }
+
+    /**
+     * Slots of vehicles of the given type (OTHER covers every custom type label)
+     */
+    public synchronized BitSet typeSlots(VehicleType type) {
+        BitSet result = new BitSet();
+        for (Map.Entry<String, BitSet> entry : facets.get(VehicleFacet.TYPE).entrySet()) {
+            if (VehicleType.fromLabel(entry.getKey()) == type) {
+                result.or(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Slots of vehicles using the given fuel (OTHER covers every custom fuel label)
+     */
+    public synchronized BitSet fuelSlots(FuelType fuel) {
+        BitSet result = new BitSet();
+        for (Map.Entry<String, BitSet> entry : facets.get(VehicleFacet.FUEL).entrySet()) {
+            if (FuelType.fromLabel(entry.getKey()) == fuel) {
+                result.or(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Slots of archived vehicles
+     */
+    public synchronized BitSet archivedSlots() {
+        return (BitSet) archivedSlots.clone();
+    }
+
+    /**
+     * Count vehicles per facet value within a slot set, most frequent first
+     */
+    public synchronized Map<String, Integer> facetCounts(VehicleFacet facet, BitSet within) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        for (Map.Entry<String, BitSet> entry : facets.get(facet).entrySet()) {
+            BitSet bits = (BitSet) entry.getValue().clone();
+            bits.and(within);
+            int count = bits.cardinality();
+            if (count > 0) {
+                counts.add(new AbstractMap.SimpleEntry<>(facetLabels.get(facet).get(entry.getKey()), count));
+            }
+        }
+        counts.sort((a, b) -> b.getValue() != a.getValue().intValue() ? b.getValue() - a.getValue()
+                : a.getKey().compareToIgnoreCase(b.getKey()));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : counts) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Slots of the given vehicles (vehicles not in the index are skipped)
+     */
+    public synchronized BitSet slotsOf(Collection<Vehicle> vehicles) {
+        BitSet result = new BitSet();
+        for (Vehicle v : vehicles) {
+            Integer slot = slotByVehicle.get(v);
+            if (slot != null && live.get(slot)) {
+                result.set(slot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolve matched slots back to vehicles in slot order
+     */
+    public synchronized List<Vehicle> toVehicles(BitSet matched) {
+        List<Vehicle> results = new ArrayList<>(matched.cardinality());
+        for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+            results.add(slots.get(slot));
+        }
+        return results;
+    }
+
+    /**
+     * Vehicle stored in a slot (live or tombstoned)
+     */
+    public synchronized Vehicle vehicleAt(int slot) {
+        return slots.get(slot);
+    }
+
+    public synchronized int size() {
+        return slots.size() - deadCount;
+    }
+
+    private void insert(Vehicle vehicle) {
+        int slot = slots.size();
+        String[] values = valuesOf(vehicle);
+        slots.add(vehicle);
+        slotValues.add(values);
+        slotByVehicle.put(vehicle, slot);
+        slotFacetKeys.add(new String[VehicleFacet.values().length]);
+        live.set(slot);
+        setFacets(slot, vehicle);
+        vehicle.setChangeListener(this);
+
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            Map<Long, Postings> fieldPostings = postings.get(f);
+            String value = values[f];
+            // One posting per distinct gram; slots only grow, so lists stay sorted
+            Set<Long> seen = new HashSet<>();
+            for (int len = 1; len <= MAX_GRAM; len++) {
+                for (int i = 0; i + len <= value.length(); i++) {
+                    long gram = gram(value, i, len);
+                    if (seen.add(gram)) {
+                        fieldPostings.computeIfAbsent(gram, k -> new Postings()).add(slot);
+                    }
+                }
+            }
+        }
+    }
+
+    private void tombstone(int slot) {
+        unsetFacets(slot);
+        live.clear(slot);
+        deadCount++;
+    }
+
+    private void setFacets(int slot, Vehicle vehicle) {
+        String[] keys = slotFacetKeys.get(slot);
+        for (VehicleFacet facet : VehicleFacet.values()) {
+            String label = facetValue(vehicle, facet);
+            String key = facetKey(label);
+            keys[facet.ordinal()] = key;
+            facets.get(facet).computeIfAbsent(key, k -> new BitSet()).set(slot);
+            facetLabels.get(facet).putIfAbsent(key, label);
+        }
+        archivedSlots.set(slot, vehicle.isArchived());
+    }
+
+    private void unsetFacets(int slot) {
+        String[] keys = slotFacetKeys.get(slot);
+        for (VehicleFacet facet : VehicleFacet.values()) {
+            String key = keys[facet.ordinal()];
+            BitSet bits = key == null ? null : facets.get(facet).get(key);
+            if (bits != null) {
+                bits.clear(slot);
+                if (bits.isEmpty()) {
+                    facets.get(facet).remove(key);
+                    facetLabels.get(facet).remove(key);
+                }
+            }
+        }
+        archivedSlots.clear(slot);
+    }
+
+    private static String facetValue(Vehicle vehicle, VehicleFacet facet) {
+        String value;
+        switch (facet) {
+            case TYPE:
+                value = vehicle.getVehicleType();
+                break;
+            case FUEL:
+                value = vehicle.getFuelType();
+                break;
+            case STATUS:
+                value = vehicle.getStatus();
+                break;
+            default:
+                value = vehicle.getBrand();
+                break;
+        }
+        return value == null ? "" : value.trim();
+    }
+
+    private static String facetKey(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
+    }
+
+    private void compactIfNeeded() {
+        if (deadCount > 64 && deadCount > slots.size() - deadCount) {
+            List<Vehicle> current = new ArrayList<>();
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                current.add(slots.get(slot));
+            }
+            List<Vehicle> keepSource = source;
+            int keepSize = sourceSize;
+            rebuild(current);
+            source = keepSource;
+            sourceSize = keepSize;
+        }
+    }
+
+    /**
+     * Intersect the posting lists of all query grams for one field, shortest first
+     */
+    private int[] candidates(int field, long[] grams) {
+        Map<Long, Postings> fieldPostings = postings.get(field);
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = fieldPostings.get(grams[i]);
+            if (lists[i] == null) {
+                return EMPTY;
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+        int[] current = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int count = current.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            count = intersect(current, count, lists[i]);
+        }
+        return count == current.length ? current : Arrays.copyOf(current, count);
+    }
+
+    /**
+     * Keep only the first count entries of current that also appear in other; returns the new count
+     */
+    private static int intersect(int[] current, int count, Postings other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < other.size; i++) {
+            int slot = current[i];
+            while (j < other.size && other.ids[j] < slot) {
+                j++;
+            }
+            if (j < other.size && other.ids[j] == slot) {
+                current[kept++] = slot;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Grams used to answer a query: the whole term if short, otherwise its distinct trigrams
+     */
+    private static long[] queryGrams(String needle) {
+        if (needle.length() <= MAX_GRAM) {
+            return new long[] { gram(needle, 0, needle.length()) };
+        }
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + MAX_GRAM <= needle.length(); i++) {
+            grams.add(gram(needle, i, MAX_GRAM));
+        }
+        long[] result = new long[grams.size()];
+        int i = 0;
+        for (Long g : grams) {
+            result[i++] = g;
+        }
+        return result;
+    }
+
+    /**
+     * Pack up to three chars plus the gram length into one long key
+     */
+    private static long gram(String s, int start, int len) {
+        long key = (long) len << 48;
+        for (int i = 0; i < len; i++) {
+            key |= (long) s.charAt(start + i) << (32 - 16 * i);
+        }
+        return key;
+    }
+
+    private static String[] valuesOf(Vehicle v) {
+        String[] values = new String[FIELD_COUNT];
+        values[SearchField.BRAND.ordinal()] = lower(v.getBrand());
+        values[SearchField.MODEL.ordinal()] = lower(v.getModel());
+        values[SearchField.PLATE.ordinal()] = lower(v.getCarPlate());
+        values[SearchField.TYPE.ordinal()] = lower(v.getVehicleType());
+        values[SearchField.FUEL.ordinal()] = lower(v.getFuelType());
+        return values;
+    }
+
+    private static String lower(Object value) {
+        return value == null ? "" : value.toString().toLowerCase();
+    }
+
+    /**
+     * Growable sorted int list
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = slot;
+        }
+    }
+}
@@ -11,6 +11,13 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import models.*;
 import enums.*;
@@ -19,8 +26,10 @@ import static services.UtilityService.*;
 
 public class vehicleService {
 
-    private static List<Vehicle> vehicles = new ArrayList<Vehicle>();
+    private static volatile List<Vehicle> vehicles = new CopyOnWriteArrayList<>();
     private static List<Rental> rentals = new ArrayList<>();
+    private static long modificationCount = 0; // bumped whenever the fleet is loaded, replaced or saved
+    private static final VehicleSearchIndex searchIndex = new VehicleSearchIndex();
 
     /**
      * Capitalize first letter of each word
@@ -51,10 +60,26 @@ public class vehicleService {
         return vehicles;
     }
 
+    /**
+     * Version stamp that changes whenever vehicle data is loaded, replaced or saved
+     */
+    public static long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Search index over the current fleet, rebuilt first if the list was changed directly
+     */
+    public static VehicleSearchIndex getSearchIndex() {
+        searchIndex.ensureCurrent(vehicles);
+        return searchIndex;
+    }
+
     /**
      * Load vehicle data from JSON file
      */
     public static void loadVehicles(String filename) {
+        modificationCount++;
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             vehicles = new ArrayList<>();
             StringBuilder jsonContent = new StringBuilder();
@@ -63,15 +88,15 @@ public class vehicleService {
                 jsonContent.append(line);
             }
 
-            vehicles = parseVehiclesFromJson(jsonContent.toString());
+            List<Vehicle> parsed = parseVehiclesFromJson(jsonContent.toString());
+            // Copy-on-write so concurrent sessions can iterate the fleet while another one adds a vehicle
+            vehicles = parsed != null ? new CopyOnWriteArrayList<>(parsed) : new CopyOnWriteArrayList<>();
             System.out.println("Loaded vehicles: " + vehicles.size());
-            if (vehicles == null) {
-                vehicles = new ArrayList<>();
-            }
         } catch (IOException e) {
             System.out.println("Failed to load vehicle data: " + e.getMessage());
-            vehicles = new ArrayList<>();
+            vehicles = new CopyOnWriteArrayList<>();
         }
+        searchIndex.rebuild(vehicles);
     }
 
     /**
@@ -160,59 +185,31 @@ public class vehicleService {
 
     public static void setVehicles(List<Vehicle> vehicleList) {
         vehicles = vehicleList;
+        modificationCount++;
+        searchIndex.rebuild(vehicles);
     }
 
     public static void setRentals(List<Rental> rentalList) {
         rentals = rentalList;
     }
 
+    /**
+     * Search vehicles with the boolean query language (see VehicleQuery for the syntax)
+     */
     public static List<Vehicle> performSearch(List<Vehicle> vehicles, String query) {
-        List<Vehicle> results = new ArrayList<>();
-
-        // Remove parentheses and process the inner content
-        query = query.trim();
-        if (query.startsWith("(") && query.endsWith(")")) {
-            query = query.substring(1, query.length() - 1).trim();
+        VehicleQuery compiled;
+        try {
+            compiled = VehicleQuery.compile(query);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid search query: " + e.getMessage());
+            return new ArrayList<>();
         }
 
-        // If query contains OR operator
-        if (query.contains(" or ")) {
-            String[] orTerms = query.split(" or ");
-            for (Vehicle vehicle : vehicles) {
-                for (String term : orTerms) {
-                    if (matchesVehicle(vehicle, term.trim())) {
-                        if (!results.contains(vehicle)) {
-                            results.add(vehicle);
-                        }
-                        break;
-                    }
-                }
-            }
-        } // Handle AND operator
-        else if (query.contains(" and ")) {
-            String[] andTerms = query.split(" and ");
-            for (Vehicle vehicle : vehicles) {
-                boolean matchesAll = true;
-                for (String term : andTerms) {
-                    if (!matchesVehicle(vehicle, term.trim())) {
-                        matchesAll = false;
-                        break;
-                    }
-                }
-                if (matchesAll) {
-                    results.add(vehicle);
-                }
-            }
-        } // Single search term
-        else {
-            for (Vehicle vehicle : vehicles) {
-                if (matchesVehicle(vehicle, query)) {
-                    results.add(vehicle);
-                }
-            }
+        // Searching the fleet itself goes through the index; other lists are filtered directly
+        if (vehicles == vehicleService.vehicles) {
+            return compiled.execute(getSearchIndex());
         }
-
-        return results;
+        return compiled.filter(vehicles);
     }
 
     // Admin functions - Display all vehicles (Active and Archived)
@@ -306,6 +303,32 @@ public class vehicleService {
         System.out.println("╚═════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════════╝\n");
     }
 
+    // Display facet counts (brand, type, fuel, status) for a set of vehicles
+    public static void displayFacetCounts(List<Vehicle> vehicles) {
+        VehicleSearchIndex index = getSearchIndex();
+        BitSet slots = index.slotsOf(vehicles);
+        slots.andNot(index.archivedSlots());
+        if (slots.isEmpty()) {
+            return;
+        }
+        System.out.println("Refine by:");
+        System.out.println("  Brand : " + formatFacetCounts(index.facetCounts(VehicleFacet.BRAND, slots)));
+        System.out.println("  Type  : " + formatFacetCounts(index.facetCounts(VehicleFacet.TYPE, slots)));
+        System.out.println("  Fuel  : " + formatFacetCounts(index.facetCounts(VehicleFacet.FUEL, slots)));
+        System.out.println("  Status: " + formatFacetCounts(index.facetCounts(VehicleFacet.STATUS, slots)));
+    }
+
+    private static String formatFacetCounts(Map<String, Integer> counts) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append(" (").append(entry.getValue()).append(")");
+        }
+        return sb.toString();
+    }
+
     // Helper method for brand selection
     private static String getBrandChoice(Scanner scanner) {
         System.out.println("\nSelect Car Brand:");
@@ -668,6 +691,7 @@ public class vehicleService {
                 // create new vehicle
                 Vehicle v = new Vehicle(vehicleID, plateNo, carBrand, carModel, carType, fuelType, color, purchaseYear, capacity, condition, insuranceRate, available, basePrice, null);
                 vehicles.add(v); // store data into list, +1 +1 ...
+                searchIndex.add(v);
                 System.out.println("\nVehicle added successfully! ");
                 System.out.println(v);
 
@@ -825,6 +849,7 @@ public class vehicleService {
                 return;
         }
 
+        searchIndex.reindex(vehicle);
         saveVehicles("vehicles.json");
         System.out.println("Press Enter to continue...");
         scanner.nextLine();
@@ -891,6 +916,7 @@ public class vehicleService {
 
         vehicle.setArchived(true);
         vehicle.setStatus("archived");
+        searchIndex.reindex(vehicle);
         saveVehicles("vehicles.json");
 
         System.out.println("Vehicle archived successfully.");
@@ -940,6 +966,7 @@ public class vehicleService {
 
         vehicle.setArchived(false);
         vehicle.setStatus("available");
+        searchIndex.reindex(vehicle);
         saveVehicles("vehicles.json");
 
         System.out.println("Vehicle restored successfully and set to AVAILABLE status.");
@@ -950,7 +977,8 @@ public class vehicleService {
     /**
      * Save vehicle data to JSON file
      */
-    public static void saveVehicles(String filename) {
+    public static synchronized void saveVehicles(String filename) {
+        modificationCount++;
         try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
             String jsonContent = convertVehiclesToJson();
             writer.println(jsonContent);
@@ -959,10 +987,37 @@ public class vehicleService {
         }
     }
 
+    /**
+     * Append imported vehicles and persist atomically (temporary file moved over the target),
+     * updating the in-memory fleet and search index only after the move succeeded
+     */
+    public static synchronized void commitImportedVehicles(List<Vehicle> imported, String filename)
+            throws IOException {
+        List<Vehicle> combined = new ArrayList<>(vehicles.size() + imported.size());
+        combined.addAll(vehicles);
+        combined.addAll(imported);
+
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), "vehicles", ".tmp");
+        try {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(temp))) {
+                writer.println(convertVehiclesToJson(combined));
+            }
+            replaceFile(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        setVehicles(new CopyOnWriteArrayList<>(combined));
+    }
+
     /**
      * Convert vehicle data to JSON format
      */
     public static String convertVehiclesToJson() {
+        return convertVehiclesToJson(vehicles);
+    }
+
+    public static String convertVehiclesToJson(List<Vehicle> vehicles) {
         StringBuilder json = new StringBuilder();
         json.append("[\n");
 
@@ -1098,13 +1153,7 @@ public class vehicleService {
             return results;
         }
 
-        String searchTerm = carPlate.toLowerCase().trim();
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.getCarPlate().toLowerCase().contains(searchTerm)) {
-                results.add(vehicle);
-            }
-        }
-        return results;
+        return getSearchIndex().search(carPlate, EnumSet.of(SearchField.PLATE));
     }
 
     /**
@@ -1119,13 +1168,7 @@ public class vehicleService {
             return results;
         }
 
-        String searchTerm = brand.toLowerCase().trim();
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.getBrand().toLowerCase().contains(searchTerm)) {
-                results.add(vehicle);
-            }
-        }
-        return results;
+        return getSearchIndex().search(brand, EnumSet.of(SearchField.BRAND));
     }
 
     /**
@@ -1140,13 +1183,7 @@ public class vehicleService {
             return results;
         }
 
-        String searchTerm = model.toLowerCase().trim();
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.getModel().toLowerCase().contains(searchTerm)) {
-                results.add(vehicle);
-            }
-        }
-        return results;
+        return getSearchIndex().search(model, EnumSet.of(SearchField.MODEL));
     }
 
     /**
@@ -1161,12 +1198,8 @@ public class vehicleService {
             return results;
         }
 
-        for (Vehicle vehicle : vehicles) {
-            if (vehicleType != null && vehicleType.toString().equalsIgnoreCase(vehicle.getVehicleType())) {
-                results.add(vehicle);
-            }
-        }
-        return results;
+        VehicleSearchIndex index = getSearchIndex();
+        return index.toVehicles(index.typeSlots(vehicleType));
     }
 
     /**
@@ -1181,12 +1214,8 @@ public class vehicleService {
             return results;
         }
 
-        for (Vehicle vehicle : vehicles) {
-            if (fuelType != null && fuelType.toString().equalsIgnoreCase(vehicle.getFuelType())) {
-                results.add(vehicle);
-            }
-        }
-        return results;
+        VehicleSearchIndex index = getSearchIndex();
+        return index.toVehicles(index.fuelSlots(fuelType));
     }
 
     /**
@@ -1202,52 +1231,28 @@ public class vehicleService {
      */
     public static List<Vehicle> searchVehicles(String carPlate, String brand, String model,
             VehicleType vehicleType, FuelType fuelType, boolean onlyAvailable) {
-        List<Vehicle> results = new ArrayList<>();
-
-        for (Vehicle vehicle : vehicles) {
-            boolean matches = true;
-
-            // If specified to only show available vehicles
-            if (onlyAvailable && !"available".equalsIgnoreCase(vehicle.getStatus())) {
-                continue;
-            }
-
-            // Check car plate
-            if (carPlate != null && !carPlate.trim().isEmpty()) {
-                if (!vehicle.getCarPlate().toLowerCase().contains(carPlate.toLowerCase().trim())) {
-                    matches = false;
-                }
-            }
-
-            // Check brand
-            if (brand != null && !brand.trim().isEmpty()) {
-                if (!vehicle.getBrand().toLowerCase().contains(brand.toLowerCase().trim())) {
-                    matches = false;
-                }
-            }
-
-            // Check model
-            if (model != null && !model.trim().isEmpty()) {
-                if (!vehicle.getModel().toLowerCase().contains(model.toLowerCase().trim())) {
-                    matches = false;
-                }
-            }
-
-            // Check vehicle type
-            if (vehicleType != null && !vehicleType.toString().equalsIgnoreCase(vehicle.getVehicleType())) {
-                matches = false;
-            }
-
-            // Check fuel type
-            if (fuelType != null && !fuelType.toString().equalsIgnoreCase(vehicle.getFuelType())) {
-                matches = false;
-            }
-
-            if (matches) {
-                results.add(vehicle);
-            }
+        // Every filter is a bitset over index slots; combining them is a bitwise AND
+        VehicleSearchIndex index = getSearchIndex();
+        BitSet candidates = index.allSlots();
+        if (onlyAvailable) {
+            candidates.and(index.facetSlots(VehicleFacet.STATUS, "available"));
         }
-        return results;
+        if (vehicleType != null) {
+            candidates.and(index.typeSlots(vehicleType));
+        }
+        if (fuelType != null) {
+            candidates.and(index.fuelSlots(fuelType));
+        }
+        if (carPlate != null && !carPlate.trim().isEmpty()) {
+            candidates.and(index.matchSlots(carPlate, EnumSet.of(SearchField.PLATE)));
+        }
+        if (brand != null && !brand.trim().isEmpty()) {
+            candidates.and(index.matchSlots(brand, EnumSet.of(SearchField.BRAND)));
+        }
+        if (model != null && !model.trim().isEmpty()) {
+            candidates.and(index.matchSlots(model, EnumSet.of(SearchField.MODEL)));
+        }
+        return index.toVehicles(candidates);
     }
 
     /**
@@ -1263,24 +1268,13 @@ public class vehicleService {
             return results;
         }
 
-        String searchTerm = keyword.toLowerCase().trim();
-
-        for (Vehicle vehicle : vehicles) {
+        // Search in brand, model, car plate, type and fuel
+        for (Vehicle vehicle : getSearchIndex().search(keyword, EnumSet.allOf(SearchField.class))) {
             // Check if only available vehicles should be shown
             if (onlyAvailable && !"available".equalsIgnoreCase(vehicle.getStatus())) {
                 continue;
             }
-
-            // Search in brand, model, car plate, and type
-            boolean matches = vehicle.getBrand().toLowerCase().contains(searchTerm)
-                    || vehicle.getModel().toLowerCase().contains(searchTerm)
-                    || vehicle.getCarPlate().toLowerCase().contains(searchTerm)
-                    || vehicle.getVehicleType().toString().toLowerCase().contains(searchTerm)
-                    || vehicle.getFuelType().toString().toLowerCase().contains(searchTerm);
-
-            if (matches) {
-                results.add(vehicle);
-            }
+            results.add(vehicle);
         }
         return results;
     }
@@ -1291,13 +1285,8 @@ public class vehicleService {
      * @return List of available vehicles
      */
     public static List<Vehicle> getAvailableVehicles() {
-        List<Vehicle> availableVehicles = new ArrayList<>();
-        for (Vehicle vehicle : vehicles) {
-            if ("available".equalsIgnoreCase(vehicle.getStatus())) {
-                availableVehicles.add(vehicle);
-            }
-        }
-        return availableVehicles;
+        VehicleSearchIndex index = getSearchIndex();
+        return index.toVehicles(index.facetSlots(VehicleFacet.STATUS, "available"));
     }
 
     /**